@@ -0,0 +1,66 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.change.ext;
+
+import liquibase.change.AbstractChange;
+import liquibase.database.Database;
+import liquibase.statement.SqlStatement;
+import liquibase.statement.ext.ConvertSequenceTableStatement;
+
+import static liquibase.ext.Constants.EXTENSION_PRIORITY;
+
+
+/**
+ * Converts a MySQL sequence table made by the <code>auto_increment</code> sequence hack into the single row table used
+ * with <code>lb.mysql.sequence=hilo</code>, keeping its current value.
+ *
+ * @author Leo Przybylski (leo [at] rsmart.com)
+ */
+public class ConvertSequenceTableChange extends AbstractChange {
+    private String sequenceName;
+    
+    public ConvertSequenceTableChange() {
+        super("convertSequenceTable", "Convert Sequence Table", EXTENSION_PRIORITY);
+    }
+
+    public SqlStatement[] generateStatements(Database database) {
+        return new SqlStatement[] {
+            new ConvertSequenceTableStatement(getSequenceName())
+        };
+    }
+
+    public String getConfirmationMessage() {
+        return "Sequence table " + getSequenceName() + " converted";
+    }
+
+    public String getSequenceName() {
+        return sequenceName;
+    }
+
+    public void setSequenceName(final String sequenceName) {
+        this.sequenceName = sequenceName;
+    }
+}
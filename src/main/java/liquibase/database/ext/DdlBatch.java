@@ -0,0 +1,215 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.database.ext;
+
+import liquibase.database.Database;
+import liquibase.exception.DatabaseException;
+import liquibase.executor.ExecutorService;
+import liquibase.logging.LogFactory;
+import liquibase.sql.Sql;
+import liquibase.sql.visitor.SqlVisitor;
+import liquibase.sqlgenerator.SqlGeneratorFactory;
+import liquibase.statement.SqlStatement;
+import liquibase.statement.core.AddForeignKeyConstraintStatement;
+import liquibase.statement.core.AddPrimaryKeyStatement;
+import liquibase.statement.core.AddUniqueConstraintStatement;
+import liquibase.statement.core.CreateIndexStatement;
+import liquibase.statement.core.CreateTableStatement;
+import liquibase.statement.core.RawSqlStatement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Collects the DDL of a change set so it can be sent to the database in fewer, larger statements. Consecutive
+ * <code>ALTER TABLE ... ADD</code> statements on the same table are merged into one <code>ALTER TABLE</code>, which
+ * also saves the table rebuild MySQL does for each one. The remaining statements are sent one at a time, or joined
+ * into one call when the dialect can run several statements at once. Statements are held until the change set
+ * commits or is recorded, or until a statement that cannot be batched comes along, so they always run in order.
+ *
+ * Batching is turned on with <code>lb.ddl.batch=true</code>. <code>lb.ddl.batch.size</code> limits how many
+ * statements are joined into one call.
+ *
+ * @author Leo Przybylski
+ */
+public class DdlBatch {
+    private static final int DEFAULT_SIZE = 100;
+    static final Pattern ALTER_ADD = Pattern.compile("^ALTER TABLE (\\S+) ADD (.*)$", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private final Database database;
+    private final String   addOpen;
+    private final String   addSeparator;
+    private final String   addClose;
+    private final int      size;
+    private final List<String> pending = new ArrayList<String>();
+
+    private String alterTable;
+    private final List<String> alterClauses = new ArrayList<String>();
+
+    /**
+     * @param addOpen printed after the table name of a merged <code>ALTER TABLE</code>, like <code> ADD </code>
+     * @param addSeparator printed between the merged clauses, like <code>, ADD </code>
+     * @param addClose printed after the last clause
+     */
+    public DdlBatch(final Database database, final String addOpen, final String addSeparator, final String addClose) {
+        this.database     = database;
+        this.addOpen      = addOpen;
+        this.addSeparator = addSeparator;
+        this.addClose     = addClose;
+        this.size         = Math.max(1, Integer.getInteger("lb.ddl.batch.size", DEFAULT_SIZE));
+    }
+
+    protected Database getDatabase() {
+        return database;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean("lb.ddl.batch");
+    }
+
+    /**
+     * @return whether <code>statement</code> only changes structure and may be held back until the batch is flushed
+     */
+    public static boolean isBatchable(final SqlStatement statement) {
+        return statement instanceof CreateTableStatement
+            || statement instanceof AddPrimaryKeyStatement
+            || statement instanceof AddUniqueConstraintStatement
+            || statement instanceof AddForeignKeyConstraintStatement
+            || statement instanceof CreateIndexStatement;
+    }
+
+    /**
+     * Execute statements the way {@link Database#execute} does, except that batchable statements are held back
+     */
+    public void execute(final SqlStatement[] statements, final List<SqlVisitor> sqlVisitors) throws DatabaseException {
+        for (final SqlStatement statement : statements) {
+            if (isBatchable(statement)) {
+                add(statement, sqlVisitors);
+            }
+            else {
+                flush();
+                ExecutorService.getInstance().getExecutor(database).execute(statement, sqlVisitors);
+            }
+        }
+    }
+
+    /**
+     * Generate the sql for a statement and hold it until the next flush
+     */
+    public void add(final SqlStatement statement, final List<SqlVisitor> sqlVisitors) throws DatabaseException {
+        for (final Sql sql : SqlGeneratorFactory.getInstance().generateSql(statement, database)) {
+            String finalSql = sql.toSql();
+            if (sqlVisitors != null) {
+                for (final SqlVisitor visitor : sqlVisitors) {
+                    if (visitor != null) {
+                        finalSql = visitor.modifySql(finalSql, database);
+                    }
+                }
+            }
+            add(finalSql);
+        }
+    }
+
+    protected void add(final String sql) throws DatabaseException {
+        final Matcher alter = ALTER_ADD.matcher(sql.trim());
+        if (alter.matches() && alter.group(1).equals(alterTable)) {
+            alterClauses.add(alter.group(2));
+            return;
+        }
+
+        endAlter();
+        if (alter.matches()) {
+            alterTable = alter.group(1);
+            alterClauses.add(alter.group(2));
+        }
+        else {
+            pending.add(sql);
+        }
+
+        if (pending.size() >= size) {
+            flush();
+        }
+    }
+
+    /**
+     * Move a collected <code>ALTER TABLE</code> to the pending statements
+     */
+    private void endAlter() {
+        if (alterTable == null) {
+            return;
+        }
+
+        if (alterClauses.size() == 1) {
+            pending.add("ALTER TABLE " + alterTable + " ADD " + alterClauses.get(0));
+        }
+        else {
+            final StringBuilder sql = new StringBuilder("ALTER TABLE ").append(alterTable).append(addOpen);
+            for (int i = 0; i < alterClauses.size(); i++) {
+                sql.append(i > 0 ? addSeparator : "").append(alterClauses.get(i));
+            }
+            pending.add(sql.append(addClose).toString());
+        }
+        alterTable = null;
+        alterClauses.clear();
+    }
+
+    /**
+     * Run everything held back
+     */
+    public void flush() throws DatabaseException {
+        endAlter();
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        final List<String> statements = new ArrayList<String>(pending);
+        pending.clear();
+        LogFactory.getLogger().debug("Executing " + statements.size() + " batched DDL statements");
+        for (int i = 0; i < statements.size(); i += size) {
+            for (final String sql : join(statements.subList(i, Math.min(statements.size(), i + size)))) {
+                ExecutorService.getInstance().getExecutor(database).execute(new RawSqlStatement(sql));
+            }
+        }
+    }
+
+    /**
+     * Forget everything held back, like when the change set is rolled back
+     */
+    public void clear() {
+        pending.clear();
+        alterTable = null;
+        alterClauses.clear();
+    }
+
+    /**
+     * Combine statements into as few calls as the dialect allows. By default each statement is its own call.
+     */
+    protected List<String> join(final List<String> statements) {
+        return statements;
+    }
+}
@@ -0,0 +1,449 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.database.ext;
+
+import liquibase.change.Change;
+import liquibase.change.ColumnConfig;
+import liquibase.change.core.AddForeignKeyConstraintChange;
+import liquibase.change.core.AddPrimaryKeyChange;
+import liquibase.change.core.AddUniqueConstraintChange;
+import liquibase.change.core.CreateIndexChange;
+import liquibase.change.core.CreateTableChange;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.changelog.RanChangeSet;
+import liquibase.database.Database;
+import liquibase.database.core.MySQLDatabase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.DatabaseException;
+import liquibase.exception.UnexpectedLiquibaseException;
+import liquibase.logging.LogFactory;
+import liquibase.sql.Sql;
+import liquibase.sqlgenerator.SqlGeneratorFactory;
+import liquibase.statement.SqlStatement;
+import liquibase.statement.core.AddForeignKeyConstraintStatement;
+import liquibase.statement.core.AddPrimaryKeyStatement;
+import liquibase.statement.core.AddUniqueConstraintStatement;
+import liquibase.statement.core.CreateIndexStatement;
+import liquibase.statement.core.CreateTableStatement;
+import liquibase.util.StringUtils;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.regex.Matcher;
+
+/**
+ * Folds the keys, constraints and indexes of a new table into its <code>CREATE TABLE</code> when a schema is built
+ * from scratch, so each table is created once instead of being altered again for each of them. MySQL rebuilds an
+ * InnoDB table for every <code>ALTER TABLE</code>.
+ *
+ * The change log is scanned once before its first change runs. Starting at the top, every change set that has not run
+ * yet and holds only create table, add primary key, add unique constraint, add foreign key and create index changes is
+ * considered. The scan stops at the first change set with anything else in it, since that could put rows in a table
+ * or depend on its structure. A change is folded into the table it belongs to when both change sets would run under
+ * the same contexts and databases, neither has preconditions or runs always or on change, and for a foreign key, the
+ * referenced table is created first with a matching key already folded in. Indexes are only folded on MySQL, the one
+ * database that accepts them in <code>CREATE TABLE</code>. Folded changes run no sql of their own.
+ *
+ * A folded change may belong to a change set that does not run in this update, ie., when only a number of change sets
+ * are run or the update fails part way. Its key is already in the table then, so a later update would fail adding it
+ * again. Before folding, the scan also looks for keys, constraints and indexes of tables created by earlier updates
+ * that are already in the database under the same name, or for a primary key, at all. Those changes run no sql either.
+ *
+ * Folding is turned on with <code>lb.ddl.inline=true</code>.
+ *
+ * @author Leo Przybylski
+ */
+public class FreshSchemaOptimizer {
+    private static final Map<CreateTableStatement, List<SqlStatement>> inlined =
+        Collections.synchronizedMap(new WeakHashMap<CreateTableStatement, List<SqlStatement>>());
+
+    private final Database database;
+    private final DatabaseChangeLog changeLog;
+    private final Map<Change, Table> creates = new IdentityHashMap<Change, Table>();
+    private final Map<Change, Boolean> folded = new IdentityHashMap<Change, Boolean>();
+    private final Map<Change, Boolean> applied = new IdentityHashMap<Change, Boolean>();
+
+    public FreshSchemaOptimizer(final Database database, final DatabaseChangeLog changeLog) throws DatabaseException {
+        this.database  = database;
+        this.changeLog = changeLog;
+        optimize();
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean("lb.ddl.inline");
+    }
+
+    public DatabaseChangeLog getChangeLog() {
+        return changeLog;
+    }
+
+    /**
+     * @return whether clauses were folded into <code>statement</code>
+     */
+    public static boolean hasInlineClauses(final CreateTableStatement statement) {
+        return inlined.containsKey(statement);
+    }
+
+    /**
+     * @return the clauses to add to the <code>CREATE TABLE</code> built for <code>statement</code>, without separators
+     */
+    public static List<String> getInlineClauses(final CreateTableStatement statement, final Database database) {
+        final List<SqlStatement> statements = inlined.get(statement);
+        if (statements == null) {
+            return Collections.emptyList();
+        }
+
+        final List<String> retval = new ArrayList<String>();
+        for (final SqlStatement inline : statements) {
+            if (inline instanceof CreateIndexStatement) {
+                final CreateIndexStatement index = (CreateIndexStatement) inline;
+                retval.add((index.isUnique() != null && index.isUnique() ? "UNIQUE " : "") + "INDEX "
+                           + database.escapeIndexName(null, index.getIndexName()) + " ("
+                           + database.escapeColumnNameList(StringUtils.join(Arrays.asList(index.getColumns()), ", ")) + ")");
+                continue;
+            }
+
+            final Sql[] sql = SqlGeneratorFactory.getInstance().generateSql(inline, database);
+            final Matcher alter = sql.length == 1 ? DdlBatch.ALTER_ADD.matcher(sql[0].toSql().trim()) : null;
+            if (alter == null || !alter.matches()) {
+                throw new UnexpectedLiquibaseException("Cannot inline " + inline + " into CREATE TABLE " + statement.getTableName());
+            }
+            retval.add(alter.group(2));
+        }
+        return retval;
+    }
+
+    /**
+     * Generate the statements of a change. Folded changes have none, and new tables get the clauses folded into them.
+     */
+    public SqlStatement[] generateStatements(final Change change) {
+        if (folded.containsKey(change)) {
+            LogFactory.getLogger().debug("Already part of CREATE TABLE: " + change.getConfirmationMessage());
+            return new SqlStatement[0];
+        }
+        if (applied.containsKey(change)) {
+            LogFactory.getLogger().info("Already part of CREATE TABLE in an earlier update: " + change.getConfirmationMessage());
+            return new SqlStatement[0];
+        }
+
+        final SqlStatement[] retval = change.generateStatements(database);
+        final Table table = creates.get(change);
+        if (table != null && !table.statements.isEmpty()) {
+            for (final SqlStatement statement : retval) {
+                if (statement instanceof CreateTableStatement) {
+                    inlined.put((CreateTableStatement) statement, table.statements);
+                }
+            }
+        }
+        return retval;
+    }
+
+    protected void optimize() throws DatabaseException {
+        final List<RanChangeSet> ran = database.getRanChangeSetList();
+        final Map<String, Table> tables = new HashMap<String, Table>();
+
+        scan:
+        for (final ChangeSet changeSet : changeLog.getChangeSets()) {
+            for (final RanChangeSet ranChangeSet : ran) {
+                if (ranChangeSet.isSameAs(changeSet)) {
+                    continue scan;
+                }
+            }
+
+            for (final Change change : changeSet.getChanges()) {
+                if (!isSchemaOnly(change)) {
+                    break scan;
+                }
+            }
+
+            if (!isPlain(changeSet)) {
+                continue;
+            }
+
+            for (final Change change : changeSet.getChanges()) {
+                if (change instanceof CreateTableChange) {
+                    final Table table = new Table((CreateTableChange) change, changeSet, tables.size());
+                    tables.put(table.name, table);
+                    creates.put(change, table);
+                }
+                else if (!tables.containsKey(normalize(getTableName(change)))) {
+                    if (isApplied(change)) {
+                        applied.put(change, Boolean.TRUE);
+                    }
+                }
+                else {
+                    fold(change, changeSet, tables);
+                }
+            }
+        }
+
+        if (!folded.isEmpty()) {
+            LogFactory.getLogger().info("Folding " + folded.size() + " keys, constraints and indexes into CREATE TABLE");
+        }
+    }
+
+    /**
+     * @return whether the key, constraint or index a change adds is already in the database
+     */
+    protected boolean isApplied(final Change change) throws DatabaseException {
+        if (!(database.getConnection() instanceof JdbcConnection) || change instanceof CreateIndexChange && !(database instanceof MySQLDatabase)) {
+            return false;
+        }
+
+        try {
+            final DatabaseMetaData metaData = ((JdbcConnection) database.getConnection()).getUnderlyingConnection().getMetaData();
+            final String schemaName = getSchemaName(change);
+            final String catalog = database.convertRequestedSchemaToCatalog(schemaName);
+            final String schema  = identifier(metaData, database.convertRequestedSchemaToSchema(schemaName));
+            final String table   = identifier(metaData, getTableName(change));
+            if (change instanceof AddPrimaryKeyChange) {
+                return hasName(metaData.getPrimaryKeys(catalog, schema, table), "COLUMN_NAME", null);
+            }
+            else if (change instanceof AddUniqueConstraintChange) {
+                return hasName(metaData.getIndexInfo(catalog, schema, table, true, false), "INDEX_NAME", 
+                               ((AddUniqueConstraintChange) change).getConstraintName());
+            }
+            else if (change instanceof AddForeignKeyConstraintChange) {
+                return hasName(metaData.getImportedKeys(catalog, schema, table), "FK_NAME", 
+                               ((AddForeignKeyConstraintChange) change).getConstraintName());
+            }
+            return hasName(metaData.getIndexInfo(catalog, schema, table, false, false), "INDEX_NAME", 
+                           ((CreateIndexChange) change).getIndexName());
+        }
+        catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * @param name the name to look for or <code>null</code> for any row
+     */
+    private static boolean hasName(final ResultSet results, final String column, final String name) throws SQLException {
+        try {
+            while (results.next()) {
+                if (name == null || name.equalsIgnoreCase(results.getString(column))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        finally {
+            results.close();
+        }
+    }
+
+    /**
+     * @return a name the way the database keeps unquoted names
+     */
+    private static String identifier(final DatabaseMetaData metaData, final String name) throws SQLException {
+        if (name == null) {
+            return null;
+        }
+        if (metaData.storesUpperCaseIdentifiers()) {
+            return name.toUpperCase();
+        }
+        if (metaData.storesLowerCaseIdentifiers()) {
+            return name.toLowerCase();
+        }
+        return name;
+    }
+
+    private static String getTableName(final Change change) {
+        if (change instanceof AddPrimaryKeyChange) {
+            return ((AddPrimaryKeyChange) change).getTableName();
+        }
+        else if (change instanceof AddUniqueConstraintChange) {
+            return ((AddUniqueConstraintChange) change).getTableName();
+        }
+        else if (change instanceof AddForeignKeyConstraintChange) {
+            return ((AddForeignKeyConstraintChange) change).getBaseTableName();
+        }
+        return ((CreateIndexChange) change).getTableName();
+    }
+
+    private static String getSchemaName(final Change change) {
+        if (change instanceof AddPrimaryKeyChange) {
+            return ((AddPrimaryKeyChange) change).getSchemaName();
+        }
+        else if (change instanceof AddUniqueConstraintChange) {
+            return ((AddUniqueConstraintChange) change).getSchemaName();
+        }
+        else if (change instanceof AddForeignKeyConstraintChange) {
+            return ((AddForeignKeyConstraintChange) change).getBaseTableSchemaName();
+        }
+        return ((CreateIndexChange) change).getSchemaName();
+    }
+
+    private void fold(final Change change, final ChangeSet changeSet, final Map<String, Table> tables) {
+        if (change instanceof AddPrimaryKeyChange) {
+            final AddPrimaryKeyChange primaryKey = (AddPrimaryKeyChange) change;
+            final Table table = getTable(tables, primaryKey.getTableName(), changeSet);
+            if (table != null && table.primaryKey == null) {
+                final SqlStatement statement = getStatement(change, AddPrimaryKeyStatement.class);
+                if (statement != null) {
+                    table.primaryKey = getColumns(primaryKey.getColumnNames());
+                    table.keys.add(table.primaryKey);
+                    add(table, change, statement);
+                }
+            }
+        }
+        else if (change instanceof AddUniqueConstraintChange) {
+            final AddUniqueConstraintChange unique = (AddUniqueConstraintChange) change;
+            final Table table = getTable(tables, unique.getTableName(), changeSet);
+            final SqlStatement statement = table != null ? getStatement(change, AddUniqueConstraintStatement.class) : null;
+            if (statement != null) {
+                table.keys.add(getColumns(unique.getColumnNames()));
+                add(table, change, statement);
+            }
+        }
+        else if (change instanceof AddForeignKeyConstraintChange) {
+            final AddForeignKeyConstraintChange foreignKey = (AddForeignKeyConstraintChange) change;
+            final Table table = getTable(tables, foreignKey.getBaseTableName(), changeSet);
+            final Table referenced = table != null ? getTable(tables, foreignKey.getReferencedTableName(), changeSet) : null;
+            if (referenced != null && referenced.order <= table.order
+                && referenced.keys.contains(getColumns(foreignKey.getReferencedColumnNames()))) {
+                final SqlStatement statement = getStatement(change, AddForeignKeyConstraintStatement.class);
+                if (statement != null) {
+                    add(table, change, statement);
+                }
+            }
+        }
+        else if (change instanceof CreateIndexChange && database instanceof MySQLDatabase) {
+            final Table table = getTable(tables, ((CreateIndexChange) change).getTableName(), changeSet);
+            final SqlStatement statement = table != null ? getStatement(change, CreateIndexStatement.class) : null;
+            if (statement != null) {
+                add(table, change, statement);
+            }
+        }
+    }
+
+    private void add(final Table table, final Change change, final SqlStatement statement) {
+        table.statements.add(statement);
+        folded.put(change, Boolean.TRUE);
+    }
+
+    /**
+     * @return the new table a change set may fold into, or <code>null</code>
+     */
+    private Table getTable(final Map<String, Table> tables, final String name, final ChangeSet changeSet) {
+        final Table retval = tables.get(normalize(name));
+        if (retval == null
+            || !equal(retval.changeSet.getContexts(), changeSet.getContexts())
+            || !equal(retval.changeSet.getDbmsSet(), changeSet.getDbmsSet())) {
+            return null;
+        }
+        return retval;
+    }
+
+    /**
+     * @return the only statement of a change if it has the expected type, or <code>null</code>
+     */
+    private SqlStatement getStatement(final Change change, final Class<? extends SqlStatement> type) {
+        final SqlStatement[] statements = change.generateStatements(database);
+        return statements.length == 1 && type.isInstance(statements[0]) ? statements[0] : null;
+    }
+
+    protected boolean isSchemaOnly(final Change change) {
+        return change instanceof CreateTableChange
+            || change instanceof AddPrimaryKeyChange
+            || change instanceof AddUniqueConstraintChange
+            || change instanceof AddForeignKeyConstraintChange
+            || change instanceof CreateIndexChange;
+    }
+
+    /**
+     * @return whether a change set always runs once its turn comes
+     */
+    protected boolean isPlain(final ChangeSet changeSet) {
+        return (changeSet.getPreconditions() == null || changeSet.getPreconditions().getNestedPreconditions().isEmpty())
+            && !changeSet.isAlwaysRun()
+            && !changeSet.isRunOnChange();
+    }
+
+    private static boolean equal(final Set<String> a, final Set<String> b) {
+        return a == null || a.isEmpty() ? b == null || b.isEmpty() : a.equals(b);
+    }
+
+    private static String normalize(final String name) {
+        return name == null ? null : name.trim().toLowerCase();
+    }
+
+    private static List<String> getColumns(final String columnNames) {
+        final List<String> retval = new ArrayList<String>();
+        if (columnNames != null) {
+            for (final String column : columnNames.split(",")) {
+                retval.add(normalize(column));
+            }
+        }
+        return retval;
+    }
+
+    /**
+     * A table created in this run and what has been folded into it
+     */
+    private static class Table {
+        private final String name;
+        private final ChangeSet changeSet;
+        private final int order;
+        private final List<List<String>> keys = new ArrayList<List<String>>();
+        private final List<SqlStatement> statements = new ArrayList<SqlStatement>();
+        private List<String> primaryKey;
+
+        public Table(final CreateTableChange change, final ChangeSet changeSet, final int order) {
+            this.name      = normalize(change.getTableName());
+            this.changeSet = changeSet;
+            this.order     = order;
+
+            final List<String> key = new ArrayList<String>();
+            for (final ColumnConfig column : change.getColumns()) {
+                if (column.getConstraints() == null) {
+                    continue;
+                }
+                if (Boolean.TRUE.equals(column.getConstraints().isPrimaryKey())) {
+                    key.add(normalize(column.getName()));
+                }
+                if (Boolean.TRUE.equals(column.getConstraints().isUnique())) {
+                    keys.add(Collections.singletonList(normalize(column.getName())));
+                }
+            }
+            if (!key.isEmpty()) {
+                primaryKey = key;
+                keys.add(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.database.ext;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Hands out values of a MySQL sequence table created with <code>lb.mysql.sequence=hilo</code>. The table holds a single
+ * row with the last value reserved. Each trip to the database moves it forward by a whole block with
+ * <code>UPDATE ... SET id = LAST_INSERT_ID(id + n)</code>, and the values of the block are then given out from memory.
+ * <code>LAST_INSERT_ID</code> is kept per connection, so no other session can change what is read back, and the row
+ * lock is only held for the one statement. The connection should be in auto commit mode, otherwise the row stays locked
+ * until the caller commits.
+ *
+ * Values left over in a block are lost when the allocator goes away, so sequences can have gaps, the same as an
+ * <code>auto_increment</code> column or a cached Oracle sequence.
+ *
+ * Single row tables are marked with {@link #TABLE_COMMENT} so they can be told apart from other one column tables.
+ *
+ * @author Leo Przybylski
+ */
+public class HiLoSequence {
+    public  static final String TABLE_COMMENT      = "lbext hilo sequence";
+    private static final String ALLOCATE_STATEMENT = "UPDATE %s SET id = LAST_INSERT_ID(id + %d)";
+    private static final String LAST_ID_STATEMENT  = "SELECT LAST_INSERT_ID()";
+    private static final int    DEFAULT_BLOCK_SIZE = 50;
+
+    private final String sequenceName;
+    private final int    blockSize;
+    private long next;
+    private long hi;
+
+    /**
+     * Uses the block size from <code>lb.mysql.sequence.block</code>.
+     */
+    public HiLoSequence(final String sequenceName) {
+        this(sequenceName, Integer.getInteger("lb.mysql.sequence.block", DEFAULT_BLOCK_SIZE));
+    }
+
+    public HiLoSequence(final String sequenceName, final int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.sequenceName = sequenceName;
+        this.blockSize    = blockSize;
+        this.next         = 1;
+        this.hi           = 0;
+    }
+
+    /**
+     * @return the next value of the sequence, going to the database only when the current block is used up
+     */
+    public synchronized long next(final Connection connection) throws SQLException {
+        if (next > hi) {
+            allocate(connection);
+        }
+        return next++;
+    }
+
+    /**
+     * Reserves the next block. Connector/J reports the value set with <code>LAST_INSERT_ID(expr)</code> as the
+     * generated key of the update, so the block normally costs one round trip.
+     */
+    protected void allocate(final Connection connection) throws SQLException {
+        final Statement statement = connection.createStatement();
+        try {
+            final int rows = statement.executeUpdate(String.format(ALLOCATE_STATEMENT, sequenceName, blockSize),
+                                                     Statement.RETURN_GENERATED_KEYS);
+            if (rows != 1) {
+                throw new SQLException("Sequence table " + sequenceName + " must have exactly one row but has " + rows);
+            }
+
+            Long last = readLong(statement.getGeneratedKeys());
+            if (last == null) {
+                last = readLong(statement.executeQuery(LAST_ID_STATEMENT));
+            }
+            if (last == null) {
+                throw new SQLException("Could not read the value reserved for " + sequenceName);
+            }
+
+            hi   = last;
+            next = last - blockSize + 1;
+        }
+        finally {
+            statement.close();
+        }
+    }
+
+    private Long readLong(final ResultSet results) throws SQLException {
+        try {
+            return results.next() ? results.getLong(1) : null;
+        }
+        finally {
+            results.close();
+        }
+    }
+
+    public String getSequenceName() {
+        return sequenceName;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+}
@@ -25,21 +25,69 @@
 // or implied, of Leo Przybylski.
 package liquibase.database.ext;
 
+import liquibase.change.Change;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
 import liquibase.exception.DatabaseException;
+import liquibase.exception.LiquibaseException;
+import liquibase.sql.visitor.SqlVisitor;
+import liquibase.statement.SqlStatement;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.kualigan.tools.liquibase.change.ext.IndexBuildScheduler;
 
 import static liquibase.ext.Constants.EXTENSION_PRIORITY;
 
 /**
  * Overridden to replace all schema instances with "" when getting view definitions. The purpose is to make it schema non-specific
  *
+ * When <code>lb.ddl.batch</code> is set, the DDL of a change set is batched by {@link DdlBatch}. If the connection
+ * allows multiple queries (<code>allowMultiQueries=true</code>), each batch is sent in one call.
+ * When <code>lb.ddl.inline</code> is set, new tables get their keys, constraints and indexes in <code>CREATE TABLE</code>.
+ * See {@link FreshSchemaOptimizer}.
+ * When <code>lb.index.defer</code> is set, indexes are built in parallel at the end of the update. See
+ * {@link IndexBuildScheduler}.
+ *
  * @author Leo Przybylski (leo [at] rsmart.com
  */
 public class MySqlDatabase extends liquibase.database.core.MySQLDatabase {
+    private DdlBatch batch;
+    private FreshSchemaOptimizer optimizer;
+    private IndexBuildScheduler indexes;
+    private final Map<String, HiLoSequence> sequences = new HashMap<String, HiLoSequence>();
 
     public int getPriority() {
         return EXTENSION_PRIORITY;
     }
 
+    /**
+     * @return the next value of a single row sequence table, given out of a block reserved by {@link HiLoSequence}
+     */
+    public long getNextSequenceValue(final String sequenceName) throws DatabaseException {
+        HiLoSequence sequence;
+        synchronized (sequences) {
+            sequence = sequences.get(sequenceName.toLowerCase());
+            if (sequence == null) {
+                sequence = new HiLoSequence(sequenceName);
+                sequences.put(sequenceName.toLowerCase(), sequence);
+            }
+        }
+
+        try {
+            return sequence.next(((JdbcConnection) getConnection()).getUnderlyingConnection());
+        }
+        catch (SQLException e) {
+            throw new DatabaseException("Could not get the next value of " + sequenceName + ": " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public String getViewDefinition(String schemaName, String viewName) throws DatabaseException {
         String retval = super.getViewDefinition(schemaName, viewName);
@@ -48,4 +96,110 @@ public class MySqlDatabase extends liquibase.database.core.MySQLDatabase {
         retval = retval.replaceAll(schemaStr.toUpperCase(), "");
         return retval;
     }
+
+    protected IndexBuildScheduler getIndexBuildScheduler() {
+        if (indexes == null) {
+            indexes = new IndexBuildScheduler(this);
+        }
+        return indexes;
+    }
+
+    protected DdlBatch getDdlBatch() {
+        if (batch == null) {
+            batch = new MultiQueryBatch(this);
+        }
+        return batch;
+    }
+
+    @Override
+    public void executeStatements(final Change change, final DatabaseChangeLog changeLog, final List<SqlVisitor> sqlVisitors) throws LiquibaseException {
+        if (!FreshSchemaOptimizer.isEnabled()) {
+            super.executeStatements(change, changeLog, sqlVisitors);
+            return;
+        }
+        if (optimizer == null || optimizer.getChangeLog() != changeLog) {
+            optimizer = new FreshSchemaOptimizer(this, changeLog);
+        }
+        execute(optimizer.generateStatements(change), sqlVisitors);
+    }
+
+    @Override
+    public void execute(final SqlStatement[] statements, final List<SqlVisitor> sqlVisitors) throws LiquibaseException {
+        final SqlStatement[] remaining = IndexBuildScheduler.isEnabled() 
+            ? getIndexBuildScheduler().defer(statements, sqlVisitors) : statements;
+        if (DdlBatch.isEnabled()) {
+            getDdlBatch().execute(remaining, sqlVisitors);
+        }
+        else {
+            super.execute(remaining, sqlVisitors);
+        }
+    }
+
+    @Override
+    public void markChangeSetExecStatus(final ChangeSet changeSet, final ChangeSet.ExecType execType) throws DatabaseException {
+        if (batch != null) {
+            batch.flush();
+        }
+        super.markChangeSetExecStatus(changeSet, execType);
+    }
+
+    @Override
+    public void commit() throws DatabaseException {
+        if (batch != null) {
+            batch.flush();
+        }
+        super.commit();
+    }
+
+    @Override
+    public void rollback() throws DatabaseException {
+        if (batch != null) {
+            batch.clear();
+        }
+        super.rollback();
+    }
+
+    @Override
+    public void close() throws DatabaseException {
+        try {
+            if (batch != null) {
+                batch.flush();
+            }
+            if (indexes != null) {
+                indexes.build();
+            }
+        }
+        catch (DatabaseException e) {
+            throw e;
+        }
+        catch (LiquibaseException e) {
+            throw new DatabaseException(e.getMessage(), e);
+        }
+        finally {
+            super.close();
+        }
+    }
+
+    /**
+     * Merges <code>ALTER TABLE</code>s into <code>ALTER TABLE ... ADD ..., ADD ...</code>, and sends a batch in one
+     * call when the driver allows it
+     */
+    private static class MultiQueryBatch extends DdlBatch {
+        public MultiQueryBatch(final Database database) {
+            super(database, " ADD ", ", ADD ", "");
+        }
+
+        protected List<String> join(final List<String> statements) {
+            final String url = getDatabase().getConnection() != null ? getDatabase().getConnection().getURL() : null;
+            if (statements.size() < 2 || url == null || !url.toLowerCase().contains("allowmultiqueries=true")) {
+                return statements;
+            }
+
+            final StringBuilder retval = new StringBuilder();
+            for (final String sql : statements) {
+                retval.append(retval.length() > 0 ? ";\n" : "").append(sql);
+            }
+            return Collections.singletonList(retval.toString());
+        }
+    }
 }
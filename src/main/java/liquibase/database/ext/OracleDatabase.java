@@ -0,0 +1,201 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.database.ext;
+
+import liquibase.change.Change;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.database.Database;
+import liquibase.exception.DatabaseException;
+import liquibase.exception.LiquibaseException;
+import liquibase.sql.visitor.SqlVisitor;
+import liquibase.statement.SqlStatement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.kualigan.tools.liquibase.change.ext.IndexBuildScheduler;
+
+import static liquibase.ext.Constants.EXTENSION_PRIORITY;
+
+/**
+ * Overridden to send the DDL of a change set in anonymous blocks when <code>lb.ddl.batch</code> is set. See
+ * {@link DdlBatch}. New tables get their keys and constraints in <code>CREATE TABLE</code> when <code>lb.ddl.inline</code>
+ * is set. See {@link FreshSchemaOptimizer}.
+ * When <code>lb.index.defer</code> is set, indexes are built in parallel at the end of the update. See
+ * {@link IndexBuildScheduler}.
+ *
+ * @author Leo Przybylski
+ */
+public class OracleDatabase extends liquibase.database.core.OracleDatabase {
+    private DdlBatch batch;
+    private FreshSchemaOptimizer optimizer;
+    private IndexBuildScheduler indexes;
+
+    public int getPriority() {
+        return EXTENSION_PRIORITY;
+    }
+
+    protected IndexBuildScheduler getIndexBuildScheduler() {
+        if (indexes == null) {
+            indexes = new IndexBuildScheduler(this);
+        }
+        return indexes;
+    }
+
+    protected DdlBatch getDdlBatch() {
+        if (batch == null) {
+            batch = new BlockBatch(this);
+        }
+        return batch;
+    }
+
+    @Override
+    public void executeStatements(final Change change, final DatabaseChangeLog changeLog, final List<SqlVisitor> sqlVisitors) throws LiquibaseException {
+        if (!FreshSchemaOptimizer.isEnabled()) {
+            super.executeStatements(change, changeLog, sqlVisitors);
+            return;
+        }
+        if (optimizer == null || optimizer.getChangeLog() != changeLog) {
+            optimizer = new FreshSchemaOptimizer(this, changeLog);
+        }
+        execute(optimizer.generateStatements(change), sqlVisitors);
+    }
+
+    @Override
+    public void execute(final SqlStatement[] statements, final List<SqlVisitor> sqlVisitors) throws LiquibaseException {
+        final SqlStatement[] remaining = IndexBuildScheduler.isEnabled() 
+            ? getIndexBuildScheduler().defer(statements, sqlVisitors) : statements;
+        if (DdlBatch.isEnabled()) {
+            getDdlBatch().execute(remaining, sqlVisitors);
+        }
+        else {
+            super.execute(remaining, sqlVisitors);
+        }
+    }
+
+    @Override
+    public void markChangeSetExecStatus(final ChangeSet changeSet, final ChangeSet.ExecType execType) throws DatabaseException {
+        if (batch != null) {
+            batch.flush();
+        }
+        super.markChangeSetExecStatus(changeSet, execType);
+    }
+
+    @Override
+    public void commit() throws DatabaseException {
+        if (batch != null) {
+            batch.flush();
+        }
+        super.commit();
+    }
+
+    @Override
+    public void rollback() throws DatabaseException {
+        if (batch != null) {
+            batch.clear();
+        }
+        super.rollback();
+    }
+
+    @Override
+    public void close() throws DatabaseException {
+        try {
+            if (batch != null) {
+                batch.flush();
+            }
+            if (indexes != null) {
+                indexes.build();
+            }
+        }
+        catch (DatabaseException e) {
+            throw e;
+        }
+        catch (LiquibaseException e) {
+            throw new DatabaseException(e.getMessage(), e);
+        }
+        finally {
+            super.close();
+        }
+    }
+
+    /**
+     * Runs the statements of a batch in one anonymous block. <code>ALTER TABLE</code>s are merged into
+     * <code>ALTER TABLE ... ADD (..., ...)</code>.
+     */
+    private static class BlockBatch extends DdlBatch {
+        /**
+         * Longest statement put in a block once its quotes are doubled. Longer ones would not fit in a PL/SQL string
+         * literal.
+         */
+        private static final int MAX_BLOCK_STATEMENT = 32000;
+
+        public BlockBatch(final Database database) {
+            super(database, " ADD (", ", ", ")");
+        }
+
+        protected List<String> join(final List<String> statements) {
+            final List<String> retval = new ArrayList<String>();
+            final List<String> block = new ArrayList<String>();
+            for (final String sql : statements) {
+                if (getLiteralLength(sql) > MAX_BLOCK_STATEMENT) {
+                    endBlock(retval, block);
+                    retval.add(sql);
+                }
+                else {
+                    block.add(sql);
+                }
+            }
+            endBlock(retval, block);
+            return retval;
+        }
+
+        /**
+         * @return the length of <code>sql</code> as a string literal, with each quote doubled
+         */
+        protected static int getLiteralLength(final String sql) {
+            int retval = sql.length();
+            for (int i = sql.indexOf('\''); i > -1; i = sql.indexOf('\'', i + 1)) {
+                retval++;
+            }
+            return retval;
+        }
+
+        private void endBlock(final List<String> statements, final List<String> block) {
+            if (block.size() == 1) {
+                statements.add(block.get(0));
+            }
+            else if (block.size() > 1) {
+                final StringBuilder sql = new StringBuilder("BEGIN\n");
+                for (final String statement : block) {
+                    sql.append("  EXECUTE IMMEDIATE '").append(statement.replace("'", "''")).append("';\n");
+                }
+                statements.add(sql.append("END;").toString());
+            }
+            block.clear();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.database.typeconversion.ext;
+
+import liquibase.database.Database;
+import liquibase.database.structure.Column;
+import liquibase.database.structure.Table;
+import liquibase.database.structure.type.DataType;
+import liquibase.database.typeconversion.TypeConverter;
+import liquibase.database.typeconversion.TypeConverterFactory;
+import liquibase.exception.UnexpectedLiquibaseException;
+import liquibase.snapshot.DatabaseSnapshot;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Converts the types of many columns in one call instead of one column at a time. The type string is found for every
+ * column, which is cheap since converters cache them by shape. Columns with the same type string share one
+ * {@link DataType}, so each distinct shape is only parsed once. With an {@link ExecutorService} the distinct shapes
+ * are parsed in parallel, which helps for very large schemas.
+ *
+ * @author Leo Przybylski
+ */
+public class BulkTypeConverter {
+    private static final int CHUNK_SIZE = 256;
+
+    private final TypeConverter converter;
+    private final Database      database;
+
+    /**
+     * @param database database to convert types for. Its {@link TypeConverter} is looked up the usual way.
+     */
+    public BulkTypeConverter(final Database database) {
+        this(bind(TypeConverterFactory.getInstance().findTypeConverter(database), database), database);
+    }
+
+    public BulkTypeConverter(final TypeConverter converter, final Database database) {
+        this.converter = converter;
+        this.database  = database;
+    }
+
+    /**
+     * {@link MetaDataTypeConverter} needs to be told which database the types are for
+     */
+    protected static TypeConverter bind(final TypeConverter converter, final Database database) {
+        return converter instanceof MetaDataTypeConverter ? ((MetaDataTypeConverter) converter).forDatabase(database) : converter;
+    }
+
+    /**
+     * Convert every column of every table in a snapshot
+     */
+    public Map<Column, ConvertedType> convert(final DatabaseSnapshot snapshot, final ExecutorService executor) {
+        final List<Column> columns = new ArrayList<Column>();
+        for (final Table table : snapshot.getTables()) {
+            columns.addAll(table.getColumns());
+        }
+        return convert(columns, executor);
+    }
+
+    /**
+     * Convert every column of a table
+     */
+    public Map<Column, ConvertedType> convert(final Table table) {
+        return convert(table.getColumns(), null);
+    }
+
+    /**
+     * Convert columns
+     *
+     * @param columns columns to convert
+     * @param executor runs the conversion of distinct shapes in parallel. May be <code>null</code> to convert on
+     * the calling thread.
+     * @return the columns in the order given mapped to their converted types
+     */
+    public Map<Column, ConvertedType> convert(final Collection<Column> columns, final ExecutorService executor) {
+        final Map<Column, String>       typeStrings = new LinkedHashMap<Column, String>();
+        final Map<Shape, ConvertedType> shapes      = new LinkedHashMap<Shape, ConvertedType>();
+        for (final Column column : columns) {
+            final String typeString = converter.convertToDatabaseTypeString(column, database);
+            typeStrings.put(column, typeString);
+            shapes.put(new Shape(typeString, column.isAutoIncrement()), null);
+        }
+
+        if (executor == null || shapes.size() <= CHUNK_SIZE) {
+            for (final Shape shape : shapes.keySet()) {
+                shapes.put(shape, convertShape(shape));
+            }
+        }
+        else {
+            convertShapes(shapes, executor);
+        }
+
+        final Map<Column, ConvertedType> retval = new LinkedHashMap<Column, ConvertedType>();
+        for (final Map.Entry<Column, String> entry : typeStrings.entrySet()) {
+            retval.put(entry.getKey(), shapes.get(new Shape(entry.getValue(), entry.getKey().isAutoIncrement())));
+        }
+        return retval;
+    }
+
+    protected void convertShapes(final Map<Shape, ConvertedType> shapes, final ExecutorService executor) {
+        final List<Shape> pending = new ArrayList<Shape>(shapes.keySet());
+        final List<Future<Map<Shape, ConvertedType>>> futures = new ArrayList<Future<Map<Shape, ConvertedType>>>();
+        for (int start = 0; start < pending.size(); start += CHUNK_SIZE) {
+            final List<Shape> chunk = pending.subList(start, Math.min(start + CHUNK_SIZE, pending.size()));
+            futures.add(executor.submit(new Callable<Map<Shape, ConvertedType>>() {
+                    public Map<Shape, ConvertedType> call() {
+                        final Map<Shape, ConvertedType> retval = new HashMap<Shape, ConvertedType>();
+                        for (final Shape shape : chunk) {
+                            retval.put(shape, convertShape(shape));
+                        }
+                        return retval;
+                    }
+                }));
+        }
+
+        try {
+            for (final Future<Map<Shape, ConvertedType>> future : futures) {
+                shapes.putAll(future.get());
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnexpectedLiquibaseException("Interrupted converting types", e);
+        }
+        catch (ExecutionException e) {
+            throw new UnexpectedLiquibaseException(e.getCause());
+        }
+    }
+
+    protected ConvertedType convertShape(final Shape shape) {
+        return new ConvertedType(shape.typeString, converter.getDataType(shape.typeString, shape.autoIncrement));
+    }
+
+    /**
+     * Type string and {@link DataType} of a column. Columns of the same shape share one instance, so it should not
+     * be modified.
+     */
+    public static class ConvertedType {
+        private final String   typeString;
+        private final DataType dataType;
+
+        public ConvertedType(final String typeString, final DataType dataType) {
+            this.typeString = typeString;
+            this.dataType   = dataType;
+        }
+
+        public String getTypeString() {
+            return typeString;
+        }
+
+        public DataType getDataType() {
+            return dataType;
+        }
+    }
+
+    /**
+     * Everything about a column that its {@link DataType} depends on
+     */
+    private static class Shape {
+        private final String  typeString;
+        private final boolean autoIncrement;
+
+        public Shape(final String typeString, final boolean autoIncrement) {
+            this.typeString    = typeString;
+            this.autoIncrement = autoIncrement;
+        }
+
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Shape)) {
+                return false;
+            }
+            final Shape other = (Shape) obj;
+            return autoIncrement == other.autoIncrement 
+                && (typeString == null ? other.typeString == null : typeString.equals(other.typeString));
+        }
+
+        public int hashCode() {
+            return (typeString == null ? 0 : typeString.hashCode()) * 31 + (autoIncrement ? 1 : 0);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.database.typeconversion.ext;
+
+import liquibase.statement.DatabaseFunction;
+
+/**
+ * Cleans up default values read from database metadata before converters turn them into objects. One pair of
+ * surrounding single quotes is stripped by scanning the string rather than running regular expressions for each
+ * column. Unquoted current date and time functions (<code>SYSDATE</code>, <code>NOW()</code>,
+ * <code>CURRENT_TIMESTAMP</code>, ...) become a {@link DatabaseFunction} spelled the way the dialect spells it.
+ *
+ * @author Leo Przybylski
+ */
+public final class DefaultValueNormalizer {
+    private static final int CURRENT_TIMESTAMP = 0;
+    private static final int CURRENT_DATE      = 1;
+
+    /**
+     * Function names that are recognized, with or without parentheses, and what they mean
+     */
+    private static final String[] FUNCTION_NAMES = {
+        "SYSDATE", "SYSTIMESTAMP", "NOW", "CURRENT_TIMESTAMP", "LOCALTIMESTAMP", "GETDATE", "CURRENT_DATE", "CURDATE"
+    };
+    private static final int[] FUNCTION_KINDS = {
+        CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP,
+        CURRENT_DATE, CURRENT_DATE
+    };
+
+    private static final DefaultValueNormalizer DEFAULT = new DefaultValueNormalizer("CURRENT_TIMESTAMP", "CURRENT_DATE");
+    private static final DefaultValueNormalizer MYSQL   = new DefaultValueNormalizer("NOW()", "CURDATE()");
+    private static final DefaultValueNormalizer ORACLE  = new DefaultValueNormalizer("SYSDATE", "TRUNC(SYSDATE)");
+
+    private final String[] functions;
+
+    private DefaultValueNormalizer(final String... functions) {
+        this.functions = functions;
+    }
+
+    /**
+     * @param dialect <code>mysql</code>, <code>oracle</code> or anything else for the SQL standard names
+     */
+    public static DefaultValueNormalizer forDialect(final String dialect) {
+        if ("mysql".equalsIgnoreCase(dialect)) {
+            return MYSQL;
+        }
+        else if ("oracle".equalsIgnoreCase(dialect)) {
+            return ORACLE;
+        }
+        return DEFAULT;
+    }
+
+    /**
+     * Normalize a default value
+     *
+     * @return a {@link DatabaseFunction} for a recognized date or time function, otherwise the value without
+     * surrounding whitespace and quotes
+     */
+    public Object normalize(final String value) {
+        final String trimmed = value.trim();
+        if (trimmed.length() > 0 && trimmed.charAt(0) != '\'') {
+            final String function = getFunction(trimmed);
+            if (function != null) {
+                return new DatabaseFunction(function);
+            }
+        }
+        return unquote(trimmed);
+    }
+
+    /**
+     * Get the dialect's spelling of a date or time function
+     *
+     * @param name function name with or without parentheses, in any case
+     * @return the dialect's spelling or <code>null</code> if <code>name</code> is not a recognized function
+     */
+    public String getFunction(final String name) {
+        int length = name.length();
+        if (length > 2 && name.charAt(length - 1) == ')' && name.charAt(length - 2) == '(') {
+            length -= 2;
+        }
+
+        for (int i = 0; i < FUNCTION_NAMES.length; i++) {
+            if (FUNCTION_NAMES[i].length() == length && name.regionMatches(true, 0, FUNCTION_NAMES[i], 0, length)) {
+                return functions[FUNCTION_KINDS[i]];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Strip one leading and one trailing single quote. Only allocates when there is something to strip.
+     */
+    public static String unquote(final String value) {
+        int start = 0;
+        int end   = value.length();
+        if (start < end && value.charAt(start) == '\'') {
+            start++;
+        }
+        if (end > start && value.charAt(end - 1) == '\'') {
+            end--;
+        }
+        return value.substring(start, end);
+    }
+}
@@ -30,6 +30,7 @@ import liquibase.database.structure.type.*;
 import liquibase.database.Database;
 import liquibase.database.core.H2Database;
 import liquibase.database.core.HsqlDatabase;
+import liquibase.exception.UnexpectedLiquibaseException;
 import liquibase.util.StringUtils;
 
 import static liquibase.ext.Constants.EXTENSION_PRIORITY;
@@ -39,6 +40,7 @@ import static liquibase.ext.Constants.EXTENSION_PRIORITY;
  * @author Leo Przybylski
  */
 public class HsqlTypeConverter extends liquibase.database.typeconversion.core.HsqlTypeConverter {
+    private static final TypeMappings mappings = TypeMappings.forDialect("hsqldb");
 
     public int getPriority() {
         return EXTENSION_PRIORITY;
@@ -61,6 +63,9 @@ public class HsqlTypeConverter extends liquibase.database.typeconversion.core.Hs
         else if (referenceColumn.getTypeName().toLowerCase().indexOf("num") > -1) {
             final NumberType type = new NumberType("NUMERIC");
             type.setFirstParameter("" + referenceColumn.getColumnSize());
+            if (referenceColumn.getDecimalDigits() > 0) {
+                type.setSecondParameter("" + referenceColumn.getDecimalDigits());
+            }
             return type.toString();
         }
 
@@ -97,4 +102,25 @@ public class HsqlTypeConverter extends liquibase.database.typeconversion.core.Hs
         return getDataType(columnTypeString, autoIncrement, dataTypeName, precision, additionalInformation);
     }
 
+    /**
+     * Names in <code>type-mappings.properties</code> are translated like the other converters do. Any other name is
+     * left to liquibase, which keeps native HSQLDB names as they are.
+     */
+    @Override
+    protected DataType getDataType(String columnTypeString, Boolean autoIncrement, String dataTypeName, String precision, String additionalInformation) {
+        final TypeKind kind = mappings.resolve(this, dataTypeName);
+        if (kind == null) {
+            return super.getDataType(columnTypeString, autoIncrement, dataTypeName, precision, additionalInformation);
+        }
+        final DataType returnTypeName = kind.getDataType(this);
+
+        if (returnTypeName == null) {
+            throw new UnexpectedLiquibaseException("Could not determine " + dataTypeName + " for " + this.getClass().getName());
+        }
+        addPrecisionToType(kind.getPrecision(precision), returnTypeName);
+        returnTypeName.setAdditionalInformation(additionalInformation);
+
+        return returnTypeName;
+    }
+
 }
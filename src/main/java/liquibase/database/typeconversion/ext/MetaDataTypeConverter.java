@@ -0,0 +1,347 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.database.typeconversion.ext;
+
+import liquibase.database.Database;
+import liquibase.database.DatabaseConnection;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.database.structure.Column;
+import liquibase.database.structure.type.*;
+import liquibase.database.typeconversion.TypeConverter;
+import liquibase.exception.UnexpectedLiquibaseException;
+import liquibase.logging.LogFactory;
+import liquibase.servicelocator.ServiceLocator;
+
+import java.lang.reflect.Modifier;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Converts types for any database by asking it which types it has. On first use the database's
+ * {@link java.sql.DatabaseMetaData#getTypeInfo()} is read into {@link TypeCapabilities}. Each type then uses the native name the
+ * database gives for its {@link Types} code. A precision larger than the type allows is an error rather than being cut
+ * down, since that would lose data. Databases with their own converter still use it. This one has a higher priority
+ * than liquibase's default converter but a lower one than any database specific converter, and it does not claim
+ * databases one of those supports.
+ *
+ * The factory shares one instance of each converter and most type methods are not given a database, so the shared
+ * instance keeps no database of its own. Methods that are given a database hand off to an instance bound to it with
+ * {@link #forDatabase(Database)}, and anything needing native names for the database-less methods (ie.,
+ * {@link BulkTypeConverter}) should ask for that instance too. Threads working on different databases (ie., source and
+ * target in {@link org.kualigan.tools.liquibase.change.ext.MigrateData}) then never share state.
+ *
+ * @author Leo Przybylski
+ */
+public class MetaDataTypeConverter extends liquibase.database.typeconversion.core.AbstractTypeConverter {
+    /** Whether a converter with a higher priority supports each kind of database */
+    private static final Map<Class<?>, Boolean> outranked = new ConcurrentHashMap<Class<?>, Boolean>();
+
+    /** One instance of each converter with a higher priority, found once */
+    private static volatile List<TypeConverter> higher;
+
+    private final Database database;
+    private final Map<Database, MetaDataTypeConverter> bound;
+    private volatile TypeCapabilities capabilities;
+
+    /**
+     * Creates the shared instance the factory uses
+     */
+    public MetaDataTypeConverter() {
+        this.database = null;
+        this.bound    = Collections.synchronizedMap(new WeakHashMap<Database, MetaDataTypeConverter>());
+    }
+
+    /**
+     * Creates an instance that converts types for <code>database</code> only
+     */
+    public MetaDataTypeConverter(final Database database) {
+        this.database = database;
+        this.bound    = null;
+    }
+
+    public int getPriority() {
+        return (PRIORITY_DEFAULT + PRIORITY_DATABASE) / 2;
+    }
+
+    /**
+     * Supports any database with a JDBC connection that no converter with a higher priority supports
+     */
+    @Override
+    public boolean supports(final Database database) {
+        final DatabaseConnection connection = database.getConnection();
+        return connection instanceof JdbcConnection && !isOutranked(database);
+    }
+
+    /**
+     * @return an instance that reads its types from <code>database</code>. The same one is returned for the same database.
+     */
+    public MetaDataTypeConverter forDatabase(final Database database) {
+        if (database == this.database) {
+            return this;
+        }
+        if (bound == null) {
+            return new MetaDataTypeConverter(database);
+        }
+
+        synchronized (bound) {
+            MetaDataTypeConverter retval = bound.get(database);
+            if (retval == null) {
+                retval = new MetaDataTypeConverter(database);
+                bound.put(database, retval);
+            }
+            return retval;
+        }
+    }
+
+    @Override
+    public String convertToDatabaseTypeString(final Column referenceColumn, final Database database) {
+        if (database != this.database) {
+            return forDatabase(database).convertToDatabaseTypeString(referenceColumn, database);
+        }
+        return super.convertToDatabaseTypeString(referenceColumn, database);
+    }
+
+    /**
+     * @return true if a converter with a higher priority supports <code>database</code>
+     */
+    protected boolean isOutranked(final Database database) {
+        Boolean retval = outranked.get(database.getClass());
+        if (retval != null) {
+            return retval;
+        }
+
+        retval = false;
+        for (final TypeConverter converter : getHigherConverters()) {
+            if (converter.supports(database)) {
+                retval = true;
+                break;
+            }
+        }
+        outranked.put(database.getClass(), retval);
+        return retval;
+    }
+
+    /**
+     * Creates one instance of every converter with a higher priority than this one the first time it is called
+     */
+    protected List<TypeConverter> getHigherConverters() {
+        List<TypeConverter> retval = higher;
+        if (retval != null) {
+            return retval;
+        }
+
+        retval = new ArrayList<TypeConverter>();
+        try {
+            for (final Class<?> clazz : ServiceLocator.getInstance().findClasses(TypeConverter.class)) {
+                if (MetaDataTypeConverter.class.isAssignableFrom(clazz) || Modifier.isAbstract(clazz.getModifiers())) {
+                    continue;
+                }
+                final TypeConverter converter = (TypeConverter) clazz.getDeclaredConstructor().newInstance();
+                if (converter.getPriority() > getPriority()) {
+                    retval.add(converter);
+                }
+            }
+        }
+        catch (Exception e) {
+            LogFactory.getLogger().debug("Could not check other type converters: " + e.getMessage());
+        }
+        higher = retval;
+        return retval;
+    }
+
+    /**
+     * Lazily reads the capabilities of the database this instance is bound to
+     *
+     * @return the capabilities or <code>null</code> if this instance is not bound or they cannot be read
+     */
+    protected TypeCapabilities getCapabilities() {
+        if (database == null || !(database.getConnection() instanceof JdbcConnection)) {
+            return null;
+        }
+
+        TypeCapabilities retval = capabilities;
+        if (retval == null) {
+            try {
+                retval = TypeCapabilities.forMetaData(((JdbcConnection) database.getConnection()).getUnderlyingConnection().getMetaData());
+                capabilities = retval;
+            }
+            catch (SQLException e) {
+                LogFactory.getLogger().warning("Could not read type information from " + database.getDatabaseProductName(), e);
+            }
+        }
+        return retval;
+    }
+
+    /**
+     * @return the native name of the first of <code>dataTypes</code> the database has or <code>null</code>
+     */
+    protected String getNativeName(final int... dataTypes) {
+        final TypeCapabilities capabilities = getCapabilities();
+        if (capabilities == null) {
+            return null;
+        }
+        for (final int dataType : dataTypes) {
+            final TypeCapabilities.NativeType type = capabilities.getNativeType(dataType);
+            if (type != null) {
+                return type.getTypeName();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Only adds precision to types that take parameters
+     *
+     * @throws UnexpectedLiquibaseException when the precision is more than the native type allows
+     */
+    @Override
+    protected void addPrecisionToType(final String precision, final DataType returnTypeName) throws NumberFormatException {
+        final TypeCapabilities capabilities = getCapabilities();
+        final TypeCapabilities.NativeType type = capabilities == null ? null : capabilities.getNativeType(returnTypeName.getDataTypeName());
+        if (type == null) {
+            super.addPrecisionToType(precision, returnTypeName);
+            return;
+        }
+        if (precision == null || !type.hasParams()) {
+            return;
+        }
+
+        final String[] params = precision.split(",");
+        final String first = params[0].trim();
+        if (type.getPrecision() > 0 && Integer.parseInt(first) > type.getPrecision()) {
+            throw new UnexpectedLiquibaseException(String.format("%s(%s) is larger than %s allows (%d) on %s", 
+                                                                 returnTypeName.getDataTypeName(), precision, 
+                                                                 type.getTypeName(), type.getPrecision(),
+                                                                 database.getDatabaseProductName()));
+        }
+        returnTypeName.setFirstParameter(first);
+        if (params.length > 1) {
+            returnTypeName.setSecondParameter(params[1].trim());
+        }
+    }
+
+    @Override
+    public BigIntType getBigIntType() {
+        final String name = getNativeName(Types.BIGINT);
+        return name != null ? new BigIntType(name) : super.getBigIntType();
+    }
+
+    @Override
+    public BlobType getBlobType() {
+        final String name = getNativeName(Types.BLOB, Types.LONGVARBINARY);
+        return name != null ? new BlobType(name) : super.getBlobType();
+    }
+
+    @Override
+    public BooleanType getBooleanType() {
+        final String name = getNativeName(Types.BOOLEAN, Types.BIT);
+        return name != null ? new BooleanType(name) : super.getBooleanType();
+    }
+
+    @Override
+    public CharType getCharType() {
+        final String name = getNativeName(Types.CHAR);
+        return name != null ? new CharType(name) : super.getCharType();
+    }
+
+    @Override
+    public ClobType getClobType() {
+        final String name = getNativeName(Types.CLOB, Types.LONGVARCHAR);
+        return name != null ? new ClobType(name) : super.getClobType();
+    }
+
+    @Override
+    public DateType getDateType() {
+        final String name = getNativeName(Types.DATE);
+        return name != null ? new DateType(name) : super.getDateType();
+    }
+
+    @Override
+    public DateTimeType getDateTimeType() {
+        final String name = getNativeName(Types.TIMESTAMP);
+        return name != null ? new DateTimeType(name) : super.getDateTimeType();
+    }
+
+    @Override
+    public DoubleType getDoubleType() {
+        final String name = getNativeName(Types.DOUBLE);
+        return name != null ? new DoubleType(name) : super.getDoubleType();
+    }
+
+    @Override
+    public FloatType getFloatType() {
+        final String name = getNativeName(Types.FLOAT, Types.REAL);
+        return name != null ? new FloatType(name) : super.getFloatType();
+    }
+
+    @Override
+    public IntType getIntType() {
+        final String name = getNativeName(Types.INTEGER);
+        return name != null ? new IntType(name) : super.getIntType();
+    }
+
+    @Override
+    public NumberType getNumberType() {
+        final String name = getNativeName(Types.NUMERIC, Types.DECIMAL);
+        return name != null ? new NumberType(name) : super.getNumberType();
+    }
+
+    @Override
+    public SmallIntType getSmallIntType() {
+        final String name = getNativeName(Types.SMALLINT);
+        return name != null ? new SmallIntType(name) : super.getSmallIntType();
+    }
+
+    @Override
+    public TimeType getTimeType() {
+        final String name = getNativeName(Types.TIME);
+        return name != null ? new TimeType(name) : super.getTimeType();
+    }
+
+    @Override
+    public TinyIntType getTinyIntType() {
+        final String name = getNativeName(Types.TINYINT);
+        return name != null ? new TinyIntType(name) : super.getTinyIntType();
+    }
+
+    @Override
+    public VarcharType getVarcharType() {
+        final String name = getNativeName(Types.VARCHAR);
+        return name != null ? new VarcharType(name) : super.getVarcharType();
+    }
+
+    @Override
+    public NVarcharType getNVarcharType() {
+        final String name = getNativeName(-9); // Types.NVARCHAR in java 1.6
+        return name != null ? new NVarcharType(name) : super.getNVarcharType();
+    }
+}
@@ -36,9 +36,9 @@ import liquibase.database.core.MySQLDatabase;
 import liquibase.database.structure.type.DataType;
 import liquibase.database.structure.type.DateTimeType;
 import liquibase.logging.LogFactory;
+import liquibase.statement.DatabaseFunction;
 import liquibase.exception.UnexpectedLiquibaseException;
 
-import java.lang.reflect.Field;
 import java.sql.Types;
 import java.util.Arrays;
 import java.util.List;
@@ -72,6 +72,15 @@ public class MySQLTypeConverter extends liquibase.database.typeconversion.core.M
         Types.REAL
         );
 
+    private static final TypeMappings mappings = TypeMappings.forDialect("mysql");
+
+    protected static final TypeSet oneParamTypes = TypeSet.of(oneParam);
+    protected static final TypeSet twoParamTypes = TypeSet.of(twoParams);
+
+    private static final TypeStringCache typeStrings = TypeStringCache.getInstance();
+
+    private static final DefaultValueNormalizer defaults = DefaultValueNormalizer.forDialect("mysql");
+
     protected static final List<Integer> numeric = Arrays.asList(
         Types.DECIMAL,
         Types.NUMERIC,
@@ -82,6 +91,8 @@ public class MySQLTypeConverter extends liquibase.database.typeconversion.core.M
 	Types.TINYINT
 								);
 
+    protected static final TypeSet numericTypes = TypeSet.of(numeric);
+
     protected static final List<Integer> noParams = Arrays.asList(
 								  Types.BIGINT,
 								  Types.BOOLEAN,
@@ -102,47 +113,95 @@ public class MySQLTypeConverter extends liquibase.database.typeconversion.core.M
 
     @Override
     public String convertToDatabaseTypeString(Column referenceColumn, Database database) {        
+        final int type  = referenceColumn.getDataType();
+        final int size  = referenceColumn.getColumnSize();
+        final int scale = referenceColumn.getDecimalDigits();
+
+        // Checked before the cache since the type depends on the column's default. Numeric columns without a size are
+        // turned into BIGINT below instead, everything else defaulting to sysdate becomes a TIMESTAMP. The default
+        // itself comes from getDefaultValue(Column), the snapshot column is left alone.
+	if (isSysdate(referenceColumn) && (hasParams(type, size, scale) || !numericTypes.contains(type))) {
+	    try {
+		return getSqlTypeName(Types.TIMESTAMP);
+	    }
+	    catch (Exception e) {
+		return referenceColumn.getTypeName();
+	    }
+	}
+
+        final String cached = typeStrings.get(getClass(), type, size, scale);
+        if (cached != null) {
+            return cached;
+        }
+
         final StringBuilder retval = new StringBuilder();
         try {
-            retval.append(getSqlTypeName(referenceColumn.getDataType()));
+            final String sqlTypeName = getSqlTypeName(type);
+            if (sqlTypeName == null) {
+                return referenceColumn.getTypeName();
+            }
+            retval.append(sqlTypeName);
         }
         catch (Exception e) {
-            retval.append(referenceColumn.getTypeName());
+            return referenceColumn.getTypeName();
         }
 
+        final boolean hasTwoParams = twoParamTypes.contains(type) && scale > -1;
         
-        final boolean hasOneParam  = oneParam.contains(referenceColumn.getDataType()) && referenceColumn.getColumnSize() > 0;
-        final boolean hasTwoParams = twoParams.contains(referenceColumn.getDataType()) && referenceColumn.getDecimalDigits() > -1;
-        
-        if (hasOneParam || hasTwoParams) {
-            retval.append("(").append(referenceColumn.getColumnSize());
+        if (hasParams(type, size, scale)) {
+            retval.append("(").append(size);
             if (hasTwoParams) {
-                retval.append(",").append(referenceColumn.getDecimalDigits());
+                retval.append(",").append(scale);
             }
             retval.append(")");
-
         }
-	else if (numeric.contains(referenceColumn.getDataType())) {
+	else if (numericTypes.contains(type)) {
 	    try {
-		return getSqlTypeName(Types.BIGINT);
+		return typeStrings.put(getClass(), type, size, scale, getSqlTypeName(Types.BIGINT));
 	    }
 	    catch (Exception e) {
 		return referenceColumn.getTypeName();
 	    }
 	}
 
-	if (referenceColumn.getDefaultValue() != null 
-	    && referenceColumn.getDefaultValue().toString().equalsIgnoreCase("sysdate")) {
-	    referenceColumn.setDefaultValue("NOW()");
-	    try {
-		return getSqlTypeName(Types.TIMESTAMP);
-	    }
-	    catch (Exception e) {
-		return referenceColumn.getTypeName();
-	    }
-	}
-        
-        return retval.toString();
+        return typeStrings.put(getClass(), type, size, scale, retval.toString());
+    }
+
+    protected boolean hasParams(final int type, final int size, final int scale) {
+        return (oneParamTypes.contains(type) && size > 0) || (twoParamTypes.contains(type) && scale > -1);
+    }
+
+    /**
+     * Get the default value of a column the way MySQL spells it, ie., <code>sysdate</code> becomes <code>NOW()</code>.
+     * The column is not changed since it belongs to a snapshot that is read by others.
+     *
+     * @param referenceColumn column to get the default of
+     * @return the default value to use on MySQL
+     */
+    public Object getDefaultValue(final Column referenceColumn) {
+        return getDefaultValue(referenceColumn.getDefaultValue());
+    }
+
+    /**
+     * Spell a default value the way MySQL does. {@link liquibase.sqlgenerator.ext.CreateTableGenerator} calls this
+     * for every default it writes on MySQL.
+     *
+     * @param defaultValue default from a changelog or snapshot. May be <code>null</code>
+     * @return <code>NOW()</code> for <code>sysdate</code>, otherwise <code>defaultValue</code>
+     */
+    public Object getDefaultValue(final Object defaultValue) {
+        if (isSysdate(defaultValue)) {
+            return new DatabaseFunction(defaults.getFunction(defaultValue.toString()));
+        }
+        return defaultValue;
+    }
+
+    protected boolean isSysdate(final Column referenceColumn) {
+        return isSysdate(referenceColumn.getDefaultValue());
+    }
+
+    protected boolean isSysdate(final Object defaultValue) {
+        return defaultValue != null && defaultValue.toString().equalsIgnoreCase("sysdate");
     }
 
     /**
@@ -158,76 +217,22 @@ public class MySQLTypeConverter extends liquibase.database.typeconversion.core.M
      * @return String value including package of the type name.
      */
     protected String getSqlTypeName(final int type) throws Exception {
-        for (final Field field : Types.class.getFields()) {
-            final int sql_type = field.getInt(null);
-            if (type == sql_type) {
-                return "java.sql.Types." + field.getName();
-            }
-        }
-        return null;
+        return SqlTypes.getName(type);
     }
 
     @Override
     protected DataType getDataType(String columnTypeString, Boolean autoIncrement, String dataTypeName, String precision, String additionalInformation) {
         // Translate type to database-specific type, if possible
-        DataType returnTypeName = null;
-        if (dataTypeName.equalsIgnoreCase("NUMBER") 
-                   || dataTypeName.equalsIgnoreCase("BIGINT")) {
-            returnTypeName = getBigIntType();
-        } else if (dataTypeName.equalsIgnoreCase("DECIMAL")
-                   || dataTypeName.equalsIgnoreCase("NUMERIC")) {
-            returnTypeName = getNumberType();
-        } else if (dataTypeName.equalsIgnoreCase("BLOB")) {
-            returnTypeName = getBlobType();
-        } else if (dataTypeName.equalsIgnoreCase("BOOLEAN")) {
-            returnTypeName = getBooleanType();
-        } else if (dataTypeName.equalsIgnoreCase("CHAR")) {
-            returnTypeName = getCharType();
-        } else if (dataTypeName.equalsIgnoreCase("CLOB")) {
-            returnTypeName = getClobType();
-        } else if (dataTypeName.equalsIgnoreCase("CURRENCY")) {
-            returnTypeName = getCurrencyType();
-        } else if (dataTypeName.equalsIgnoreCase("DATE") || dataTypeName.equalsIgnoreCase(getDateType().getDataTypeName())
-		   || dataTypeName.equalsIgnoreCase("DATETIME") || dataTypeName.equalsIgnoreCase(getDateTimeType().getDataTypeName())) {
-            returnTypeName = getDateTimeType();
-        } else if (dataTypeName.equalsIgnoreCase("DOUBLE")) {
-            returnTypeName = getDoubleType();
-        } else if (dataTypeName.equalsIgnoreCase("FLOAT")) {
-            returnTypeName = getFloatType();
-        } else if (dataTypeName.equalsIgnoreCase("INT")) {
-            returnTypeName = getIntType();
-        } else if (dataTypeName.equalsIgnoreCase("INTEGER")) {
-            returnTypeName = getIntType();
-        } else if (dataTypeName.equalsIgnoreCase("LONGBLOB")) {
-            returnTypeName = getLongBlobType();
-        } else if (dataTypeName.equalsIgnoreCase("LONGVARBINARY")) {
-            returnTypeName = getBlobType();
-        } else if (dataTypeName.equalsIgnoreCase("LONGVARCHAR")) {
-            returnTypeName = getClobType();
-        } else if (dataTypeName.equalsIgnoreCase("SMALLINT")) {
-            returnTypeName = getSmallIntType();
-        } else if (dataTypeName.equalsIgnoreCase("TEXT")) {
-            returnTypeName = getClobType();
-        } else if (dataTypeName.equalsIgnoreCase("TIME") || dataTypeName.equalsIgnoreCase(getTimeType().getDataTypeName())) {
-            returnTypeName = getTimeType();
-        } else if (dataTypeName.toUpperCase().contains("TIMESTAMP")) {
-            returnTypeName = getDateTimeType();
-        } else if (dataTypeName.equalsIgnoreCase("TINYINT")) {
-            returnTypeName = getTinyIntType();
-        } else if (dataTypeName.equalsIgnoreCase("UUID")) {
-            returnTypeName = getUUIDType();
-        } else if (dataTypeName.equalsIgnoreCase("VARCHAR")) {
-            returnTypeName = getVarcharType();
-        } else if (dataTypeName.equalsIgnoreCase("NVARCHAR")) {
-            returnTypeName = getNVarcharType();
-        } else {
+        final TypeKind kind = mappings.resolve(this, dataTypeName);
+        if (kind == null) {
             return new CustomType(columnTypeString,0,2);
         }
+        final DataType returnTypeName = kind.getDataType(this);
 
         if (returnTypeName == null) {
             throw new UnexpectedLiquibaseException("Could not determine " + dataTypeName + " for " + this.getClass().getName());
         }
-        addPrecisionToType(precision, returnTypeName);
+        addPrecisionToType(kind.getPrecision(precision), returnTypeName);
         returnTypeName.setAdditionalInformation(additionalInformation);
 
          return returnTypeName;
@@ -0,0 +1,178 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.database.typeconversion.ext;
+
+import liquibase.database.structure.type.DataType;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Precision and scale of a <code>DECIMAL</code> or <code>NUMERIC</code> type with the largest value it holds.
+ * Descriptors are shared per shape, so the bound of each shape is computed once however many columns use it. They are
+ * read from the parameters the type converters put on a {@link DataType}, or parsed once per type string when those
+ * are missing.
+ *
+ * @author Leo Przybylski
+ */
+public final class NumericTypeDescriptor {
+    private static final ConcurrentMap<Long, NumericTypeDescriptor> shapes = new ConcurrentHashMap<Long, NumericTypeDescriptor>();
+    private static final ConcurrentMap<String, NumericTypeDescriptor> typeStrings = new ConcurrentHashMap<String, NumericTypeDescriptor>();
+
+    private final int precision;
+    private final int scale;
+    private final BigDecimal max;
+
+    private NumericTypeDescriptor(final int precision, final int scale) {
+        this.precision = precision;
+        this.scale     = scale;
+        this.max       = BigDecimal.TEN.pow(Math.max(0, precision - scale)).subtract(BigDecimal.ONE.movePointLeft(scale));
+    }
+
+    /**
+     * @return the shared descriptor for a shape
+     */
+    public static NumericTypeDescriptor valueOf(final int precision, final int scale) {
+        final Long key = ((long) precision << 32) | (scale & 0xffffffffL);
+        NumericTypeDescriptor retval = shapes.get(key);
+        if (retval == null) {
+            final NumericTypeDescriptor created = new NumericTypeDescriptor(precision, scale);
+            retval = shapes.putIfAbsent(key, created);
+            if (retval == null) {
+                retval = created;
+            }
+        }
+        return retval;
+    }
+
+    /**
+     * @return the descriptor of a type, or <code>null</code> when it has no precision
+     */
+    public static NumericTypeDescriptor forType(final DataType type) {
+        final int precision = parseInt(type.getFirstParameter());
+        if (precision > 0) {
+            final int scale = parseInt(type.getSecondParameter());
+            return valueOf(precision, Math.max(0, scale));
+        }
+        return forType(type.toString());
+    }
+
+    /**
+     * @param typeString like <code>DECIMAL(10,2)</code>
+     * @return the descriptor of a type, or <code>null</code> when it has no precision
+     */
+    public static NumericTypeDescriptor forType(final String typeString) {
+        NumericTypeDescriptor retval = typeStrings.get(typeString);
+        if (retval == null) {
+            final int open  = typeString.indexOf('(');
+            final int close = typeString.lastIndexOf(')');
+            if (open < 0 || close < open) {
+                return null;
+            }
+            final int comma = typeString.indexOf(',', open);
+            final int precision = parseInt(typeString.substring(open + 1, comma > 0 && comma < close ? comma : close));
+            final int scale = comma > 0 && comma < close ? parseInt(typeString.substring(comma + 1, close)) : 0;
+            if (precision <= 0) {
+                return null;
+            }
+            retval = valueOf(precision, Math.max(0, scale));
+            typeStrings.putIfAbsent(typeString, retval);
+        }
+        return retval;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    /**
+     * @return the largest value this type holds, like <code>999.99</code> for <code>DECIMAL(5,2)</code>
+     */
+    public BigDecimal getMaxValue() {
+        return max;
+    }
+
+    /**
+     * Limit a default value to what this type holds. Values with fewer integer digits than the type allows are returned
+     * as they are without being parsed.
+     *
+     * @return {@link #getMaxValue()} if <code>value</code> is larger, otherwise <code>value</code>
+     */
+    public Object limit(final Object value) {
+        final String text = value.toString().trim();
+        if (getIntegerDigits(text) < precision - scale) {
+            return value;
+        }
+        return new BigDecimal(text).compareTo(max) > 0 ? max : value;
+    }
+
+    /**
+     * @return digits before the decimal point, 0 for a negative number since it is never too large, or
+     * {@link Integer#MAX_VALUE} when the text has to be parsed to know
+     */
+    private static int getIntegerDigits(final String text) {
+        int start = 0;
+        if (text.startsWith("-")) {
+            return 0;
+        }
+        if (text.startsWith("+")) {
+            start = 1;
+        }
+        int retval = 0;
+        for (int i = start; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c == '.') {
+                break;
+            }
+            if (c < '0' || c > '9') {
+                return Integer.MAX_VALUE;
+            }
+            retval++;
+        }
+        return retval;
+    }
+
+    private static int parseInt(final String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        }
+        catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public String toString() {
+        return "NUMERIC(" + precision + "," + scale + ")";
+    }
+}
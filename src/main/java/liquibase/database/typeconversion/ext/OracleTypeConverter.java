@@ -30,10 +30,10 @@ import liquibase.database.core.OracleDatabase;
 import liquibase.database.structure.Column;
 import liquibase.database.structure.type.*;
 import liquibase.exception.UnexpectedLiquibaseException;
+import liquibase.statement.DatabaseFunction;
 import liquibase.util.StringUtils;
 
 
-import java.lang.reflect.Field;
 import java.sql.Types;
 import java.text.ParseException;
 import java.util.Arrays;
@@ -61,6 +61,15 @@ public class OracleTypeConverter extends liquibase.database.typeconversion.core.
         Types.NUMERIC,
         Types.REAL
         );
+
+    private static final TypeMappings mappings = TypeMappings.forDialect("oracle");
+
+    protected static final TypeSet oneParamTypes = TypeSet.of(oneParam);
+    protected static final TypeSet twoParamTypes = TypeSet.of(twoParams);
+
+    private static final TypeStringCache typeStrings = TypeStringCache.getInstance();
+
+    private static final DefaultValueNormalizer defaults = DefaultValueNormalizer.forDialect("oracle");
     public int getPriority() {
         return EXTENSION_PRIORITY;
     }
@@ -70,7 +79,11 @@ public class OracleTypeConverter extends liquibase.database.typeconversion.core.
         if (value == null) {
             return null;
         } else if (value instanceof String) {
-            return convertToCorrectObjectType(((String) value).trim().replaceFirst("^'", "").replaceFirst("'$", ""), databaseDataType, firstParameter, secondParameter, database);
+            final Object normalized = defaults.normalize((String) value);
+            if (normalized instanceof DatabaseFunction) {
+                return normalized;
+            }
+            return convertToCorrectObjectType((String) normalized, databaseDataType, firstParameter, secondParameter, database);
         } else {
             return value;
         }
@@ -78,29 +91,39 @@ public class OracleTypeConverter extends liquibase.database.typeconversion.core.
 
     @Override
     public String convertToDatabaseTypeString(Column referenceColumn, Database database) {        
+        final int type  = referenceColumn.getDataType();
+        final int size  = referenceColumn.getColumnSize();
+        final int scale = referenceColumn.getDecimalDigits();
+
+        final String cached = typeStrings.get(getClass(), type, size, scale);
+        if (cached != null) {
+            return cached;
+        }
+
         final StringBuilder retval = new StringBuilder();
         try {
-            retval.append(getSqlTypeName(referenceColumn.getDataType()));
+            final String sqlTypeName = getSqlTypeName(type);
+            if (sqlTypeName == null) {
+                return referenceColumn.getTypeName();
+            }
+            retval.append(sqlTypeName);
         }
         catch (Exception e) {
-            retval.append(referenceColumn.getTypeName());
+            return referenceColumn.getTypeName();
         }
 
-        
-        final boolean hasOneParam  = oneParam.contains(referenceColumn.getDataType());
-        final boolean hasTwoParams = twoParams.contains(referenceColumn.getDataType());
-        
+        final boolean hasOneParam  = oneParamTypes.contains(type);
+        final boolean hasTwoParams = twoParamTypes.contains(type);
 
         if (hasOneParam || hasTwoParams) {
-            retval.append("(").append(referenceColumn.getColumnSize());
+            retval.append("(").append(size);
             if (hasTwoParams) {
-                retval.append(",").append(referenceColumn.getDecimalDigits());
+                retval.append(",").append(scale);
             }
             retval.append(")");
         }
 
-        
-        return retval.toString();
+        return typeStrings.put(getClass(), type, size, scale, retval.toString());
     }
 
     /**
@@ -116,77 +139,22 @@ public class OracleTypeConverter extends liquibase.database.typeconversion.core.
      * @return String value including package of the type name.
      */
     protected String getSqlTypeName(final int type) throws Exception {
-        for (final Field field : Types.class.getFields()) {
-            final int sql_type = field.getInt(null);
-            if (type == sql_type) {
-                return "java.sql.Types." + field.getName();
-            }
-        }
-        return null;
+        return SqlTypes.getName(type);
     }
 
     @Override
     protected DataType getDataType(String columnTypeString, Boolean autoIncrement, String dataTypeName, String precision, String additionalInformation) {
         // Translate type to database-specific type, if possible
-        DataType returnTypeName = null;
-        if (dataTypeName.equalsIgnoreCase("BIGINT")) {
-            returnTypeName = getBigIntType();
-        } else if (dataTypeName.equalsIgnoreCase("NUMBER") 
-                   || dataTypeName.equalsIgnoreCase("DECIMAL")
-                   || dataTypeName.equalsIgnoreCase("NUMERIC")) {
-            returnTypeName = getNumberType();
-        } else if (dataTypeName.equalsIgnoreCase("BLOB")) {
-            returnTypeName = getBlobType();
-        } else if (dataTypeName.equalsIgnoreCase("BOOLEAN")) {
-            returnTypeName = getBooleanType();
-        } else if (dataTypeName.equalsIgnoreCase("CHAR")) {
-            returnTypeName = getCharType();
-        } else if (dataTypeName.equalsIgnoreCase("CLOB")) {
-            returnTypeName = getClobType();
-        } else if (dataTypeName.equalsIgnoreCase("CURRENCY")) {
-            returnTypeName = getCurrencyType();
-        } else if (dataTypeName.equalsIgnoreCase("DATE") || dataTypeName.equalsIgnoreCase(getDateType().getDataTypeName())) {
-            returnTypeName = getDateType();
-        } else if (dataTypeName.equalsIgnoreCase("DATETIME") || dataTypeName.equalsIgnoreCase(getDateTimeType().getDataTypeName())) {
-            returnTypeName = getDateTimeType();
-        } else if (dataTypeName.equalsIgnoreCase("DOUBLE")) {
-            returnTypeName = getDoubleType();
-        } else if (dataTypeName.equalsIgnoreCase("FLOAT")) {
-            returnTypeName = getFloatType();
-        } else if (dataTypeName.equalsIgnoreCase("INT")) {
-            returnTypeName = getIntType();
-        } else if (dataTypeName.equalsIgnoreCase("INTEGER")) {
-            returnTypeName = getIntType();
-        } else if (dataTypeName.equalsIgnoreCase("LONGBLOB")) {
-            returnTypeName = getLongBlobType();
-        } else if (dataTypeName.equalsIgnoreCase("LONGVARBINARY")) {
-            returnTypeName = getBlobType();
-        } else if (dataTypeName.equalsIgnoreCase("LONGVARCHAR")) {
-            returnTypeName = getClobType();
-        } else if (dataTypeName.equalsIgnoreCase("SMALLINT")) {
-            returnTypeName = getSmallIntType();
-        } else if (dataTypeName.equalsIgnoreCase("TEXT")) {
-            returnTypeName = getClobType();
-        } else if (dataTypeName.equalsIgnoreCase("TIME") || dataTypeName.equalsIgnoreCase(getTimeType().getDataTypeName())) {
-            returnTypeName = getTimeType();
-        } else if (dataTypeName.toUpperCase().contains("TIMESTAMP")) {
-            returnTypeName = getDateTimeType();
-        } else if (dataTypeName.equalsIgnoreCase("TINYINT")) {
-            returnTypeName = getTinyIntType();
-        } else if (dataTypeName.equalsIgnoreCase("UUID")) {
-            returnTypeName = getUUIDType();
-        } else if (dataTypeName.equalsIgnoreCase("VARCHAR")) {
-            returnTypeName = getVarcharType();
-        } else if (dataTypeName.equalsIgnoreCase("NVARCHAR")) {
-            returnTypeName = getNVarcharType();
-        } else {
+        final TypeKind kind = mappings.resolve(this, dataTypeName);
+        if (kind == null) {
             return new CustomType(columnTypeString,0,2);
         }
+        final DataType returnTypeName = kind.getDataType(this);
 
         if (returnTypeName == null) {
             throw new UnexpectedLiquibaseException("Could not determine " + dataTypeName + " for " + this.getClass().getName());
         }
-        addPrecisionToType(precision, returnTypeName);
+        addPrecisionToType(kind.getPrecision(precision), returnTypeName);
         returnTypeName.setAdditionalInformation(additionalInformation);
 
          return returnTypeName;
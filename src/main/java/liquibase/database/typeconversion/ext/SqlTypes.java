@@ -0,0 +1,102 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.database.typeconversion.ext;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.Types;
+
+/**
+ * Names of the {@link Types} constants, looked up once when the class loads. Converters used to find these by
+ * walking {@link Types} with reflection for every column. The names are kept in an array indexed by the type code
+ * less the smallest code, so a lookup is a bounds check and an array read.
+ *
+ * @author Leo Przybylski
+ */
+public final class SqlTypes {
+    private static final String PREFIX = "java.sql.Types.";
+
+    private static final int      offset;
+    private static final String[] names;
+
+    static {
+        final Field[] fields = Types.class.getFields();
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (final Field field : fields) {
+            if (isTypeCode(field)) {
+                final int type = getInt(field);
+                min = Math.min(min, type);
+                max = Math.max(max, type);
+            }
+        }
+
+        offset = min;
+        names  = new String[max - min + 1];
+        for (final Field field : fields) {
+            if (isTypeCode(field)) {
+                final int index = getInt(field) - offset;
+                if (names[index] == null) {
+                    names[index] = PREFIX + field.getName();
+                }
+            }
+        }
+    }
+
+    private SqlTypes() {
+    }
+
+    /**
+     * Get the qualified name of a {@link Types} constant. Example output:
+     * <ul>
+     *   <li>java.sql.Types.DECIMAL</li>
+     *   <li>java.sql.Types.BIGINT</li>
+     * </ul>
+     *
+     * @param type int value found in {@link Types}
+     * @return String value including package of the type name or <code>null</code> if there is no such type
+     */
+    public static String getName(final int type) {
+        final int index = type - offset;
+        if (index < 0 || index >= names.length) {
+            return null;
+        }
+        return names[index];
+    }
+
+    private static boolean isTypeCode(final Field field) {
+        return Modifier.isStatic(field.getModifiers()) && field.getType() == Integer.TYPE;
+    }
+
+    private static int getInt(final Field field) {
+        try {
+            return field.getInt(null);
+        }
+        catch (IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.database.typeconversion.ext;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * What a database says about its own types through {@link DatabaseMetaData#getTypeInfo()}: the native name for each
+ * {@link java.sql.Types} code, how much precision it allows, whether it takes parameters and whether it can
+ * auto-increment. Instances are immutable and cached by driver and database version, so the metadata is only read once
+ * however many changesets are run. They are also kept across runs by {@link TypeCapabilitiesStore}.
+ *
+ * @author Leo Przybylski
+ */
+public final class TypeCapabilities {
+    private static final Map<String, TypeCapabilities> cache = new ConcurrentHashMap<String, TypeCapabilities>();
+
+    private static final TypeCapabilitiesStore store = TypeCapabilitiesStore.getDefault();
+
+    private final String key;
+    private final List<NativeType> types;
+    private final Map<Integer, List<NativeType>> byCode;
+    private final Map<String, NativeType> byName;
+
+    private TypeCapabilities(final String key, final List<NativeType> types) {
+        final Map<Integer, List<NativeType>> byCode = new HashMap<Integer, List<NativeType>>();
+        final Map<String, NativeType> byName = new HashMap<String, NativeType>();
+        for (final NativeType type : types) {
+            if (!byCode.containsKey(type.getDataType())) {
+                byCode.put(type.getDataType(), new ArrayList<NativeType>());
+            }
+            byCode.get(type.getDataType()).add(type);
+            if (!byName.containsKey(type.getTypeName().toUpperCase())) {
+                byName.put(type.getTypeName().toUpperCase(), type);
+            }
+        }
+        for (final Map.Entry<Integer, List<NativeType>> entry : byCode.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+
+        this.key    = key;
+        this.types  = Collections.unmodifiableList(new ArrayList<NativeType>(types));
+        this.byCode = Collections.unmodifiableMap(byCode);
+        this.byName = Collections.unmodifiableMap(byName);
+    }
+
+    /**
+     * Get the capabilities of a database. On first use they are loaded from the {@link TypeCapabilitiesStore} or read
+     * from the database and stored.
+     */
+    public static TypeCapabilities forMetaData(final DatabaseMetaData metadata) throws SQLException {
+        final String key = getKey(metadata);
+        TypeCapabilities retval = cache.get(key);
+        if (retval == null) {
+            final List<NativeType> stored = store != null ? store.load(key) : null;
+            if (stored != null) {
+                retval = new TypeCapabilities(key, stored);
+            }
+            else {
+                retval = read(key, metadata);
+                if (store != null) {
+                    store.save(key, retval.getTypes());
+                }
+            }
+            cache.put(key, retval);
+        }
+        return retval;
+    }
+
+    /**
+     * @return identifies the driver and database version capabilities are cached by
+     */
+    public static String getKey(final DatabaseMetaData metadata) throws SQLException {
+        return metadata.getDatabaseProductName() + "/" + metadata.getDatabaseProductVersion() 
+            + "/" + metadata.getDriverName() + "/" + metadata.getDriverVersion();
+    }
+
+    protected static TypeCapabilities read(final String key, final DatabaseMetaData metadata) throws SQLException {
+        final List<NativeType> types = new ArrayList<NativeType>();
+        final ResultSet results = metadata.getTypeInfo();
+        try {
+            while (results.next()) {
+                types.add(new NativeType(results.getString("TYPE_NAME"),
+                                         results.getInt("DATA_TYPE"),
+                                         results.getInt("PRECISION"),
+                                         results.getString("CREATE_PARAMS"),
+                                         results.getBoolean("AUTO_INCREMENT")));
+            }
+        }
+        finally {
+            results.close();
+        }
+        return new TypeCapabilities(key, types);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Find the native type to use for a {@link java.sql.Types} code. Drivers list the closest match first. Types that
+     * only exist to auto-increment (like PostgreSQL's bigserial) are only used when there is nothing else.
+     *
+     * @return the native type or <code>null</code> if the database has none
+     */
+    public NativeType getNativeType(final int dataType) {
+        final List<NativeType> candidates = byCode.get(dataType);
+        if (candidates == null) {
+            return null;
+        }
+        for (final NativeType candidate : candidates) {
+            if (!candidate.isAutoIncrement()) {
+                return candidate;
+            }
+        }
+        return candidates.get(0);
+    }
+
+    /**
+     * @return the native type with this name, ignoring case, or <code>null</code>
+     */
+    public NativeType getNativeType(final String typeName) {
+        return byName.get(typeName.toUpperCase());
+    }
+
+    /**
+     * @return true if some native type for the {@link java.sql.Types} code can auto-increment
+     */
+    public boolean supportsAutoIncrement(final int dataType) {
+        final List<NativeType> candidates = byCode.get(dataType);
+        if (candidates != null) {
+            for (final NativeType candidate : candidates) {
+                if (candidate.isAutoIncrement()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return every native type in the order the database listed them
+     */
+    public List<NativeType> getTypes() {
+        return types;
+    }
+
+    /**
+     * @return every native type keyed by {@link java.sql.Types} code
+     */
+    public Map<Integer, List<NativeType>> getNativeTypes() {
+        return byCode;
+    }
+
+    /**
+     * One row of {@link DatabaseMetaData#getTypeInfo()}
+     */
+    public static class NativeType {
+        private final String  typeName;
+        private final int     dataType;
+        private final int     precision;
+        private final String  createParams;
+        private final boolean autoIncrement;
+
+        public NativeType(final String typeName, final int dataType, final int precision, 
+                          final String createParams, final boolean autoIncrement) {
+            this.typeName      = typeName;
+            this.dataType      = dataType;
+            this.precision     = precision;
+            this.createParams  = createParams;
+            this.autoIncrement = autoIncrement;
+        }
+
+        public String getTypeName() {
+            return typeName;
+        }
+
+        public int getDataType() {
+            return dataType;
+        }
+
+        /**
+         * @return the largest precision allowed or 0 when the driver does not say
+         */
+        public int getPrecision() {
+            return precision;
+        }
+
+        public String getCreateParams() {
+            return createParams;
+        }
+
+        /**
+         * @return true when the type is declared with parameters like a length or precision
+         */
+        public boolean hasParams() {
+            return createParams != null && createParams.trim().length() > 0;
+        }
+
+        public boolean isAutoIncrement() {
+            return autoIncrement;
+        }
+    }
+}
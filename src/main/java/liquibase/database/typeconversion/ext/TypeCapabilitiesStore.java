@@ -0,0 +1,160 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.database.typeconversion.ext;
+
+import liquibase.ext.CacheFiles;
+import liquibase.logging.LogFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Keeps {@link TypeCapabilities} on disk so short runs do not read <code>getTypeInfo()</code> again. Each database
+ * product, version and driver gets its own small properties file. Files are written to a temporary file and renamed,
+ * and are ignored when their format version or key does not match. The directory is <code>lb.typecache.dir</code>,
+ * or <code>.lbext/typecache</code> under the user's home. Set <code>lb.typecache.enabled=false</code> to turn it off.
+ *
+ * @author Leo Przybylski
+ */
+public final class TypeCapabilitiesStore {
+    private static final int    FORMAT_VERSION = 1;
+    private static final String VERSION_KEY    = "version";
+    private static final String KEY_KEY        = "key";
+    private static final String COUNT_KEY      = "types";
+    private static final String TYPE_KEY       = "type.%d.%s";
+
+    private final File directory;
+
+    public TypeCapabilitiesStore(final File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return the store configured by system properties or <code>null</code> when it is turned off
+     */
+    public static TypeCapabilitiesStore getDefault() {
+        if (!Boolean.valueOf(System.getProperty("lb.typecache.enabled", "true"))) {
+            return null;
+        }
+        final String dir = System.getProperty("lb.typecache.dir");
+        if (dir != null) {
+            return new TypeCapabilitiesStore(new File(dir));
+        }
+        return new TypeCapabilitiesStore(new File(System.getProperty("user.home"), ".lbext" + File.separator + "typecache"));
+    }
+
+    /**
+     * Load the types stored for a key
+     *
+     * @return the native types or <code>null</code> if nothing valid is stored
+     */
+    public List<TypeCapabilities.NativeType> load(final String key) {
+        final File file = getFile(key);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        final Properties properties = new Properties();
+        try {
+            final InputStream in = new FileInputStream(file);
+            try {
+                properties.load(in);
+            }
+            finally {
+                in.close();
+            }
+
+            if (!String.valueOf(FORMAT_VERSION).equals(properties.getProperty(VERSION_KEY))
+                || !key.equals(properties.getProperty(KEY_KEY))) {
+                LogFactory.getLogger().debug("Ignoring stale type cache " + file);
+                return null;
+            }
+
+            final int count = Integer.parseInt(properties.getProperty(COUNT_KEY));
+            final List<TypeCapabilities.NativeType> retval = new ArrayList<TypeCapabilities.NativeType>(count);
+            for (int i = 0; i < count; i++) {
+                retval.add(new TypeCapabilities.NativeType(require(properties, i, "name"),
+                                                           Integer.parseInt(require(properties, i, "dataType")),
+                                                           Integer.parseInt(require(properties, i, "precision")),
+                                                           properties.getProperty(String.format(TYPE_KEY, i, "createParams")),
+                                                           Boolean.valueOf(require(properties, i, "autoIncrement"))));
+            }
+            return retval;
+        }
+        catch (Exception e) {
+            LogFactory.getLogger().debug("Ignoring unreadable type cache " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Store the types for a key. Failures are logged and otherwise ignored since the cache is only an optimization.
+     */
+    public void save(final String key, final List<TypeCapabilities.NativeType> types) {
+        final Properties properties = new Properties();
+        properties.setProperty(VERSION_KEY, String.valueOf(FORMAT_VERSION));
+        properties.setProperty(KEY_KEY, key);
+        properties.setProperty(COUNT_KEY, String.valueOf(types.size()));
+        for (int i = 0; i < types.size(); i++) {
+            final TypeCapabilities.NativeType type = types.get(i);
+            properties.setProperty(String.format(TYPE_KEY, i, "name"), type.getTypeName());
+            properties.setProperty(String.format(TYPE_KEY, i, "dataType"), String.valueOf(type.getDataType()));
+            properties.setProperty(String.format(TYPE_KEY, i, "precision"), String.valueOf(type.getPrecision()));
+            properties.setProperty(String.format(TYPE_KEY, i, "autoIncrement"), String.valueOf(type.isAutoIncrement()));
+            if (type.getCreateParams() != null) {
+                properties.setProperty(String.format(TYPE_KEY, i, "createParams"), type.getCreateParams());
+            }
+        }
+
+        final File file = getFile(key);
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            properties.store(out, key);
+            CacheFiles.write(file, out.toByteArray());
+        }
+        catch (IOException e) {
+            LogFactory.getLogger().debug("Could not write type cache " + file + ": " + e.getMessage());
+        }
+    }
+
+    protected File getFile(final String key) {
+        return new File(directory, "types-" + CacheFiles.sha1(key) + ".properties");
+    }
+
+    private static String require(final Properties properties, final int index, final String field) {
+        final String retval = properties.getProperty(String.format(TYPE_KEY, index, field));
+        if (retval == null) {
+            throw new IllegalArgumentException("Missing " + String.format(TYPE_KEY, index, field));
+        }
+        return retval;
+    }
+}
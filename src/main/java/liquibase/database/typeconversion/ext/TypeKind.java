@@ -0,0 +1,210 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.database.typeconversion.ext;
+
+import liquibase.database.structure.type.DataType;
+import liquibase.database.structure.type.FloatType;
+import liquibase.database.typeconversion.core.AbstractTypeConverter;
+
+/**
+ * The kinds of {@link DataType} a type name can resolve to in <code>type-mappings.properties</code>. Each kind knows
+ * which {@link AbstractTypeConverter} method gives the database specific type.
+ *
+ * @author Leo Przybylski
+ */
+public enum TypeKind {
+    BIGINT {
+        public DataType getDataType(final AbstractTypeConverter converter) {
+            return converter.getBigIntType();
+        }
+    },
+    NUMBER {
+        public DataType getDataType(final AbstractTypeConverter converter) {
+            return converter.getNumberType();
+        }
+    },
+    BLOB {
+        public DataType getDataType(final AbstractTypeConverter converter) {
+            return converter.getBlobType();
+        }
+
+        protected int getMaxParameters() {
+            return 0;
+        }
+    },
+    BOOLEAN {
+        public DataType getDataType(final AbstractTypeConverter converter) {
+            return converter.getBooleanType();
+        }
+    },
+    CHAR {
+        public DataType getDataType(final AbstractTypeConverter converter) {
+            return converter.getCharType();
+        }
+    },
+    CLOB {
+        public DataType getDataType(final AbstractTypeConverter converter) {
+            return converter.getClobType();
+        }
+    },
+    CURRENCY {
+        public DataType getDataType(final AbstractTypeConverter converter) {
+            return converter.getCurrencyType();
+        }
+    },
+    DATE {
+        public DataType getDataType(final AbstractTypeConverter converter) {
+            return converter.getDateType();
+        }
+    },
+    DATETIME {
+        public DataType getDataType(final AbstractTypeConverter converter) {
+            return converter.getDateTimeType();
+        }
+    },
+    DOUBLE {
+        public DataType getDataType(final AbstractTypeConverter converter) {
+            return converter.getDoubleType();
+        }
+
+        protected int getMaxParameters() {
+            return 0;
+        }
+    },
+    FLOAT {
+        public DataType getDataType(final AbstractTypeConverter converter) {
+            return converter.getFloatType();
+        }
+    },
+    REAL {
+        public DataType getDataType(final AbstractTypeConverter converter) {
+            return new FloatType("REAL");
+        }
+
+        protected int getMaxParameters() {
+            return 0;
+        }
+    },
+    INT {
+        public DataType getDataType(final AbstractTypeConverter converter) {
+            return converter.getIntType();
+        }
+    },
+    LONGBLOB {
+        public DataType getDataType(final AbstractTypeConverter converter) {
+            return converter.getLongBlobType();
+        }
+
+        protected int getMaxParameters() {
+            return 0;
+        }
+    },
+    SMALLINT {
+        public DataType getDataType(final AbstractTypeConverter converter) {
+            return converter.getSmallIntType();
+        }
+    },
+    TIME {
+        public DataType getDataType(final AbstractTypeConverter converter) {
+            return converter.getTimeType();
+        }
+    },
+    TINYINT {
+        public DataType getDataType(final AbstractTypeConverter converter) {
+            return converter.getTinyIntType();
+        }
+    },
+    UUID {
+        public DataType getDataType(final AbstractTypeConverter converter) {
+            return converter.getUUIDType();
+        }
+    },
+    VARCHAR {
+        public DataType getDataType(final AbstractTypeConverter converter) {
+            return converter.getVarcharType();
+        }
+    },
+    NVARCHAR {
+        public DataType getDataType(final AbstractTypeConverter converter) {
+            return converter.getNVarcharType();
+        }
+    },
+    VARBINARY {
+        public DataType getDataType(final AbstractTypeConverter converter) {
+            return new VarbinaryType("VARBINARY");
+        }
+
+        protected int getMaxParameters() {
+            return 1;
+        }
+    },
+    RAW {
+        public DataType getDataType(final AbstractTypeConverter converter) {
+            return new VarbinaryType("RAW");
+        }
+
+        protected int getMaxParameters() {
+            return 1;
+        }
+    },
+    BIT_DATA {
+        public DataType getDataType(final AbstractTypeConverter converter) {
+            return new VarbinaryType("VARCHAR", "FOR BIT DATA");
+        }
+
+        protected int getMaxParameters() {
+            return 1;
+        }
+    };
+
+    /**
+     * @return the {@link DataType} <code>converter</code> uses for this kind. May be <code>null</code>
+     */
+    public abstract DataType getDataType(final AbstractTypeConverter converter);
+
+    /**
+     * Type strings give DOUBLE a size and REAL the size and scale the database reported, which most databases reject, and blobs may come with the size the database
+     * reported for them. Only the parameters this kind takes are kept.
+     *
+     * @param precision the parameters from the type string. May be <code>null</code>
+     * @return the parameters to add to the {@link DataType} or <code>null</code> for none
+     */
+    public String getPrecision(final String precision) {
+        final int max = getMaxParameters();
+        if (precision == null || max == 0) {
+            return null;
+        }
+        final int comma = precision.indexOf(',');
+        return max == 1 && comma > -1 ? precision.substring(0, comma) : precision;
+    }
+
+    /**
+     * @return how many parameters this kind takes
+     */
+    protected int getMaxParameters() {
+        return 2;
+    }
+}
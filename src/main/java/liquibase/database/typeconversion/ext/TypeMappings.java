@@ -0,0 +1,233 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.database.typeconversion.ext;
+
+import liquibase.database.structure.type.DataType;
+import liquibase.database.typeconversion.core.AbstractTypeConverter;
+import liquibase.exception.UnexpectedLiquibaseException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Maps the type names found in changelogs and database metadata to a {@link TypeKind} for one dialect. The mappings
+ * are read from every <code>liquibase/database/typeconversion/ext/type-mappings.properties</code> on the classpath,
+ * so new mappings do not need code changes. Each line is one of
+ * <ul>
+ *   <li><code>dialect.NAME=KIND</code> type names equal to NAME, ignoring case</li>
+ *   <li><code>dialect.*TEXT*=KIND</code> type names containing TEXT, ignoring case</li>
+ *   <li><code>dialect.@FROM=KIND</code> the name the converter itself uses for FROM</li>
+ * </ul>
+ * Dialects start from the <code>default</code> mappings and override them. Names are kept in an open addressing table
+ * hashed without regard to case, so a lookup does not allocate.
+ *
+ * @author Leo Przybylski
+ */
+public final class TypeMappings {
+    public static final String DEFAULT_DIALECT = "default";
+
+    private static final String RESOURCE = "liquibase/database/typeconversion/ext/type-mappings.properties";
+    private static final Map<String, TypeMappings> dialects = load();
+
+    private final String[]   names;
+    private final TypeKind[] kinds;
+    private final int        mask;
+    private final String[]   patterns;
+    private final TypeKind[] patternKinds;
+    private final TypeKind[] sources;
+    private final TypeKind[] sourceKinds;
+
+    private TypeMappings(final Map<String, TypeKind> exact, 
+                         final Map<String, TypeKind> contains, 
+                         final Map<TypeKind, TypeKind> named) {
+        int size = 16;
+        while (size < exact.size() * 2) {
+            size <<= 1;
+        }
+        names = new String[size];
+        kinds = new TypeKind[size];
+        mask  = size - 1;
+        for (final Map.Entry<String, TypeKind> entry : exact.entrySet()) {
+            int slot = hash(entry.getKey()) & mask;
+            while (names[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            names[slot] = entry.getKey();
+            kinds[slot] = entry.getValue();
+        }
+
+        patterns     = contains.keySet().toArray(new String[contains.size()]);
+        patternKinds = contains.values().toArray(new TypeKind[contains.size()]);
+        sources      = named.keySet().toArray(new TypeKind[named.size()]);
+        sourceKinds  = named.values().toArray(new TypeKind[named.size()]);
+    }
+
+    /**
+     * Get the mappings for a dialect
+     *
+     * @param dialect one of the dialects in <code>type-mappings.properties</code>. Unknown dialects get the default
+     */
+    public static TypeMappings forDialect(final String dialect) {
+        final TypeMappings retval = dialects.get(dialect.toLowerCase());
+        return retval != null ? retval : dialects.get(DEFAULT_DIALECT);
+    }
+
+    /**
+     * Find the {@link TypeKind} for a type name
+     *
+     * @param converter the converter asking. Only used for names that are not in the table
+     * @param dataTypeName name to look up
+     * @return the kind or <code>null</code> when the name is not mapped
+     */
+    public TypeKind resolve(final AbstractTypeConverter converter, final String dataTypeName) {
+        final int length = dataTypeName.length();
+        for (int slot = hash(dataTypeName) & mask; names[slot] != null; slot = (slot + 1) & mask) {
+            if (names[slot].length() == length && names[slot].regionMatches(true, 0, dataTypeName, 0, length)) {
+                return kinds[slot];
+            }
+        }
+
+        for (int i = 0; i < patterns.length; i++) {
+            if (containsIgnoreCase(dataTypeName, patterns[i])) {
+                return patternKinds[i];
+            }
+        }
+
+        for (int i = 0; i < sources.length; i++) {
+            final DataType type = sources[i].getDataType(converter);
+            if (type != null && dataTypeName.equalsIgnoreCase(type.getDataTypeName())) {
+                return sourceKinds[i];
+            }
+        }
+        return null;
+    }
+
+    private static int hash(final String name) {
+        int retval = 0;
+        for (int i = 0; i < name.length(); i++) {
+            retval = 31 * retval + Character.toUpperCase(name.charAt(i));
+        }
+        return retval ^ (retval >>> 16);
+    }
+
+    private static boolean containsIgnoreCase(final String name, final String text) {
+        for (int i = 0; i + text.length() <= name.length(); i++) {
+            if (name.regionMatches(true, i, text, 0, text.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Map<String, TypeMappings> load() {
+        final Properties properties = new Properties();
+        try {
+            ClassLoader loader = TypeMappings.class.getClassLoader();
+            if (loader == null) {
+                loader = ClassLoader.getSystemClassLoader();
+            }
+            final Enumeration<URL> resources = loader.getResources(RESOURCE);
+            if (!resources.hasMoreElements()) {
+                throw new UnexpectedLiquibaseException("Could not find " + RESOURCE);
+            }
+            while (resources.hasMoreElements()) {
+                final InputStream in = resources.nextElement().openStream();
+                try {
+                    properties.load(in);
+                }
+                finally {
+                    in.close();
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new UnexpectedLiquibaseException("Could not read " + RESOURCE, e);
+        }
+
+        final Map<String, Map<String, String>> sections = new HashMap<String, Map<String, String>>();
+        for (final String key : properties.stringPropertyNames()) {
+            final int dot = key.indexOf('.');
+            if (dot < 1) {
+                throw new UnexpectedLiquibaseException("Type mapping " + key + " has no dialect");
+            }
+            final String dialect = key.substring(0, dot).toLowerCase();
+            if (!sections.containsKey(dialect)) {
+                sections.put(dialect, new LinkedHashMap<String, String>());
+            }
+            sections.get(dialect).put(key.substring(dot + 1), properties.getProperty(key).trim());
+        }
+        if (!sections.containsKey(DEFAULT_DIALECT)) {
+            sections.put(DEFAULT_DIALECT, new LinkedHashMap<String, String>());
+        }
+
+        final Map<String, TypeMappings> retval = new HashMap<String, TypeMappings>();
+        for (final String dialect : sections.keySet()) {
+            final Map<String, String> mappings = new LinkedHashMap<String, String>(sections.get(DEFAULT_DIALECT));
+            mappings.putAll(sections.get(dialect));
+            retval.put(dialect, compile(dialect, mappings));
+        }
+        return retval;
+    }
+
+    private static TypeMappings compile(final String dialect, final Map<String, String> mappings) {
+        final Map<String, TypeKind>   exact    = new HashMap<String, TypeKind>();
+        final Map<String, TypeKind>   contains = new LinkedHashMap<String, TypeKind>();
+        final Map<TypeKind, TypeKind> named    = new LinkedHashMap<TypeKind, TypeKind>();
+
+        for (final Map.Entry<String, String> entry : mappings.entrySet()) {
+            final String   name = entry.getKey();
+            final TypeKind kind = toKind(dialect, name, entry.getValue());
+
+            if (name.startsWith("@")) {
+                named.put(toKind(dialect, name, name.substring(1)), kind);
+            }
+            else if (name.length() > 2 && name.startsWith("*") && name.endsWith("*")) {
+                contains.put(name.substring(1, name.length() - 1), kind);
+            }
+            else {
+                exact.put(name.toUpperCase(), kind);
+            }
+        }
+        return new TypeMappings(exact, contains, named);
+    }
+
+    private static TypeKind toKind(final String dialect, final String name, final String kind) {
+        try {
+            return TypeKind.valueOf(kind.toUpperCase());
+        }
+        catch (IllegalArgumentException e) {
+            throw new UnexpectedLiquibaseException("Unknown type kind " + kind + " for " + dialect + "." + name);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.database.typeconversion.ext;
+
+import java.sql.Types;
+import java.util.Collection;
+
+/**
+ * Immutable set of {@link Types} codes kept as a bitset. Checking a type does not box it or scan a list.
+ *
+ * @author Leo Przybylski
+ */
+public final class TypeSet {
+    private final int    offset;
+    private final long[] bits;
+
+    private TypeSet(final int offset, final long[] bits) {
+        this.offset = offset;
+        this.bits   = bits;
+    }
+
+    /**
+     * @param types {@link Types} codes in the set
+     */
+    public static TypeSet of(final Collection<Integer> types) {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (final int type : types) {
+            min = Math.min(min, type);
+            max = Math.max(max, type);
+        }
+        if (types.isEmpty()) {
+            return new TypeSet(0, new long[0]);
+        }
+
+        final long[] bits = new long[((max - min) >> 6) + 1];
+        for (final int type : types) {
+            final int bit = type - min;
+            bits[bit >> 6] |= 1L << (bit & 63);
+        }
+        return new TypeSet(min, bits);
+    }
+
+    public boolean contains(final int type) {
+        final int bit = type - offset;
+        if (bit < 0 || (bit >> 6) >= bits.length) {
+            return false;
+        }
+        return (bits[bit >> 6] & (1L << (bit & 63))) != 0;
+    }
+}
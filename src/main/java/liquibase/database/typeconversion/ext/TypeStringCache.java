@@ -0,0 +1,107 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.database.typeconversion.ext;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of the type strings converters build from a column's JDBC type, size and scale. A snapshot of a large
+ * schema has thousands of columns but only a few distinct shapes, so most columns are answered from here. Entries are
+ * kept per converter class since each dialect formats types differently. Cached strings are interned. The size is
+ * set with <code>lb.typestring.cache.size</code>.
+ *
+ * @author Leo Przybylski
+ */
+public final class TypeStringCache {
+    private static final int DEFAULT_SIZE = 4096;
+    private static final TypeStringCache instance = new TypeStringCache(Integer.getInteger("lb.typestring.cache.size", DEFAULT_SIZE));
+
+    private final Map<Shape, String> strings;
+
+    private TypeStringCache(final int capacity) {
+        strings = new LinkedHashMap<Shape, String>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(final Map.Entry<Shape, String> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public static TypeStringCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return the type string cached for this shape or <code>null</code>
+     */
+    public synchronized String get(final Class<?> dialect, final int type, final int size, final int scale) {
+        return strings.get(new Shape(dialect, type, size, scale));
+    }
+
+    /**
+     * Cache a type string
+     *
+     * @return the interned string
+     */
+    public synchronized String put(final Class<?> dialect, final int type, final int size, final int scale, final String typeString) {
+        final String retval = typeString.intern();
+        strings.put(new Shape(dialect, type, size, scale), retval);
+        return retval;
+    }
+
+    public synchronized void clear() {
+        strings.clear();
+    }
+
+    /**
+     * Key of a cached type string
+     */
+    private static class Shape {
+        private final Class<?> dialect;
+        private final int   type;
+        private final int   size;
+        private final int   scale;
+
+        public Shape(final Class<?> dialect, final int type, final int size, final int scale) {
+            this.dialect = dialect;
+            this.type    = type;
+            this.size    = size;
+            this.scale   = scale;
+        }
+
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Shape)) {
+                return false;
+            }
+            final Shape other = (Shape) obj;
+            return dialect == other.dialect && type == other.type && size == other.size && scale == other.scale;
+        }
+
+        public int hashCode() {
+            return ((dialect.hashCode() * 31 + type) * 31 + size) * 31 + scale;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.ext;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * File handling shared by the caches this extension keeps on disk
+ *
+ * @author Leo Przybylski
+ */
+public final class CacheFiles {
+    public static final String ENCODING = "UTF-8";
+
+    private CacheFiles() {
+    }
+
+    /**
+     * @return hex SHA-1 of the UTF-8 bytes of <code>content</code>
+     */
+    public static String sha1(final String content) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            return String.format("%040x", new BigInteger(1, digest.digest(content.getBytes(ENCODING))));
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Write a file under a temporary name and rename it, so a partial file is never read. An existing file is replaced.
+     */
+    public static void write(final File file, final byte[] content) throws IOException {
+        if (!rename(writeTemp(file, content), file, true)) {
+            throw new IOException("Could not rename a temporary file to " + file);
+        }
+    }
+
+    /**
+     * Write a file under a temporary name and rename it, unless someone else creates the file first
+     *
+     * @return <code>false</code> if the file was already there
+     */
+    public static boolean create(final File file, final byte[] content) throws IOException {
+        if (file.exists()) {
+            return false;
+        }
+        return rename(writeTemp(file, content), file, false);
+    }
+
+    /**
+     * Delete the least recently modified files ending in <code>suffix</code> until at most <code>max</code> are left
+     *
+     * @return how many files were deleted
+     */
+    public static int prune(final File directory, final String suffix, final int max) {
+        final File[] files = directory.listFiles();
+        if (files == null || files.length <= max) {
+            return 0;
+        }
+
+        final Map<File, Long> modified = new HashMap<File, Long>();
+        for (final File file : files) {
+            if (file.getName().endsWith(suffix)) {
+                modified.put(file, file.lastModified());
+            }
+        }
+        if (modified.size() <= max) {
+            return 0;
+        }
+
+        final List<File> matching = new ArrayList<File>(modified.keySet());
+        Collections.sort(matching, new Comparator<File>() {
+                public int compare(final File a, final File b) {
+                    return modified.get(a).compareTo(modified.get(b));
+                }
+            });
+
+        int retval = 0;
+        for (final File file : matching.subList(0, matching.size() - max)) {
+            if (file.delete()) {
+                retval++;
+            }
+        }
+        return retval;
+    }
+
+    private static File writeTemp(final File file, final byte[] content) throws IOException {
+        final File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        final File retval = File.createTempFile(file.getName(), ".tmp", directory);
+        final OutputStream out = new FileOutputStream(retval);
+        try {
+            out.write(content);
+        }
+        finally {
+            out.close();
+        }
+        return retval;
+    }
+
+    /**
+     * Some platforms will not rename over an existing file, so it is deleted and the rename tried again when
+     * <code>replace</code> is set
+     */
+    private static boolean rename(final File temp, final File file, final boolean replace) {
+        if (temp.renameTo(file)) {
+            return true;
+        }
+        if (replace) {
+            file.delete();
+            if (temp.renameTo(file)) {
+                return true;
+            }
+        }
+        temp.delete();
+        return false;
+    }
+}
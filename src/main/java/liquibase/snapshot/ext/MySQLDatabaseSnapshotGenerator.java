@@ -26,7 +26,6 @@
 package liquibase.snapshot.ext;
 
 import liquibase.database.Database;
-import liquibase.database.jvm.JdbcConnection;
 import liquibase.database.typeconversion.TypeConverterFactory;
 import liquibase.database.core.MySQLDatabase;
 import liquibase.database.structure.*;
@@ -39,6 +38,7 @@ import liquibase.snapshot.DatabaseSnapshot;
 import liquibase.sqlgenerator.SqlGenerator;
 import liquibase.statement.core.GetViewDefinitionStatement;
 import liquibase.statement.core.SelectSequencesStatement;
+import liquibase.statement.ext.DescribeSequenceStatement;
 import liquibase.statement.SqlStatement;
 
 import java.lang.reflect.ParameterizedType;
@@ -48,7 +48,6 @@ import java.math.BigInteger;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -59,7 +58,8 @@ import java.util.Set;
 import static liquibase.ext.Constants.EXTENSION_PRIORITY;
 
 /**
- * Detect sequences created with the {@link MysqlSequenceGenerator} hack.
+ * Detect sequences created with the {@link MysqlSequenceGenerator} hack. All of them are found with one
+ * {@link DescribeSequenceStatement} rather than by looking at the columns of every table.
  *
  * @author Leo Przybylski (leo [at] rsmart.com)
  */
@@ -114,34 +114,12 @@ public class MySQLDatabaseSnapshotGenerator extends liquibase.snapshot.jvm.MySQL
 
         updateListeners("Reading sequences for " + database.toString() + " ...");
 
-        final String convertedSchemaName = database.convertRequestedSchemaToSchema(schema);
-        try {
-            final ResultSet rs = databaseMetaData.getTables(null, convertedSchemaName, null, new String[] { "TABLE" });
-            while (rs.next()) {
-                final String sequenceName = rs.getString("TABLE_NAME");
-                if (isSequence(sequenceName, databaseMetaData)) {
-                    final Sequence seq = new Sequence();
-                    seq.setName(sequenceName.trim());
-                    // seq.setSchema(convertedSchemaName);
-                    snapshot.getSequences().add(seq);
-                }
-            }   
-        }
-        catch (SQLException sqle) {
-            throw new DatabaseException(sqle);
+        final DescribeSequenceStatement statement = new DescribeSequenceStatement(database.convertRequestedSchemaToCatalog(schema), null);
+        for (final Map<?, ?> row : ExecutorService.getInstance().getExecutor(database).queryForList(statement)) {
+            final Sequence seq = new Sequence();
+            seq.setName(((String) row.get("SEQUENCE_NAME")).trim());
+            snapshot.getSequences().add(seq);
         }
     }
 
-    protected boolean isSequence(final String tableName, final DatabaseMetaData databaseMetaData) throws SQLException {
-        final ResultSet rs = databaseMetaData.getColumns(null, null, tableName, null);
-        Integer count = 0;
-        boolean hasId = false;
-        while (rs.next()) {
-            count++;
-            hasId = rs.getString("IS_AUTOINCREMENT").equalsIgnoreCase("yes");
-        }
-
-        return hasId && count == 1;
-    }
-
 }
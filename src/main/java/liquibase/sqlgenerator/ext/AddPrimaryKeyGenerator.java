@@ -20,7 +20,21 @@ public class AddPrimaryKeyGenerator extends liquibase.sqlgenerator.core.AddPrima
     }
 
 
-    public Sql[] generateSql(AddPrimaryKeyStatement statement, Database database, SqlGeneratorChain sqlGeneratorChain) {
+    /**
+     * Answered from the {@link GeneratedSqlCache} when the same statement was generated before
+     */
+    @Override
+    public Sql[] generateSql(final AddPrimaryKeyStatement statement, final Database database, final SqlGeneratorChain sqlGeneratorChain) {
+        final GeneratedSqlCache cache = GeneratedSqlCache.getInstance();
+        final String key = cache.getKey(statement, database);
+        final Sql[] cached = cache.get(key, database);
+        if (cached != null) {
+            return cached;
+        }
+        return cache.put(key, database, generate(statement, database, sqlGeneratorChain));
+    }
+
+    protected Sql[] generate(AddPrimaryKeyStatement statement, Database database, SqlGeneratorChain sqlGeneratorChain) {
         String sql;
         if (statement.getConstraintName() == null  || database instanceof MySQLDatabase || database instanceof SybaseASADatabase) {
             sql = "ALTER TABLE " + database.escapeTableName(null, statement.getTableName()) + " ADD PRIMARY KEY (" + database.escapeColumnNameList(statement.getColumnNames()) + ")";
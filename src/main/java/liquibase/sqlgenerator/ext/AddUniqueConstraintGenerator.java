@@ -19,7 +19,21 @@ public class AddUniqueConstraintGenerator extends liquibase.sqlgenerator.core.Ad
         return EXTENSION_PRIORITY;
     }
 
-    public Sql[] generateSql(AddUniqueConstraintStatement statement, Database database, SqlGeneratorChain sqlGeneratorChain) {
+    /**
+     * Answered from the {@link GeneratedSqlCache} when the same statement was generated before
+     */
+    @Override
+    public Sql[] generateSql(final AddUniqueConstraintStatement statement, final Database database, final SqlGeneratorChain sqlGeneratorChain) {
+        final GeneratedSqlCache cache = GeneratedSqlCache.getInstance();
+        final String key = cache.getKey(statement, database);
+        final Sql[] cached = cache.get(key, database);
+        if (cached != null) {
+            return cached;
+        }
+        return cache.put(key, database, generate(statement, database, sqlGeneratorChain));
+    }
+
+    protected Sql[] generate(AddUniqueConstraintStatement statement, Database database, SqlGeneratorChain sqlGeneratorChain) {
 
 		String sql = null;
 		if (statement.getConstraintName() == null) {
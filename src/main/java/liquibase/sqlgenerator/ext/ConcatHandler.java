@@ -0,0 +1,160 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.sqlgenerator.ext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Translates chains of Oracle's <code>||</code> to a concatenation function. A chain runs between keywords, commas and
+ * comparisons, so <code>a || b = c</code> only joins <code>a</code> and <code>b</code>. A word right after a value
+ * starts something new, so an alias written without <code>AS</code> is not pulled into the chain. Targets whose
+ * concatenation only takes strings convert each operand first. String literals are left as they are.
+ *
+ * @author Leo Przybylski
+ */
+public class ConcatHandler implements SqlScopeHandler {
+    protected static final Set<String> ARITHMETIC = new HashSet<String>(Arrays.asList("+", "-", "*", "/"));
+
+    private final String open;
+    private final String separator;
+    private final String close;
+    private final String textTemplate;
+    private final String numberTemplate;
+
+    /**
+     * @param open printed before the first operand, like <code>CONCAT(</code>
+     * @param separator printed between operands
+     * @param close printed after the last operand
+     */
+    public ConcatHandler(final String open, final String separator, final String close) {
+        this(open, separator, close, null, null);
+    }
+
+    /**
+     * @param textTemplate converts an operand to a string, like <code>CAST(%s AS VARCHAR(100))</code>. May be 
+     * <code>null</code> to leave operands as they are.
+     * @param numberTemplate converts an operand that is certainly a number, ie., a number literal or arithmetic
+     */
+    public ConcatHandler(final String open, final String separator, final String close, 
+                         final String textTemplate, final String numberTemplate) {
+        this.open           = open;
+        this.separator      = separator;
+        this.close          = close;
+        this.textTemplate   = textTemplate;
+        this.numberTemplate = numberTemplate;
+    }
+
+    public void translate(final List<SqlNode> nodes) {
+        final List<int[]> chains = new ArrayList<int[]>();
+        int start = 0;
+        boolean concatenated = false;
+        SqlNode last = null;
+        for (int i = 0; i <= nodes.size(); i++) {
+            final SqlNode node = i < nodes.size() ? nodes.get(i) : null;
+            if (node != null && node.isWhitespace()) {
+                continue;
+            }
+
+            final boolean separates = node == null || node.getType() == SqlNode.Type.COMMA 
+                || SqlTranslator.isKeyword(node) || SqlTranslator.isComparison(node);
+            final boolean startsNew = !separates && last != null && SqlTranslator.isValue(last)
+                && (node.getType() == SqlNode.Type.WORD || node.getType() == SqlNode.Type.QUOTED);
+            if (separates || startsNew) {
+                if (concatenated) {
+                    chains.add(new int[] { start, i });
+                }
+                start = separates ? i + 1 : i;
+                concatenated = false;
+                last = null;
+                if (separates) {
+                    continue;
+                }
+            }
+
+            concatenated |= node.isOperator("||");
+            last = node;
+        }
+
+        for (int i = chains.size() - 1; i > -1; i--) {
+            rewrite(nodes, chains.get(i)[0], chains.get(i)[1]);
+        }
+    }
+
+    protected void rewrite(final List<SqlNode> nodes, int start, int end) {
+        while (nodes.get(start).isWhitespace()) {
+            start++;
+        }
+        while (nodes.get(end - 1).isWhitespace()) {
+            end--;
+        }
+
+        final List<Object> parts = new ArrayList<Object>();
+        parts.add(open);
+        int operand = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || nodes.get(i).isOperator("||")) {
+                if (operand > start) {
+                    parts.add(separator);
+                }
+                parts.add(convert(new ArrayList<SqlNode>(SqlNode.trim(nodes.subList(operand, i)))));
+                operand = i + 1;
+            }
+        }
+        parts.add(close);
+        SqlTranslator.replace(nodes, start, end, SqlNode.fragment(parts.toArray()));
+    }
+
+    /**
+     * @return the operand converted to a string for the target
+     */
+    protected Object convert(final List<SqlNode> operand) {
+        if (textTemplate == null || (operand.size() == 1 && operand.get(0).getType() == SqlNode.Type.STRING)) {
+            return operand;
+        }
+        return SqlNode.template(isNumber(operand) ? numberTemplate : textTemplate, operand);
+    }
+
+    /**
+     * @return true if the operand is a number literal or arithmetic, possibly in parentheses
+     */
+    protected boolean isNumber(final List<SqlNode> operand) {
+        if (operand.size() == 1 && operand.get(0).getType() == SqlNode.Type.GROUP) {
+            return isNumber(SqlNode.trim(operand.get(0).getChildren()));
+        }
+        boolean retval = !operand.isEmpty();
+        for (final SqlNode node : operand) {
+            if (node.getType() == SqlNode.Type.OPERATOR && ARITHMETIC.contains(node.getText())) {
+                return true;
+            }
+            retval &= node.isWhitespace() || node.getType() == SqlNode.Type.NUMBER;
+        }
+        return retval;
+    }
+}
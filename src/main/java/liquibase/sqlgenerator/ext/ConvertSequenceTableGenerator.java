@@ -0,0 +1,85 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.sqlgenerator.ext;
+
+import liquibase.database.Database;
+import liquibase.database.core.MySQLDatabase;
+import liquibase.database.ext.HiLoSequence;
+import liquibase.exception.ValidationErrors;
+import liquibase.sql.Sql;
+import liquibase.sql.UnparsedSql;
+import liquibase.sqlgenerator.SqlGeneratorChain;
+import liquibase.sqlgenerator.core.AbstractSqlGenerator;
+import liquibase.statement.ext.ConvertSequenceTableStatement;
+
+import static liquibase.ext.Constants.EXTENSION_PRIORITY;
+
+/**
+ * Moves a MySQL sequence table with a row for every value over to a single row table. The single row gets the
+ * highest value handed out so far, which is the larger of <code>max(id)</code> and the table's next
+ * <code>auto_increment</code> value less one, since rows may have been deleted. The new table is swapped in with one
+ * atomic <code>RENAME TABLE</code>, but anything taking values from the old table between the copy and the rename can
+ * get a value twice, so applications using the sequence should be stopped while this runs. The new table is marked
+ * with {@link HiLoSequence#TABLE_COMMENT}, which the rename keeps.
+ *
+ * @author Leo Przybylski (leo [at] rsmart.com)
+ */
+public class ConvertSequenceTableGenerator extends AbstractSqlGenerator<ConvertSequenceTableStatement> {
+    private static final String CREATE_STATEMENT = "CREATE TABLE %s_hilo (id BIGINT NOT NULL) ENGINE = InnoDB COMMENT = '%s'";
+    private static final String COPY_STATEMENT   = "INSERT INTO %1$s_hilo (id) SELECT GREATEST(COALESCE(MAX(id), 0), "
+        + "(SELECT COALESCE(AUTO_INCREMENT, 1) - 1 FROM information_schema.TABLES "
+        + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = '%1$s')) FROM %1$s";
+    private static final String SWAP_STATEMENT   = "RENAME TABLE %1$s TO %1$s_old, %1$s_hilo TO %1$s";
+    private static final String DROP_STATEMENT   = "DROP TABLE %s_old";
+
+    @Override
+    public int getPriority() {
+        return EXTENSION_PRIORITY;
+    }
+    
+    @Override
+    public boolean supports(final ConvertSequenceTableStatement statement, final Database database) {
+        return database instanceof MySQLDatabase;
+    }
+
+    @Override
+    public ValidationErrors validate(ConvertSequenceTableStatement statement, Database database, SqlGeneratorChain sqlGeneratorChain) {
+        final ValidationErrors errors = new ValidationErrors();
+        errors.checkRequiredField("sequenceName", statement.getSequenceName());
+        return errors;
+    }
+
+    @Override
+    public Sql[] generateSql(ConvertSequenceTableStatement statement, Database database, SqlGeneratorChain sqlGeneratorChain) {
+        final String name = statement.getSequenceName();
+        return new Sql[] {
+            new UnparsedSql(String.format(CREATE_STATEMENT, name, HiLoSequence.TABLE_COMMENT)),
+            new UnparsedSql(String.format(COPY_STATEMENT, name)),
+            new UnparsedSql(String.format(SWAP_STATEMENT, name)),
+            new UnparsedSql(String.format(DROP_STATEMENT, name))
+        };
+    }
+}
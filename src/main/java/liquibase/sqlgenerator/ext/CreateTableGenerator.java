@@ -27,6 +27,12 @@ package liquibase.sqlgenerator.ext;
 
 import liquibase.database.Database;
 import liquibase.database.core.*;
+import liquibase.database.ext.FreshSchemaOptimizer;
+import liquibase.database.structure.type.DataType;
+import liquibase.database.typeconversion.TypeConverter;
+import liquibase.database.typeconversion.TypeConverterFactory;
+import liquibase.database.typeconversion.ext.MySQLTypeConverter;
+import liquibase.database.typeconversion.ext.NumericTypeDescriptor;
 import liquibase.exception.ValidationErrors;
 import liquibase.logging.LogFactory;
 import liquibase.sql.Sql;
@@ -34,19 +40,28 @@ import liquibase.sql.UnparsedSql;
 import liquibase.sqlgenerator.SqlGeneratorChain;
 import liquibase.statement.AutoIncrementConstraint;
 import liquibase.statement.ForeignKeyConstraint;
+import liquibase.statement.PrimaryKeyConstraint;
 import liquibase.statement.UniqueConstraint;
 import liquibase.statement.core.CreateTableStatement;
 import liquibase.util.StringUtils;
-import java.util.Iterator;
-import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 import static liquibase.ext.Constants.EXTENSION_PRIORITY;
 
 /**
+ * Builds the <code>CREATE TABLE</code> in a single {@link SqlBuilder}. Auto increment constraints and primary key
+ * columns are looked up once per table, and each column's type string once per column. Numeric defaults are limited
+ * with the shared {@link NumericTypeDescriptor} of their type.
  *
  * @author Leo Przybylski (leo [at] rsmart.com)
  */
 public class CreateTableGenerator extends liquibase.sqlgenerator.core.CreateTableGenerator {
+    private static final int BASE_CAPACITY   = 64;
+    private static final int COLUMN_CAPACITY = 48;
 
     @Override
     public int getPriority() {
@@ -61,236 +76,192 @@ public class CreateTableGenerator extends liquibase.sqlgenerator.core.CreateTabl
         return validationErrors;
     }
 
+    /**
+     * Answered from the {@link GeneratedSqlCache} when the same statement was generated before
+     */
     @Override
-    public Sql[] generateSql(CreateTableStatement statement, Database database, SqlGeneratorChain sqlGeneratorChain) {
-            StringBuffer buffer = new StringBuffer();
-        buffer.append("CREATE TABLE ").append(database.escapeTableName(null, statement.getTableName())).append(" ");
-        buffer.append("(");
-        
-        boolean isSinglePrimaryKeyColumn = statement.getPrimaryKeyConstraint() != null
-            && statement.getPrimaryKeyConstraint().getColumns().size() == 1;
-        
-        boolean isPrimaryKeyAutoIncrement = false;
-        
-        Iterator<String> columnIterator = statement.getColumns().iterator();
-        while (columnIterator.hasNext()) {
-            String column = columnIterator.next();
-            
-            buffer.append(database.escapeColumnName(null, statement.getTableName(), column));
-            buffer.append(" ").append(statement.getColumnTypes().get(column));
-            
-            AutoIncrementConstraint autoIncrementConstraint = null;
-            
-            for (AutoIncrementConstraint currentAutoIncrementConstraint : statement.getAutoIncrementConstraints()) {
-                if (column.equals(currentAutoIncrementConstraint.getColumnName())) {
-                        autoIncrementConstraint = currentAutoIncrementConstraint;
-                        break;
-                }
+    public Sql[] generateSql(final CreateTableStatement statement, final Database database, final SqlGeneratorChain sqlGeneratorChain) {
+        final GeneratedSqlCache cache = GeneratedSqlCache.getInstance();
+        final String key = FreshSchemaOptimizer.hasInlineClauses(statement) ? null : cache.getKey(statement, database);
+        final Sql[] cached = cache.get(key, database);
+        if (cached != null) {
+            return cached;
+        }
+        return cache.put(key, database, generate(statement, database, sqlGeneratorChain));
+    }
+
+    protected Sql[] generate(CreateTableStatement statement, Database database, SqlGeneratorChain sqlGeneratorChain) {
+        final String tableName = statement.getTableName();
+        final PrimaryKeyConstraint primaryKey = statement.getPrimaryKeyConstraint();
+        final Set<String> primaryKeyColumns = primaryKey != null 
+            ? new HashSet<String>(primaryKey.getColumns()) : Collections.<String>emptySet();
+        final boolean isSinglePrimaryKeyColumn = primaryKey != null && primaryKey.getColumns().size() == 1;
+
+        final Map<String, AutoIncrementConstraint> autoIncrementConstraints = new HashMap<String, AutoIncrementConstraint>();
+        for (AutoIncrementConstraint autoIncrementConstraint : statement.getAutoIncrementConstraints()) {
+            if (!autoIncrementConstraints.containsKey(autoIncrementConstraint.getColumnName())) {
+                autoIncrementConstraints.put(autoIncrementConstraint.getColumnName(), autoIncrementConstraint);
             }
+        }
+
+        final TypeConverter converter = database instanceof MySQLDatabase 
+            ? TypeConverterFactory.getInstance().findTypeConverter(database) : null;
+
+        final SqlBuilder sql = new SqlBuilder(database, BASE_CAPACITY + statement.getColumns().size() * COLUMN_CAPACITY);
+        sql.append("CREATE TABLE ").table(tableName).append(' ').openList();
 
-            boolean isAutoIncrementColumn = autoIncrementConstraint != null;            
-            boolean isPrimaryKeyColumn = statement.getPrimaryKeyConstraint() != null
-                        && statement.getPrimaryKeyConstraint().getColumns().contains(column);
-            isPrimaryKeyAutoIncrement = isPrimaryKeyAutoIncrement
-                        || isPrimaryKeyColumn && isAutoIncrementColumn;
+        boolean isPrimaryKeyAutoIncrement = false;
+        for (String column : statement.getColumns()) {
+            final DataType columnType = statement.getColumnTypes().get(column);
+            final String typeString = columnType.toString();
+            sql.item().column(tableName, column).append(' ').append(typeString);
+
+            final AutoIncrementConstraint autoIncrementConstraint = autoIncrementConstraints.get(column);
+            final boolean isAutoIncrementColumn = autoIncrementConstraint != null;
+            final boolean isPrimaryKeyColumn = primaryKeyColumns.contains(column);
+            isPrimaryKeyAutoIncrement = isPrimaryKeyAutoIncrement || isPrimaryKeyColumn && isAutoIncrementColumn;
             
-            if ((database instanceof SQLiteDatabase) &&
-                                        isSinglePrimaryKeyColumn &&
-                                        isPrimaryKeyColumn &&
-                                        isAutoIncrementColumn) {
-                String pkName = StringUtils.trimToNull(statement.getPrimaryKeyConstraint().getConstraintName());
-                    if (pkName == null) {
-                        pkName = database.generatePrimaryKeyName(statement.getTableName());
-                    }
+            if (database instanceof SQLiteDatabase && isSinglePrimaryKeyColumn && isPrimaryKeyColumn && isAutoIncrementColumn) {
+                String pkName = StringUtils.trimToNull(primaryKey.getConstraintName());
+                if (pkName == null) {
+                    pkName = database.generatePrimaryKeyName(tableName);
+                }
                 if (pkName != null) {
-                    buffer.append(" CONSTRAINT ");
-                    buffer.append(database.escapeConstraintName(pkName));
+                    sql.append(" CONSTRAINT ").constraint(pkName);
                 }
-                buffer.append(" PRIMARY KEY AUTOINCREMENT");
-                        }
+                sql.append(" PRIMARY KEY AUTOINCREMENT");
+            }
 
             // No default for mysql date
-            if ((database instanceof MySQLDatabase) 
-                && statement.getColumnTypes().get(column).toString().startsWith("DATE")) {
-                statement.getDefaultValues().put(column, null);
+            Object defaultValue = database instanceof MySQLDatabase && typeString.startsWith("DATE") 
+                ? null : statement.getDefaultValue(column);
+
+            if (converter instanceof MySQLTypeConverter) {
+                defaultValue = ((MySQLTypeConverter) converter).getDefaultValue(defaultValue);
             }
 
-            if (statement.getDefaultValue(column) != null) {
-                Object defaultValue = statement.getDefaultValue(column);
-                
-                if ((statement.getColumnTypes().get(column).toString().startsWith("DECIMAL")
-                     || statement.getColumnTypes().get(column).toString().startsWith("NUMERIC"))
+            if (defaultValue != null) {
+                if ((typeString.startsWith("DECIMAL") || typeString.startsWith("NUMERIC"))
                     && !"null".equalsIgnoreCase(defaultValue.toString())) {
-                    int[] bounds = parseBounds(statement.getColumnTypes().get(column).toString());
-                    BigDecimal parsedValue = new BigDecimal(defaultValue.toString());
-                    
-                    StringBuilder max = new StringBuilder();
-                    for (int i = 0; i < bounds[0] - bounds[1]; i++) max.append("9");
-                    
-                    if (bounds[1] > 0) {
-                        max.append(".");
-                    }
-                    for (int i = 0; i < bounds[1]; i++) max.append("9");
-                    
-                    if (parsedValue.compareTo(new BigDecimal(max.toString())) > 0) {
-                        defaultValue = max;
+                    final NumericTypeDescriptor numeric = NumericTypeDescriptor.forType(columnType);
+                    if (numeric != null) {
+                        defaultValue = numeric.limit(defaultValue);
                     }
                 }
                 if (database instanceof MSSQLDatabase) {
-                    buffer.append(" CONSTRAINT ").append(((MSSQLDatabase) database).generateDefaultConstraintName(statement.getTableName(), column));
+                    sql.append(" CONSTRAINT ").append(((MSSQLDatabase) database).generateDefaultConstraintName(tableName, column));
                 }
-                buffer.append(" DEFAULT ");
-                buffer.append(statement.getColumnTypes().get(column).convertObjectToString(defaultValue, database));
+                sql.append(" DEFAULT ").append(columnType.convertObjectToString(defaultValue, database));
             }
 
             if (isAutoIncrementColumn) {
                 // TODO: check if database supports auto increment on non primary key column
                 if (database.supportsAutoIncrement()) {
-                        String autoIncrementClause = database.getAutoIncrementClause(autoIncrementConstraint.getStartWith(), autoIncrementConstraint.getIncrementBy());
-                
-                        if (!"".equals(autoIncrementClause)) {
-                                buffer.append(" ").append(autoIncrementClause);
-                        }
+                    String autoIncrementClause = database.getAutoIncrementClause(autoIncrementConstraint.getStartWith(), autoIncrementConstraint.getIncrementBy());
+                    if (!"".equals(autoIncrementClause)) {
+                        sql.append(' ').append(autoIncrementClause);
+                    }
                 } else {
-                    LogFactory.getLogger().warning(database.getTypeName()+" does not support autoincrement columns as request for "+(database.escapeTableName(null, statement.getTableName())));
+                    LogFactory.getLogger().warning(database.getTypeName()+" does not support autoincrement columns as request for "+(database.escapeTableName(null, tableName)));
                 }
             }
 
             if (statement.getNotNullColumns().contains(column)) {
-                buffer.append(" NOT NULL");
-            } else {
-                if (database instanceof SybaseDatabase || database instanceof SybaseASADatabase) {
-                    buffer.append(" NULL");
-                }
+                sql.append(" NOT NULL");
+            } else if (database instanceof SybaseDatabase || database instanceof SybaseASADatabase) {
+                sql.append(" NULL");
             }
 
             if (database instanceof InformixDatabase && isSinglePrimaryKeyColumn) {
-                buffer.append(" PRIMARY KEY");
-            }
-
-            if (columnIterator.hasNext()) {
-                buffer.append(", ");
+                sql.append(" PRIMARY KEY");
             }
         }
 
-        buffer.append(",");
-
         // TODO informixdb
-        if (!( (database instanceof SQLiteDatabase) &&
-                                isSinglePrimaryKeyColumn &&
-                                isPrimaryKeyAutoIncrement) &&
-
-                                !((database instanceof InformixDatabase) &&
-                                isSinglePrimaryKeyColumn
-                                )) {
-                // ...skip this code block for sqlite if a single column primary key
-                // with an autoincrement constraint exists.
-                // This constraint is added after the column type.
-
-                if (statement.getPrimaryKeyConstraint() != null && statement.getPrimaryKeyConstraint().getColumns().size() > 0) {
-                        if (!(database instanceof InformixDatabase)) {
-                            String pkName = StringUtils.trimToNull(statement.getPrimaryKeyConstraint().getConstraintName());
-                            if (pkName == null) {
-                                // TODO ORA-00972: identifier is too long
-                                    // If tableName lenght is more then 28 symbols
-                                    // then generated pkName will be incorrect
-                                    pkName = database.generatePrimaryKeyName(statement.getTableName());
-                            }
-                    if (pkName != null) {
-                        buffer.append(" CONSTRAINT ");
-                        buffer.append(database.escapeConstraintName(pkName));
-                    }
+        // Skipped for sqlite when a single column primary key with an autoincrement constraint exists, and for
+        // informix with a single column primary key. Those are added after the column type.
+        if (!(database instanceof SQLiteDatabase && isSinglePrimaryKeyColumn && isPrimaryKeyAutoIncrement)
+            && !(database instanceof InformixDatabase && isSinglePrimaryKeyColumn)
+            && primaryKey != null && primaryKey.getColumns().size() > 0) {
+            sql.item();
+            if (!(database instanceof InformixDatabase)) {
+                String pkName = StringUtils.trimToNull(primaryKey.getConstraintName());
+                if (pkName == null) {
+                    // TODO ORA-00972: identifier is too long
+                    // If tableName lenght is more then 28 symbols
+                    // then generated pkName will be incorrect
+                    pkName = database.generatePrimaryKeyName(tableName);
                 }
-                    buffer.append(" PRIMARY KEY (");
-                    buffer.append(database.escapeColumnNameList(StringUtils.join(statement.getPrimaryKeyConstraint().getColumns(), ", ")));
-                    buffer.append(")");
-                        // Setting up table space for PK's index if it exist
-                        if (database instanceof OracleDatabase &&
-                            statement.getPrimaryKeyConstraint().getTablespace() != null) {
-                                buffer.append(" USING INDEX TABLESPACE ");
-                                buffer.append(statement.getPrimaryKeyConstraint().getTablespace());
-                        }
-                    buffer.append(",");
+                if (pkName != null) {
+                    sql.append("CONSTRAINT ").constraint(pkName).append(' ');
                 }
+            }
+            sql.append("PRIMARY KEY (").columns(primaryKey.getColumns()).append(')');
+            // Setting up table space for PK's index if it exist
+            if (database instanceof OracleDatabase && primaryKey.getTablespace() != null) {
+                sql.append(" USING INDEX TABLESPACE ").append(primaryKey.getTablespace());
+            }
         }
 
         for (ForeignKeyConstraint fkConstraint : statement.getForeignKeyConstraints()) {
-                if (!(database instanceof InformixDatabase)) {
-                        buffer.append(" CONSTRAINT ");
-                buffer.append(database.escapeConstraintName(fkConstraint.getForeignKeyName()));
-                }
-            String referencesString = fkConstraint.getReferences();
-            buffer.append(" FOREIGN KEY (")
-                    .append(database.escapeColumnName(null, statement.getTableName(), fkConstraint.getColumn()))
-                    .append(") REFERENCES ")
-                    .append(referencesString);
+            sql.item();
+            if (!(database instanceof InformixDatabase)) {
+                sql.append("CONSTRAINT ").constraint(fkConstraint.getForeignKeyName()).append(' ');
+            }
+            sql.append("FOREIGN KEY (").column(tableName, fkConstraint.getColumn())
+                .append(") REFERENCES ").append(fkConstraint.getReferences());
 
             if (fkConstraint.isDeleteCascade()) {
-                buffer.append(" ON DELETE CASCADE");
+                sql.append(" ON DELETE CASCADE");
             }
-
-            if ((database instanceof InformixDatabase)) {
-                buffer.append(" CONSTRAINT ");
-                buffer.append(database.escapeConstraintName(fkConstraint.getForeignKeyName()));
+            if (database instanceof InformixDatabase) {
+                sql.append(" CONSTRAINT ").constraint(fkConstraint.getForeignKeyName());
             }
-
             if (fkConstraint.isInitiallyDeferred()) {
-                buffer.append(" INITIALLY DEFERRED");
+                sql.append(" INITIALLY DEFERRED");
             }
             if (fkConstraint.isDeferrable()) {
-                buffer.append(" DEFERRABLE");
+                sql.append(" DEFERRABLE");
             }
-            buffer.append(",");
         }
 
         for (UniqueConstraint uniqueConstraint : statement.getUniqueConstraints()) {
+            sql.item();
             if (uniqueConstraint.getConstraintName() != null && !constraintNameAfterUnique(database)) {
-                buffer.append(" CONSTRAINT ");
-                buffer.append(database.escapeConstraintName(uniqueConstraint.getConstraintName()));
+                sql.append("CONSTRAINT ").constraint(uniqueConstraint.getConstraintName()).append(' ');
             }
-            buffer.append(" UNIQUE (");
-            buffer.append(database.escapeColumnNameList(StringUtils.join(uniqueConstraint.getColumns(), ", ")));
-            buffer.append(")");
+            sql.append("UNIQUE (").columns(uniqueConstraint.getColumns()).append(')');
             if (uniqueConstraint.getConstraintName() != null && constraintNameAfterUnique(database)) {
-                buffer.append(" CONSTRAINT ");
-                buffer.append(database.escapeConstraintName(uniqueConstraint.getConstraintName()));
+                sql.append(" CONSTRAINT ").constraint(uniqueConstraint.getConstraintName());
             }
-            buffer.append(",");
+        }
+
+        for (String clause : FreshSchemaOptimizer.getInlineClauses(statement, database)) {
+            sql.item().append(clause);
         }
 
 //        if (constraints != null && constraints.getCheck() != null) {
 //            buffer.append(constraints.getCheck()).append(" ");
 //        }
-//    }
-
-        String sql = buffer.toString().replaceFirst(",\\s*$", "") + ")";
 
-//        if (StringUtils.trimToNull(tablespace) != null && database.supportsTablespaces()) {
-//            if (database instanceof MSSQLDatabase) {
-//                buffer.append(" ON ").append(tablespace);
-//            } else if (database instanceof DB2Database) {
-//                buffer.append(" IN ").append(tablespace);
-//            } else {
-//                buffer.append(" TABLESPACE ").append(tablespace);
-//            }
-//        }
+        sql.closeList();
 
         if (statement.getTablespace() != null && database.supportsTablespaces()) {
             if (database instanceof MSSQLDatabase || database instanceof SybaseASADatabase) {
-                sql += " ON " + statement.getTablespace();
+                sql.append(" ON ").append(statement.getTablespace());
             } else if (database instanceof DB2Database || database instanceof InformixDatabase) {
-                sql += " IN " + statement.getTablespace();
+                sql.append(" IN ").append(statement.getTablespace());
             } else {
-                sql += " TABLESPACE " + statement.getTablespace();
+                sql.append(" TABLESPACE ").append(statement.getTablespace());
             }
         }
 
         if (database instanceof MySQLDatabase) {
-            sql += " ENGINE = InnoDB ";
+            sql.append(" ENGINE = InnoDB ");
         }
         
         return new Sql[] {
-            new UnparsedSql(sql)
+            new UnparsedSql(sql.toString())
         };
     }
 
@@ -298,26 +269,16 @@ public class CreateTableGenerator extends liquibase.sqlgenerator.core.CreateTabl
         return database instanceof InformixDatabase;
     }
 
-    
+    /**
+     * @return precision and scale of a <code>DECIMAL</code> or <code>NUMERIC</code> type string
+     */
     protected int[] parseBounds(final String decimal) {
-        final int[] retval = new int[2];
-        int comma = decimal.indexOf(",");
-
-        try {
-            if (comma < 0) {
-                retval[0] = Integer.parseInt(decimal.substring(decimal.indexOf("(") + 1, decimal.lastIndexOf(")")));
-                retval[1] = 0;
-            }
-            else {
-                retval[0] = Integer.parseInt(decimal.substring(decimal.indexOf("(") + 1, comma));
-                retval[1] = Integer.parseInt(decimal.substring(comma + 1, decimal.lastIndexOf(")")));
-            }
-        }
-        catch (StringIndexOutOfBoundsException e) {
+        final NumericTypeDescriptor numeric = NumericTypeDescriptor.forType(decimal);
+        if (numeric == null) {
             debug("parsebounds " + decimal);
-            throw e;
+            throw new IllegalArgumentException("No precision in " + decimal);
         }
-        return retval;
+        return new int[] { numeric.getPrecision(), numeric.getScale() };
     }
 
     protected void info(final String message) {
@@ -35,10 +35,6 @@ import liquibase.sqlgenerator.SqlGenerator;
 import liquibase.sqlgenerator.SqlGeneratorChain;
 import liquibase.statement.core.CreateViewStatement;
 
-import java.util.Arrays;
-import java.util.ArrayList;
-import java.util.List;
-
 import static liquibase.ext.Constants.EXTENSION_PRIORITY;
 
 /**
@@ -46,39 +42,58 @@ import static liquibase.ext.Constants.EXTENSION_PRIORITY;
  * @author Leo Przybylski (leo [at] rsmart.com)
  */
 public class CreateViewGenerator extends liquibase.sqlgenerator.core.CreateViewGenerator {
-    protected static List<SqlMappingHandler> replacements = Arrays.asList(
-            new DecodeHandler(),
-	    new TruncHandler()
-									  );
-    
     @Override
     public int getPriority() {
         return EXTENSION_PRIORITY;
     }
 
+    /**
+     * Fails when the translated query still calls a function the database does not have
+     */
+    @Override
+    public ValidationErrors validate(final CreateViewStatement statement, final Database database, final SqlGeneratorChain sqlGeneratorChain) {
+        final ValidationErrors retval = super.validate(statement, database, sqlGeneratorChain);
+        final SqlTranslator translator = SqlTranslator.forDatabase(database);
+        if (translator == null || statement.getSelectQuery() == null) {
+            return retval;
+        }
+        final String query = TranslationCache.getInstance().translate(translator, statement.getSelectQuery());
+        for (final String call : translator.findUnsupported(query)) {
+            retval.addError(String.format("View %s uses %s, which cannot be translated for %s", 
+                                          statement.getViewName(), call, database.getTypeName()));
+        }
+        return retval;
+    }
+
+    /**
+     * The translated query comes from the {@link TranslationCache}, so the statement is not also kept in the
+     * {@link GeneratedSqlCache}
+     */
     public Sql[] generateSql(final CreateViewStatement statement, 
                              final Database database, 
                              final SqlGeneratorChain sqlGeneratorChain) {
 	CreateViewStatement genStatement = statement;
-        if (database instanceof liquibase.database.core.MySQLDatabase) {
-	    genStatement = createMySqlSafeStatement(statement);
+	final SqlTranslator translator = SqlTranslator.forDatabase(database);
+        if (translator != null) {
+	    genStatement = createSafeStatement(statement, translator);
 	}
 	return super.generateSql(genStatement, database, sqlGeneratorChain);
     }
 
     public CreateViewStatement createMySqlSafeStatement(final CreateViewStatement statement) {
-	final StringBuffer queryBuffer = new StringBuffer(statement.getSelectQuery());
-	
-	for (final SqlMappingHandler handler : replacements) {
-	    while(handler.matches(queryBuffer)) {
-		info("Got a match");
-                handler.translate(queryBuffer);
-	    }
-	}
+	return createSafeStatement(statement, SqlTranslator.forMySql());
+    }
+
+    /**
+     * Translate the view's query with <code>translator</code>
+     */
+    public CreateViewStatement createSafeStatement(final CreateViewStatement statement, final SqlTranslator translator) {
+	final String query = TranslationCache.getInstance().translate(translator, statement.getSelectQuery());
+	debug("Translated view " + statement.getViewName() + " to " + query);
 	
 	return new CreateViewStatement(statement.getSchemaName(), 
 				       statement.getViewName(), 
-				       queryBuffer.toString(), 
+				       query,
 				       statement.isReplaceIfExists());
     }
 
@@ -1,26 +1,62 @@
 package liquibase.sqlgenerator.ext;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Translates Oracle's <code>DECODE(expr, search, result, ..., default)</code> with any number of arms to a
+ * <code>CASE</code>. A <code>NULL</code> search only matches nulls in Oracle, so a searched <code>CASE</code> with
+ * <code>IS NULL</code> is used when there is one.
+ */
 public class DecodeHandler implements SqlMappingHandler {
-    protected static Pattern PATTERN = Pattern.compile("DECODE\\(([^\\)]*)\\)");
-    
-    @Override
-    public boolean matches(final StringBuffer sql) {
-	return PATTERN.matcher(sql.toString()).find();
+    public String getName() {
+	return "DECODE";
     }
     
-    @Override
-    public void translate(final StringBuffer queryBuffer) {	    
-	final Matcher matcher = PATTERN.matcher(queryBuffer.toString());
-	while (matcher.find()) {
-	    String[] group = matcher.group(1).split(",");
-	    String elseValue = group[group.length - 1];
-	    String translation = String.format("IF(%s=%s, %s, %s)", group[0], group[1], group[2], elseValue);
-	    
-	    queryBuffer.replace(matcher.start(), matcher.end(), translation);
+    public int translate(final List<SqlNode> nodes, final int index) {
+	final int call = SqlTranslator.findCall(nodes, index);
+	if (call < 0) {
+	    return index + 1;
+	}
+	final List<List<SqlNode>> arguments = SqlTranslator.getArguments(nodes.get(call));
+	if (arguments.size() < 3) {
+	    return index + 1;
+	}
+
+	final List<SqlNode> expression = arguments.get(0);
+	boolean searchesNull = false;
+	for (int i = 1; i + 1 < arguments.size(); i += 2) {
+	    searchesNull |= isNull(arguments.get(i));
+	}
+
+	final List<Object> parts = new ArrayList<Object>();
+	parts.add(searchesNull ? "CASE" : "CASE ");
+	if (!searchesNull) {
+	    parts.add(expression);
+	}
+	for (int i = 1; i + 1 < arguments.size(); i += 2) {
+	    parts.add(" WHEN ");
+	    if (searchesNull) {
+		parts.add(expression);
+		parts.add(isNull(arguments.get(i)) ? " IS NULL" : " = ");
+	    }
+	    if (!(searchesNull && isNull(arguments.get(i)))) {
+		parts.add(arguments.get(i));
+	    }
+	    parts.add(" THEN ");
+	    parts.add(arguments.get(i + 1));
+	}
+	if (arguments.size() % 2 == 0) {
+	    parts.add(" ELSE ");
+	    parts.add(arguments.get(arguments.size() - 1));
 	}
+	parts.add(" END");
+
+	SqlTranslator.replace(nodes, index, call + 1, SqlNode.fragment(parts.toArray()));
+	return index + 1;
+    }
+
+    protected boolean isNull(final List<SqlNode> argument) {
+	return argument.size() == 1 && argument.get(0).isWord("NULL");
     }
 }
@@ -27,14 +27,20 @@ package liquibase.sqlgenerator.ext;
 
 import liquibase.database.Database;
 import liquibase.database.core.MySQLDatabase;
+import liquibase.database.ext.HiLoSequence;
+import liquibase.exception.DatabaseException;
+import liquibase.exception.UnexpectedLiquibaseException;
 import liquibase.exception.ValidationErrors;
+import liquibase.executor.ExecutorService;
 import liquibase.sql.Sql;
 import liquibase.sql.UnparsedSql;
 import liquibase.sqlgenerator.SqlGenerator;
 import liquibase.sqlgenerator.SqlGeneratorChain;
 import liquibase.sqlgenerator.core.AbstractSqlGenerator;
+import liquibase.statement.core.RawSqlStatement;
 import liquibase.statement.ext.DescribeSequenceStatement;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -42,11 +48,26 @@ import java.util.Arrays;
 import static liquibase.ext.Constants.EXTENSION_PRIORITY;
 
 /**
- * Getting the current sequence value
+ * Getting the current sequence value. A sequence table made with the <code>auto_increment</code> hack has its last
+ * value one below the table's <code>AUTO_INCREMENT</code>, which is read from <code>information_schema</code> rather
+ * than scanning the table. A single row table made with <code>lb.mysql.sequence=hilo</code> is found by its
+ * {@link HiLoSequence#TABLE_COMMENT} and its row is read directly. Describing all sequences looks up the single row
+ * tables first, then reads both kinds in one query with a <code>UNION ALL</code> branch for each single row table.
+ *
+ * On MySQL 8 <code>information_schema.TABLES</code> is cached, so <code>information_schema_stats_expiry</code> should be
+ * set to 0 for the session if values are read while the sequences are in use.
  *
  * @author Leo Przybylski (leo [at] rsmart.com)
  */
 public class DescribeSequenceGeneratorMySql extends AbstractSqlGenerator<DescribeSequenceStatement> {
+    private static final String DESCRIBE_STATEMENT      = "SELECT t.TABLE_NAME AS SEQUENCE_NAME, t.AUTO_INCREMENT - 1 AS \"MAX\" "
+        + "FROM information_schema.TABLES t JOIN information_schema.COLUMNS c "
+        + "ON c.TABLE_SCHEMA = t.TABLE_SCHEMA AND c.TABLE_NAME = t.TABLE_NAME "
+        + "WHERE t.TABLE_SCHEMA = %s AND t.TABLE_TYPE = 'BASE TABLE'%s "
+        + "GROUP BY t.TABLE_NAME, t.AUTO_INCREMENT HAVING COUNT(*) = 1 AND MAX(c.EXTRA) LIKE '%%auto_increment%%'";
+    private static final String HILO_TABLES_STATEMENT   = "SELECT t.TABLE_NAME FROM information_schema.TABLES t "
+        + "WHERE t.TABLE_SCHEMA = %s AND t.TABLE_TYPE = 'BASE TABLE' AND t.TABLE_COMMENT = '%s'%s";
+    private static final String DESCRIBE_HILO_STATEMENT = "SELECT '%s' AS SEQUENCE_NAME, MAX(id) AS \"MAX\" FROM %s UNION ALL ";
 
     @Override
     public int getPriority() {
@@ -66,10 +87,38 @@ public class DescribeSequenceGeneratorMySql extends AbstractSqlGenerator<Describ
     @Override
     public Sql[] generateSql(DescribeSequenceStatement statement, Database database, SqlGeneratorChain sqlGeneratorChain) {
         List<Sql> list = new ArrayList<Sql>();
-        list.add(new UnparsedSql("select max(id) as \"MAX\" from " + statement.getSequenceName()));
+        list.add(new UnparsedSql(getDescribeSql(statement, database)));
         list.addAll(Arrays.asList(sqlGeneratorChain.generateSql(statement, database)));
 
         return list.toArray(new Sql[list.size()]);
 
     }
+
+    protected String getDescribeSql(final DescribeSequenceStatement statement, final Database database) {
+        final String schema = statement.getSchemaName() != null ? "'" + statement.getSchemaName() + "'" : "DATABASE()";
+        final String name   = statement.isAll() ? "" : " AND t.TABLE_NAME = '" + statement.getSequenceName() + "'";
+
+        final StringBuilder retval = new StringBuilder();
+        for (final String table : getHiLoTables(schema, name, database)) {
+            retval.append(String.format(DESCRIBE_HILO_STATEMENT, table, database.escapeTableName(statement.getSchemaName(), table)));
+        }
+        return retval.append(String.format(DESCRIBE_STATEMENT, schema, name)).toString();
+    }
+
+    /**
+     * @return the single row sequence tables to describe. Without a connection there are none to find.
+     */
+    @SuppressWarnings("unchecked")
+    protected List<String> getHiLoTables(final String schema, final String name, final Database database) {
+        if (database.getConnection() == null) {
+            return Collections.emptyList();
+        }
+        try {
+            return (List<String>) ExecutorService.getInstance().getExecutor(database)
+                .queryForList(new RawSqlStatement(String.format(HILO_TABLES_STATEMENT, schema, HiLoSequence.TABLE_COMMENT, name)), String.class);
+        }
+        catch (DatabaseException e) {
+            throw new UnexpectedLiquibaseException(e);
+        }
+    }
 }
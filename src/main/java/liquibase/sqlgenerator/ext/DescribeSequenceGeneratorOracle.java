@@ -42,13 +42,15 @@ import java.util.Arrays;
 import static liquibase.ext.Constants.EXTENSION_PRIORITY;
 
 /**
- * Getting the current sequence value
+ * Getting the current sequence value from <code>USER_SEQUENCES</code>, or <code>ALL_SEQUENCES</code> for another
+ * schema, instead of calling <code>nextval</code>, which used up a value. <code>LAST_NUMBER</code> is the next value
+ * written to disk, so for a cached sequence the value read is the last one that could have been handed out rather than
+ * the last one that was. That is the value a copy of the sequence needs to start after.
  *
  * @author Leo Przybylski (leo [at] rsmart.com)
  */
 public class DescribeSequenceGeneratorOracle extends AbstractSqlGenerator<DescribeSequenceStatement> {
-    private static final String CREATE_SEQUENCE_STATEMENT = "CREATE TABLE IF NOT EXISTS %s (id bigint(19) NOT NULL auto_increment, PRIMARY KEY(id) )";
-    private static final String SET_START_VALUE_STATEMENT = "INSERT INTO %s VALUES (%s)";
+    private static final String DESCRIBE_STATEMENT = "SELECT SEQUENCE_NAME, LAST_NUMBER - INCREMENT_BY AS \"MAX\" FROM %s";
 
     @Override
     public int getPriority() {
@@ -68,10 +70,26 @@ public class DescribeSequenceGeneratorOracle extends AbstractSqlGenerator<Descri
     @Override
     public Sql[] generateSql(DescribeSequenceStatement statement, Database database, SqlGeneratorChain sqlGeneratorChain) {
         List<Sql> list = new ArrayList<Sql>();
-        list.add(new UnparsedSql(String.format("select %s.nextval from dual", statement.getSequenceName())));
+        list.add(new UnparsedSql(getDescribeSql(statement)));
         list.addAll(Arrays.asList(sqlGeneratorChain.generateSql(statement, database)));
 
         return list.toArray(new Sql[list.size()]);
 
     }
+
+    protected String getDescribeSql(final DescribeSequenceStatement statement) {
+        final List<String> criteria = new ArrayList<String>();
+        if (statement.getSchemaName() != null) {
+            criteria.add("SEQUENCE_OWNER = '" + statement.getSchemaName().toUpperCase() + "'");
+        }
+        if (!statement.isAll()) {
+            criteria.add("SEQUENCE_NAME = '" + statement.getSequenceName().toUpperCase() + "'");
+        }
+
+        final StringBuilder sql = new StringBuilder(String.format(DESCRIBE_STATEMENT, statement.getSchemaName() != null ? "ALL_SEQUENCES" : "USER_SEQUENCES"));
+        for (int i = 0; i < criteria.size(); i++) {
+            sql.append(i == 0 ? " WHERE " : " AND ").append(criteria.get(i));
+        }
+        return sql.toString();
+    }
 }
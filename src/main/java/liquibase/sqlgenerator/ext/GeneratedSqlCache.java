@@ -0,0 +1,452 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.sqlgenerator.ext;
+
+import liquibase.database.Database;
+import liquibase.ext.CacheFiles;
+import liquibase.logging.LogFactory;
+import liquibase.sql.Sql;
+import liquibase.sql.UnparsedSql;
+import liquibase.statement.SqlStatement;
+import liquibase.util.LiquibaseUtil;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Remembers the sql generated for statements so repeated runs against the same kind of database skip generation.
+ * Entries are keyed by a hash of the statement's content, the database it is generated for and the versions of this
+ * extension and of liquibase, so any change to one of those misses. The content is read from the statement's fields, so
+ * nothing has to be added to the statements themselves. Views are not kept here since their translated queries are
+ * already kept by the {@link TranslationCache}.
+ *
+ * Turned on with <code>lb.sql.cache.enabled=true</code>. The most recent <code>lb.sql.cache.size</code> entries are kept
+ * in memory. Entries are also appended to one log per database and version under <code>lb.sql.cache.dir</code>, or
+ * <code>.lbext/sqlcache</code> under the user's home, and read back the first time that database is seen. Every line
+ * ends with its checksum, and lines that do not match it, whether written partly or mixed with another process's
+ * line, are skipped. Logs are never rewritten, so logs of versions no longer in use stay until the directory is
+ * removed.
+ *
+ * @author Leo Przybylski
+ */
+public final class GeneratedSqlCache {
+    private static final int    FORMAT_VERSION = 2;
+    private static final int    DEFAULT_SIZE   = 16384;
+    private static final int    MAX_DEPTH      = 8;
+    private static final String ENCODING       = CacheFiles.ENCODING;
+    private static final GeneratedSqlCache instance = new GeneratedSqlCache();
+
+    /**
+     * Stands in for a log that could not be written
+     */
+    private static final OutputStream NULL_LOG = new OutputStream() {
+            public void write(final int b) {
+            }
+
+            public void write(final byte[] buffer, final int offset, final int length) {
+            }
+        };
+
+    private final boolean enabled;
+    private final File directory;
+    private final Map<String, Sql[]> entries;
+    private final Map<Class<?>, List<Field>> fields = new HashMap<Class<?>, List<Field>>();
+    private final Set<String> loaded = new HashSet<String>();
+    private final Map<String, OutputStream> logs = new HashMap<String, OutputStream>();
+    private final Map<Database, String> productVersions = new WeakHashMap<Database, String>();
+    private final String version;
+
+    private GeneratedSqlCache() {
+        this(Boolean.getBoolean("lb.sql.cache.enabled"), 
+             System.getProperty("lb.sql.cache.dir") != null 
+             ? new File(System.getProperty("lb.sql.cache.dir")) 
+             : new File(System.getProperty("user.home"), ".lbext" + File.separator + "sqlcache"),
+             Integer.getInteger("lb.sql.cache.size", DEFAULT_SIZE));
+    }
+
+    /**
+     * Creates a cache of its own rather than the shared one. Only meant for tests.
+     */
+    GeneratedSqlCache(final boolean enabled, final File directory, final int capacity) {
+        this.enabled   = enabled;
+        this.directory = directory;
+        entries = new LinkedHashMap<String, Sql[]>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(final Map.Entry<String, Sql[]> eldest) {
+                return size() > capacity;
+            }
+        };
+        version = getExtensionVersion() + "/" + LiquibaseUtil.getBuildVersion();
+    }
+
+    public static GeneratedSqlCache getInstance() {
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the key of a statement's sql on a database, or <code>null</code> if it should not be cached
+     */
+    public String getKey(final SqlStatement statement, final Database database) {
+        if (!enabled || statement == null) {
+            return null;
+        }
+
+        final StringBuilder content = new StringBuilder(512);
+        content.append(getDialect(database)).append('\0').append(version).append('\0');
+        describe(statement, content, new IdentityHashMap<Object, Boolean>(), 0);
+        return CacheFiles.sha1(content.toString());
+    }
+
+    /**
+     * @return the cached sql for a key or <code>null</code>
+     */
+    public Sql[] get(final String key, final Database database) {
+        if (key == null) {
+            return null;
+        }
+        synchronized (this) {
+            load(getDialect(database));
+            return entries.get(key);
+        }
+    }
+
+    /**
+     * Cache generated sql
+     *
+     * @return <code>sql</code>
+     */
+    public Sql[] put(final String key, final Database database, final Sql[] sql) {
+        if (key == null || sql == null) {
+            return sql;
+        }
+        synchronized (this) {
+            entries.put(key, sql);
+            append(getDialect(database), key, sql);
+        }
+        return sql;
+    }
+
+    /**
+     * @return what generated sql depends on besides the statement
+     */
+    protected String getDialect(final Database database) {
+        return database.getClass().getName() + "/" + getProductVersion(database) + "/" + database.getDefaultSchemaName();
+    }
+
+    /**
+     * @return the product version of a database, asked of the database only the first time
+     */
+    private synchronized String getProductVersion(final Database database) {
+        if (database.getConnection() == null) {
+            return "offline";
+        }
+        String retval = productVersions.get(database);
+        if (retval == null) {
+            try {
+                retval = database.getDatabaseProductVersion();
+            }
+            catch (Exception e) {
+                retval = "unknown";
+            }
+            productVersions.put(database, retval);
+        }
+        return retval;
+    }
+
+    /**
+     * Write the content of a value. Collections that do not keep an order are sorted so the same content always reads
+     * the same.
+     */
+    private void describe(final Object value, final StringBuilder out, final Map<Object, Boolean> seen, final int depth) {
+        if (value == null) {
+            out.append("null");
+        }
+        else if (value instanceof CharSequence || value instanceof Number || value instanceof Boolean
+                 || value instanceof Character || value instanceof Enum || value instanceof Class) {
+            final String text = value instanceof Class ? ((Class<?>) value).getName() : value.toString();
+            out.append(text.length()).append(':').append(text);
+        }
+        else if (value.getClass().isArray()) {
+            out.append('[');
+            for (int i = 0; i < Array.getLength(value); i++) {
+                describe(Array.get(value, i), out, seen, depth + 1);
+                out.append(',');
+            }
+            out.append(']');
+        }
+        else if (value instanceof List) {
+            out.append('[');
+            for (final Object element : (List<?>) value) {
+                describe(element, out, seen, depth + 1);
+                out.append(',');
+            }
+            out.append(']');
+        }
+        else if (value instanceof Collection) {
+            final List<String> elements = new ArrayList<String>();
+            for (final Object element : (Collection<?>) value) {
+                final StringBuilder described = new StringBuilder();
+                describe(element, described, seen, depth + 1);
+                elements.add(described.toString());
+            }
+            Collections.sort(elements);
+            out.append('{').append(elements).append('}');
+        }
+        else if (value instanceof Map) {
+            final List<String> elements = new ArrayList<String>();
+            for (final Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                final StringBuilder described = new StringBuilder();
+                describe(entry.getKey(), described, seen, depth + 1);
+                described.append('=');
+                describe(entry.getValue(), described, seen, depth + 1);
+                elements.add(described.toString());
+            }
+            Collections.sort(elements);
+            out.append('{').append(elements).append('}');
+        }
+        else if (depth > MAX_DEPTH || seen.containsKey(value)) {
+            out.append(value.getClass().getName()).append("@").append(depth > MAX_DEPTH ? "deep" : "seen");
+        }
+        else {
+            seen.put(value, Boolean.TRUE);
+            out.append(value.getClass().getName()).append('(');
+            for (final Field field : getFields(value.getClass())) {
+                out.append(field.getName()).append('=');
+                try {
+                    describe(field.get(value), out, seen, depth + 1);
+                }
+                catch (IllegalAccessException e) {
+                    out.append('?');
+                }
+                out.append(';');
+            }
+            out.append(')');
+            seen.remove(value);
+        }
+    }
+
+    /**
+     * @return the instance fields of a class and its superclasses, sorted by name
+     */
+    private synchronized List<Field> getFields(final Class<?> type) {
+        List<Field> retval = fields.get(type);
+        if (retval == null) {
+            retval = new ArrayList<Field>();
+            for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                for (final Field field : current.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers())) {
+                        field.setAccessible(true);
+                        retval.add(field);
+                    }
+                }
+            }
+            Collections.sort(retval, new Comparator<Field>() {
+                    public int compare(final Field a, final Field b) {
+                        final int retval = a.getName().compareTo(b.getName());
+                        return retval != 0 ? retval : a.getDeclaringClass().getName().compareTo(b.getDeclaringClass().getName());
+                    }
+                });
+            fields.put(type, retval);
+        }
+        return retval;
+    }
+
+    /**
+     * Read the log of a dialect the first time it is asked for
+     */
+    private void load(final String dialect) {
+        if (!loaded.add(dialect)) {
+            return;
+        }
+
+        final File file = getFile(dialect);
+        if (!file.isFile()) {
+            return;
+        }
+
+        int count = 0;
+        try {
+            final BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), ENCODING));
+            try {
+                if (!header(dialect).equals(in.readLine())) {
+                    LogFactory.getLogger().debug("Ignoring stale sql cache " + file);
+                    return;
+                }
+                for (String line = in.readLine(); line != null; line = in.readLine()) {
+                    final int end = line.lastIndexOf('\t');
+                    if (end < 0 || !line.substring(end + 1).equals(checksum(line.substring(0, end)))) {
+                        continue;
+                    }
+                    final String[] fields = line.substring(0, end + 1).split("\t", -1);
+                    if (fields.length < 3) {
+                        continue;
+                    }
+                    final Sql[] sql = new Sql[(fields.length - 2) / 2];
+                    for (int i = 0; i < sql.length; i++) {
+                        sql[i] = new UnparsedSql(unescape(fields[1 + i * 2]), unescape(fields[2 + i * 2]));
+                    }
+                    entries.put(fields[0], sql);
+                    count++;
+                }
+            }
+            finally {
+                in.close();
+            }
+            LogFactory.getLogger().debug("Read " + count + " cached statements from " + file);
+        }
+        catch (IOException e) {
+            LogFactory.getLogger().debug("Ignoring unreadable sql cache " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Add an entry to the log of a dialect. Each line goes out in one write so lines appended by other processes at
+     * the same time rarely mix, and the checksum catches the ones that do. Failures turn the log off for the rest of
+     * the run.
+     */
+    private void append(final String dialect, final String key, final Sql[] sql) {
+        final File file = getFile(dialect);
+        try {
+            OutputStream out = logs.get(dialect);
+            if (out == null) {
+                out = open(dialect);
+                logs.put(dialect, out);
+            }
+
+            final StringBuilder line = new StringBuilder(key);
+            for (final Sql statement : sql) {
+                line.append('\t').append(escape(statement.toSql())).append('\t').append(escape(statement.getEndDelimiter()));
+            }
+            line.append('\t');
+            out.write(line.append(checksum(line.substring(0, line.length() - 1))).append('\n').toString().getBytes(ENCODING));
+        }
+        catch (IOException e) {
+            LogFactory.getLogger().debug("Could not write sql cache " + file + ": " + e.getMessage());
+            logs.put(dialect, NULL_LOG);
+        }
+    }
+
+    /**
+     * Open the log of a dialect for appending. A new log gets its header in a temporary file that is then renamed, so
+     * no process ever sees a log without one. Another process may have started the log first.
+     */
+    private OutputStream open(final String dialect) throws IOException {
+        final File file = getFile(dialect);
+        CacheFiles.create(file, (header(dialect) + "\n").getBytes(ENCODING));
+        return new FileOutputStream(file, true);
+    }
+
+    private String header(final String dialect) {
+        return "lbext-sql-cache " + FORMAT_VERSION + " " + dialect + " " + version;
+    }
+
+    /**
+     * @return the log of a dialect. Each version has its own, so no log is ever started over.
+     */
+    private File getFile(final String dialect) {
+        return new File(directory, "sql-" + CacheFiles.sha1(header(dialect)) + ".log");
+    }
+
+    private static String checksum(final String line) throws IOException {
+        final CRC32 retval = new CRC32();
+        retval.update(line.getBytes(ENCODING));
+        return Long.toHexString(retval.getValue());
+    }
+
+    private static String escape(final String value) {
+        if (value == null) {
+            return "\\0";
+        }
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(final String value) {
+        if ("\\0".equals(value)) {
+            return null;
+        }
+        final StringBuilder retval = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c != '\\' || i == value.length() - 1) {
+                retval.append(c);
+                continue;
+            }
+            final char next = value.charAt(++i);
+            retval.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+        }
+        return retval.toString();
+    }
+
+    /**
+     * @return the implementation version of this extension or, for a development build, when it was built
+     */
+    private static String getExtensionVersion() {
+        final Package pkg = GeneratedSqlCache.class.getPackage();
+        if (pkg != null && pkg.getImplementationVersion() != null) {
+            return pkg.getImplementationVersion();
+        }
+        try {
+            final CodeSource source = GeneratedSqlCache.class.getProtectionDomain().getCodeSource();
+            final URL location = source != null ? source.getLocation() : null;
+            if (location != null && "file".equals(location.getProtocol())) {
+                final File file = new File(location.toURI());
+                final File classFile = file.isDirectory() 
+                    ? new File(file, GeneratedSqlCache.class.getName().replace('.', File.separatorChar) + ".class") : file;
+                return "dev-" + classFile.lastModified();
+            }
+        }
+        catch (Exception e) {
+            LogFactory.getLogger().debug("Could not determine extension version: " + e.getMessage());
+        }
+        return "unknown";
+    }
+}
@@ -0,0 +1,88 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.sqlgenerator.ext;
+
+import liquibase.database.Database;
+import liquibase.exception.ValidationErrors;
+import liquibase.sql.Sql;
+import liquibase.sql.UnparsedSql;
+import liquibase.sqlgenerator.SqlGeneratorChain;
+import liquibase.sqlgenerator.core.AbstractSqlGenerator;
+import liquibase.statement.ext.DescribeSequenceStatement;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static liquibase.ext.Constants.EXTENSION_PRIORITY;
+
+/**
+ * Getting the current sequence value from <code>INFORMATION_SCHEMA.SEQUENCES</code>. Subclasses say which databases
+ * they are for, how the value is read from the view and how the current schema is named.
+ *
+ * @author Leo Przybylski (leo [at] rsmart.com)
+ */
+public abstract class InformationSchemaSequenceGenerator extends AbstractSqlGenerator<DescribeSequenceStatement> {
+    private static final String DESCRIBE_STATEMENT = "SELECT SEQUENCE_NAME, %s AS \"MAX\" FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_SCHEMA = %s";
+
+    private final String value;
+    private final String currentSchema;
+
+    /**
+     * @param value expression for the last value handed out
+     * @param currentSchema expression for the current schema
+     */
+    protected InformationSchemaSequenceGenerator(final String value, final String currentSchema) {
+        this.value         = value;
+        this.currentSchema = currentSchema;
+    }
+
+    @Override
+    public int getPriority() {
+        return EXTENSION_PRIORITY;
+    }
+
+    @Override
+    public ValidationErrors validate(DescribeSequenceStatement statement, Database database, SqlGeneratorChain sqlGeneratorChain) {
+        return new ValidationErrors();
+    }
+
+    @Override
+    public Sql[] generateSql(DescribeSequenceStatement statement, Database database, SqlGeneratorChain sqlGeneratorChain) {
+        List<Sql> list = new ArrayList<Sql>();
+        list.add(new UnparsedSql(getDescribeSql(statement)));
+        list.addAll(Arrays.asList(sqlGeneratorChain.generateSql(statement, database)));
+
+        return list.toArray(new Sql[list.size()]);
+
+    }
+
+    protected String getDescribeSql(final DescribeSequenceStatement statement) {
+        final String schema = statement.getSchemaName() != null ? "'" + statement.getSchemaName().toUpperCase() + "'" : currentSchema;
+        final String sql    = String.format(DESCRIBE_STATEMENT, value, schema);
+        return statement.isAll() ? sql : sql + " AND SEQUENCE_NAME = '" + statement.getSequenceName().toUpperCase() + "'";
+    }
+}
@@ -0,0 +1,147 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.sqlgenerator.ext;
+
+import liquibase.database.Database;
+import liquibase.database.ext.MySqlDatabase;
+import liquibase.exception.DatabaseException;
+import liquibase.exception.UnexpectedLiquibaseException;
+import liquibase.executor.ExecutorService;
+import liquibase.sql.Sql;
+import liquibase.sql.UnparsedSql;
+import liquibase.sqlgenerator.SqlGeneratorChain;
+import liquibase.statement.DatabaseFunction;
+import liquibase.statement.core.InsertStatement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static liquibase.ext.Constants.EXTENSION_PRIORITY;
+
+/**
+ * Inserts on MySQL with <code>lb.mysql.sequence=hilo</code>. A value computed as <code>sequence.NEXTVAL</code> is
+ * replaced with the next value of that sequence's single row table, handed out by
+ * {@link MySqlDatabase#getNextSequenceValue(String)}, when the sql is run right after it is generated.
+ *
+ * When the sql is only written out, ie., by <code>updateSQL</code>, nothing is taken from the sequence. The sql takes
+ * the value when it runs instead: each sequence is moved forward by one with <code>LAST_INSERT_ID(id + 1)</code>, and
+ * the insert reads it back with <code>LAST_INSERT_ID()</code>, or from a variable when it uses more than one sequence.
+ *
+ * @author Leo Przybylski (leo [at] rsmart.com)
+ */
+public class InsertGenerator extends liquibase.sqlgenerator.core.InsertGenerator {
+    private static final Pattern NEXTVAL = Pattern.compile("\\s*(\\w+)\\.NEXTVAL\\s*", Pattern.CASE_INSENSITIVE);
+    private static final String NEXT_STATEMENT     = "UPDATE %s SET id = LAST_INSERT_ID(id + 1)";
+    private static final String VARIABLE_STATEMENT = "SET @%s_nextval = LAST_INSERT_ID()";
+
+    @Override
+    public int getPriority() {
+        return EXTENSION_PRIORITY;
+    }
+
+    @Override
+    public boolean supports(final InsertStatement statement, final Database database) {
+        return database instanceof MySqlDatabase && database.getConnection() != null && MysqlSequenceGenerator.isHiLo();
+    }
+
+    @Override
+    public Sql[] generateSql(final InsertStatement statement, final Database database, final SqlGeneratorChain sqlGeneratorChain) {
+        if (!ExecutorService.getInstance().getExecutor(database).updatesDatabase()) {
+            return generateDeferredSql(statement, database, sqlGeneratorChain);
+        }
+
+        InsertStatement retval = null;
+        for (final Map.Entry<String, Object> column : statement.getColumnValues().entrySet()) {
+            final Matcher sequence = column.getValue() instanceof DatabaseFunction
+                ? NEXTVAL.matcher(((DatabaseFunction) column.getValue()).getValue()) : null;
+            if (sequence != null && sequence.matches()) {
+                if (retval == null) {
+                    retval = copy(statement);
+                }
+                try {
+                    retval.addColumnValue(column.getKey(), ((MySqlDatabase) database).getNextSequenceValue(sequence.group(1)));
+                }
+                catch (DatabaseException e) {
+                    throw new UnexpectedLiquibaseException(e);
+                }
+            }
+        }
+        return super.generateSql(retval != null ? retval : statement, database, sqlGeneratorChain);
+    }
+
+    /**
+     * Generate sql that takes the sequence values itself when it runs
+     */
+    protected Sql[] generateDeferredSql(final InsertStatement statement, final Database database, final SqlGeneratorChain sqlGeneratorChain) {
+        final Map<String, String> sequences = new LinkedHashMap<String, String>();
+        final Map<String, String> columns   = new LinkedHashMap<String, String>();
+        for (final Map.Entry<String, Object> column : statement.getColumnValues().entrySet()) {
+            final Matcher sequence = column.getValue() instanceof DatabaseFunction
+                ? NEXTVAL.matcher(((DatabaseFunction) column.getValue()).getValue()) : null;
+            if (sequence != null && sequence.matches()) {
+                sequences.put(sequence.group(1).toLowerCase(), sequence.group(1));
+                columns.put(column.getKey(), sequence.group(1).toLowerCase());
+            }
+        }
+        if (sequences.isEmpty()) {
+            return super.generateSql(statement, database, sqlGeneratorChain);
+        }
+
+        final List<Sql> retval = new ArrayList<Sql>();
+        final Map<String, String> values = new LinkedHashMap<String, String>();
+        int remaining = sequences.size();
+        for (final Map.Entry<String, String> sequence : sequences.entrySet()) {
+            retval.add(new UnparsedSql(String.format(NEXT_STATEMENT, database.escapeTableName(null, sequence.getValue()))));
+            if (--remaining > 0) {
+                retval.add(new UnparsedSql(String.format(VARIABLE_STATEMENT, sequence.getKey())));
+                values.put(sequence.getKey(), "@" + sequence.getKey() + "_nextval");
+            }
+            else {
+                values.put(sequence.getKey(), "LAST_INSERT_ID()");
+            }
+        }
+
+        final InsertStatement insert = copy(statement);
+        for (final Map.Entry<String, String> column : columns.entrySet()) {
+            insert.addColumnValue(column.getKey(), new DatabaseFunction(values.get(column.getValue())));
+        }
+        retval.addAll(Arrays.asList(super.generateSql(insert, database, sqlGeneratorChain)));
+        return retval.toArray(new Sql[retval.size()]);
+    }
+
+    private InsertStatement copy(final InsertStatement statement) {
+        final InsertStatement retval = new InsertStatement(statement.getSchemaName(), statement.getTableName());
+        for (final Map.Entry<String, Object> column : statement.getColumnValues().entrySet()) {
+            retval.addColumnValue(column.getKey(), column.getValue());
+        }
+        return retval;
+    }
+}
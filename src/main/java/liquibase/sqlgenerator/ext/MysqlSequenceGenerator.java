@@ -26,6 +26,7 @@
 package liquibase.sqlgenerator.ext;
 
 import liquibase.database.Database;
+import liquibase.database.ext.HiLoSequence;
 import liquibase.exception.ValidationErrors;
 import liquibase.sql.Sql;
 import liquibase.sql.UnparsedSql;
@@ -41,13 +42,21 @@ import java.util.Arrays;
 import static liquibase.ext.Constants.EXTENSION_PRIORITY;
 
 /**
- * Sequence hack for MySQL
+ * Sequence hack for MySQL. By default a sequence is a table with an <code>auto_increment</code> column that gets a row
+ * for every value. With <code>lb.mysql.sequence=hilo</code> it is a table with a single row holding the last value
+ * given out, which {@link liquibase.database.ext.HiLoSequence} advances a block at a time with
+ * <code>LAST_INSERT_ID(expr)</code>. Such tables carry {@link HiLoSequence#TABLE_COMMENT} as their comment. Inserts
+ * take values from them through {@link InsertGenerator}. Existing tables are converted with
+ * {@link liquibase.change.ext.ConvertSequenceTableChange}.
  *
  * @author Leo Przybylski (leo [at] rsmart.com)
  */
 public class MysqlSequenceGenerator extends AbstractSqlGenerator<CreateSequenceStatement> {
     private static final String CREATE_SEQUENCE_STATEMENT = "CREATE TABLE IF NOT EXISTS %s (id bigint(19) NOT NULL auto_increment, PRIMARY KEY(id) )";
     private static final String SET_START_VALUE_STATEMENT = "INSERT INTO %s VALUES (%s)";
+    private static final String CREATE_HILO_STATEMENT     = "CREATE TABLE IF NOT EXISTS %s (id BIGINT NOT NULL) ENGINE = InnoDB COMMENT = '%s'";
+    private static final String SET_HILO_VALUE_STATEMENT  = "INSERT INTO %1$s (id) SELECT %2$s FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM %1$s)";
+    public  static final String HILO                      = "hilo";
 
     @Override
     public int getPriority() {
@@ -67,6 +76,14 @@ public class MysqlSequenceGenerator extends AbstractSqlGenerator<CreateSequenceS
     @Override
     public Sql[] generateSql(CreateSequenceStatement statement, Database database, SqlGeneratorChain sqlGeneratorChain) {
         List<Sql> list = new ArrayList<Sql>();
+        if (isHiLo()) {
+            list.add(new UnparsedSql(String.format(CREATE_HILO_STATEMENT, statement.getSequenceName(), HiLoSequence.TABLE_COMMENT)));
+            list.add(new UnparsedSql(String.format(SET_HILO_VALUE_STATEMENT, statement.getSequenceName(),
+                                                   statement.getStartValue() != null ? statement.getStartValue() : 0)));
+            list.addAll(Arrays.asList(sqlGeneratorChain.generateSql(statement, database)));
+            return list.toArray(new Sql[list.size()]);
+        }
+
         list.add(new UnparsedSql(String.format(CREATE_SEQUENCE_STATEMENT, statement.getSequenceName())));
         /* This is already taken care of during data migration */
         if (statement.getStartValue() != null) {
@@ -79,4 +96,11 @@ public class MysqlSequenceGenerator extends AbstractSqlGenerator<CreateSequenceS
         return list.toArray(new Sql[list.size()]);
 
     }
+
+    /**
+     * @return whether sequences are single row tables
+     */
+    public static boolean isHiLo() {
+        return HILO.equalsIgnoreCase(System.getProperty("lb.mysql.sequence"));
+    }
 }
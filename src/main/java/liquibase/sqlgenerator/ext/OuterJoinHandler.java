@@ -0,0 +1,291 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.sqlgenerator.ext;
+
+import liquibase.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Translates Oracle's <code>(+)</code> outer joins to <code>LEFT OUTER JOIN</code>. Each conjunct of the
+ * <code>WHERE</code> clause with a <code>(+)</code> becomes part of the <code>ON</code> clause of the table it marks.
+ * Tables that are not outer joined come first with <code>CROSS JOIN</code>. Their join conditions stay in the
+ * <code>WHERE</code> clause. Outer joined tables follow, each after the tables its conditions use. The query is left
+ * alone with a warning when this cannot be done safely. That happens when the <code>WHERE</code> clause has a top level
+ * <code>OR</code>, when a marked conjunct has an unqualified column or marks two tables, or when the outer joins depend
+ * on each other in a circle.
+ *
+ * @author Leo Przybylski
+ */
+public class OuterJoinHandler implements SqlScopeHandler {
+    public void translate(final List<SqlNode> nodes) {
+        if (!hasMarker(nodes)) {
+            return;
+        }
+
+        final SqlScope scope = SqlScope.parse(nodes);
+        if (scope == null || !scope.has("FROM") || !scope.has("WHERE")) {
+            return;
+        }
+
+        final List<Table> tables = getTables(nodes, scope);
+        final List<List<SqlNode>> conjuncts = scope.getConjuncts("WHERE");
+        if (tables == null || conjuncts == null) {
+            warn(nodes);
+            return;
+        }
+
+        final List<List<SqlNode>> remaining = new ArrayList<List<SqlNode>>();
+        for (final List<SqlNode> conjunct : conjuncts) {
+            final Set<String> qualifiers = new HashSet<String>();
+            final Set<String> markedQualifiers = new HashSet<String>();
+            final boolean qualified = collect(conjunct, qualifiers, markedQualifiers);
+            if (markedQualifiers.isEmpty()) {
+                remaining.add(conjunct);
+                continue;
+            }
+
+            final Table table = markedQualifiers.size() == 1 ? find(tables, markedQualifiers.iterator().next()) : null;
+            if (!qualified || table == null) {
+                warn(nodes);
+                return;
+            }
+            table.outer = true;
+            table.conditions.add(removeMarkers(conjunct));
+            for (final String qualifier : qualifiers) {
+                final Table dependency = find(tables, qualifier);
+                if (dependency != null && dependency != table) {
+                    table.dependencies.add(dependency);
+                }
+            }
+        }
+
+        final List<Table> ordered = new ArrayList<Table>();
+        for (final Table table : tables) {
+            if (!table.outer) {
+                ordered.add(table);
+            }
+        }
+        if (ordered.isEmpty()) {
+            warn(nodes);
+            return;
+        }
+        final int inner = ordered.size();
+        while (ordered.size() < tables.size()) {
+            Table next = null;
+            for (final Table table : tables) {
+                if (table.outer && !ordered.contains(table) && ordered.containsAll(table.dependencies)) {
+                    next = table;
+                    break;
+                }
+            }
+            if (next == null) {
+                warn(nodes);
+                return;
+            }
+            ordered.add(next);
+        }
+
+        final List<Object> from = new ArrayList<Object>();
+        for (int i = 0; i < ordered.size(); i++) {
+            final Table table = ordered.get(i);
+            if (i > 0) {
+                from.add(i < inner ? " CROSS JOIN " : " LEFT OUTER JOIN ");
+            }
+            from.add(table.nodes);
+            if (table.outer) {
+                from.add(" ON ");
+                from.add(SqlScope.and(table.conditions));
+            }
+        }
+
+        scope.replace("WHERE", SqlScope.and(remaining));
+        scope.replace("FROM", SqlNode.fragment(from.toArray()));
+    }
+
+    /**
+     * @return true if there is a <code>(+)</code> on this level, including inside translated fragments
+     */
+    protected boolean hasMarker(final List<SqlNode> nodes) {
+        for (final SqlNode node : nodes) {
+            if (node.isOuterJoinMarker() || (node.getType() == SqlNode.Type.FRAGMENT && hasMarker(node.getChildren()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the tables in the FROM clause or <code>null</code> if they are not a plain comma separated list
+     */
+    protected List<Table> getTables(final List<SqlNode> nodes, final SqlScope scope) {
+        final List<Table> retval = new ArrayList<Table>();
+        final int end = scope.getEnd("FROM");
+        int start = scope.getStart("FROM") + 1;
+        for (int i = start; i <= end; i++) {
+            if (i == end || nodes.get(i).getType() == SqlNode.Type.COMMA) {
+                final Table table = Table.parse(new ArrayList<SqlNode>(SqlNode.trim(nodes.subList(start, i))));
+                if (table == null) {
+                    return null;
+                }
+                retval.add(table);
+                start = i + 1;
+            }
+        }
+        return retval;
+    }
+
+    protected Table find(final List<Table> tables, final String qualifier) {
+        for (final Table table : tables) {
+            if (table.names.contains(qualifier.toUpperCase())) {
+                return table;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Collect the qualifiers of the columns in a conjunct, and of the columns marked with <code>(+)</code>. Nested
+     * queries are skipped.
+     *
+     * @return false if there is a column without a qualifier
+     */
+    protected boolean collect(final List<SqlNode> nodes, final Set<String> qualifiers, final Set<String> marked) {
+        boolean retval = true;
+        for (int i = 0; i < nodes.size(); i++) {
+            final SqlNode node = nodes.get(i);
+            if (node.hasChildren()) {
+                if (SqlScope.parse(node.getChildren()) == null) {
+                    retval &= collect(node.getChildren(), qualifiers, marked);
+                }
+                continue;
+            }
+            if (node.getType() != SqlNode.Type.WORD || SqlTranslator.isKeyword(node) || node.isWord("NULL")) {
+                continue;
+            }
+
+            final int next = SqlTranslator.next(nodes, i);
+            final boolean isMarked = next > -1 && nodes.get(next).isOuterJoinMarker();
+            if (next > -1 && !isMarked && nodes.get(next).getType() == SqlNode.Type.GROUP) {
+                continue; // a function call
+            }
+
+            final int dot = node.getText().lastIndexOf('.');
+            if (dot < 0) {
+                retval = false;
+                continue;
+            }
+            final String qualifier = node.getText().substring(0, dot);
+            qualifiers.add(qualifier);
+            if (isMarked) {
+                marked.add(qualifier);
+            }
+        }
+        return retval;
+    }
+
+    protected List<SqlNode> removeMarkers(final List<SqlNode> nodes) {
+        final List<SqlNode> retval = new ArrayList<SqlNode>();
+        for (final SqlNode node : nodes) {
+            if (node.isOuterJoinMarker()) {
+                continue;
+            }
+            else if (node.getType() == SqlNode.Type.GROUP) {
+                retval.add(SqlNode.group(removeMarkers(node.getChildren())));
+            }
+            else if (node.getType() == SqlNode.Type.FRAGMENT) {
+                retval.add(SqlNode.fragment(removeMarkers(node.getChildren())));
+            }
+            else {
+                retval.add(node);
+            }
+        }
+        return retval;
+    }
+
+    protected void warn(final List<SqlNode> nodes) {
+        LogFactory.getLogger().warning("Cannot translate (+) outer joins in " + SqlNode.toString(nodes));
+    }
+
+    /**
+     * A table in the FROM clause
+     */
+    protected static class Table {
+        private final List<SqlNode> nodes;
+        private final Set<String> names = new HashSet<String>();
+        private final List<List<SqlNode>> conditions = new ArrayList<List<SqlNode>>();
+        private final Set<Table> dependencies = new HashSet<Table>();
+        private boolean outer;
+
+        protected Table(final List<SqlNode> nodes) {
+            this.nodes = nodes;
+        }
+
+        /**
+         * @return the table or <code>null</code> if it is not a table or query with an optional alias
+         */
+        protected static Table parse(final List<SqlNode> nodes) {
+            final List<SqlNode> significant = new ArrayList<SqlNode>();
+            for (final SqlNode node : nodes) {
+                if (!node.isWhitespace()) {
+                    significant.add(node);
+                }
+            }
+            if (significant.size() == 3 && significant.get(1).isWord("AS")) {
+                significant.remove(1);
+            }
+            if (significant.isEmpty() || significant.size() > 2) {
+                return null;
+            }
+
+            final Table retval = new Table(nodes);
+            final SqlNode source = significant.get(0);
+            if (significant.size() == 2) {
+                if (!SqlTranslator.isValue(significant.get(1)) || significant.get(1).getType() == SqlNode.Type.GROUP) {
+                    return null;
+                }
+                retval.names.add(significant.get(1).getText().toUpperCase());
+            }
+            else if (source.getType() == SqlNode.Type.WORD) {
+                final String name = source.getText().toUpperCase();
+                retval.names.add(name);
+                retval.names.add(name.substring(name.lastIndexOf('.') + 1));
+            }
+            else {
+                return null;
+            }
+
+            if (source.getType() != SqlNode.Type.WORD && source.getType() != SqlNode.Type.GROUP 
+                && source.getType() != SqlNode.Type.QUOTED) {
+                return null;
+            }
+            return retval;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.sqlgenerator.ext;
+
+import liquibase.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Translates an Oracle <code>WHERE ... ROWNUM &lt;= n</code> row limit to the target's limit clause. Only a single
+ * <code>ROWNUM</code> compared to a number is translated, and only in a query without <code>GROUP BY</code>,
+ * <code>ORDER BY</code> or set operators, since Oracle counts rows before those and a limit clause counts after them.
+ * Anything else is left alone with a warning.
+ *
+ * @author Leo Przybylski
+ */
+public class RownumHandler implements SqlScopeHandler {
+    private final String limitTemplate;
+
+    /**
+     * @param limitTemplate appended to the query with the number of rows, like <code> LIMIT %d</code>
+     */
+    public RownumHandler(final String limitTemplate) {
+        this.limitTemplate = limitTemplate;
+    }
+
+    public void translate(final List<SqlNode> nodes) {
+        int rownums = 0;
+        for (final SqlNode node : nodes) {
+            if (node.isWord("ROWNUM")) {
+                rownums++;
+            }
+        }
+        if (rownums == 0) {
+            return;
+        }
+
+        final SqlScope scope = SqlScope.parse(nodes);
+        if (scope == null) {
+            return;
+        }
+        if (rownums > 1 || !scope.has("WHERE")
+            || scope.hasAny("GROUP", "HAVING", "ORDER", "UNION", "INTERSECT", "MINUS", "EXCEPT", "CONNECT", "START", "FOR", "LIMIT", "FETCH")) {
+            warn(nodes);
+            return;
+        }
+
+        final List<List<SqlNode>> conjuncts = scope.getConjuncts("WHERE");
+        if (conjuncts == null) {
+            warn(nodes);
+            return;
+        }
+
+        long limit = -1;
+        final List<List<SqlNode>> remaining = new ArrayList<List<SqlNode>>();
+        for (final List<SqlNode> conjunct : conjuncts) {
+            final long conjunctLimit = getLimit(conjunct);
+            if (conjunctLimit > -1) {
+                limit = conjunctLimit;
+            }
+            else {
+                remaining.add(conjunct);
+            }
+        }
+        if (limit < 0) {
+            warn(nodes);
+            return;
+        }
+
+        scope.replace("WHERE", SqlScope.and(remaining));
+
+        int last = nodes.size() - 1;
+        while (last > -1 && nodes.get(last).isWhitespace()) {
+            last--;
+        }
+        nodes.add(last + 1, SqlNode.raw(String.format(limitTemplate, limit)));
+    }
+
+    /**
+     * @return the number of rows a <code>ROWNUM</code> comparison allows or -1 if the conjunct is not one
+     */
+    protected long getLimit(final List<SqlNode> conjunct) {
+        final List<SqlNode> significant = new ArrayList<SqlNode>();
+        for (final SqlNode node : conjunct) {
+            if (!node.isWhitespace()) {
+                significant.add(node);
+            }
+        }
+        if (significant.size() != 3 || !SqlTranslator.isComparison(significant.get(1))) {
+            return -1;
+        }
+
+        String operator = significant.get(1).getText();
+        SqlNode number = significant.get(2);
+        if (significant.get(2).isWord("ROWNUM")) {
+            number = significant.get(0);
+            operator = operator.replace('<', '?').replace('>', '<').replace('?', '>');
+        }
+        else if (!significant.get(0).isWord("ROWNUM")) {
+            return -1;
+        }
+        if (number.getType() != SqlNode.Type.NUMBER) {
+            return -1;
+        }
+
+        final long value;
+        try {
+            value = Long.parseLong(number.getText());
+        }
+        catch (NumberFormatException e) {
+            return -1;
+        }
+        if ("<".equals(operator)) {
+            return Math.max(0, value - 1);
+        }
+        else if ("<=".equals(operator)) {
+            return Math.max(0, value);
+        }
+        else if ("=".equals(operator) && value == 1) {
+            return 1;
+        }
+        return -1;
+    }
+
+    protected void warn(final List<SqlNode> nodes) {
+        LogFactory.getLogger().warning("Cannot translate ROWNUM in " + SqlNode.toString(nodes));
+    }
+}
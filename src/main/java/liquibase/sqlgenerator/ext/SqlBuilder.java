@@ -0,0 +1,131 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.sqlgenerator.ext;
+
+import liquibase.database.Database;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Builds a statement in one buffer. Names are escaped for the database it was made for. A statement has at most one
+ * open list at a time, like the columns and constraints of a <code>CREATE TABLE</code>. {@link #item()} separates its
+ * entries, so nothing has to be trimmed off the end afterwards.
+ *
+ * @author Leo Przybylski
+ */
+public class SqlBuilder {
+    private final Database database;
+    private final StringBuilder buffer;
+    private boolean first;
+
+    public SqlBuilder(final Database database, final int capacity) {
+        this.database = database;
+        this.buffer   = new StringBuilder(capacity);
+    }
+
+    public Database getDatabase() {
+        return database;
+    }
+
+    public SqlBuilder append(final String text) {
+        buffer.append(text);
+        return this;
+    }
+
+    public SqlBuilder append(final char c) {
+        buffer.append(c);
+        return this;
+    }
+
+    public SqlBuilder append(final Object value) {
+        buffer.append(value);
+        return this;
+    }
+
+    public SqlBuilder table(final String tableName) {
+        buffer.append(database.escapeTableName(null, tableName));
+        return this;
+    }
+
+    public SqlBuilder column(final String tableName, final String columnName) {
+        buffer.append(database.escapeColumnName(null, tableName, columnName));
+        return this;
+    }
+
+    public SqlBuilder constraint(final String constraintName) {
+        buffer.append(database.escapeConstraintName(constraintName));
+        return this;
+    }
+
+    /**
+     * Append escaped column names separated by commas
+     */
+    public SqlBuilder columns(final Collection<String> columnNames) {
+        final StringBuilder names = new StringBuilder();
+        for (final Iterator<String> it = columnNames.iterator(); it.hasNext();) {
+            names.append(it.next());
+            if (it.hasNext()) {
+                names.append(", ");
+            }
+        }
+        buffer.append(database.escapeColumnNameList(names.toString()));
+        return this;
+    }
+
+    /**
+     * Open a list with <code>(</code>
+     */
+    public SqlBuilder openList() {
+        buffer.append('(');
+        first = true;
+        return this;
+    }
+
+    /**
+     * Start the next entry of the open list
+     */
+    public SqlBuilder item() {
+        if (!first) {
+            buffer.append(", ");
+        }
+        first = false;
+        return this;
+    }
+
+    public SqlBuilder closeList() {
+        buffer.append(')');
+        return this;
+    }
+
+    public int length() {
+        return buffer.length();
+    }
+
+    public String toString() {
+        return buffer.toString();
+    }
+}
@@ -1,7 +1,23 @@
 package liquibase.sqlgenerator.ext;
 
+import java.util.List;
+
+/**
+ * Rewrites one function or keyword where {@link SqlTranslator} finds it in a statement. Handlers are looked up by name
+ * as the translator walks each level of the statement, so they only see the nodes they handle.
+ */
 public interface SqlMappingHandler {
-    boolean matches(final StringBuffer sql);
-    
-    void translate(final StringBuffer queryBuffer);
+    /**
+     * @return the function or keyword this handles, in upper case
+     */
+    String getName();
+
+    /**
+     * Translate the function or keyword at <code>index</code>. Anything nested inside it has already been translated.
+     *
+     * @param nodes the level of the statement the name was found on
+     * @param index position of the name in <code>nodes</code>
+     * @return position of the next node to translate
+     */
+    int translate(final List<SqlNode> nodes, final int index);
 }
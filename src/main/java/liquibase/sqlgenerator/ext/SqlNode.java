@@ -0,0 +1,213 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.sqlgenerator.ext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A token of an SQL statement, or a parenthesized group of them. {@link SqlTokenizer} turns a statement into a list of
+ * nodes where each pair of parentheses becomes one {@link Type#GROUP} node, so every level of nesting is a list of its
+ * own. Translations replace nodes with {@link Type#FRAGMENT}s, which are printed without parentheses but are otherwise
+ * treated as a single value by the rules that run after them.
+ *
+ * @author Leo Przybylski
+ */
+public class SqlNode {
+    public enum Type {
+        WHITESPACE, COMMENT, WORD, QUOTED, STRING, NUMBER, OPERATOR, COMMA, GROUP, FRAGMENT, RAW
+    }
+
+    private final Type type;
+    private final String text;
+    private final List<SqlNode> children;
+
+    protected SqlNode(final Type type, final String text, final List<SqlNode> children) {
+        this.type     = type;
+        this.text     = text;
+        this.children = children;
+    }
+
+    public static SqlNode token(final Type type, final String text) {
+        return new SqlNode(type, text, null);
+    }
+
+    /**
+     * @return text that is printed as is
+     */
+    public static SqlNode raw(final String text) {
+        return new SqlNode(Type.RAW, text, null);
+    }
+
+    public static SqlNode group(final List<SqlNode> children) {
+        return new SqlNode(Type.GROUP, null, children);
+    }
+
+    /**
+     * Build a fragment from parts. Strings are printed as is, nodes and lists of nodes are kept.
+     */
+    public static SqlNode fragment(final Object... parts) {
+        final List<SqlNode> children = new ArrayList<SqlNode>();
+        for (final Object part : parts) {
+            add(children, part);
+        }
+        return new SqlNode(Type.FRAGMENT, null, children);
+    }
+
+    /**
+     * Build a fragment from a template where each <code>%s</code> is replaced by the next argument
+     *
+     * @param template text with a <code>%s</code> for each argument
+     * @param arguments nodes or lists of nodes
+     */
+    public static SqlNode template(final String template, final Object... arguments) {
+        final List<SqlNode> children = new ArrayList<SqlNode>();
+        int start = 0;
+        for (final Object argument : arguments) {
+            final int next = template.indexOf("%s", start);
+            if (next < 0) {
+                throw new IllegalArgumentException("Not enough placeholders in " + template);
+            }
+            if (next > start) {
+                children.add(raw(template.substring(start, next)));
+            }
+            add(children, argument);
+            start = next + 2;
+        }
+        if (start < template.length()) {
+            children.add(raw(template.substring(start)));
+        }
+        return new SqlNode(Type.FRAGMENT, null, children);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void add(final List<SqlNode> children, final Object part) {
+        if (part instanceof SqlNode) {
+            children.add((SqlNode) part);
+        }
+        else if (part instanceof List) {
+            children.addAll((List<SqlNode>) part);
+        }
+        else {
+            children.add(raw(String.valueOf(part)));
+        }
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return the nodes inside a group or fragment. Empty for tokens
+     */
+    public List<SqlNode> getChildren() {
+        if (children == null) {
+            return Collections.emptyList();
+        }
+        return children;
+    }
+
+    public boolean hasChildren() {
+        return children != null;
+    }
+
+    public boolean isWhitespace() {
+        return type == Type.WHITESPACE || type == Type.COMMENT;
+    }
+
+    /**
+     * @return true if this is the unquoted word <code>word</code>, ignoring case
+     */
+    public boolean isWord(final String word) {
+        return type == Type.WORD && text.equalsIgnoreCase(word);
+    }
+
+    public boolean isOperator(final String operator) {
+        return type == Type.OPERATOR && text.equals(operator);
+    }
+
+    /**
+     * @return true if this is Oracle's <code>(+)</code> outer join marker
+     */
+    public boolean isOuterJoinMarker() {
+        if (type != Type.GROUP) {
+            return false;
+        }
+        final List<SqlNode> inside = trim(children);
+        return inside.size() == 1 && inside.get(0).isOperator("+");
+    }
+
+    public void appendTo(final StringBuilder out) {
+        if (type == Type.GROUP) {
+            out.append('(');
+        }
+        if (children != null) {
+            for (final SqlNode child : children) {
+                child.appendTo(out);
+            }
+        }
+        else {
+            out.append(text);
+        }
+        if (type == Type.GROUP) {
+            out.append(')');
+        }
+    }
+
+    public String toString() {
+        final StringBuilder retval = new StringBuilder();
+        appendTo(retval);
+        return retval.toString();
+    }
+
+    public static String toString(final List<SqlNode> nodes) {
+        final StringBuilder retval = new StringBuilder();
+        for (final SqlNode node : nodes) {
+            node.appendTo(retval);
+        }
+        return retval.toString();
+    }
+
+    /**
+     * @return the nodes without leading and trailing whitespace and comments
+     */
+    public static List<SqlNode> trim(final List<SqlNode> nodes) {
+        int start = 0;
+        int end   = nodes.size();
+        while (start < end && nodes.get(start).isWhitespace()) {
+            start++;
+        }
+        while (end > start && nodes.get(end - 1).isWhitespace()) {
+            end--;
+        }
+        return nodes.subList(start, end);
+    }
+}
@@ -0,0 +1,195 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.sqlgenerator.ext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The clauses of one query level. Only the first occurrence of each clause keyword at the top of the level counts;
+ * nested queries are groups of their own.
+ *
+ * @author Leo Przybylski
+ */
+public class SqlScope {
+    protected static final List<String> CLAUSES = Arrays.asList(
+        "SELECT", "FROM", "WHERE", "GROUP", "HAVING", "ORDER", "UNION", "INTERSECT", "MINUS", "EXCEPT",
+        "CONNECT", "START", "FOR", "LIMIT", "FETCH");
+
+    private final List<SqlNode> nodes;
+    private final int[] starts;
+
+    protected SqlScope(final List<SqlNode> nodes, final int[] starts) {
+        this.nodes  = nodes;
+        this.starts = starts;
+    }
+
+    /**
+     * @return the clauses of a query or <code>null</code> if the level is not a query
+     */
+    public static SqlScope parse(final List<SqlNode> nodes) {
+        final int first = SqlTranslator.next(nodes, -1);
+        if (first < 0 || !nodes.get(first).isWord("SELECT")) {
+            return null;
+        }
+
+        final int[] starts = new int[CLAUSES.size()];
+        Arrays.fill(starts, -1);
+        for (int i = first; i < nodes.size(); i++) {
+            final SqlNode node = nodes.get(i);
+            if (node.getType() == SqlNode.Type.WORD) {
+                final int clause = CLAUSES.indexOf(node.getText().toUpperCase());
+                if (clause > -1 && starts[clause] < 0) {
+                    starts[clause] = i;
+                }
+            }
+        }
+        return new SqlScope(nodes, starts);
+    }
+
+    public boolean has(final String clause) {
+        return getStart(clause) > -1;
+    }
+
+    /**
+     * @return true if any of the clauses is in the query
+     */
+    public boolean hasAny(final String... clauses) {
+        for (final String clause : clauses) {
+            if (has(clause)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return position of the clause's keyword or -1
+     */
+    public int getStart(final String clause) {
+        return starts[CLAUSES.indexOf(clause)];
+    }
+
+    /**
+     * @return position of the next clause's keyword, or the end of the level
+     */
+    public int getEnd(final String clause) {
+        final int start = getStart(clause);
+        int retval = nodes.size();
+        for (final int other : starts) {
+            if (other > start && other < retval) {
+                retval = other;
+            }
+        }
+        return retval;
+    }
+
+    /**
+     * Split the body of a clause on top level <code>AND</code>s. The <code>AND</code> of a <code>BETWEEN</code> is not
+     * a split.
+     *
+     * @return the conjuncts without surrounding whitespace, or <code>null</code> if the clause has a top level
+     * <code>OR</code>
+     */
+    public List<List<SqlNode>> getConjuncts(final String clause) {
+        final List<List<SqlNode>> retval = new ArrayList<List<SqlNode>>();
+        final int end = getEnd(clause);
+        int start = getStart(clause) + 1;
+        boolean between = false;
+        for (int i = start; i < end; i++) {
+            final SqlNode node = nodes.get(i);
+            if (node.isWord("OR")) {
+                return null;
+            }
+            else if (node.isWord("BETWEEN")) {
+                between = true;
+            }
+            else if (node.isWord("AND")) {
+                if (between) {
+                    between = false;
+                    continue;
+                }
+                retval.add(SqlNode.trim(nodes.subList(start, i)));
+                start = i + 1;
+            }
+        }
+        retval.add(SqlNode.trim(nodes.subList(start, end)));
+        return retval;
+    }
+
+    /**
+     * Replace the body of a clause. The keyword is dropped as well when <code>body</code> is <code>null</code>. A
+     * fragment body is spliced into the level, so the handlers that run later still find its clauses and conjuncts.
+     */
+    public void replace(final String clause, final SqlNode body) {
+        int start = getStart(clause);
+        final int end   = getEnd(clause);
+        final String separator = end < nodes.size() ? " " : "";
+        if (body == null) {
+            while (end == nodes.size() && start > 0 && nodes.get(start - 1).isWhitespace()) {
+                start--;
+            }
+            SqlTranslator.replace(nodes, start, end, SqlNode.raw(""));
+        }
+        else {
+            final List<SqlNode> replacement = new ArrayList<SqlNode>();
+            replacement.add(SqlNode.token(SqlNode.Type.WHITESPACE, " "));
+            if (body.getType() == SqlNode.Type.FRAGMENT) {
+                replacement.addAll(body.getChildren());
+            }
+            else {
+                replacement.add(body);
+            }
+            if (separator.length() > 0) {
+                replacement.add(SqlNode.token(SqlNode.Type.WHITESPACE, separator));
+            }
+            nodes.subList(start + 1, end).clear();
+            nodes.addAll(start + 1, replacement);
+        }
+    }
+
+    /**
+     * Join conjuncts with <code>AND</code>
+     *
+     * @return the joined conjuncts or <code>null</code> if there are none
+     */
+    public static SqlNode and(final List<List<SqlNode>> conjuncts) {
+        if (conjuncts.isEmpty()) {
+            return null;
+        }
+        final List<Object> parts = new ArrayList<Object>();
+        for (final List<SqlNode> conjunct : conjuncts) {
+            if (!parts.isEmpty()) {
+                parts.add(SqlNode.token(SqlNode.Type.WHITESPACE, " "));
+                parts.add(SqlNode.token(SqlNode.Type.WORD, "AND"));
+                parts.add(SqlNode.token(SqlNode.Type.WHITESPACE, " "));
+            }
+            parts.add(conjunct);
+        }
+        return SqlNode.fragment(parts.toArray());
+    }
+}
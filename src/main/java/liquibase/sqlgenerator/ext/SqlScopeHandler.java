@@ -0,0 +1,14 @@
+package liquibase.sqlgenerator.ext;
+
+import java.util.List;
+
+/**
+ * Rewrites constructs that span a whole level of a statement, like a query's FROM and WHERE clauses. Runs once per
+ * level after the {@link SqlMappingHandler}s.
+ */
+public interface SqlScopeHandler {
+    /**
+     * @param nodes a level of the statement. Nested levels are already translated.
+     */
+    void translate(final List<SqlNode> nodes);
+}
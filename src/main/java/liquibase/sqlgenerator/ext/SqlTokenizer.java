@@ -0,0 +1,209 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.sqlgenerator.ext;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Splits SQL into {@link SqlNode}s in one pass. Whitespace and comments are kept so untouched parts of a statement are
+ * printed exactly as they were written. Parentheses become {@link SqlNode.Type#GROUP} nodes and each
+ * <code>CASE ... END</code> becomes a {@link SqlNode.Type#FRAGMENT}, so rules can treat both as single values.
+ *
+ * @author Leo Przybylski
+ */
+public class SqlTokenizer {
+    private final String sql;
+    private int position;
+
+    protected SqlTokenizer(final String sql) {
+        this.sql = sql;
+    }
+
+    /**
+     * @return the top level nodes of <code>sql</code>
+     * @throws IllegalArgumentException when quotes, comments or parentheses are not closed
+     */
+    public static List<SqlNode> parse(final String sql) {
+        return new SqlTokenizer(sql).parse();
+    }
+
+    protected List<SqlNode> parse() {
+        final LinkedList<List<SqlNode>> levels = new LinkedList<List<SqlNode>>();
+        List<SqlNode> level = new ArrayList<SqlNode>();
+
+        while (position < sql.length()) {
+            final char c = sql.charAt(position);
+            if (c == '(') {
+                position++;
+                levels.push(level);
+                level = new ArrayList<SqlNode>();
+            }
+            else if (c == ')') {
+                position++;
+                if (levels.isEmpty()) {
+                    throw new IllegalArgumentException("Unbalanced ) at " + position);
+                }
+                final SqlNode group = SqlNode.group(foldCase(level));
+                level = levels.pop();
+                level.add(group);
+            }
+            else {
+                level.add(next(c));
+            }
+        }
+
+        if (!levels.isEmpty()) {
+            throw new IllegalArgumentException("Unbalanced ( in " + sql);
+        }
+        return foldCase(level);
+    }
+
+    protected SqlNode next(final char c) {
+        final int start = position;
+        if (Character.isWhitespace(c)) {
+            while (position < sql.length() && Character.isWhitespace(sql.charAt(position))) {
+                position++;
+            }
+            return SqlNode.token(SqlNode.Type.WHITESPACE, sql.substring(start, position));
+        }
+        else if (sql.startsWith("--", position)) {
+            final int end = sql.indexOf('\n', position);
+            position = end < 0 ? sql.length() : end;
+            return SqlNode.token(SqlNode.Type.COMMENT, sql.substring(start, position));
+        }
+        else if (sql.startsWith("/*", position)) {
+            final int end = sql.indexOf("*/", position + 2);
+            if (end < 0) {
+                throw new IllegalArgumentException("Unterminated comment at " + start);
+            }
+            position = end + 2;
+            return SqlNode.token(SqlNode.Type.COMMENT, sql.substring(start, position));
+        }
+        else if (c == '\'' || c == '"') {
+            position++;
+            while (true) {
+                final int end = sql.indexOf(c, position);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unterminated quote at " + start);
+                }
+                position = end + 1;
+                if (position < sql.length() && sql.charAt(position) == c) {
+                    position++;
+                    continue;
+                }
+                break;
+            }
+            return SqlNode.token(c == '\'' ? SqlNode.Type.STRING : SqlNode.Type.QUOTED, sql.substring(start, position));
+        }
+        else if (Character.isDigit(c) || (c == '.' && position + 1 < sql.length() && Character.isDigit(sql.charAt(position + 1)))) {
+            position++;
+            while (position < sql.length()) {
+                final char d = sql.charAt(position);
+                if (Character.isDigit(d) || d == '.') {
+                    position++;
+                }
+                else if ((d == 'e' || d == 'E') && position + 1 < sql.length() 
+                         && (Character.isDigit(sql.charAt(position + 1)) || sql.charAt(position + 1) == '-')) {
+                    position += 2;
+                }
+                else {
+                    break;
+                }
+            }
+            return SqlNode.token(SqlNode.Type.NUMBER, sql.substring(start, position));
+        }
+        else if (isIdentifierStart(c)) {
+            position++;
+            while (position < sql.length()) {
+                final char d = sql.charAt(position);
+                if (isIdentifierPart(d)) {
+                    position++;
+                }
+                else if (d == '.' && position + 1 < sql.length() && isIdentifierStart(sql.charAt(position + 1))) {
+                    position += 2;
+                }
+                else {
+                    break;
+                }
+            }
+            return SqlNode.token(SqlNode.Type.WORD, sql.substring(start, position));
+        }
+        else if (c == ',') {
+            position++;
+            return SqlNode.token(SqlNode.Type.COMMA, ",");
+        }
+
+        position++;
+        if (position < sql.length()) {
+            final String pair = sql.substring(start, position + 1);
+            if ("||".equals(pair) || "<=".equals(pair) || ">=".equals(pair) || "<>".equals(pair) || "!=".equals(pair)) {
+                position++;
+                return SqlNode.token(SqlNode.Type.OPERATOR, pair);
+            }
+        }
+        return SqlNode.token(SqlNode.Type.OPERATOR, String.valueOf(c));
+    }
+
+    /**
+     * Turn each <code>CASE ... END</code> on a level into one fragment
+     */
+    protected List<SqlNode> foldCase(final List<SqlNode> level) {
+        final LinkedList<List<SqlNode>> open = new LinkedList<List<SqlNode>>();
+        List<SqlNode> current = new ArrayList<SqlNode>();
+        for (final SqlNode node : level) {
+            if (node.isWord("CASE")) {
+                open.push(current);
+                current = new ArrayList<SqlNode>();
+                current.add(node);
+            }
+            else if (node.isWord("END") && !open.isEmpty()) {
+                current.add(node);
+                final SqlNode fragment = SqlNode.fragment(current);
+                current = open.pop();
+                current.add(fragment);
+            }
+            else {
+                current.add(node);
+            }
+        }
+        while (!open.isEmpty()) {
+            final List<SqlNode> unclosed = current;
+            current = open.pop();
+            current.addAll(unclosed);
+        }
+        return current;
+    }
+
+    protected static boolean isIdentifierStart(final char c) {
+        return Character.isLetter(c) || c == '_' || c == '$' || c == '#' || c == '@';
+    }
+
+    protected static boolean isIdentifierPart(final char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#' || c == '@';
+    }
+}
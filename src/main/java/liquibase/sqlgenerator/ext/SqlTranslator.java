@@ -0,0 +1,375 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.sqlgenerator.ext;
+
+import liquibase.database.Database;
+import liquibase.database.core.DerbyDatabase;
+import liquibase.database.core.H2Database;
+import liquibase.database.core.HsqlDatabase;
+import liquibase.database.core.MySQLDatabase;
+import liquibase.database.core.PostgresDatabase;
+import liquibase.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Translates Oracle SQL to another dialect. The statement is parsed once by {@link SqlTokenizer}. Each level of
+ * nesting is then translated innermost first: every word is looked up in the {@link SqlMappingHandler}s by name, then
+ * the {@link SqlScopeHandler}s rewrite the level as a whole. Every node is visited once, so translation is linear in
+ * the size of the statement. Statements that cannot be parsed are returned unchanged.
+ *
+ * @author Leo Przybylski
+ */
+public class SqlTranslator {
+    /**
+     * Words that separate one value from the next
+     */
+    protected static final Set<String> KEYWORDS = new HashSet<String>(Arrays.asList(
+        "SELECT", "FROM", "WHERE", "AND", "OR", "NOT", "ON", "AS", "WHEN", "THEN", "ELSE", "END", "IS", "IN", "LIKE",
+        "BETWEEN", "ESCAPE", "GROUP", "ORDER", "BY", "HAVING", "UNION", "ALL", "DISTINCT", "JOIN", "LEFT", "RIGHT",
+        "INNER", "OUTER", "CROSS", "FULL", "MINUS", "INTERSECT", "EXCEPT", "ASC", "DESC", "NULLS", "CONNECT", "START",
+        "WITH", "PRIOR", "FOR", "LIMIT", "FETCH", "OFFSET", "USING", "EXISTS", "ANY", "SOME"));
+
+    protected static final Set<String> COMPARISONS = new HashSet<String>(Arrays.asList("=", "<", ">", "<=", ">=", "<>", "!="));
+
+    /**
+     * Version of the built-in rules. Increase it whenever a rule changes its output so cached translations are not used.
+     */
+    public static final int RULES_VERSION = 2;
+
+    /**
+     * Dialect that statements are written in
+     */
+    public static final String SOURCE_DIALECT = "oracle";
+
+    private static final SqlTranslator MYSQL    = forMySql();
+    private static final SqlTranslator H2       = forH2();
+    private static final SqlTranslator HSQL     = forHsql();
+    private static final SqlTranslator DERBY    = forDerby();
+    private static final SqlTranslator POSTGRES = forPostgres();
+
+    private final String target;
+    private final Map<String, SqlMappingHandler> handlers = new HashMap<String, SqlMappingHandler>();
+    private final List<SqlScopeHandler> scopeHandlers;
+    private final Set<String> unsupported = new HashSet<String>();
+
+    public SqlTranslator(final List<SqlMappingHandler> handlers, final List<SqlScopeHandler> scopeHandlers) {
+        this(null, handlers, scopeHandlers);
+    }
+
+    /**
+     * @param target name of the target dialect. Translations are only cached for named translators.
+     */
+    public SqlTranslator(final String target, final List<SqlMappingHandler> handlers, final List<SqlScopeHandler> scopeHandlers) {
+        this(target, handlers, scopeHandlers, Collections.<String>emptyList());
+    }
+
+    /**
+     * @param unsupported functions the target does not have. A call to one of them left in a translation is reported
+     * by {@link #findUnsupported(String)}.
+     */
+    public SqlTranslator(final String target, final List<SqlMappingHandler> handlers, final List<SqlScopeHandler> scopeHandlers,
+                         final Collection<String> unsupported) {
+        this.target = target;
+        for (final SqlMappingHandler handler : handlers) {
+            this.handlers.put(handler.getName().toUpperCase(), handler);
+        }
+        this.scopeHandlers = new ArrayList<SqlScopeHandler>(scopeHandlers);
+        for (final String name : unsupported) {
+            this.unsupported.add(name.toUpperCase());
+        }
+    }
+
+    /**
+     * @return the translator for a target database or <code>null</code> if statements can be used as they are
+     */
+    public static SqlTranslator forDatabase(final Database database) {
+        if (database instanceof MySQLDatabase) {
+            return MYSQL;
+        }
+        if (database instanceof H2Database) {
+            return H2;
+        }
+        if (database instanceof HsqlDatabase) {
+            return HSQL;
+        }
+        if (database instanceof DerbyDatabase) {
+            return DERBY;
+        }
+        if (database instanceof PostgresDatabase) {
+            return POSTGRES;
+        }
+        return null;
+    }
+
+    public static SqlTranslator forMySql() {
+        return new SqlTranslator("mysql",
+                                 Arrays.<SqlMappingHandler>asList(
+                                     new DecodeHandler(),
+                                     new TruncHandler("DATE(%s)", "DATE_FORMAT(%s, '%Y-%m-01')", 
+                                                      "DATE_FORMAT(%s, '%Y-01-01')", "TRUNCATE(%s, %s)"),
+                                     new RenameHandler("NVL", "COALESCE"),
+                                     new KeywordHandler("SYSDATE", "NOW()"),
+                                     new KeywordHandler("SYSTIMESTAMP", "NOW()")),
+                                 Arrays.<SqlScopeHandler>asList(
+                                     // CONCAT_WS skips nulls like Oracle's || does. CONCAT would return null.
+                                     new ConcatHandler("CONCAT_WS('', ", ", ", ")"),
+                                     new OuterJoinHandler(),
+                                     new RownumHandler(" LIMIT %d")),
+                                 // A one argument TRUNC of something that is not certainly a date is left alone
+                                 Arrays.asList("TRUNC"));
+    }
+
+    public static SqlTranslator forH2() {
+        return new SqlTranslator("h2",
+                                 Arrays.<SqlMappingHandler>asList(
+                                     new DecodeHandler(),
+                                     new TruncHandler("CAST(%s AS DATE)", 
+                                                      "DATEADD('DAY', 1 - DAY_OF_MONTH(%s), CAST(%s AS DATE))",
+                                                      "DATEADD('DAY', 1 - DAY_OF_YEAR(%s), CAST(%s AS DATE))", 
+                                                      "TRUNCATE(%s, %s)"),
+                                     new RenameHandler("NVL", "COALESCE"),
+                                     new KeywordHandler("SYSDATE", "CURRENT_TIMESTAMP"),
+                                     new KeywordHandler("SYSTIMESTAMP", "CURRENT_TIMESTAMP")),
+                                 Arrays.<SqlScopeHandler>asList(
+                                     // H2's CONCAT skips nulls, its || does not
+                                     new ConcatHandler("CONCAT(", ", ", ")"),
+                                     new OuterJoinHandler(),
+                                     new RownumHandler(" LIMIT %d")));
+    }
+
+    public static SqlTranslator forHsql() {
+        return new SqlTranslator("hsql",
+                                 Arrays.<SqlMappingHandler>asList(
+                                     new DecodeHandler(),
+                                     new TruncHandler("CAST(%s AS DATE)", "TRUNC(%s, 'MM')", "TRUNC(%s, 'YYYY')", "TRUNCATE(%s, %s)"),
+                                     new RenameHandler("NVL", "COALESCE"),
+                                     new KeywordHandler("SYSDATE", "CURRENT_TIMESTAMP"),
+                                     new KeywordHandler("SYSTIMESTAMP", "CURRENT_TIMESTAMP")),
+                                 Arrays.<SqlScopeHandler>asList(
+                                     // || only takes strings
+                                     new ConcatHandler("COALESCE(", ", '') || COALESCE(", ", '')",
+                                                       "CAST(%s AS VARCHAR(32672))", "CAST(%s AS VARCHAR(32672))"),
+                                     new OuterJoinHandler(),
+                                     new RownumHandler(" LIMIT %d")));
+    }
+
+    /**
+     * Derby has no functions for the first day of a month or year or for truncating numbers. Those are left alone and
+     * reported by {@link #findUnsupported(String)}. Derby cannot cast numbers to VARCHAR and its CHAR function cuts
+     * strings to 254 characters, so number literals and arithmetic are concatenated with CHAR and anything else is
+     * cast to VARCHAR. A numeric column concatenated as is still fails and has to be converted in the view.
+     */
+    public static SqlTranslator forDerby() {
+        return new SqlTranslator("derby",
+                                 Arrays.<SqlMappingHandler>asList(
+                                     new DecodeHandler(),
+                                     new TruncHandler("CAST(%s AS DATE)", null, null, null),
+                                     new RenameHandler("NVL", "COALESCE"),
+                                     new KeywordHandler("SYSDATE", "CURRENT_TIMESTAMP"),
+                                     new KeywordHandler("SYSTIMESTAMP", "CURRENT_TIMESTAMP")),
+                                 Arrays.<SqlScopeHandler>asList(
+                                     new ConcatHandler("COALESCE(", ", '') || COALESCE(", ", '')",
+                                                       "CAST(%s AS VARCHAR(32672))", "RTRIM(CHAR(%s))"),
+                                     new OuterJoinHandler(),
+                                     new RownumHandler(" FETCH FIRST %d ROWS ONLY")),
+                                 Arrays.asList("TRUNC"));
+    }
+
+    public static SqlTranslator forPostgres() {
+        return new SqlTranslator("postgres",
+                                 Arrays.<SqlMappingHandler>asList(
+                                     new DecodeHandler(),
+                                     new TruncHandler("DATE_TRUNC('day', %s)", "DATE_TRUNC('month', %s)", 
+                                                      "DATE_TRUNC('year', %s)", "TRUNC(%s, %s)"),
+                                     new RenameHandler("NVL", "COALESCE"),
+                                     new KeywordHandler("SYSDATE", "CURRENT_TIMESTAMP"),
+                                     new KeywordHandler("SYSTIMESTAMP", "CURRENT_TIMESTAMP")),
+                                 Arrays.<SqlScopeHandler>asList(
+                                     // CONCAT skips nulls like Oracle's || does
+                                     new ConcatHandler("CONCAT(", ", ", ")"),
+                                     new OuterJoinHandler(),
+                                     new RownumHandler(" LIMIT %d")));
+    }
+
+    /**
+     * @return name of the target dialect or <code>null</code> for a translator with its own rules
+     */
+    public String getTarget() {
+        return target;
+    }
+
+    /**
+     * @return the translated statement, or <code>sql</code> unchanged if it cannot be parsed
+     */
+    public String translate(final String sql) {
+        final List<SqlNode> nodes;
+        try {
+            nodes = SqlTokenizer.parse(sql);
+        }
+        catch (IllegalArgumentException e) {
+            LogFactory.getLogger().warning("Could not translate statement: " + e.getMessage());
+            return sql;
+        }
+        translate(nodes);
+        return SqlNode.toString(nodes);
+    }
+
+    /**
+     * Find calls to functions the target does not have in a translated statement
+     *
+     * @param sql a statement this translator has translated
+     * @return each call as written, empty if there are none or the statement cannot be parsed
+     */
+    public List<String> findUnsupported(final String sql) {
+        final List<String> retval = new ArrayList<String>();
+        if (unsupported.isEmpty() || sql == null) {
+            return retval;
+        }
+        try {
+            findUnsupported(SqlTokenizer.parse(sql), retval);
+        }
+        catch (IllegalArgumentException e) {
+            LogFactory.getLogger().debug("Could not check statement: " + e.getMessage());
+        }
+        return retval;
+    }
+
+    protected void findUnsupported(final List<SqlNode> nodes, final List<String> calls) {
+        for (int i = 0; i < nodes.size(); i++) {
+            final SqlNode node = nodes.get(i);
+            if (node.hasChildren()) {
+                findUnsupported(node.getChildren(), calls);
+            }
+            if (node.getType() == SqlNode.Type.WORD && unsupported.contains(node.getText().toUpperCase())) {
+                final int call = findCall(nodes, i);
+                if (call > -1) {
+                    calls.add(SqlNode.toString(nodes.subList(i, call + 1)));
+                }
+            }
+        }
+    }
+
+    protected void translate(final List<SqlNode> nodes) {
+        for (final SqlNode node : nodes) {
+            if (node.hasChildren()) {
+                translate(node.getChildren());
+            }
+        }
+
+        for (int i = 0; i < nodes.size();) {
+            final SqlNode node = nodes.get(i);
+            final SqlMappingHandler handler = node.getType() == SqlNode.Type.WORD ? handlers.get(node.getText().toUpperCase()) : null;
+            i = handler != null ? handler.translate(nodes, i) : i + 1;
+        }
+
+        for (final SqlScopeHandler handler : scopeHandlers) {
+            handler.translate(nodes);
+        }
+    }
+
+    /**
+     * @return position of the next node after <code>index</code> that is not whitespace or a comment, or -1
+     */
+    public static int next(final List<SqlNode> nodes, final int index) {
+        for (int i = index + 1; i < nodes.size(); i++) {
+            if (!nodes.get(i).isWhitespace()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return position of the argument group when the word at <code>index</code> is a function call, otherwise -1
+     */
+    public static int findCall(final List<SqlNode> nodes, final int index) {
+        final int retval = next(nodes, index);
+        return retval > -1 && nodes.get(retval).getType() == SqlNode.Type.GROUP ? retval : -1;
+    }
+
+    /**
+     * @return the comma separated arguments of a group without surrounding whitespace
+     */
+    public static List<List<SqlNode>> getArguments(final SqlNode group) {
+        final List<List<SqlNode>> retval = new ArrayList<List<SqlNode>>();
+        final List<SqlNode> children = group.getChildren();
+        int start = 0;
+        for (int i = 0; i <= children.size(); i++) {
+            if (i == children.size() || children.get(i).getType() == SqlNode.Type.COMMA) {
+                retval.add(SqlNode.trim(children.subList(start, i)));
+                start = i + 1;
+            }
+        }
+        if (retval.size() == 1 && retval.get(0).isEmpty()) {
+            return Collections.emptyList();
+        }
+        return retval;
+    }
+
+    /**
+     * Replace the nodes from <code>start</code> up to <code>end</code> with one node
+     */
+    public static void replace(final List<SqlNode> nodes, final int start, final int end, final SqlNode replacement) {
+        nodes.subList(start, end).clear();
+        nodes.add(start, replacement);
+    }
+
+    public static boolean isKeyword(final SqlNode node) {
+        return node.getType() == SqlNode.Type.WORD && KEYWORDS.contains(node.getText().toUpperCase());
+    }
+
+    public static boolean isComparison(final SqlNode node) {
+        return node.getType() == SqlNode.Type.OPERATOR && COMPARISONS.contains(node.getText());
+    }
+
+    /**
+     * @return true if the node can end a value, so a word right after it starts something new like an alias
+     */
+    public static boolean isValue(final SqlNode node) {
+        switch (node.getType()) {
+        case WORD:
+            return !isKeyword(node);
+        case QUOTED:
+        case STRING:
+        case NUMBER:
+        case GROUP:
+        case FRAGMENT:
+        case RAW:
+            return true;
+        default:
+            return false;
+        }
+    }
+}
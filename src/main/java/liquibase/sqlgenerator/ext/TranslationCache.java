@@ -0,0 +1,186 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.sqlgenerator.ext;
+
+import liquibase.ext.CacheFiles;
+import liquibase.logging.LogFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers translated statements so the same view definitions are not translated again on every run. Entries are
+ * addressed by a hash of the source dialect, target dialect, {@link SqlTranslator#RULES_VERSION} and the statement, so
+ * changed rules or statements simply miss. The most recently used <code>lb.translation.cache.size</code> entries are
+ * kept in memory. When <code>lb.translation.cache.dir</code> is set, entries are also kept there, one file per hash,
+ * and survive between runs. Files that are read are touched, and the first lookup of a run deletes the least recently
+ * used files beyond <code>lb.translation.cache.files</code>. The directory can also be removed at any time.
+ *
+ * @author Leo Przybylski
+ */
+public final class TranslationCache {
+    private static final int    DEFAULT_SIZE  = 1024;
+    private static final int    DEFAULT_FILES = 10000;
+    private static final String ENCODING      = CacheFiles.ENCODING;
+    private static final TranslationCache instance = new TranslationCache(Integer.getInteger("lb.translation.cache.size", DEFAULT_SIZE),
+                                                                          getDirectory());
+
+    private final Map<String, String> translations;
+    private final File directory;
+    private boolean pruned;
+
+    public TranslationCache(final int capacity, final File directory) {
+        this.directory = directory;
+        translations = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(final Map.Entry<String, String> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public static TranslationCache getInstance() {
+        return instance;
+    }
+
+    private static File getDirectory() {
+        final String dir = System.getProperty("lb.translation.cache.dir");
+        return dir != null ? new File(dir) : null;
+    }
+
+    /**
+     * Translate <code>sql</code> with <code>translator</code> unless the result is already cached. Translators without
+     * a target name have their own rules and are never cached.
+     *
+     * @return the translated statement
+     */
+    public String translate(final SqlTranslator translator, final String sql) {
+        if (translator.getTarget() == null || sql == null) {
+            return translator.translate(sql);
+        }
+
+        final String key = getKey(translator.getTarget(), sql);
+        String retval;
+        synchronized (this) {
+            retval = translations.get(key);
+        }
+        if (retval != null) {
+            return retval;
+        }
+
+        retval = load(key);
+        if (retval == null) {
+            retval = translator.translate(sql);
+            save(key, retval);
+        }
+        synchronized (this) {
+            translations.put(key, retval);
+        }
+        return retval;
+    }
+
+    public synchronized void clear() {
+        translations.clear();
+    }
+
+    /**
+     * @return hex SHA-1 of everything the translation depends on
+     */
+    protected String getKey(final String target, final String sql) {
+        return CacheFiles.sha1(SqlTranslator.SOURCE_DIALECT + '\0' + target + '\0' + SqlTranslator.RULES_VERSION + '\0' + sql);
+    }
+
+    /**
+     * @return the stored translation or <code>null</code> if there is none or it cannot be read
+     */
+    protected String load(final String key) {
+        if (directory == null) {
+            return null;
+        }
+        prune();
+
+        final File file = new File(directory, key + ".sql");
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try {
+            final Reader in = new InputStreamReader(new FileInputStream(file), ENCODING);
+            try {
+                final StringBuilder retval = new StringBuilder((int) file.length());
+                final char[] buffer = new char[4096];
+                for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                    retval.append(buffer, 0, read);
+                }
+                file.setLastModified(System.currentTimeMillis());
+                return retval.toString();
+            }
+            finally {
+                in.close();
+            }
+        }
+        catch (IOException e) {
+            LogFactory.getLogger().debug("Ignoring unreadable translation " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Store a translation. The file is written under a temporary name and renamed so a partial file is never read.
+     * Failures are logged and otherwise ignored since the cache is only an optimization.
+     */
+    protected void save(final String key, final String translation) {
+        if (directory == null) {
+            return;
+        }
+
+        final File file = new File(directory, key + ".sql");
+        try {
+            CacheFiles.write(file, translation.getBytes(ENCODING));
+        }
+        catch (IOException e) {
+            LogFactory.getLogger().debug("Could not write translation " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Keep the directory to <code>lb.translation.cache.files</code> files. Done once per run.
+     */
+    private synchronized void prune() {
+        if (pruned) {
+            return;
+        }
+        pruned = true;
+        final int removed = CacheFiles.prune(directory, ".sql", Integer.getInteger("lb.translation.cache.files", DEFAULT_FILES));
+        if (removed > 0) {
+            LogFactory.getLogger().debug("Removed " + removed + " old translations from " + directory);
+        }
+    }
+}
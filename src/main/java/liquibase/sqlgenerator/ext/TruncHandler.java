@@ -1,29 +1,133 @@
 package liquibase.sqlgenerator.ext;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import liquibase.logging.LogFactory;
 
+/**
+ * Translates Oracle's <code>TRUNC</code>. With a format it truncates a date to the day, month or year. With a number of
+ * digits it truncates a number. Without either it truncates a date to the day or a number to an integer, and which one
+ * cannot be told from a column name. Views almost always truncate dates, so the argument is taken to be a date unless
+ * it clearly is a number: a number literal or a call to a numeric function. Those are truncated with zero digits. Date
+ * templates use <code>%s</code> wherever the date goes, number templates use <code>%s</code> for the number and the
+ * digits. A <code>null</code> template leaves that form alone.
+ */
 public class TruncHandler implements SqlMappingHandler {
-    protected static Pattern PATTERN = Pattern.compile("TRUNC\\(([^\\)]*)\\)");
-    
-    @Override
-    public boolean matches(final StringBuffer sql) {
-	return PATTERN.matcher(sql.toString()).find();
+    protected static final List<String> DAY_FORMATS   = Arrays.asList("DD", "DDD", "J");
+    protected static final List<String> MONTH_FORMATS = Arrays.asList("MM", "MON", "MONTH", "RM");
+    protected static final List<String> YEAR_FORMATS  = Arrays.asList("Y", "YY", "YYY", "YYYY", "SYYYY", "YEAR", "SYEAR");
+    protected static final List<String> DATE_VALUES   = Arrays.asList("SYSDATE", "SYSTIMESTAMP", "CURRENT_DATE", "CURRENT_TIMESTAMP",
+									"LOCALTIMESTAMP", "NOW()", "CURDATE()");
+    protected static final List<String> DATE_FUNCTIONS = Arrays.asList("TO_DATE", "TO_TIMESTAMP", "ADD_MONTHS", "LAST_DAY", "NEXT_DAY",
+									 "NEW_TIME", "NOW", "CURDATE", "DATE", "DATEADD", "DATE_ADD",
+									 "DATE_SUB", "DATE_FORMAT", "DATE_TRUNC", "TIMESTAMP");
+    protected static final List<String> NUMBER_FUNCTIONS = Arrays.asList("ABS", "CEIL", "FLOOR", "ROUND", "MOD", "POWER", "SQRT",
+									   "TO_NUMBER", "LENGTH", "INSTR", "COUNT", "SUM", "AVG");
+
+    private final String dayTemplate;
+    private final String monthTemplate;
+    private final String yearTemplate;
+    private final String numberTemplate;
+
+    public TruncHandler(final String dayTemplate, final String monthTemplate, 
+			final String yearTemplate, final String numberTemplate) {
+	this.dayTemplate    = dayTemplate;
+	this.monthTemplate  = monthTemplate;
+	this.yearTemplate   = yearTemplate;
+	this.numberTemplate = numberTemplate;
+    }
+
+    public String getName() {
+	return "TRUNC";
     }
     
-    @Override
-    public void translate(final StringBuffer queryBuffer) {	    
-	final Matcher matcher = PATTERN.matcher(queryBuffer.toString());
-	while (matcher.find()) {
-	    String translation = matcher.group(1);
-	    info("Found a match. Translated to " + translation);
-	    if (translation.equalsIgnoreCase("SYSDATE")) {
-		translation = "NOW()";
+    public int translate(final List<SqlNode> nodes, final int index) {
+	final int call = SqlTranslator.findCall(nodes, index);
+	if (call < 0) {
+	    return index + 1;
+	}
+	final List<List<SqlNode>> arguments = SqlTranslator.getArguments(nodes.get(call));
+
+	SqlNode translation = null;
+	if (arguments.size() == 1 && isNumber(arguments.get(0))) {
+	    if (numberTemplate != null) {
+		translation = SqlNode.template(numberTemplate, arguments.get(0), SqlNode.raw("0"));
 	    }
-	    queryBuffer.replace(matcher.start(), matcher.end(), translation);
 	}
+	else if (arguments.size() == 1 && dayTemplate != null) {
+	    if (!isDate(arguments.get(0))) {
+		debug("Translating " + SqlNode.toString(nodes.subList(index, call + 1)) + " as a date");
+	    }
+	    translation = date(dayTemplate, arguments.get(0));
+	}
+	else if (arguments.size() == 2 && isString(arguments.get(1))) {
+	    final String format = arguments.get(1).get(0).getText().replace("'", "").trim().toUpperCase();
+	    final String template = DAY_FORMATS.contains(format) ? dayTemplate
+		: MONTH_FORMATS.contains(format) ? monthTemplate
+		: YEAR_FORMATS.contains(format) ? yearTemplate : null;
+	    if (template != null) {
+		translation = date(template, arguments.get(0));
+	    }
+	}
+	else if (arguments.size() == 2 && numberTemplate != null) {
+	    translation = SqlNode.template(numberTemplate, arguments.get(0), arguments.get(1));
+	}
+
+	if (translation == null) {
+	    info("Leaving " + SqlNode.toString(nodes.subList(index, call + 1)) + " as is");
+	    return index + 1;
+	}
+	SqlTranslator.replace(nodes, index, call + 1, translation);
+	return index + 1;
+    }
+
+    /**
+     * Fill every placeholder of a date template with the same date
+     */
+    protected SqlNode date(final String template, final List<SqlNode> argument) {
+	final List<Object> arguments = new ArrayList<Object>();
+	for (int i = template.indexOf("%s"); i > -1; i = template.indexOf("%s", i + 2)) {
+	    arguments.add(argument);
+	}
+	return SqlNode.template(template, arguments.toArray());
+    }
+
+    /**
+     * @return true if the argument is certainly a date or timestamp
+     */
+    protected boolean isDate(final List<SqlNode> argument) {
+	final String text = SqlNode.toString(argument).trim().toUpperCase();
+	if (DATE_VALUES.contains(text)) {
+	    return true;
+	}
+	if (text.startsWith("CAST(") && (text.endsWith(" AS DATE)") || text.endsWith(" AS TIMESTAMP)"))) {
+	    return true;
+	}
+	if (text.startsWith("TRUNC(") && text.endsWith("')")) {
+	    // Truncated to a date format, left as is or translated to the target's own TRUNC
+	    return true;
+	}
+
+	final int open = text.indexOf('(');
+	return open > 0 && text.endsWith(")") && DATE_FUNCTIONS.contains(text.substring(0, open).trim());
+    }
+
+    /**
+     * @return true if the argument is certainly a number
+     */
+    protected boolean isNumber(final List<SqlNode> argument) {
+	if (argument.size() == 1 && argument.get(0).getType() == SqlNode.Type.NUMBER) {
+	    return true;
+	}
+	final String text = SqlNode.toString(argument).trim().toUpperCase();
+	final int open = text.indexOf('(');
+	return open > 0 && text.endsWith(")") && NUMBER_FUNCTIONS.contains(text.substring(0, open).trim());
+    }
+
+    protected boolean isString(final List<SqlNode> argument) {
+	return argument.size() == 1 && argument.get(0).getType() == SqlNode.Type.STRING;
     }
 
     protected void info(final String message) {
@@ -30,15 +30,27 @@ import liquibase.statement.AbstractSqlStatement;
 import java.math.BigInteger;
 
 /**
- * Statement used to describe sequences
+ * Statement used to describe sequences. Reads the last value handed out by a sequence without using one up. When no
+ * sequence name is given, every sequence in the schema is described with one query. Either way the results have a
+ * <code>SEQUENCE_NAME</code> and a <code>MAX</code> column.
  *
  * @author Leo Przybylski
  */
 public class DescribeSequenceStatement extends AbstractSqlStatement {
 
+    private String schemaName;
     private String sequenceName;
 
     public DescribeSequenceStatement(String sequenceName) {
+        this(null, sequenceName);
+    }
+
+    /**
+     * @param schemaName schema to look in, or <code>null</code> for the default schema
+     * @param sequenceName sequence to describe, or <code>null</code> for all of them
+     */
+    public DescribeSequenceStatement(String schemaName, String sequenceName) {
+        this.schemaName   = schemaName;
         this.sequenceName = sequenceName;
     }
 
@@ -47,7 +59,18 @@ public class DescribeSequenceStatement extends AbstractSqlStatement {
         return true;
     }
 
+    public String getSchemaName() {
+        return schemaName;
+    }
+
     public String getSequenceName() {
         return sequenceName;
     }
+
+    /**
+     * @return whether every sequence in the schema is described
+     */
+    public boolean isAll() {
+        return sequenceName == null;
+    }
 }
@@ -0,0 +1,463 @@
+/*
+ * Copyright 2008 The Kuali Foundation
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.opensource.org/licenses/ecl2.php
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kualigan.tools.liquibase.change.ext;
+
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.core.MySQLDatabase;
+import liquibase.database.core.OracleDatabase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.DatabaseException;
+import liquibase.exception.LiquibaseException;
+import liquibase.executor.ExecutorService;
+import liquibase.executor.LoggingExecutor;
+import liquibase.executor.jvm.JdbcExecutor;
+import liquibase.logging.LogFactory;
+import liquibase.logging.Logger;
+import liquibase.sql.Sql;
+import liquibase.sql.visitor.SqlVisitor;
+import liquibase.sqlgenerator.SqlGeneratorFactory;
+import liquibase.statement.SqlStatement;
+import liquibase.statement.core.CreateIndexStatement;
+import liquibase.statement.core.UnlockDatabaseChangeLogStatement;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.kualigan.tools.liquibase.change.ext.pool.ConnectionPool;
+import org.kualigan.tools.liquibase.change.ext.pool.PooledConnection;
+
+/**
+ * Builds indexes after a run instead of one at a time as their change sets come up. While
+ * <code>lb.index.defer=true</code>, each <code>CREATE INDEX</code> is recorded instead of run, and at the end of the
+ * update, just before the changelog lock is released, the recorded indexes are built by <code>lb.index.threads</code>
+ * workers. Anything still recorded when the database is closed is built then. Each worker has its own connection and
+ * builds all the indexes of one table before taking the next, tables with the most indexes first, so workers never
+ * wait on each other's table locks. Oracle builds each index with <code>PARALLEL lb.index.parallel NOLOGGING</code> and
+ * resets both afterwards. MySQL 5.6 and later builds them online with <code>ALGORITHM=INPLACE LOCK=NONE</code>.
+ *
+ * Worker connections use <code>lb.index.url</code>, <code>lb.index.user</code> and <code>lb.index.password</code>. The
+ * url and user default to those of the database's own connection. When no worker connection can be opened (ie., no
+ * password was given), indexes are built one at a time on the database's own connection.
+ *
+ * Unique indexes are never deferred since foreign keys and later change sets may depend on them. Change sets with
+ * deferred indexes are recorded as run before their indexes exist, so a failed build has to be fixed by hand. A build
+ * that fails at the end of the update still releases the lock, and the failure is thrown when the database is closed.
+ *
+ * @author Leo Przybylski
+ */
+public class IndexBuildScheduler {
+    private static final int DEFAULT_THREADS  = 4;
+    private static final int DEFAULT_PARALLEL = 4;
+
+    private final Database database;
+    private final Map<String, List<Index>> tables = new LinkedHashMap<String, List<Index>>();
+    private LiquibaseException failure;
+    private boolean unlockHooked;
+    private int    threads;
+    private int    parallel;
+    private String url;
+    private String user;
+    private String password;
+
+    public IndexBuildScheduler(final Database database) {
+        this.database = database;
+        setThreads(Integer.getInteger("lb.index.threads", DEFAULT_THREADS));
+        setParallel(Integer.getInteger("lb.index.parallel", DEFAULT_PARALLEL));
+        setUrl(System.getProperty("lb.index.url", database.getConnection() != null ? database.getConnection().getURL() : null));
+        setUser(System.getProperty("lb.index.user", database.getConnection() != null ? database.getConnection().getConnectionUserName() : null));
+        setPassword(System.getProperty("lb.index.password"));
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean("lb.index.defer");
+    }
+
+    /**
+     * Record the indexes among <code>statements</code> that can be built later
+     *
+     * @return the statements that have to run now
+     */
+    public SqlStatement[] defer(final SqlStatement[] statements, final List<SqlVisitor> sqlVisitors) {
+        // Generating sql only is not the time to leave things out
+        if (ExecutorService.getInstance().getExecutor(database) instanceof LoggingExecutor) {
+            return statements;
+        }
+
+        final List<SqlStatement> retval = new ArrayList<SqlStatement>(statements.length);
+        for (final SqlStatement statement : statements) {
+            if (statement instanceof CreateIndexStatement && !Boolean.TRUE.equals(((CreateIndexStatement) statement).isUnique())) {
+                hookUnlock();
+                add((CreateIndexStatement) statement, sqlVisitors);
+            }
+            else {
+                retval.add(statement);
+            }
+        }
+        return retval.toArray(new SqlStatement[retval.size()]);
+    }
+
+    /**
+     * Record an index to build later
+     */
+    public synchronized void add(final CreateIndexStatement statement, final List<SqlVisitor> sqlVisitors) {
+        final List<String> sql = new ArrayList<String>();
+        for (final Sql generated : SqlGeneratorFactory.getInstance().generateSql(statement, database)) {
+            String finalSql = generated.toSql();
+            if (sqlVisitors != null) {
+                for (final SqlVisitor visitor : sqlVisitors) {
+                    if (visitor != null) {
+                        finalSql = visitor.modifySql(finalSql, database);
+                    }
+                }
+            }
+            sql.add(finalSql);
+        }
+
+        final String table = statement.getTableName().toLowerCase();
+        if (!tables.containsKey(table)) {
+            tables.put(table, new ArrayList<Index>());
+        }
+        tables.get(table).add(new Index(statement.getIndexName(), sql));
+        getLog().debug("Deferring index " + statement.getIndexName() + " on " + statement.getTableName());
+    }
+
+    /**
+     * @return how many indexes are waiting to be built
+     */
+    public synchronized int size() {
+        int retval = 0;
+        for (final List<Index> indexes : tables.values()) {
+            retval += indexes.size();
+        }
+        return retval;
+    }
+
+    /**
+     * Have the recorded indexes built when the update releases its changelog lock. The database's executor is
+     * replaced with one that watches for the unlock, unless someone else already replaced it.
+     */
+    protected synchronized void hookUnlock() {
+        if (unlockHooked) {
+            return;
+        }
+        unlockHooked = true;
+
+        if (ExecutorService.getInstance().getExecutor(database).getClass() == JdbcExecutor.class) {
+            final JdbcExecutor executor = new UnlockExecutor(this);
+            executor.setDatabase(database);
+            ExecutorService.getInstance().setExecutor(database, executor);
+        }
+    }
+
+    /**
+     * Build the recorded indexes before the changelog lock is released. A failure is logged and kept for
+     * {@link #build()} rather than thrown, since throwing would leave the lock held.
+     */
+    protected void buildBeforeUnlock() {
+        try {
+            build();
+        }
+        catch (LiquibaseException e) {
+            getLog().severe("Could not build deferred indexes: " + e.getMessage(), e);
+            synchronized (this) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Build every recorded index. The first failure stops the build and is thrown once the running builds end. A
+     * failure left from the build at the end of the update is thrown here.
+     */
+    public void build() throws LiquibaseException {
+        final List<List<Index>> work;
+        synchronized (this) {
+            if (failure != null) {
+                final LiquibaseException error = failure;
+                failure = null;
+                throw error;
+            }
+            work = new ArrayList<List<Index>>(tables.values());
+            tables.clear();
+        }
+        if (work.isEmpty()) {
+            return;
+        }
+
+        Collections.sort(work, new Comparator<List<Index>>() {
+                public int compare(final List<Index> a, final List<Index> b) {
+                    return b.size() - a.size();
+                }
+            });
+
+        final ConnectionPool pool = openPool(work.size());
+
+        final String[] options = getOptions();
+        final int workers = Math.max(1, Math.min(pool.getCapacity(), work.size()));
+        getLog().info("Building " + size(work) + " deferred indexes on " + work.size() + " tables with " + workers + " threads");
+
+        final java.util.concurrent.ExecutorService executor = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+                private int count = 0;
+
+                public synchronized Thread newThread(final Runnable runnable) {
+                    final Thread retval = new Thread(runnable, "index-" + (++count));
+                    retval.setDaemon(true);
+                    return retval;
+                }
+            });
+
+        try {
+            final List<Future<Object>> results = new LinkedList<Future<Object>>();
+            for (final List<Index> indexes : work) {
+                results.add(executor.submit(new Callable<Object>() {
+                        public Object call() throws Exception {
+                            build(indexes, options, pool);
+                            return null;
+                        }
+                    }));
+            }
+            executor.shutdown();
+
+            LiquibaseException error = null;
+            for (final Future<Object> result : results) {
+                try {
+                    result.get();
+                }
+                catch (ExecutionException e) {
+                    if (error == null) {
+                        error = e.getCause() instanceof LiquibaseException 
+                            ? (LiquibaseException) e.getCause() 
+                            : new LiquibaseException(e.getCause().getMessage(), e.getCause());
+                        executor.shutdownNow();
+                    }
+                }
+                catch (CancellationException e) {
+                }
+                catch (InterruptedException e) {
+                    executor.shutdownNow();
+                    Thread.currentThread().interrupt();
+                    throw new LiquibaseException("Interrupted while building indexes", e);
+                }
+            }
+
+            if (error != null) {
+                throw error;
+            }
+        }
+        finally {
+            pool.close();
+        }
+    }
+
+    /**
+     * @return a pool of worker connections, or a pool of the database's own connection if no worker connection
+     * could be opened
+     */
+    protected ConnectionPool openPool(final int tableCount) throws LiquibaseException {
+        if (getUrl() != null) {
+            final ConnectionPool retval = new ConnectionPool("index", getUrl(), getUser(), getPassword(), 
+                                                             lookupDriverFor(getUrl()), Math.min(getThreads(), tableCount));
+            try {
+                retval.release(retval.borrow());
+                return retval;
+            }
+            catch (LiquibaseException e) {
+                retval.close();
+                getLog().warning("Could not connect to " + getUrl() + " to build indexes, building them one at a time instead: "
+                                 + e.getMessage());
+            }
+        }
+        return new ConnectionPool("index", ((JdbcConnection) database.getConnection()).getUnderlyingConnection());
+    }
+
+    /**
+     * Build the indexes of one table, one after another, on one connection
+     */
+    protected void build(final List<Index> indexes, final String[] options, final ConnectionPool pool) throws LiquibaseException {
+        final PooledConnection connection = pool.borrow();
+        try {
+            for (final Index index : indexes) {
+                final long start = System.currentTimeMillis();
+                final Statement statement = connection.getConnection().createStatement();
+                try {
+                    for (int i = 0; i < index.getSql().size(); i++) {
+                        final boolean last = i == index.getSql().size() - 1;
+                        statement.execute(last ? index.getSql().get(i) + options[0] : index.getSql().get(i));
+                    }
+                    for (int i = 1; i < options.length; i++) {
+                        statement.execute(String.format(options[i], database.escapeIndexName(null, index.getName())));
+                    }
+                }
+                catch (SQLException e) {
+                    throw new LiquibaseException("Could not build index " + index.getName() + ": " + e.getMessage(), e);
+                }
+                finally {
+                    try {
+                        statement.close();
+                    }
+                    catch (SQLException e) {
+                    }
+                }
+                getLog().debug("Built index " + index.getName() + " in " + (System.currentTimeMillis() - start) + "ms");
+            }
+        }
+        catch (SQLException e) {
+            throw new LiquibaseException(e.getMessage(), e);
+        }
+        finally {
+            pool.release(connection);
+        }
+    }
+
+    /**
+     * @return text appended to <code>CREATE INDEX</code>, followed by statements to run after it with <code>%s</code>
+     * for the index name
+     */
+    protected String[] getOptions() throws DatabaseException {
+        if (database instanceof OracleDatabase) {
+            return new String[] { " PARALLEL " + getParallel() + " NOLOGGING",
+                                  "ALTER INDEX %s NOPARALLEL",
+                                  "ALTER INDEX %s LOGGING" };
+        }
+        if (database instanceof MySQLDatabase
+            && (database.getDatabaseMajorVersion() > 5
+                || (database.getDatabaseMajorVersion() == 5 && database.getDatabaseMinorVersion() >= 6))) {
+            return new String[] { " ALGORITHM=INPLACE LOCK=NONE" };
+        }
+        return new String[] { "" };
+    }
+
+    private static int size(final List<List<Index>> work) {
+        int retval = 0;
+        for (final List<Index> indexes : work) {
+            retval += indexes.size();
+        }
+        return retval;
+    }
+
+    protected String lookupDriverFor(final String url) {
+        for (final Database databaseImpl : DatabaseFactory.getInstance().getImplementedDatabases()) {
+            final String driver = databaseImpl.getDefaultDriver(url);
+            if (driver != null) {
+                return driver;
+            }
+        }
+        return null;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(final int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Degree of parallelism for each index on Oracle
+     */
+    public int getParallel() {
+        return parallel;
+    }
+
+    public void setParallel(final int parallel) {
+        this.parallel = parallel;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(final String url) {
+        this.url = url;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public void setUser(final String user) {
+        this.user = user;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(final String password) {
+        this.password = password;
+    }
+
+    protected Logger getLog() {
+        return LogFactory.getLogger();
+    }
+
+    /**
+     * Builds the deferred indexes when the update releases the changelog lock, while the lock is still held
+     */
+    protected static class UnlockExecutor extends JdbcExecutor {
+        private final IndexBuildScheduler scheduler;
+
+        public UnlockExecutor(final IndexBuildScheduler scheduler) {
+            this.scheduler = scheduler;
+        }
+
+        @Override
+        public int update(final SqlStatement sql, final List<SqlVisitor> sqlVisitors) throws DatabaseException {
+            if (sql instanceof UnlockDatabaseChangeLogStatement) {
+                scheduler.buildBeforeUnlock();
+            }
+            return super.update(sql, sqlVisitors);
+        }
+    }
+
+    /**
+     * Generated sql of a deferred index
+     */
+    protected static class Index {
+        private final String name;
+        private final List<String> sql;
+
+        public Index(final String name, final List<String> sql) {
+            this.name = name;
+            this.sql  = sql;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<String> getSql() {
+            return sql;
+        }
+    }
+}
@@ -21,12 +21,12 @@ import liquibase.change.AbstractChange;
 import liquibase.change.Change;
 import liquibase.database.Database;
 import liquibase.database.DatabaseFactory;
+import liquibase.database.ext.HiLoSequence;
 import liquibase.database.jvm.JdbcConnection;
 import liquibase.exception.DatabaseException;
 import liquibase.exception.LiquibaseException;
 import liquibase.exception.MigrationFailedException;
 import liquibase.exception.ValidationErrors;
-import liquibase.executor.ExecutorService;
 import liquibase.logging.LogFactory;
 import liquibase.logging.Logger;
 import liquibase.logging.LogLevel;
@@ -44,7 +44,6 @@ import java.sql.Blob;
 import java.sql.Clob;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -54,11 +53,29 @@ import java.sql.Types;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Observer;
 import java.util.Observable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.kualigan.tools.liquibase.change.ext.convert.ColumnConverter;
+import org.kualigan.tools.liquibase.change.ext.convert.ColumnConverters;
+import org.kualigan.tools.liquibase.change.ext.pool.ConnectionPool;
+import org.kualigan.tools.liquibase.change.ext.pool.PooledConnection;
+import org.kualigan.tools.liquibase.change.ext.snapshot.NoSnapshot;
+import org.kualigan.tools.liquibase.change.ext.snapshot.SnapshotStrategy;
+import org.kualigan.tools.liquibase.change.ext.throttle.MigrationThrottle;
+import org.kualigan.tools.liquibase.change.ext.transform.RowTransformer;
+import org.kualigan.tools.liquibase.change.ext.transform.TransformerRegistry;
 
 import static liquibase.ext.Constants.EXTENSION_PRIORITY;
 
@@ -80,6 +97,8 @@ public class MigrateData extends AbstractChange {
 
     private static final String HSQLDB_PUBLIC      = "PUBLIC";
     private static final int    MAX_THREADS        = 3;
+    private static final int    THROTTLE_CHUNK     = 100;
+    private static final int    PLAN_SAMPLE_SIZE   = 1000;
 
     private Database source;
     private Database target;
@@ -88,6 +107,21 @@ public class MigrateData extends AbstractChange {
     private String sourcePass;
     private String sourceSchema;
     private String sourceDriverClass;
+    private String targetUrl;
+    private String targetUser;
+    private String targetPass;
+    private int threads;
+    private ConnectionPool sourcePool;
+    private ConnectionPool targetPool;
+    private String transformFile;
+    private TransformerRegistry transformerRegistry;
+    private String consistency;
+    private SnapshotStrategy snapshot = new NoSnapshot();
+    private MigrationThrottle throttle;
+    private boolean planOnly;
+    private String planSchema;
+    private int planSampleSize;
+    private int fetchSize;
     
     public MigrateData() {
         super("MigrateData", "Migrating data from sourceUrl", EXTENSION_PRIORITY);
@@ -95,6 +129,16 @@ public class MigrateData extends AbstractChange {
 	setSourceUser(System.getProperty("lb.copy.source.user"));
 	setSourcePass(System.getProperty("lb.copy.source.password"));
 	setSourceSchema(System.getProperty("lb.copy.source.schema"));
+	setTargetUrl(System.getProperty("lb.copy.target.url"));
+	setTargetUser(System.getProperty("lb.copy.target.user"));
+	setTargetPass(System.getProperty("lb.copy.target.password"));
+	setThreads(Integer.getInteger("lb.copy.threads", MAX_THREADS));
+	setTransformFile(System.getProperty("lb.copy.transform"));
+	setConsistency(System.getProperty("lb.copy.consistency", SnapshotStrategy.NONE));
+	setPlanOnly(Boolean.getBoolean("lb.copy.plan"));
+	setPlanSchema(System.getProperty("lb.copy.plan.schema"));
+	setPlanSampleSize(Integer.getInteger("lb.copy.plan.sample", PLAN_SAMPLE_SIZE));
+	setFetchSize(Integer.getInteger("lb.copy.fetch", 0));
     }
     
     /**
@@ -117,13 +161,17 @@ public class MigrateData extends AbstractChange {
      * Normally returns sql statements, but we're not going to return any. Just going fake it.
      */
     public SqlStatement[] generateStatements(Database database) {
-	final Database target = null;
-	final Database source = null;
-
         sourceDriverClass = lookupDriverFor(sourceUrl);
 	
 	try {
-	    migrate(source, target);
+            if (isPlanOnly()) {
+                setTarget(database);
+                setSource(createSourceDatabase());
+                plan().print(getLog());
+            }
+            else {
+                migrate(createSourceDatabase(), database);
+            }
 	}
 	catch (Exception e) {
 	    throw new RuntimeException(e);
@@ -159,26 +207,54 @@ public class MigrateData extends AbstractChange {
                                             final String password, 
                                             final String className, 
                                             final String schema) throws LiquibaseException {
-        Connection retval = null;
-        int retry_count = 0;
-        final int max_retry = 5;
-        while (retry_count < max_retry) {
+        getLog().debug("Loading schema " + schema + " at url " + url);
+        if (className != null) {
             try {
-                getLog().debug("Loading schema " + schema + " at url " + url);
                 Class.forName(className);
-                retval = DriverManager.getConnection(url, username, password);
-                retval.setAutoCommit(true);
             }
-            catch (Exception e) {
-                if (!e.getMessage().contains("Database lock acquisition failure") && !(e instanceof NullPointerException)) {
-                    throw new LiquibaseException(e.getMessage(), e);
-                }
-            }
-            finally {
-                retry_count++;
+            catch (ClassNotFoundException e) {
+                throw new LiquibaseException("Could not load driver " + className, e);
             }
         }
-        return new JdbcConnection(retval);
+        return new JdbcConnection(ConnectionPool.connect(url, username, password));
+    }
+
+    /**
+     * Opens the source and target pools. Each holds one connection per worker when its url is known. Otherwise it
+     * only holds the connection of the {@link Database} it was given.
+     *
+     * @param readers most source connections that may read in parallel
+     */
+    protected void openPools(final int readers) throws LiquibaseException {
+        final Connection sourceConn = ((JdbcConnection) getSource().getConnection()).getUnderlyingConnection();
+        final Connection targetConn = ((JdbcConnection) getTarget().getConnection()).getUnderlyingConnection();
+
+        if (getSourceUrl() != null) {
+            sourcePool = new ConnectionPool("source", getSourceUrl(), getSourceUser(), getSourcePass(),
+                                            getSourceDriverClass(), Math.min(getThreads(), readers));
+        }
+        else {
+            sourcePool = new ConnectionPool("source", sourceConn);
+        }
+
+        if (getTargetUrl() != null) {
+            targetPool = new ConnectionPool("target", getTargetUrl(), getTargetUser(), getTargetPass(),
+                                            lookupDriverFor(getTargetUrl()), getThreads());
+        }
+        else {
+            targetPool = new ConnectionPool("target", targetConn);
+        }
+    }
+
+    protected void closePools() {
+        if (sourcePool != null) {
+            sourcePool.close();
+            sourcePool = null;
+        }
+        if (targetPool != null) {
+            targetPool.close();
+            targetPool = null;
+        }
     }
 
     public void migrate() throws LiquibaseException {
@@ -198,18 +274,31 @@ public class MigrateData extends AbstractChange {
 
         final ThreadGroup tgroup = new ThreadGroup("Migration Threads");
 
-        for (final String tableName : tableData.keySet()) {
-            final Map<String,Integer> columns = new HashMap<String, Integer>();
-            migrate(tableName, observable);
+        throttle = MigrationThrottle.fromProperties(System.getProperties());
+        try {
+            throttle.register();
+        }
+        catch (LiquibaseException e) {
+            getLog().warning("Throttle limits cannot be changed at runtime: " + e.getMessage());
         }
 
-        // Wait for other threads to finish
+        snapshot = SnapshotStrategy.forDatabase(getSource(), getConsistency());
+        openPools(snapshot.getMaxReaders());
         try {
-            while(tgroup.activeCount() > 0) {
-                Thread.sleep(5000);
+            beginSnapshot();
+            try {
+                final int workers = Math.max(1, Math.min(getThreads(), 
+                                                         Math.min(sourcePool.getCapacity(), targetPool.getCapacity())));
+                getLog().debug("Copying with " + workers + " threads");
+                migrate(tableData.keySet(), observable, tgroup, workers);
+            }
+            finally {
+                endSnapshot();
             }
         }
-        catch (InterruptedException e) {
+        finally {
+            closePools();
+            throttle.unregister();
         }
 
     
@@ -226,55 +315,155 @@ public class MigrateData extends AbstractChange {
         }        
     }
 
+    /**
+     * Copies the tables using a fixed number of worker threads. Each worker borrows a source and a target connection
+     * per table.
+     */
+    protected void migrate(final Collection<String> tableNames,
+                           final ProgressObservable observable,
+                           final ThreadGroup tgroup,
+                           final int workers) throws LiquibaseException {
+        final ExecutorService executor = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+                private int count = 0;
+
+                public synchronized Thread newThread(final Runnable runnable) {
+                    final Thread retval = new Thread(tgroup, runnable, "migrate-" + (++count));
+                    retval.setDaemon(true);
+                    return retval;
+                }
+            });
+
+        final List<Future<Object>> results = new LinkedList<Future<Object>>();
+        for (final String tableName : tableNames) {
+            results.add(executor.submit(new Callable<Object>() {
+                    public Object call() throws Exception {
+                        migrate(tableName, observable);
+                        return null;
+                    }
+                }));
+        }
+        executor.shutdown();
+
+        LiquibaseException error = null;
+        for (final Future<Object> result : results) {
+            try {
+                result.get();
+            }
+            catch (ExecutionException e) {
+                if (error == null) {
+                    error = e.getCause() instanceof LiquibaseException 
+                        ? (LiquibaseException) e.getCause() 
+                        : new LiquibaseException(e.getCause().getMessage(), e.getCause());
+                    executor.shutdownNow();
+                }
+            }
+            catch (CancellationException e) {
+            }
+            catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+                throw new LiquibaseException("Interrupted while migrating data", e);
+            }
+        }
+
+        if (error != null) {
+            throw error;
+        }
+    }
+
     protected void migrate(final String tableName, 
                            final ProgressObservable observable) throws LiquibaseException {
-        final JdbcConnection sourceDb = (JdbcConnection) getSource().getConnection();
-        final JdbcConnection targetDb = (JdbcConnection) getTarget().getConnection();
+        final PooledConnection source = sourcePool.borrow();
+        PooledConnection target = null;
+        try {
+            target = targetPool.borrow();
+            migrate(tableName, source, target, observable);
+        }
+        finally {
+            targetPool.release(target);
+            sourcePool.release(source);
+        }
+    }
+
+    protected void migrate(final String tableName,
+                           final PooledConnection source,
+                           final PooledConnection target,
+                           final ProgressObservable observable) throws LiquibaseException {
+        final Connection sourceDb = source.getConnection();
+        final Connection targetDb = target.getConnection();
 
-        final Map<String, Integer> columns = getColumnMap(tableName);
+        final Map<String, Integer> columns = getColumnMap(targetDb, tableName);
 
         if (columns.size() < 1) {
             getLog().debug("Columns are empty for " + tableName);
             return;
         }
 
-        final PreparedStatement toStatement = prepareStatement(targetDb, tableName, columns);
+        final String[] columnNames = columns.keySet().toArray(new String[columns.size()]);
+        final int[]    columnTypes = new int[columnNames.length];
+        for (int i = 0; i < columnNames.length; i++) {
+            columnTypes[i] = columns.get(columnNames[i]);
+        }
+        final RowBuffer row = new RowBuffer(tableName, columnNames, columnTypes);
+        final RowTransformer[] transformers = getTransformerRegistry() != null ? getTransformerRegistry().compile(row) : null;
+
+        final PreparedStatement toStatement = prepareStatement(target, tableName, columns);
         Statement fromStatement = null;
 
         final boolean hasClob = columns.values().contains(Types.CLOB);
         int recordsLost = 0;
+        int pendingRows = 0;
+        long pendingBytes = 0;
+        final MigrationThrottle throttle = this.throttle;
+        boolean limited       = throttle != null && throttle.isLimited();
+        boolean limitingBytes = limited && throttle.isLimitingBytes();
         
         try {
             fromStatement = sourceDb.createStatement();
-            final ResultSet results = fromStatement.executeQuery(String.format(SELECT_ALL_QUERY, tableName));
+            if (getFetchSize() > 0) {
+                fromStatement.setFetchSize(getFetchSize());
+            }
+            final ResultSet results = fromStatement.executeQuery(snapshot.getSelectQuery(tableName));
+            final int[] sourceIndexes = ColumnConverters.getSourceIndexes(results.getMetaData(), row);
+            final ColumnConverter[] converters = ColumnConverters.forTable(results.getMetaData(), sourceIndexes, row);
             
             try {
                 while (results.next()) {
                     try {
                         toStatement.clearParameters();
+
+                        for (int i = 0; i < converters.length; i++) {
+                            converters[i].read(results, sourceIndexes[i], row, i);
+                        }
+
+                        if (transformers != null) {
+                            transform(row, transformers);
+                        }
+
+                        // Limits are read again once a chunk so changes made through JMX are picked up
+                        pendingRows++;
+                        if (limitingBytes) {
+                            pendingBytes += estimateSize(row);
+                        }
+                        if (pendingRows >= THROTTLE_CHUNK) {
+                            if (limited) {
+                                throttle.acquire(tableName, pendingRows, pendingBytes);
+                            }
+                            pendingRows   = 0;
+                            pendingBytes  = 0;
+                            limited       = throttle != null && throttle.isLimited();
+                            limitingBytes = limited && throttle.isLimitingBytes();
+                        }
                         
-                        int i = 1;
-                        for (String columnName : columns.keySet()) {
-                            final Object value = results.getObject(columnName);
-                            
-                            if (value != null) {
-                                try {
-                                    handleLob(toStatement, value, i);
-                                }
-                                catch (Exception e) {
-                                    if (isDebugEnabled()) {
-					// getLog().warning(String.format("Error processing %s.%s %s", tableName, columnName, columns.get(columnName)));
-					if (Clob.class.isAssignableFrom(value.getClass())) {
-					    // getLog().warning("Got exception trying to insert CLOB with length" + ((Clob) value).length());
-					}
-                                        // e.printStackTrace();
-                                    }
+                        for (int i = 0; i < converters.length; i++) {
+                            try {
+                                converters[i].write(toStatement, i + 1, row, i);
+                            }
+                            catch (SQLException e) {
+                                if (isDebugEnabled()) {
+                                    getLog().debug(String.format("Error processing %s.%s %s", tableName, columnNames[i], columnTypes[i]), e);
                                 }
                             }
-                            else {
-                                toStatement.setObject(i,value);
-                            } 
-                            i++;
                         }
                         
                         boolean retry = true;
@@ -328,6 +517,10 @@ public class MigrateData extends AbstractChange {
                         observable.incrementRecord();
                     }
                 }
+
+                if (limited && pendingRows > 0) {
+                    throttle.acquire(tableName, pendingRows, pendingBytes);
+                }
             }
             finally {
                 if (results != null) {
@@ -345,7 +538,7 @@ public class MigrateData extends AbstractChange {
         finally {
             if (sourceDb != null) {
                 try {
-                    if (sourceDb.getMetaData().getDriverName().toLowerCase().contains("hsqldb")) {
+                    if (!snapshot.isActive() && sourceDb.getMetaData().getDriverName().toLowerCase().contains("hsqldb")) {
                         Statement st = sourceDb.createStatement();
                         st.execute("CHECKPOINT"); 
                         st.close();
@@ -359,13 +552,15 @@ public class MigrateData extends AbstractChange {
 
             if (targetDb != null) {
                 try {
-                    targetDb.commit();
+                    if (!targetDb.getAutoCommit()) {
+                        targetDb.commit();
+                    }
                     if (targetDb.getMetaData().getDriverName().toLowerCase().contains("hsql")) {
                         Statement st = targetDb.createStatement();
                         st.execute("CHECKPOINT"); 
                         st.close();
                     }
-                    toStatement.close();
+                    // toStatement is cached by the pooled connection
                     // targetDb.close();
                 }
                 catch (Exception e) {
@@ -378,19 +573,297 @@ public class MigrateData extends AbstractChange {
         }
     }
 
-    protected void handleLob(final PreparedStatement toStatement, final Object value, final int i) throws SQLException {
-        if (Clob.class.isAssignableFrom(value.getClass())) {
-            toStatement.setAsciiStream(i, ((Clob) value).getAsciiStream(), ((Clob) value).length());
+    /**
+     * Pins the source connection(s) to a single point in time according to the consistency mode
+     */
+    protected void beginSnapshot() throws LiquibaseException {
+        if (snapshot instanceof NoSnapshot) {
+            return;
         }
-        else if (Blob.class.isAssignableFrom(value.getClass())) {
-            toStatement.setBinaryStream(i, ((Blob) value).getBinaryStream(), ((Blob) value).length());
+
+        final List<Connection> readers = new LinkedList<Connection>();
+        for (final PooledConnection reader : sourcePool.fill()) {
+            readers.add(reader.getConnection());
+        }
+        sourcePool.setReplaceInvalid(false);
+
+        boolean begun = false;
+        try {
+            snapshot.begin(readers.get(0), readers);
+            begun = true;
+        }
+        catch (SQLException e) {
+            throw new LiquibaseException(e.getMessage(), e);
+        }
+        finally {
+            if (!begun) {
+                // Readers pinned before the failure would otherwise stay in their transaction
+                try {
+                    endSnapshot();
+                }
+                catch (LiquibaseException e) {
+                    getLog().warning("Could not release the source snapshot", e);
+                }
+            }
+        }
+    }
+
+    protected void endSnapshot() throws LiquibaseException {
+        try {
+            snapshot.end();
+        }
+        catch (SQLException e) {
+            throw new LiquibaseException(e.getMessage(), e);
+        }
+        finally {
+            snapshot = new NoSnapshot();
+            if (sourcePool != null) {
+                sourcePool.setReplaceInvalid(true);
+            }
         }
-        else {
-            toStatement.setObject(i,value);
-        } 
     }
 
-    protected PreparedStatement prepareStatement(final JdbcConnection conn, 
+    /**
+     * Estimates how long the migration will take without copying anything. Every table is counted and its columns,
+     * LOB columns and target indexes are looked up. The largest table of each {@link MigrationPlan} class then has
+     * <code>planSampleSize</code> rows copied into the same table in the <code>planSchema</code> scratch schema to
+     * measure the cost per row. Nothing is ever written to the target tables themselves, so without a
+     * <code>planSchema</code> no sample is taken and only the table sizes are reported.
+     *
+     * @return the plan
+     */
+    public MigrationPlan plan() throws LiquibaseException {
+        final Incrementor recordCountIncrementor = new Incrementor();
+        final Map<String, Integer> tableData = getTableData(recordCountIncrementor);
+        final MigrationPlan retval = new MigrationPlan();
+        final Map<String, String> samples = new HashMap<String, String>();
+        final Map<String, Integer> indexes = new HashMap<String, Integer>();
+
+        openPools(1);
+        try {
+            final PooledConnection source = sourcePool.borrow();
+            PooledConnection target = null;
+            try {
+                target = targetPool.borrow();
+                for (final Map.Entry<String, Integer> entry : tableData.entrySet()) {
+                    final String tableName = entry.getKey();
+                    final Map<String, Integer> columns = getColumnMap(target.getConnection(), tableName);
+                    indexes.put(tableName, countIndexes(target.getConnection(), tableName));
+                    final String tableClass = retval.addTable(tableName, entry.getValue(), columns.size(), 
+                                                              countLobs(columns), indexes.get(tableName));
+                    final String sample = samples.get(tableClass);
+                    if (sample == null || tableData.get(sample) < entry.getValue()) {
+                        samples.put(tableClass, tableName);
+                    }
+                }
+
+                if (getPlanSchema() == null) {
+                    getLog().warning("Not sampling any tables because lb.copy.plan.schema is not set. Samples are only "
+                                     + "copied into a scratch schema, never into the target tables.");
+                    samples.clear();
+                }
+                for (final Map.Entry<String, String> entry : samples.entrySet()) {
+                    getLog().info("Sampling " + entry.getValue() + " for " + entry.getKey() + " tables");
+                    sample(entry.getKey(), entry.getValue(), source, target, retval, indexes.get(entry.getValue()));
+                }
+            }
+            finally {
+                targetPool.release(target);
+                sourcePool.release(source);
+            }
+        }
+        finally {
+            closePools();
+        }
+        return retval;
+    }
+
+    /**
+     * Copy up to <code>planSampleSize</code> rows of a table into its copy in the <code>planSchema</code> and record how
+     * long it took. The scratch table is emptied before and after, rather than relying on a rollback, so tables that
+     * are not transactional are cleaned up too and the transaction of a shared target connection is left alone.
+     */
+    protected void sample(final String tableClass,
+                          final String tableName,
+                          final PooledConnection source,
+                          final PooledConnection target,
+                          final MigrationPlan plan,
+                          final int indexes) throws LiquibaseException {
+        final Connection targetDb = target.getConnection();
+        final Map<String, Integer> columns = getColumnMap(targetDb, tableName);
+        if (columns.size() < 1) {
+            return;
+        }
+
+        final String[] columnNames = columns.keySet().toArray(new String[columns.size()]);
+        final int[]    columnTypes = new int[columnNames.length];
+        for (int i = 0; i < columnNames.length; i++) {
+            columnTypes[i] = columns.get(columnNames[i]);
+        }
+        final RowBuffer row = new RowBuffer(tableName, columnNames, columnTypes);
+        final RowTransformer[] transformers = getTransformerRegistry() != null ? getTransformerRegistry().compile(row) : null;
+        final String scratchTable = getPlanSchema() + "." + tableName;
+
+        Statement fromStatement = null;
+        PreparedStatement toStatement = null;
+        try {
+            clearScratchTable(targetDb, scratchTable);
+            // Not taken from the connection's statement cache since it is only used once and closed below
+            toStatement = targetDb.prepareStatement(getStatementBuffer(scratchTable, columns));
+
+            fromStatement = source.getConnection().createStatement();
+            fromStatement.setMaxRows(getPlanSampleSize());
+
+            final long start = System.nanoTime();
+            final ResultSet results = fromStatement.executeQuery(snapshot.getSelectQuery(tableName));
+            final int[] sourceIndexes = ColumnConverters.getSourceIndexes(results.getMetaData(), row);
+            final ColumnConverter[] converters = ColumnConverters.forTable(results.getMetaData(), sourceIndexes, row);
+
+            int  count = 0;
+            long bytes = 0;
+            while (results.next()) {
+                for (int i = 0; i < converters.length; i++) {
+                    converters[i].read(results, sourceIndexes[i], row, i);
+                }
+                if (transformers != null) {
+                    transform(row, transformers);
+                }
+                bytes += estimateSize(row);
+                for (int i = 0; i < converters.length; i++) {
+                    converters[i].write(toStatement, i + 1, row, i);
+                }
+                toStatement.execute();
+                count++;
+            }
+            results.close();
+            plan.addSample(tableClass, count, System.nanoTime() - start, bytes, indexes);
+        }
+        catch (SQLException e) {
+            throw new LiquibaseException("Could not sample " + tableName + " into " + scratchTable, e);
+        }
+        finally {
+            if (toStatement != null) {
+                try {
+                    toStatement.close();
+                }
+                catch (SQLException e) {
+                }
+            }
+            try {
+                clearScratchTable(targetDb, scratchTable);
+            }
+            catch (SQLException e) {
+                getLog().warning("Could not empty " + scratchTable + " after sampling", e);
+            }
+            if (fromStatement != null) {
+                try {
+                    fromStatement.close();
+                }
+                catch (SQLException e) {
+                }
+            }
+        }
+    }
+
+    protected void clearScratchTable(final Connection targetDb, final String scratchTable) throws SQLException {
+        final Statement statement = targetDb.createStatement();
+        try {
+            statement.executeUpdate("DELETE FROM " + scratchTable);
+        }
+        finally {
+            statement.close();
+        }
+    }
+
+    protected int countLobs(final Map<String, Integer> columns) {
+        int retval = 0;
+        for (final Integer type : columns.values()) {
+            switch (type) {
+            case Types.BLOB:
+            case Types.CLOB:
+            case Types.LONGVARBINARY:
+            case Types.LONGVARCHAR:
+                retval++;
+            }
+        }
+        return retval;
+    }
+
+    /**
+     * Count the indexes on a target table. Each one has to be maintained on every insert.
+     */
+    protected int countIndexes(final Connection targetDb, final String tableName) throws LiquibaseException {
+        final Collection<String> retval = new HashSet<String>();
+        try {
+            final ResultSet results = targetDb.getMetaData().getIndexInfo(targetDb.getCatalog(), getTarget().getDefaultSchemaName(),
+                                                                          tableName, false, true);
+            try {
+                while (results.next()) {
+                    final String indexName = results.getString("INDEX_NAME");
+                    if (indexName != null) {
+                        retval.add(indexName);
+                    }
+                }
+            }
+            finally {
+                results.close();
+            }
+        }
+        catch (SQLException e) {
+            throw new LiquibaseException(e.getMessage(), e);
+        }
+        return retval.size();
+    }
+
+    /**
+     * Rough size in bytes of a row as it is sent to the target. Only used for throttling.
+     */
+    protected long estimateSize(final RowBuffer row) throws SQLException {
+        long retval = 0;
+        for (int i = 0; i < row.size(); i++) {
+            if (row.getKind(i) != RowBuffer.OBJECT) {
+                retval += 8;
+                continue;
+            }
+
+            final Object value = row.get(i);
+            if (value == null) {
+                continue;
+            }
+            else if (value instanceof String) {
+                retval += ((String) value).length();
+            }
+            else if (value instanceof byte[]) {
+                retval += ((byte[]) value).length;
+            }
+            else if (value instanceof Clob) {
+                retval += ((Clob) value).length();
+            }
+            else if (value instanceof Blob) {
+                retval += ((Blob) value).length();
+            }
+            else {
+                retval += 8;
+            }
+        }
+        return retval;
+    }
+
+    /**
+     * Run the configured {@link RowTransformer}s over the current row
+     *
+     * @param row the row read from the source
+     * @param transformers transformers indexed by column. Columns without a transformer are <code>null</code>
+     */
+    protected void transform(final RowBuffer row, final RowTransformer[] transformers) {
+        for (int i = 0; i < transformers.length; i++) {
+            if (transformers[i] != null) {
+                transformers[i].transform(row, i);
+            }
+        }
+    }
+
+    protected PreparedStatement prepareStatement(final PooledConnection conn, 
                                                  final String tableName, 
                                                  final Map<String, Integer> columns) throws LiquibaseException {
         final String statement = getStatementBuffer(tableName, columns);
@@ -425,9 +898,16 @@ public class MigrateData extends AbstractChange {
         return !(tableName.startsWith("BIN$") || tableName.toUpperCase().startsWith(LIQUIBASE_TABLE) || isSequence(metadata, tableName));
     }
 
+    /**
+     * @return whether a table is a sequence, either an <code>auto_increment</code> table with only its id column or a
+     * single row table marked with {@link HiLoSequence#TABLE_COMMENT}
+     */
     protected boolean isSequence(final DatabaseMetaData metadata, final String tableName) {
         final JdbcConnection source = (JdbcConnection) getSource().getConnection();
         try {
+            if (isHiLoSequence(source.getMetaData(), tableName)) {
+                return true;
+            }
             final ResultSet rs = source.getMetaData().getColumns(null, getSource().getDefaultSchemaName(), tableName, null);
             int columnCount = 0;
             boolean hasId = false;
@@ -455,6 +935,25 @@ public class MigrateData extends AbstractChange {
         }
     }
 
+    /**
+     * @return whether a table's comment marks it as a single row sequence table
+     */
+    protected boolean isHiLoSequence(final DatabaseMetaData metadata, final String tableName) throws SQLException {
+        final ResultSet rs = metadata.getTables(metadata.getConnection().getCatalog(), getSource().getDefaultSchemaName(), 
+                                                tableName, new String[] { "TABLE" });
+        try {
+            while (rs.next()) {
+                if (HiLoSequence.TABLE_COMMENT.equals(rs.getString("REMARKS"))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        finally {
+            rs.close();
+        }
+    }
+
     /**
      * Get a list of table names available mapped to row counts
      */
@@ -510,10 +1009,17 @@ public class MigrateData extends AbstractChange {
     }
 
     protected Map<String, Integer> getColumnMap(final String tableName) throws LiquibaseException {
-        final JdbcConnection targetDb = (JdbcConnection) target.getConnection();
-        final JdbcConnection sourceDb = (JdbcConnection) source.getConnection();
+        return getColumnMap(((JdbcConnection) target.getConnection()).getUnderlyingConnection(), tableName);
+    }
+
+    /**
+     * Get the column names of a target table mapped to their {@link Types}
+     *
+     * @param targetDb connection to the target to read the columns with
+     * @param tableName table to get columns for
+     */
+    protected Map<String, Integer> getColumnMap(final Connection targetDb, final String tableName) throws LiquibaseException {
         final Map<String,Integer> retval = new HashMap<String,Integer>();
-        final Collection<String> toRemove = new LinkedList<String>();
         try {
             final Statement state = targetDb.createStatement();                
             final ResultSet altResults = state.executeQuery("select * from " + tableName + " where 1 = 0");
@@ -529,28 +1035,6 @@ public class MigrateData extends AbstractChange {
         catch (Exception e) {
             throw new LiquibaseException(e.getMessage(), e);
         }
-
-        for (final String column : retval.keySet()) {
-            try {
-                final Statement state = targetDb.createStatement();                
-                final ResultSet altResults = state.executeQuery("select * from " + tableName + " where 1 = 0");
-                final ResultSetMetaData metadata = altResults.getMetaData();
-
-                for (int i = 1; i <= metadata.getColumnCount(); i++) {
-                    retval.put(metadata.getColumnName(i),
-                               metadata.getColumnType(i));
-                }
-                altResults.close();
-                state.close();
-            }
-            catch (Exception e) {
-                throw new LiquibaseException(e.getMessage(), e);
-            }
-        }
-
-        for (final String column : toRemove) {
-            retval.remove(column);
-        }
         
         return retval;
     }
@@ -610,7 +1094,7 @@ public class MigrateData extends AbstractChange {
     }
 
     private class ProgressObservable extends Observable {
-        public void incrementRecord() {
+        public synchronized void incrementRecord() {
             setChanged();
             notifyObservers();
             clearChanged();
@@ -679,6 +1163,205 @@ public class MigrateData extends AbstractChange {
 	return "";
     }
 
+    /**
+     * Get the planOnly attribute on this object
+     *
+     * @return planOnly value
+     */
+    public boolean isPlanOnly() {
+        return this.planOnly;
+    }
+
+    /**
+     * Set the planOnly attribute on this object. When set, nothing is migrated. A {@link MigrationPlan} is printed
+     * instead.
+     *
+     * @param planOnly value to set
+     */
+    public void setPlanOnly(final boolean planOnly) {
+        this.planOnly = planOnly;
+    }
+
+    /**
+     * Get the planSchema attribute on this object
+     *
+     * @return planSchema value
+     */
+    public String getPlanSchema() {
+        return this.planSchema;
+    }
+
+    /**
+     * Set the planSchema attribute on this object. This is a scratch schema on the target with the same tables
+     * to copy samples into while planning.
+     *
+     * @param planSchema value to set
+     */
+    public void setPlanSchema(final String planSchema) {
+        this.planSchema = planSchema;
+    }
+
+    /**
+     * Get the planSampleSize attribute on this object
+     *
+     * @return planSampleSize value
+     */
+    public int getPlanSampleSize() {
+        return this.planSampleSize;
+    }
+
+    /**
+     * Set the planSampleSize attribute on this object
+     *
+     * @param planSampleSize most rows to copy from each sampled table
+     */
+    public void setPlanSampleSize(final int planSampleSize) {
+        this.planSampleSize = planSampleSize;
+    }
+
+    /**
+     * Get the fetchSize attribute on this object
+     *
+     * @return fetchSize value
+     */
+    public int getFetchSize() {
+        return this.fetchSize;
+    }
+
+    /**
+     * Set the fetchSize attribute on this object
+     *
+     * @param fetchSize rows read from the source per round trip. 0 leaves the driver's default.
+     */
+    public void setFetchSize(final int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Get the consistency attribute on this object
+     *
+     * @return consistency value
+     */
+    public String getConsistency() {
+        return this.consistency;
+    }
+
+    /**
+     * Set the consistency attribute on this object. Either <code>none</code> (the default) or <code>snapshot</code>
+     * to read every table as of the same point in time. See {@link SnapshotStrategy} for how each database does this.
+     *
+     * @param consistency value to set
+     */
+    public void setConsistency(final String consistency) {
+        this.consistency = consistency;
+    }
+
+    /**
+     * Get the transformFile attribute on this object
+     *
+     * @return transformFile value
+     */
+    public String getTransformFile() {
+        return this.transformFile;
+    }
+
+    /**
+     * Set the transformFile attribute on this object. This is the properties file describing which
+     * {@link RowTransformer}s to run on which columns. See {@link TransformerRegistry}.
+     *
+     * @param transformFile value to set
+     */
+    public void setTransformFile(final String transformFile) {
+        this.transformFile = transformFile;
+        this.transformerRegistry = null;
+    }
+
+    /**
+     * Lazily loads the {@link TransformerRegistry} from the transformFile
+     *
+     * @return the registry or <code>null</code> when no transforms are configured
+     */
+    protected TransformerRegistry getTransformerRegistry() throws LiquibaseException {
+        if (transformerRegistry == null && transformFile != null) {
+            transformerRegistry = TransformerRegistry.load(transformFile);
+        }
+        return transformerRegistry;
+    }
+
+    /**
+     * Get the threads attribute on this object
+     *
+     * @return threads value
+     */
+    public int getThreads() {
+        return this.threads;
+    }
+
+    /**
+     * Set the threads attribute on this object. This is the number of tables copied at once, and also sizes the
+     * source and target connection pools.
+     *
+     * @param threads value to set
+     */
+    public void setThreads(final int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Get the targetUrl attribute on this object
+     *
+     * @return targetUrl value
+     */
+    public String getTargetUrl() {
+        return this.targetUrl;
+    }
+
+    /**
+     * Set the targetUrl attribute on this object. When it is not set, all writes share the connection liquibase
+     * opened for the target.
+     *
+     * @param targetUrl value to set
+     */
+    public void setTargetUrl(final String targetUrl) {
+        this.targetUrl = targetUrl;
+    }
+
+    /**
+     * Get the targetUser attribute on this object
+     *
+     * @return targetUser value
+     */
+    public String getTargetUser() {
+        return this.targetUser;
+    }
+
+    /**
+     * Set the targetUser attribute on this object
+     *
+     * @param targetUser value to set
+     */
+    public void setTargetUser(final String targetUser) {
+        this.targetUser = targetUser;
+    }
+
+    /**
+     * Get the targetPass attribute on this object
+     *
+     * @return targetPass value
+     */
+    public String getTargetPass() {
+        return this.targetPass;
+    }
+
+    /**
+     * Set the targetPass attribute on this object
+     *
+     * @param targetPass value to set
+     */
+    public void setTargetPass(final String targetPass) {
+        this.targetPass = targetPass;
+    }
+
     /**
      * Get the sourceDriverClass attribute on this object
      *
@@ -802,7 +1485,7 @@ public class MigrateData extends AbstractChange {
      * @param target value to set
      */
     public void setTarget(final Database target) {
-        this.source = source;
+        this.target = target;
     }
 
     protected boolean isDebugEnabled() {
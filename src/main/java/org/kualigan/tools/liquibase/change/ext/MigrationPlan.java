@@ -0,0 +1,369 @@
+/*
+ * Copyright 2008 The Kuali Foundation
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.opensource.org/licenses/ecl2.php
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kualigan.tools.liquibase.change.ext;
+
+import liquibase.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimate of how long a {@link MigrateData} copy will take, built by {@link MigrateData#plan()}. Tables are grouped
+ * into classes by shape (LOB, wide and narrow tables). The per-row cost of each class comes from a short sampled copy
+ * of its largest table, scaled by how many indexes each table has compared with the sampled one since every index is
+ * maintained on each insert. The estimate for a thread count comes from scheduling tables longest first onto the least
+ * busy thread, which is close to what the worker pool does. The longest table is the critical path, so no thread
+ * count can finish sooner than it. The recommended fetch size reads about {@value #FETCH_BYTES} bytes of the widest
+ * sampled rows per round trip.
+ *
+ * @author Leo Przybylski
+ */
+public class MigrationPlan {
+    public static final String LOB_CLASS    = "lob";
+    public static final String WIDE_CLASS   = "wide";
+    public static final String NARROW_CLASS = "narrow";
+
+    private static final int    WIDE_COLUMNS   = 20;
+    private static final int    MAX_THREADS    = 32;
+    private static final double GOOD_ENOUGH    = 1.1d;
+    private static final double NANOS_PER_SECOND = 1000000000d;
+    /** Share of the cost of an insert added by each index on the table */
+    private static final double INDEX_COST     = 0.25d;
+    /** Bytes each thread should read from the source per round trip */
+    public static final int     FETCH_BYTES    = 1024 * 1024;
+    private static final int    MIN_FETCH      = 10;
+    private static final int    MAX_FETCH      = 10000;
+
+    private final List<TableEstimate> tables = new ArrayList<TableEstimate>();
+    private final Map<String, Sample> samples = new HashMap<String, Sample>();
+
+    /**
+     * @return the class a table with this shape belongs to
+     */
+    public static String classify(final int columns, final int lobs) {
+        if (lobs > 0) {
+            return LOB_CLASS;
+        }
+        return columns >= WIDE_COLUMNS ? WIDE_CLASS : NARROW_CLASS;
+    }
+
+    /**
+     * Add a table to the plan
+     *
+     * @return the class of the table
+     */
+    public String addTable(final String tableName, final int rows, final int columns, final int lobs, final int indexes) {
+        final TableEstimate table = new TableEstimate(tableName, rows, columns, lobs, indexes, classify(columns, lobs));
+        tables.add(table);
+        return table.tableClass;
+    }
+
+    /**
+     * Record the result of a sampled copy for a class of tables
+     *
+     * @param tableClass class the sampled table belongs to
+     * @param rows number of rows copied
+     * @param nanos time the copy took
+     * @param bytes approximate bytes copied
+     * @param indexes number of indexes on the table the rows were copied into
+     */
+    public void addSample(final String tableClass, final int rows, final long nanos, final long bytes, final int indexes) {
+        samples.put(tableClass, new Sample(rows, nanos, bytes, indexes));
+    }
+
+    /**
+     * @return true if at least one class was sampled, so the estimates mean something
+     */
+    public boolean isSampled() {
+        for (final Sample sample : samples.values()) {
+            if (sample.rows > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the estimated time in nanoseconds to copy everything on <code>threads</code> threads
+     */
+    public long getEstimate(final int threads) {
+        long retval = 0;
+        for (final long load : schedule(threads, null)) {
+            retval = Math.max(retval, load);
+        }
+        return retval;
+    }
+
+    /**
+     * @return the table that takes longest to copy, or <code>null</code> when there are no tables
+     */
+    public TableEstimate getCriticalPath() {
+        TableEstimate retval = null;
+        for (final TableEstimate table : tables) {
+            if (retval == null || getNanos(table) > getNanos(retval)) {
+                retval = table;
+            }
+        }
+        return retval;
+    }
+
+    /**
+     * @return the fewest threads that get within 10% of the best possible time
+     */
+    public int getRecommendedThreads() {
+        final long best = getEstimate(Math.max(1, Math.min(MAX_THREADS, tables.size())));
+        for (int threads = 1; threads < MAX_THREADS; threads++) {
+            if (getEstimate(threads) <= best * GOOD_ENOUGH) {
+                return threads;
+            }
+        }
+        return MAX_THREADS;
+    }
+
+    /**
+     * Every thread holds one fetch of rows in memory, so the fetch size is picked for the widest sampled rows. About
+     * {@value #FETCH_BYTES} bytes per round trip is enough that latency stops mattering, while
+     * threads * {@value #FETCH_BYTES} bytes stays small.
+     *
+     * @return rows to read from the source per round trip, or 0 when nothing was sampled
+     */
+    public int getRecommendedFetchSize() {
+        final double widest = getWidestBytesPerRow();
+        if (widest <= 0) {
+            return 0;
+        }
+        return (int) Math.max(MIN_FETCH, Math.min(MAX_FETCH, FETCH_BYTES / widest));
+    }
+
+    /**
+     * @return the most bytes per row of any sampled class
+     */
+    protected double getWidestBytesPerRow() {
+        double retval = 0;
+        for (final Sample sample : samples.values()) {
+            retval = Math.max(retval, sample.getBytesPerRow());
+        }
+        return retval;
+    }
+
+    /**
+     * Log the estimate, a timeline for the recommended thread count and the critical path
+     */
+    public void print(final Logger log) {
+        for (final String line : getReport()) {
+            log.info(line);
+        }
+    }
+
+    /**
+     * @return the lines logged by {@link #print}
+     */
+    public List<String> getReport() {
+        final List<String> out = new ArrayList<String>();
+        final int threads = getRecommendedThreads();
+        long rows  = 0;
+        long bytes = 0;
+        for (final TableEstimate table : tables) {
+            rows += table.rows;
+            bytes += (long) (table.rows * getBytesPerRow(table));
+        }
+
+        out.add("Migration plan");
+        out.add(String.format("  %d tables, %d rows, about %d MB", tables.size(), rows, bytes / (1024 * 1024)));
+        if (!isSampled()) {
+            out.add("  No tables were sampled, so no time can be estimated. Set lb.copy.plan.schema to a scratch schema.");
+            return out;
+        }
+        for (final Map.Entry<String, Sample> entry : samples.entrySet()) {
+            final Sample sample = entry.getValue();
+            out.add(String.format("  %-6s tables: %.0f rows/sec per thread, %.0f bytes/row (sampled %d rows, %d indexes)",
+                                  entry.getKey(), sample.getRowsPerSecond(), sample.getBytesPerRow(), sample.rows, sample.indexes));
+        }
+        out.add(String.format("  Recommended threads: %d (lb.copy.threads), the fewest within 10%% of the best estimate", threads));
+        final int fetchSize = getRecommendedFetchSize();
+        out.add(String.format("  Recommended fetch size: %d rows (lb.copy.fetch), about %d KB per round trip for the widest "
+                              + "rows (%.0f bytes), so %d threads hold about %d KB", fetchSize, 
+                              (long) (fetchSize * getWidestBytesPerRow()) / 1024, getWidestBytesPerRow(), threads,
+                              (long) (threads * fetchSize * getWidestBytesPerRow()) / 1024));
+        out.add(String.format("  Estimated time: %s on %d threads, %s on 1 thread", 
+                              format(getEstimate(threads)), threads, format(getEstimate(1))));
+
+        final TableEstimate critical = getCriticalPath();
+        if (critical != null) {
+            out.add(String.format("  Critical path: %s (%d rows, %s)", critical.tableName, critical.rows, format(getNanos(critical))));
+        }
+
+        out.add("  Timeline:");
+        final List<String> timeline = new ArrayList<String>();
+        schedule(threads, timeline);
+        for (final String line : timeline) {
+            out.add("    " + line);
+        }
+        return out;
+    }
+
+    /**
+     * Schedule the tables longest first onto the least busy of <code>threads</code> threads
+     *
+     * @param timeline when not null, receives a line per table with its thread, start and end
+     * @return the total load of each thread
+     */
+    protected long[] schedule(final int threads, final List<String> timeline) {
+        final List<TableEstimate> sorted = new ArrayList<TableEstimate>(tables);
+        Collections.sort(sorted, new Comparator<TableEstimate>() {
+                public int compare(final TableEstimate a, final TableEstimate b) {
+                    final long diff = getNanos(b) - getNanos(a);
+                    return diff > 0 ? 1 : diff < 0 ? -1 : 0;
+                }
+            });
+
+        final long[] loads = new long[Math.max(1, threads)];
+        for (final TableEstimate table : sorted) {
+            int least = 0;
+            for (int i = 1; i < loads.length; i++) {
+                if (loads[i] < loads[least]) {
+                    least = i;
+                }
+            }
+            final long start = loads[least];
+            loads[least] += getNanos(table);
+            if (timeline != null) {
+                timeline.add(String.format("[%2d] %s - %s %s", least + 1, format(start), format(loads[least]), table.tableName));
+            }
+        }
+        return loads;
+    }
+
+    protected long getNanos(final TableEstimate table) {
+        final Sample sample = getSample(table.tableClass);
+        if (sample == null) {
+            return 0;
+        }
+        final double indexFactor = (1 + INDEX_COST * table.indexes) / (1 + INDEX_COST * sample.indexes);
+        return (long) (table.rows * sample.getNanosPerRow() * indexFactor);
+    }
+
+    protected double getBytesPerRow(final TableEstimate table) {
+        final Sample sample = getSample(table.tableClass);
+        return sample == null ? 0 : sample.getBytesPerRow();
+    }
+
+    /**
+     * Get the sample for a class. Classes that could not be sampled use the average of the others.
+     */
+    protected Sample getSample(final String tableClass) {
+        final Sample retval = samples.get(tableClass);
+        if (retval != null && retval.rows > 0) {
+            return retval;
+        }
+
+        int  rows    = 0;
+        long nanos   = 0;
+        long bytes   = 0;
+        int  indexes = 0;
+        for (final Sample sample : samples.values()) {
+            rows    += sample.rows;
+            nanos   += sample.nanos;
+            bytes   += sample.bytes;
+            indexes += sample.indexes;
+        }
+        return rows > 0 ? new Sample(rows, nanos, bytes, indexes / samples.size()) : null;
+    }
+
+    protected static String format(final long nanos) {
+        final long seconds = (long) (nanos / NANOS_PER_SECOND);
+        return String.format("%02d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+    }
+
+    /**
+     * What is known about a single table
+     */
+    public static class TableEstimate {
+        private final String tableName;
+        private final int    rows;
+        private final int    columns;
+        private final int    lobs;
+        private final int    indexes;
+        private final String tableClass;
+
+        public TableEstimate(final String tableName, final int rows, final int columns, 
+                             final int lobs, final int indexes, final String tableClass) {
+            this.tableName  = tableName;
+            this.rows       = rows;
+            this.columns    = columns;
+            this.lobs       = lobs;
+            this.indexes    = indexes;
+            this.tableClass = tableClass;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public int getColumns() {
+            return columns;
+        }
+
+        public int getLobs() {
+            return lobs;
+        }
+
+        public int getIndexes() {
+            return indexes;
+        }
+
+        public String getTableClass() {
+            return tableClass;
+        }
+    }
+
+    /**
+     * Result of a sampled copy
+     */
+    private static class Sample {
+        private final int  rows;
+        private final long nanos;
+        private final long bytes;
+        private final int  indexes;
+
+        public Sample(final int rows, final long nanos, final long bytes, final int indexes) {
+            this.rows    = rows;
+            this.nanos   = nanos;
+            this.bytes   = bytes;
+            this.indexes = indexes;
+        }
+
+        public double getNanosPerRow() {
+            return rows == 0 ? 0 : (double) nanos / rows;
+        }
+
+        public double getRowsPerSecond() {
+            return nanos == 0 ? 0 : rows * NANOS_PER_SECOND / nanos;
+        }
+
+        public double getBytesPerRow() {
+            return rows == 0 ? 0 : (double) bytes / rows;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2008 The Kuali Foundation
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.opensource.org/licenses/ecl2.php
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kualigan.tools.liquibase.change.ext;
+
+/**
+ * Holds the values of a single row while it is being copied from the source to the target. One buffer
+ * is created per table and reused for every row of that table, so anything working on the buffer
+ * (readers, {@link org.kualigan.tools.liquibase.change.ext.transform.RowTransformer}s, writers) should
+ * avoid holding on to its values past the current row.<br/>
+ * <br/>
+ * Integral and floating point values can be held as primitives (see {@link #getKind(int)}) so copying numbers does
+ * not box every cell. They are only boxed when something asks for them with {@link #get(int)}.
+ *
+ * @author Leo Przybylski
+ */
+public class RowBuffer {
+    /** The value is an object, or null */
+    public static final byte OBJECT = 0;
+    /** The value is held as a primitive long */
+    public static final byte LONG   = 1;
+    /** The value is held as a primitive double */
+    public static final byte DOUBLE = 2;
+
+    private final String   tableName;
+    private final String[] columnNames;
+    private final int[]    columnTypes;
+    private final Object[] values;
+    private final long[]   primitives;
+    private final byte[]   kinds;
+
+    public RowBuffer(final String tableName, final String[] columnNames, final int[] columnTypes) {
+        this.tableName   = tableName;
+        this.columnNames = columnNames;
+        this.columnTypes = columnTypes;
+        this.values      = new Object[columnNames.length];
+        this.primitives  = new long[columnNames.length];
+        this.kinds       = new byte[columnNames.length];
+    }
+
+    /**
+     * Get the name of the table this buffer holds rows for
+     *
+     * @return tableName value
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * @return the number of columns in a row
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * @param index 0-based column index
+     * @return the column name at the given index
+     */
+    public String getColumnName(final int index) {
+        return columnNames[index];
+    }
+
+    /**
+     * @param index 0-based column index
+     * @return the {@link java.sql.Types} value of the target column at the given index
+     */
+    public int getColumnType(final int index) {
+        return columnTypes[index];
+    }
+
+    /**
+     * @param index 0-based column index
+     * @return how the value is held. One of {@link #OBJECT}, {@link #LONG} or {@link #DOUBLE}
+     */
+    public byte getKind(final int index) {
+        return kinds[index];
+    }
+
+    /**
+     * Get the current value of the column as an object. Primitive values are boxed on the first call.
+     *
+     * @param index 0-based column index
+     * @return the current value of the column
+     */
+    public Object get(final int index) {
+        switch (kinds[index]) {
+        case LONG:
+            values[index] = Long.valueOf(primitives[index]);
+            kinds[index]  = OBJECT;
+            break;
+        case DOUBLE:
+            values[index] = Double.valueOf(Double.longBitsToDouble(primitives[index]));
+            kinds[index]  = OBJECT;
+            break;
+        }
+        return values[index];
+    }
+
+    /**
+     * @param index 0-based column index
+     * @param value new value for the column
+     */
+    public void set(final int index, final Object value) {
+        values[index] = value;
+        kinds[index]  = OBJECT;
+    }
+
+    /**
+     * Only valid while {@link #getKind(int)} is {@link #LONG}
+     *
+     * @param index 0-based column index
+     */
+    public long getLong(final int index) {
+        return primitives[index];
+    }
+
+    /**
+     * @param index 0-based column index
+     * @param value new value for the column
+     */
+    public void setLong(final int index, final long value) {
+        primitives[index] = value;
+        values[index]     = null;
+        kinds[index]      = LONG;
+    }
+
+    /**
+     * Only valid while {@link #getKind(int)} is {@link #DOUBLE}
+     *
+     * @param index 0-based column index
+     */
+    public double getDouble(final int index) {
+        return Double.longBitsToDouble(primitives[index]);
+    }
+
+    /**
+     * @param index 0-based column index
+     * @param value new value for the column
+     */
+    public void setDouble(final int index, final double value) {
+        primitives[index] = Double.doubleToRawLongBits(value);
+        values[index]     = null;
+        kinds[index]      = DOUBLE;
+    }
+
+    /**
+     * Drops all values so the buffer can be filled with the next row
+     */
+    public void clear() {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = null;
+            kinds[i]  = OBJECT;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2008 The Kuali Foundation
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.opensource.org/licenses/ecl2.php
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kualigan.tools.liquibase.change.ext.convert;
+
+import org.kualigan.tools.liquibase.change.ext.RowBuffer;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Moves one column from the source {@link ResultSet} into a {@link RowBuffer} and from the buffer into the target
+ * {@link PreparedStatement}. A converter is picked once per column per table by {@link ColumnConverters} from the
+ * source and target column types, so the copy loop itself never has to inspect values to decide how to bind them.
+ *
+ * @author Leo Przybylski
+ */
+public abstract class ColumnConverter {
+    protected final int targetType;
+
+    protected ColumnConverter(final int targetType) {
+        this.targetType = targetType;
+    }
+
+    /**
+     * Read the column at <code>sourceIndex</code> of the current row of <code>results</code> into the buffer
+     */
+    public abstract void read(final ResultSet results, final int sourceIndex, final RowBuffer row, final int index) throws SQLException;
+
+    /**
+     * Bind the value at <code>index</code> in the buffer to parameter <code>targetIndex</code>
+     */
+    public void write(final PreparedStatement statement, final int targetIndex, final RowBuffer row, final int index) throws SQLException {
+        switch (row.getKind(index)) {
+        case RowBuffer.LONG:
+            statement.setLong(targetIndex, row.getLong(index));
+            break;
+        case RowBuffer.DOUBLE:
+            statement.setDouble(targetIndex, row.getDouble(index));
+            break;
+        default:
+            final Object value = row.get(index);
+            if (value == null) {
+                statement.setNull(targetIndex, targetType);
+            }
+            else {
+                writeObject(statement, targetIndex, value);
+            }
+        }
+    }
+
+    /**
+     * Bind a non-null object value. Values usually come from {@link #read}, but can also be whatever a
+     * {@link org.kualigan.tools.liquibase.change.ext.transform.RowTransformer} put in the buffer.
+     */
+    protected void writeObject(final PreparedStatement statement, final int targetIndex, final Object value) throws SQLException {
+        statement.setObject(targetIndex, value);
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2008 The Kuali Foundation
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.opensource.org/licenses/ecl2.php
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kualigan.tools.liquibase.change.ext.convert;
+
+import org.kualigan.tools.liquibase.change.ext.RowBuffer;
+
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Picks the cheapest lossless {@link ColumnConverter} for each column of a table. The choice is made from the source
+ * JDBC type, precision and scale and the target JDBC type (from
+ * {@link org.kualigan.tools.liquibase.change.ext.MigrateData#getColumnMap}):
+ * <ul>
+ *   <li>Integral types, and <code>NUMERIC</code>/<code>DECIMAL</code> with a scale of 0 and at most 18 digits
+ *       (ie., Oracle <code>NUMBER(10,0)</code>), are copied as a primitive <code>long</code>. Unsigned
+ *       <code>BIGINT</code> (ie., MySQL <code>BIGINT UNSIGNED</code>) can be larger than a long and goes through
+ *       <code>getObject</code> instead.</li>
+ *   <li><code>FLOAT</code>, <code>REAL</code> and <code>DOUBLE</code> are copied as a primitive <code>double</code></li>
+ *   <li><code>DATE</code> and <code>TIMESTAMP</code> go through {@link java.sql.Timestamp}, which keeps the driver from
+ *       handing back its own types (ie., <code>oracle.sql.TIMESTAMP</code>)</li>
+ *   <li>Character types go through {@link String}</li>
+ *   <li>LOBs are streamed</li>
+ *   <li>Everything else is left to <code>getObject</code>/<code>setObject</code></li>
+ * </ul>
+ *
+ * @author Leo Przybylski
+ */
+public final class ColumnConverters {
+    /** Largest precision that always fits in a long */
+    private static final int MAX_LONG_PRECISION = 18;
+
+    private ColumnConverters() {
+    }
+
+    /**
+     * Finds where each column of <code>row</code> is in the source results
+     *
+     * @return 1-based source column indexes, indexed like <code>row</code>
+     */
+    public static int[] getSourceIndexes(final ResultSetMetaData source, final RowBuffer row) throws SQLException {
+        final Map<String, Integer> indexes = new HashMap<String, Integer>();
+        for (int i = 1; i <= source.getColumnCount(); i++) {
+            indexes.put(source.getColumnName(i).toUpperCase(), i);
+        }
+
+        final int[] retval = new int[row.size()];
+        for (int i = 0; i < retval.length; i++) {
+            final Integer index = indexes.get(row.getColumnName(i).toUpperCase());
+            if (index == null) {
+                throw new SQLException("Column " + row.getColumnName(i) + " of " + row.getTableName() + " is not in the source");
+            }
+            retval[i] = index;
+        }
+        return retval;
+    }
+
+    /**
+     * Picks a converter for each column of <code>row</code>
+     *
+     * @param source metadata of the source results
+     * @param sourceIndexes from {@link #getSourceIndexes}
+     * @param row buffer of the table being copied. Column types are the target types.
+     * @return converters indexed like <code>row</code>
+     */
+    public static ColumnConverter[] forTable(final ResultSetMetaData source, 
+                                             final int[] sourceIndexes, 
+                                             final RowBuffer row) throws SQLException {
+        final ColumnConverter[] retval = new ColumnConverter[row.size()];
+        for (int i = 0; i < retval.length; i++) {
+            final int index = sourceIndexes[i];
+            retval[i] = forColumn(source.getColumnType(index), 
+                                  source.getPrecision(index), 
+                                  source.getScale(index), 
+                                  source.isSigned(index),
+                                  row.getColumnType(i));
+        }
+        return retval;
+    }
+
+    /**
+     * Picks the converter for a single column
+     *
+     * @param sourceType {@link Types} of the source column
+     * @param precision precision of the source column
+     * @param scale scale of the source column
+     * @param targetType {@link Types} of the target column
+     */
+    public static ColumnConverter forColumn(final int sourceType, final int precision, final int scale, final int targetType) {
+        return forColumn(sourceType, precision, scale, true, targetType);
+    }
+
+    /**
+     * Picks the converter for a single column
+     *
+     * @param sourceType {@link Types} of the source column
+     * @param precision precision of the source column
+     * @param scale scale of the source column
+     * @param signed whether the source column is signed
+     * @param targetType {@link Types} of the target column
+     */
+    public static ColumnConverter forColumn(final int sourceType, final int precision, final int scale, 
+                                            final boolean signed, final int targetType) {
+        switch (sourceType) {
+        case Types.BIGINT:
+            return isNumeric(targetType) && signed ? new LongConverter(targetType) : new ObjectConverter(targetType);
+        case Types.INTEGER:
+        case Types.SMALLINT:
+        case Types.TINYINT:
+            return isNumeric(targetType) ? new LongConverter(targetType) : new ObjectConverter(targetType);
+        case Types.NUMERIC:
+        case Types.DECIMAL:
+            if (scale == 0 && precision > 0 && precision <= MAX_LONG_PRECISION && isNumeric(targetType)) {
+                return new LongConverter(targetType);
+            }
+            return new ObjectConverter(targetType);
+        case Types.FLOAT:
+        case Types.REAL:
+        case Types.DOUBLE:
+            return isNumeric(targetType) ? new DoubleConverter(targetType) : new ObjectConverter(targetType);
+        case Types.DATE:
+        case Types.TIMESTAMP:
+            return new TimestampConverter(targetType);
+        case Types.CHAR:
+        case Types.VARCHAR:
+        case Types.LONGVARCHAR:
+        case Types.NCHAR:
+        case Types.NVARCHAR:
+            return new StringConverter(targetType);
+        case Types.CLOB:
+        case Types.NCLOB:
+        case Types.BLOB:
+            return new LobConverter(targetType);
+        default:
+            return new ObjectConverter(targetType);
+        }
+    }
+
+    protected static boolean isNumeric(final int type) {
+        switch (type) {
+        case Types.BIGINT:
+        case Types.INTEGER:
+        case Types.SMALLINT:
+        case Types.TINYINT:
+        case Types.NUMERIC:
+        case Types.DECIMAL:
+        case Types.FLOAT:
+        case Types.REAL:
+        case Types.DOUBLE:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    static final class LongConverter extends ColumnConverter {
+        LongConverter(final int targetType) {
+            super(targetType);
+        }
+
+        public void read(final ResultSet results, final int sourceIndex, final RowBuffer row, final int index) throws SQLException {
+            final long value = results.getLong(sourceIndex);
+            if (results.wasNull()) {
+                row.set(index, null);
+            }
+            else {
+                row.setLong(index, value);
+            }
+        }
+    }
+
+    static final class DoubleConverter extends ColumnConverter {
+        DoubleConverter(final int targetType) {
+            super(targetType);
+        }
+
+        public void read(final ResultSet results, final int sourceIndex, final RowBuffer row, final int index) throws SQLException {
+            final double value = results.getDouble(sourceIndex);
+            if (results.wasNull()) {
+                row.set(index, null);
+            }
+            else {
+                row.setDouble(index, value);
+            }
+        }
+    }
+
+    static final class TimestampConverter extends ColumnConverter {
+        TimestampConverter(final int targetType) {
+            super(targetType);
+        }
+
+        public void read(final ResultSet results, final int sourceIndex, final RowBuffer row, final int index) throws SQLException {
+            row.set(index, results.getTimestamp(sourceIndex));
+        }
+
+        protected void writeObject(final PreparedStatement statement, final int targetIndex, final Object value) throws SQLException {
+            if (value instanceof java.sql.Timestamp) {
+                statement.setTimestamp(targetIndex, (java.sql.Timestamp) value);
+            }
+            else {
+                statement.setObject(targetIndex, value);
+            }
+        }
+    }
+
+    static final class StringConverter extends ColumnConverter {
+        StringConverter(final int targetType) {
+            super(targetType);
+        }
+
+        public void read(final ResultSet results, final int sourceIndex, final RowBuffer row, final int index) throws SQLException {
+            row.set(index, results.getString(sourceIndex));
+        }
+
+        protected void writeObject(final PreparedStatement statement, final int targetIndex, final Object value) throws SQLException {
+            if (value instanceof String) {
+                statement.setString(targetIndex, (String) value);
+            }
+            else {
+                statement.setObject(targetIndex, value);
+            }
+        }
+    }
+
+    static final class LobConverter extends ColumnConverter {
+        LobConverter(final int targetType) {
+            super(targetType);
+        }
+
+        public void read(final ResultSet results, final int sourceIndex, final RowBuffer row, final int index) throws SQLException {
+            row.set(index, results.getObject(sourceIndex));
+        }
+
+        protected void writeObject(final PreparedStatement statement, final int targetIndex, final Object value) throws SQLException {
+            if (value instanceof Clob) {
+                statement.setAsciiStream(targetIndex, ((Clob) value).getAsciiStream(), ((Clob) value).length());
+            }
+            else if (value instanceof Blob) {
+                statement.setBinaryStream(targetIndex, ((Blob) value).getBinaryStream(), ((Blob) value).length());
+            }
+            else {
+                statement.setObject(targetIndex, value);
+            }
+        }
+    }
+
+    static final class ObjectConverter extends ColumnConverter {
+        ObjectConverter(final int targetType) {
+            super(targetType);
+        }
+
+        public void read(final ResultSet results, final int sourceIndex, final RowBuffer row, final int index) throws SQLException {
+            row.set(index, results.getObject(sourceIndex));
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2008 The Kuali Foundation
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.opensource.org/licenses/ecl2.php
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kualigan.tools.liquibase.change.ext.pool;
+
+import liquibase.exception.LiquibaseException;
+import liquibase.logging.LogFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Small fixed-size pool of JDBC connections for {@link org.kualigan.tools.liquibase.change.ext.MigrateData}. Connections
+ * are opened lazily up to the capacity, validated each time they are borrowed, and replaced if they went bad.<br/>
+ * <br/>
+ * A pool can also be created around a connection it does not own (ie., the one liquibase already opened for the
+ * target). Such a pool has a capacity of one and never closes that connection.
+ *
+ * @author Leo Przybylski
+ */
+public class ConnectionPool {
+    private static final int    VALIDATION_TIMEOUT = 5;
+    private static final int    MAX_RETRY          = 5;
+    private static final long   RETRY_WAIT         = 1000;
+    private static final String LOCK_FAILURE       = "Database lock acquisition failure";
+
+    private final String name;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int    capacity;
+    private final List<PooledConnection> connections;
+    private final BlockingQueue<PooledConnection> idle;
+    private boolean replaceInvalid = true;
+
+    /**
+     * Creates a pool that opens its own connections
+     *
+     * @param name used in log messages (ie., "source" or "target")
+     * @param url JDBC url
+     * @param username database user
+     * @param password database password
+     * @param driverClass JDBC driver to load, or <code>null</code> if the driver registers itself
+     * @param capacity most connections the pool will open
+     */
+    public ConnectionPool(final String name,
+                          final String url,
+                          final String username,
+                          final String password,
+                          final String driverClass,
+                          final int capacity) throws LiquibaseException {
+        this.name        = name;
+        this.url         = url;
+        this.username    = username;
+        this.password    = password;
+        this.capacity    = Math.max(1, capacity);
+        this.connections = new ArrayList<PooledConnection>(this.capacity);
+        this.idle        = new LinkedBlockingQueue<PooledConnection>();
+
+        if (driverClass != null) {
+            try {
+                Class.forName(driverClass);
+            }
+            catch (ClassNotFoundException e) {
+                throw new LiquibaseException("Could not load driver " + driverClass, e);
+            }
+        }
+    }
+
+    /**
+     * Creates a pool of one around a connection someone else owns
+     *
+     * @param name used in log messages
+     * @param connection connection to hand out
+     */
+    public ConnectionPool(final String name, final Connection connection) {
+        this.name        = name;
+        this.url         = null;
+        this.username    = null;
+        this.password    = null;
+        this.capacity    = 1;
+        this.connections = new ArrayList<PooledConnection>(1);
+        this.idle        = new LinkedBlockingQueue<PooledConnection>();
+
+        final PooledConnection pooled = new PooledConnection(connection, false);
+        connections.add(pooled);
+        idle.add(pooled);
+    }
+
+    /**
+     * Open a connection, retrying when the database reports a lock acquisition failure (common with embedded
+     * databases that are still being released by another process).
+     */
+    public static Connection connect(final String url, final String username, final String password) throws LiquibaseException {
+        int retry_count = 0;
+        while (true) {
+            try {
+                final Connection retval = DriverManager.getConnection(url, username, password);
+                retval.setAutoCommit(true);
+                return retval;
+            }
+            catch (SQLException e) {
+                retry_count++;
+                if (retry_count >= MAX_RETRY || e.getMessage() == null || !e.getMessage().contains(LOCK_FAILURE)) {
+                    throw new LiquibaseException(e.getMessage(), e);
+                }
+            }
+
+            try {
+                Thread.sleep(RETRY_WAIT * retry_count);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new LiquibaseException("Interrupted while connecting to " + url, e);
+            }
+        }
+    }
+
+    /**
+     * @return the most connections this pool hands out at once
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Whether connections that fail validation are silently replaced. Turned off while readers are pinned to a
+     * snapshot, since a replacement would not see the same snapshot.
+     */
+    public void setReplaceInvalid(final boolean replaceInvalid) {
+        this.replaceInvalid = replaceInvalid;
+    }
+
+    /**
+     * Opens connections up to the capacity and returns all of them. The connections remain available to borrow.
+     *
+     * @return every connection in the pool
+     */
+    public synchronized List<PooledConnection> fill() throws LiquibaseException {
+        while (connections.size() < capacity) {
+            idle.add(open());
+        }
+        return new ArrayList<PooledConnection>(connections);
+    }
+
+    /**
+     * Borrow a connection, waiting for one to be released if all are in use
+     *
+     * @return a validated connection. Must be given back with {@link #release(PooledConnection)}
+     */
+    public PooledConnection borrow() throws LiquibaseException {
+        PooledConnection retval = idle.poll();
+        if (retval == null) {
+            synchronized (this) {
+                if (connections.size() < capacity) {
+                    retval = open();
+                }
+            }
+        }
+
+        try {
+            if (retval == null) {
+                retval = idle.take();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LiquibaseException("Interrupted waiting for a " + name + " connection", e);
+        }
+
+        if (!retval.isValid(VALIDATION_TIMEOUT)) {
+            retval = replace(retval);
+        }
+        return retval;
+    }
+
+    /**
+     * Give a borrowed connection back to the pool
+     */
+    public void release(final PooledConnection connection) {
+        if (connection != null) {
+            idle.add(connection);
+        }
+    }
+
+    /**
+     * Closes every connection the pool opened
+     */
+    public synchronized void close() {
+        for (final PooledConnection connection : connections) {
+            connection.close();
+        }
+        connections.clear();
+        idle.clear();
+    }
+
+    protected synchronized PooledConnection open() throws LiquibaseException {
+        if (url == null) {
+            throw new LiquibaseException("Cannot open more " + name + " connections without a url");
+        }
+        LogFactory.getLogger().debug("Opening " + name + " connection " + (connections.size() + 1) + " of " + capacity);
+        final PooledConnection retval = new PooledConnection(connect(url, username, password), true);
+        connections.add(retval);
+        return retval;
+    }
+
+    protected synchronized PooledConnection replace(final PooledConnection invalid) throws LiquibaseException {
+        if (!replaceInvalid || !invalid.isOwned()) {
+            throw new LiquibaseException("Lost " + name + " connection");
+        }
+        LogFactory.getLogger().warning("Replacing invalid " + name + " connection");
+        connections.remove(invalid);
+        invalid.close();
+        return open();
+    }
+}
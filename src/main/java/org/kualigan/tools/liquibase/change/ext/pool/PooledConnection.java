@@ -0,0 +1,138 @@
+/*
+ * Copyright 2008 The Kuali Foundation
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.opensource.org/licenses/ecl2.php
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kualigan.tools.liquibase.change.ext.pool;
+
+import liquibase.logging.LogFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link Connection} handed out by a {@link ConnectionPool}. Keeps its own cache of {@link PreparedStatement}s so
+ * a worker that copies many tables over the same connection only prepares each insert once.
+ *
+ * @author Leo Przybylski
+ */
+public class PooledConnection {
+    private static final int STATEMENT_CACHE_SIZE = 64;
+
+    private final Connection connection;
+    private final boolean    owned;
+    private final Map<String, PreparedStatement> statements;
+
+    /**
+     * @param connection the physical connection
+     * @param owned true if the pool opened the connection and is responsible for closing it
+     */
+    public PooledConnection(final Connection connection, final boolean owned) {
+        this.connection = connection;
+        this.owned      = owned;
+        this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(final Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > STATEMENT_CACHE_SIZE) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return the physical connection
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Gets a prepared statement for <code>sql</code> from the cache, preparing it on first use. Parameters are cleared
+     * before the statement is returned. Statements from the cache must not be closed by the caller.
+     *
+     * @param sql statement to prepare
+     * @return a cached {@link PreparedStatement}
+     */
+    public PreparedStatement prepareStatement(final String sql) throws SQLException {
+        PreparedStatement retval = statements.get(sql);
+        if (retval == null) {
+            retval = connection.prepareStatement(sql);
+            statements.put(sql, retval);
+        }
+        else {
+            retval.clearParameters();
+        }
+        return retval;
+    }
+
+    /**
+     * Checks the connection is still usable. Falls back to {@link Connection#isClosed()} for drivers older than JDBC 4.
+     *
+     * @param timeout seconds to wait for the database to respond
+     */
+    public boolean isValid(final int timeout) {
+        try {
+            return connection.isValid(timeout);
+        }
+        catch (AbstractMethodError e) {
+            try {
+                return !connection.isClosed();
+            }
+            catch (SQLException sqle) {
+                return false;
+            }
+        }
+        catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return true if the pool opened this connection
+     */
+    public boolean isOwned() {
+        return owned;
+    }
+
+    /**
+     * Closes all cached statements, and the connection itself if the pool opened it
+     */
+    public void close() {
+        for (final PreparedStatement statement : statements.values()) {
+            closeQuietly(statement);
+        }
+        statements.clear();
+
+        if (owned) {
+            try {
+                connection.close();
+            }
+            catch (SQLException e) {
+                LogFactory.getLogger().debug("Error closing pooled connection: " + e.getMessage());
+            }
+        }
+    }
+
+    protected static void closeQuietly(final PreparedStatement statement) {
+        try {
+            statement.close();
+        }
+        catch (SQLException e) {
+        }
+    }
+}
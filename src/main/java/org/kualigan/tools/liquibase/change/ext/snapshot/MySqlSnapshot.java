@@ -0,0 +1,76 @@
+/*
+ * Copyright 2008 The Kuali Foundation
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.opensource.org/licenses/ecl2.php
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kualigan.tools.liquibase.change.ext.snapshot;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts a consistent snapshot transaction on every reader while a global read lock keeps the source from changing.
+ * This is the same approach <code>mysqldump --single-transaction --master-data</code> uses. The lock is only held
+ * long enough to start the reader transactions. Only InnoDB tables are covered by the snapshot.
+ *
+ * @author Leo Przybylski
+ */
+public class MySqlSnapshot extends SnapshotStrategy {
+    private static final String LOCK_STATEMENT     = "FLUSH TABLES WITH READ LOCK";
+    private static final String UNLOCK_STATEMENT   = "UNLOCK TABLES";
+    private static final String SNAPSHOT_STATEMENT = "START TRANSACTION WITH CONSISTENT SNAPSHOT";
+
+    private final List<Connection> pinned = new ArrayList<Connection>();
+
+    public void begin(final Connection coordinator, final List<Connection> readers) throws SQLException {
+        execute(coordinator, LOCK_STATEMENT);
+        try {
+            for (final Connection reader : readers) {
+                reader.setAutoCommit(false);
+                pinned.add(reader);
+                reader.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                execute(reader, SNAPSHOT_STATEMENT);
+            }
+        }
+        finally {
+            execute(coordinator, UNLOCK_STATEMENT);
+        }
+    }
+
+    public void end() throws SQLException {
+        try {
+            SQLException error = null;
+            for (final Connection reader : pinned) {
+                try {
+                    release(reader);
+                }
+                catch (SQLException e) {
+                    error = e;
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+        }
+        finally {
+            pinned.clear();
+        }
+    }
+
+    @Override
+    public boolean isActive() {
+        return !pinned.isEmpty();
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2008 The Kuali Foundation
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.opensource.org/licenses/ecl2.php
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kualigan.tools.liquibase.change.ext.snapshot;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Default strategy. Each reader sees whatever is committed when it reads a table.
+ *
+ * @author Leo Przybylski
+ */
+public class NoSnapshot extends SnapshotStrategy {
+
+    public void begin(final Connection coordinator, final List<Connection> readers) throws SQLException {
+    }
+
+    public void end() throws SQLException {
+    }
+}
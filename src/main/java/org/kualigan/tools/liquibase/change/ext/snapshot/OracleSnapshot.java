@@ -0,0 +1,80 @@
+/*
+ * Copyright 2008 The Kuali Foundation
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.opensource.org/licenses/ecl2.php
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kualigan.tools.liquibase.change.ext.snapshot;
+
+import liquibase.logging.LogFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Reads every table with a flashback query as of the SCN current when the snapshot began. Readers need no setup,
+ * but the source must keep enough undo (<code>UNDO_RETENTION</code>) to cover the whole copy.
+ *
+ * @author Leo Przybylski
+ */
+public class OracleSnapshot extends SnapshotStrategy {
+    private static final String[] SCN_QUERIES = new String[] {
+        "select current_scn from v$database",
+        "select dbms_flashback.get_system_change_number from dual"
+    };
+    private static final String FLASHBACK_QUERY = "select * from %s as of scn %d";
+
+    private long scn = -1;
+
+    public void begin(final Connection coordinator, final List<Connection> readers) throws SQLException {
+        SQLException lastError = null;
+        for (final String query : SCN_QUERIES) {
+            try {
+                scn = querySCN(coordinator, query);
+                LogFactory.getLogger().info("Reading source as of SCN " + scn);
+                return;
+            }
+            catch (SQLException e) {
+                // Usually missing privileges on v$database. Try the next one.
+                lastError = e;
+            }
+        }
+        throw lastError;
+    }
+
+    public void end() throws SQLException {
+        scn = -1;
+    }
+
+    @Override
+    public String getSelectQuery(final String tableName) {
+        if (scn < 0) {
+            return super.getSelectQuery(tableName);
+        }
+        return String.format(FLASHBACK_QUERY, tableName, scn);
+    }
+
+    protected long querySCN(final Connection conn, final String query) throws SQLException {
+        final Statement statement = conn.createStatement();
+        try {
+            final ResultSet results = statement.executeQuery(query);
+            results.next();
+            return results.getLong(1);
+        }
+        finally {
+            statement.close();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2008 The Kuali Foundation
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.opensource.org/licenses/ecl2.php
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kualigan.tools.liquibase.change.ext.snapshot;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exports the coordinator's snapshot and imports it into every reader (PostgreSQL 9.2 and later). The coordinator
+ * stays in its transaction until {@link #end()} so the snapshot remains importable.
+ *
+ * @author Leo Przybylski
+ */
+public class PostgresSnapshot extends SnapshotStrategy {
+    private static final String ISOLATION_STATEMENT = "SET TRANSACTION ISOLATION LEVEL REPEATABLE READ";
+    private static final String EXPORT_QUERY        = "select pg_export_snapshot()";
+    private static final String IMPORT_STATEMENT    = "SET TRANSACTION SNAPSHOT '%s'";
+
+    private final List<Connection> pinned = new ArrayList<Connection>();
+
+    public void begin(final Connection coordinator, final List<Connection> readers) throws SQLException {
+        coordinator.setAutoCommit(false);
+        pinned.add(coordinator);
+        execute(coordinator, ISOLATION_STATEMENT);
+
+        String snapshotId = null;
+        final Statement statement = coordinator.createStatement();
+        try {
+            final ResultSet results = statement.executeQuery(EXPORT_QUERY);
+            results.next();
+            snapshotId = results.getString(1);
+        }
+        finally {
+            statement.close();
+        }
+
+        for (final Connection reader : readers) {
+            if (reader == coordinator) {
+                continue;
+            }
+            reader.setAutoCommit(false);
+            pinned.add(reader);
+            execute(reader, ISOLATION_STATEMENT);
+            execute(reader, String.format(IMPORT_STATEMENT, snapshotId));
+        }
+    }
+
+    public void end() throws SQLException {
+        try {
+            SQLException error = null;
+            for (final Connection reader : pinned) {
+                try {
+                    release(reader);
+                }
+                catch (SQLException e) {
+                    error = e;
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+        }
+        finally {
+            pinned.clear();
+        }
+    }
+
+    @Override
+    public boolean isActive() {
+        return !pinned.isEmpty();
+    }
+}
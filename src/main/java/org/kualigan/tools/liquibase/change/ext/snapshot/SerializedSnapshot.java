@@ -0,0 +1,64 @@
+/*
+ * Copyright 2008 The Kuali Foundation
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.opensource.org/licenses/ecl2.php
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kualigan.tools.liquibase.change.ext.snapshot;
+
+import liquibase.logging.LogFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Fallback for databases that cannot share a snapshot between connections, which includes the embedded ones (H2,
+ * HSQL, Derby). Every table is read over a single connection inside one <code>SERIALIZABLE</code> transaction, so the
+ * copy is consistent but reads are not parallel. Any readers after the first are left alone and must not be used.
+ * For embedded databases this costs little, since the source is rarely live while it is copied.
+ *
+ * @author Leo Przybylski
+ */
+public class SerializedSnapshot extends SnapshotStrategy {
+    private Connection reader;
+
+    public void begin(final Connection coordinator, final List<Connection> readers) throws SQLException {
+        if (readers.size() > 1) {
+            LogFactory.getLogger().warning("Source cannot share snapshots. Reading with a single connection");
+        }
+        reader = readers.isEmpty() ? coordinator : readers.get(0);
+        reader.setAutoCommit(false);
+        reader.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+    }
+
+    public void end() throws SQLException {
+        if (reader != null) {
+            try {
+                release(reader);
+            }
+            finally {
+                reader = null;
+            }
+        }
+    }
+
+    @Override
+    public int getMaxReaders() {
+        return 1;
+    }
+
+    @Override
+    public boolean isActive() {
+        return reader != null;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2008 The Kuali Foundation
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.opensource.org/licenses/ecl2.php
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kualigan.tools.liquibase.change.ext.snapshot;
+
+import liquibase.database.Database;
+import liquibase.database.core.MySQLDatabase;
+import liquibase.database.core.OracleDatabase;
+import liquibase.database.core.PostgresDatabase;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Pins every connection reading from the source to the same point in time, so tables copied over several
+ * connections are consistent with each other even when the source is live. Each database does this differently:
+ * <ul>
+ *   <li>Oracle - every query is a flashback query <code>AS OF SCN</code> the SCN captured in {@link #begin}</li>
+ *   <li>MySQL - all readers <code>START TRANSACTION WITH CONSISTENT SNAPSHOT</code> while the coordinator holds
+ *       <code>FLUSH TABLES WITH READ LOCK</code>. The lock is released as soon as the last reader has started.</li>
+ *   <li>PostgreSQL - the coordinator exports its snapshot with <code>pg_export_snapshot()</code> and every reader
+ *       imports it with <code>SET TRANSACTION SNAPSHOT</code></li>
+ *   <li>Everything else (H2, HSQL, Derby, ...) - there is no way to share a snapshot between connections, so reads
+ *       are serialized over a single connection inside one <code>SERIALIZABLE</code> transaction. See
+ *       {@link #getMaxReaders()}.</li>
+ * </ul>
+ *
+ * @author Leo Przybylski
+ */
+public abstract class SnapshotStrategy {
+    public static final String NONE     = "none";
+    public static final String SNAPSHOT = "snapshot";
+
+    private static final String SELECT_ALL_QUERY = "select * from %s";
+
+    /**
+     * Chooses the strategy for the source database
+     *
+     * @param source database being read
+     * @param mode either {@link #NONE} or {@link #SNAPSHOT}. <code>null</code> is treated as {@link #NONE}
+     * @return a strategy. Never <code>null</code>
+     */
+    public static SnapshotStrategy forDatabase(final Database source, final String mode) {
+        if (mode == null || NONE.equalsIgnoreCase(mode)) {
+            return new NoSnapshot();
+        }
+        if (!SNAPSHOT.equalsIgnoreCase(mode)) {
+            throw new IllegalArgumentException("Unknown consistency mode " + mode);
+        }
+
+        if (source instanceof OracleDatabase) {
+            return new OracleSnapshot();
+        }
+        else if (source instanceof MySQLDatabase) {
+            return new MySqlSnapshot();
+        }
+        else if (source instanceof PostgresDatabase) {
+            return new PostgresSnapshot();
+        }
+        return new SerializedSnapshot();
+    }
+
+    /**
+     * Pins all the readers to one snapshot.
+     *
+     * @param coordinator connection used to establish the snapshot. It may also be one of the readers.
+     * @param readers every connection that will read from the source
+     */
+    public abstract void begin(final Connection coordinator, final List<Connection> readers) throws SQLException;
+
+    /**
+     * Releases the snapshot on all connections given to {@link #begin}
+     */
+    public abstract void end() throws SQLException;
+
+    /**
+     * @return the most connections that can read in parallel under this strategy
+     */
+    public int getMaxReaders() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return true when readers are inside a snapshot transaction and must not be committed between tables
+     */
+    public boolean isActive() {
+        return false;
+    }
+
+    /**
+     * @param tableName table to read
+     * @return the query used to read all rows of <code>tableName</code> under this snapshot
+     */
+    public String getSelectQuery(final String tableName) {
+        return String.format(SELECT_ALL_QUERY, tableName);
+    }
+
+    protected void execute(final Connection conn, final String sql) throws SQLException {
+        final Statement statement = conn.createStatement();
+        try {
+            statement.execute(sql);
+        }
+        finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Ends the transaction a reader was pinned to and puts it back into auto-commit
+     */
+    protected void release(final Connection conn) throws SQLException {
+        try {
+            conn.rollback();
+        }
+        finally {
+            conn.setAutoCommit(true);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2008 The Kuali Foundation
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.opensource.org/licenses/ecl2.php
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kualigan.tools.liquibase.change.ext.throttle;
+
+import liquibase.exception.LiquibaseException;
+import liquibase.logging.LogFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Caps how fast {@link org.kualigan.tools.liquibase.change.ext.MigrateData} reads from the source, in rows and bytes
+ * per second, both globally and per table. All workers draw from the same {@link TokenBucket}s. Limits are read from
+ * system properties:
+ * <pre>
+ * lb.copy.throttle.rows=50000
+ * lb.copy.throttle.bytes=20000000
+ * lb.copy.throttle.rows.ACCOUNT=5000
+ * lb.copy.throttle.bytes.DOCUMENT=1000000
+ * </pre>
+ * and can be changed at runtime through the <code>org.kualigan.liquibase:type=MigrationThrottle</code> MBean.
+ *
+ * @author Leo Przybylski
+ */
+public class MigrationThrottle implements MigrationThrottleMBean {
+    public static final String OBJECT_NAME  = "org.kualigan.liquibase:type=MigrationThrottle";
+    public static final String ROWS_PREFIX  = "lb.copy.throttle.rows";
+    public static final String BYTES_PREFIX = "lb.copy.throttle.bytes";
+
+    private final TokenBucket rows;
+    private final TokenBucket bytes;
+    private final Map<String, TokenBucket> tableRows  = new HashMap<String, TokenBucket>();
+    private final Map<String, TokenBucket> tableBytes = new HashMap<String, TokenBucket>();
+    private ObjectName registeredName;
+    private volatile boolean limited;
+    private volatile boolean limitingBytes;
+
+    public MigrationThrottle(final long rowsPerSecond, final long bytesPerSecond) {
+        this.rows  = new TokenBucket(rowsPerSecond);
+        this.bytes = new TokenBucket(bytesPerSecond);
+        updateLimits();
+    }
+
+    /**
+     * Create a throttle from the <code>lb.copy.throttle.*</code> properties
+     */
+    public static MigrationThrottle fromProperties(final Properties properties) {
+        final MigrationThrottle retval = new MigrationThrottle(getLong(properties, ROWS_PREFIX), 
+                                                               getLong(properties, BYTES_PREFIX));
+        for (final String key : properties.stringPropertyNames()) {
+            if (key.startsWith(ROWS_PREFIX + ".")) {
+                retval.setTableRowsPerSecond(key.substring(ROWS_PREFIX.length() + 1), getLong(properties, key));
+            }
+            else if (key.startsWith(BYTES_PREFIX + ".")) {
+                retval.setTableBytesPerSecond(key.substring(BYTES_PREFIX.length() + 1), getLong(properties, key));
+            }
+        }
+        return retval;
+    }
+
+    /**
+     * Block until <code>rowCount</code> rows totalling <code>byteCount</code> bytes of <code>tableName</code> may be copied.
+     */
+    public void acquire(final String tableName, final int rowCount, final long byteCount) throws InterruptedException {
+        rows.acquire(rowCount);
+        final TokenBucket tableRowBucket = getBucket(tableRows, tableName);
+        if (tableRowBucket != null) {
+            tableRowBucket.acquire(rowCount);
+        }
+
+        if (byteCount > 0) {
+            bytes.acquire(byteCount);
+            final TokenBucket tableByteBucket = getBucket(tableBytes, tableName);
+            if (tableByteBucket != null) {
+                tableByteBucket.acquire(byteCount);
+            }
+        }
+    }
+
+    /**
+     * @return true if any limit is set. Does not lock, so it is cheap enough to call per row.
+     */
+    public boolean isLimited() {
+        return limited;
+    }
+
+    /**
+     * @return true if any byte limit is set, meaning callers have to measure the rows they copy
+     */
+    public boolean isLimitingBytes() {
+        return limitingBytes;
+    }
+
+    /**
+     * Recompute the flags read by {@link #isLimited()} and {@link #isLimitingBytes()} after a limit changes
+     */
+    protected synchronized void updateLimits() {
+        limitingBytes = !tableBytes.isEmpty() || bytes.isLimited();
+        limited       = limitingBytes || !tableRows.isEmpty() || rows.isLimited();
+    }
+
+    /**
+     * Register with the platform MBean server so limits can be changed through JMX
+     */
+    public void register() throws LiquibaseException {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+            registeredName = name;
+        }
+        catch (Exception e) {
+            throw new LiquibaseException("Could not register " + OBJECT_NAME, e);
+        }
+    }
+
+    public void unregister() {
+        if (registeredName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+        }
+        catch (Exception e) {
+            LogFactory.getLogger().debug("Could not unregister " + registeredName + ": " + e.getMessage());
+        }
+        registeredName = null;
+    }
+
+    public long getRowsPerSecond() {
+        return rows.getRate();
+    }
+
+    public void setRowsPerSecond(final long rowsPerSecond) {
+        rows.setRate(rowsPerSecond);
+        updateLimits();
+    }
+
+    public long getBytesPerSecond() {
+        return bytes.getRate();
+    }
+
+    public void setBytesPerSecond(final long bytesPerSecond) {
+        bytes.setRate(bytesPerSecond);
+        updateLimits();
+    }
+
+    public long getTableRowsPerSecond(final String tableName) {
+        final TokenBucket bucket = getBucket(tableRows, tableName);
+        return bucket == null ? 0 : bucket.getRate();
+    }
+
+    public void setTableRowsPerSecond(final String tableName, final long rowsPerSecond) {
+        setBucket(tableRows, tableName, rowsPerSecond);
+    }
+
+    public long getTableBytesPerSecond(final String tableName) {
+        final TokenBucket bucket = getBucket(tableBytes, tableName);
+        return bucket == null ? 0 : bucket.getRate();
+    }
+
+    public void setTableBytesPerSecond(final String tableName, final long bytesPerSecond) {
+        setBucket(tableBytes, tableName, bytesPerSecond);
+    }
+
+    protected synchronized TokenBucket getBucket(final Map<String, TokenBucket> buckets, final String tableName) {
+        return buckets.isEmpty() ? null : buckets.get(tableName.toUpperCase());
+    }
+
+    protected synchronized void setBucket(final Map<String, TokenBucket> buckets, final String tableName, final long rate) {
+        final String key = tableName.toUpperCase();
+        if (rate <= 0) {
+            buckets.remove(key);
+        }
+        else if (buckets.containsKey(key)) {
+            buckets.get(key).setRate(rate);
+        }
+        else {
+            buckets.put(key, new TokenBucket(rate));
+        }
+        updateLimits();
+    }
+
+    protected static long getLong(final Properties properties, final String key) {
+        final String value = properties.getProperty(key);
+        if (value == null || value.trim().length() == 0) {
+            return 0;
+        }
+        return Long.parseLong(value.trim());
+    }
+}
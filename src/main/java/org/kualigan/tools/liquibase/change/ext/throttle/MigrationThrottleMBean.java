@@ -0,0 +1,40 @@
+/*
+ * Copyright 2008 The Kuali Foundation
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.opensource.org/licenses/ecl2.php
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kualigan.tools.liquibase.change.ext.throttle;
+
+/**
+ * JMX view of a {@link MigrationThrottle} so limits can be changed while a migration is running. A limit of zero or
+ * less means unlimited.
+ *
+ * @author Leo Przybylski
+ */
+public interface MigrationThrottleMBean {
+    long getRowsPerSecond();
+
+    void setRowsPerSecond(final long rowsPerSecond);
+
+    long getBytesPerSecond();
+
+    void setBytesPerSecond(final long bytesPerSecond);
+
+    long getTableRowsPerSecond(final String tableName);
+
+    void setTableRowsPerSecond(final String tableName, final long rowsPerSecond);
+
+    long getTableBytesPerSecond(final String tableName);
+
+    void setTableBytesPerSecond(final String tableName, final long bytesPerSecond);
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2008 The Kuali Foundation
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.opensource.org/licenses/ecl2.php
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kualigan.tools.liquibase.change.ext.throttle;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket shared by every thread that draws from it. The bucket refills at <code>rate</code> tokens per
+ * second and holds at most one second worth of tokens, so short bursts are allowed but the average never exceeds
+ * the rate. Callers may overdraw the bucket. They then sleep until the debt is paid back, outside the lock, so other
+ * threads and rate changes are never blocked by a sleeping thread.
+ *
+ * @author Leo Przybylski
+ */
+public class TokenBucket {
+    private static final double NANOS_PER_SECOND = 1000000000d;
+
+    private volatile double rate;
+    private double tokens;
+    private long   last;
+
+    /**
+     * @param rate tokens per second. Zero or less means unlimited.
+     */
+    public TokenBucket(final long rate) {
+        this.last = System.nanoTime();
+        setRate(rate);
+    }
+
+    /**
+     * @return tokens per second. Zero or less means unlimited.
+     */
+    public synchronized long getRate() {
+        return (long) rate;
+    }
+
+    /**
+     * Change the rate. Takes effect for the next caller.
+     *
+     * @param rate tokens per second. Zero or less means unlimited.
+     */
+    public synchronized void setRate(final long rate) {
+        refill(System.nanoTime());
+        this.rate   = rate;
+        this.tokens = Math.max(0, Math.min(tokens, rate));
+    }
+
+    /**
+     * @return true if the bucket actually limits anything
+     */
+    public boolean isLimited() {
+        return rate > 0;
+    }
+
+    /**
+     * Take <code>permits</code> tokens, sleeping as long as needed to stay within the rate
+     */
+    public void acquire(final long permits) throws InterruptedException {
+        if (rate <= 0) {
+            return;
+        }
+
+        final long waitNanos;
+        synchronized (this) {
+            if (rate <= 0) {
+                return;
+            }
+            refill(System.nanoTime());
+            tokens -= permits;
+            waitNanos = tokens < 0 ? (long) (-tokens * NANOS_PER_SECOND / rate) : 0;
+        }
+
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    private void refill(final long now) {
+        if (rate > 0) {
+            tokens = Math.min(rate, tokens + (now - last) * rate / NANOS_PER_SECOND);
+        }
+        last = now;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2008 The Kuali Foundation
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.opensource.org/licenses/ecl2.php
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kualigan.tools.liquibase.change.ext.transform;
+
+import org.kualigan.tools.liquibase.change.ext.RowBuffer;
+
+/**
+ * Replaces every non-null value with a constant. Configured as <code>constant:value</code>. The value
+ * may itself contain colons, and <code>null</code> replaces everything with <code>null</code>. Primitive cells are
+ * replaced too.
+ *
+ * @author Leo Przybylski
+ */
+public class ConstantTransformer implements RowTransformer {
+    private String constant;
+
+    public String getName() {
+        return "constant";
+    }
+
+    public void configure(final String[] arguments) {
+        if (arguments.length == 0) {
+            return;
+        }
+
+        final StringBuilder value = new StringBuilder(arguments[0]);
+        for (int i = 1; i < arguments.length; i++) {
+            value.append(':').append(arguments[i]);
+        }
+        if (!"null".equalsIgnoreCase(value.toString())) {
+            constant = value.toString();
+        }
+    }
+
+    public void transform(final RowBuffer row, final int index) {
+        if (row.getKind(index) != RowBuffer.OBJECT || row.get(index) != null) {
+            row.set(index, constant);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2008 The Kuali Foundation
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.opensource.org/licenses/ecl2.php
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kualigan.tools.liquibase.change.ext.transform;
+
+import org.kualigan.tools.liquibase.change.ext.RowBuffer;
+
+import liquibase.exception.UnexpectedLiquibaseException;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Replaces values with a hex encoded digest of themselves. Configured as <code>hash[:algorithm[:salt[:length]]]</code>.
+ * The default algorithm is <code>SHA-256</code>. Since the hash is deterministic, hashed keys still join across tables.
+ * <code>length</code> truncates the hex string so it fits the target column. Numbers are hashed by their string form.
+ *
+ * @author Leo Przybylski
+ */
+public class HashTransformer implements RowTransformer {
+    private static final char[]  HEX   = "0123456789abcdef".toCharArray();
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private MessageDigest digest;
+    private byte[]        salt   = new byte[0];
+    private int           length = -1;
+    private char[]        buffer;
+
+    public String getName() {
+        return "hash";
+    }
+
+    public void configure(final String[] arguments) {
+        final String algorithm = arguments.length > 0 && arguments[0].length() > 0 ? arguments[0] : "SHA-256";
+        try {
+            digest = MessageDigest.getInstance(algorithm);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new UnexpectedLiquibaseException("Unknown hash algorithm " + algorithm, e);
+        }
+        if (arguments.length > 1) {
+            salt = arguments[1].getBytes(UTF_8);
+        }
+        if (arguments.length > 2) {
+            length = Integer.parseInt(arguments[2].trim());
+        }
+        buffer = new char[digest.getDigestLength() * 2];
+    }
+
+    public void transform(final RowBuffer row, final int index) {
+        final Object value;
+        switch (row.getKind(index)) {
+        case RowBuffer.LONG:
+            value = Long.toString(row.getLong(index));
+            break;
+        case RowBuffer.DOUBLE:
+            value = Double.toString(row.getDouble(index));
+            break;
+        default:
+            value = row.get(index);
+            if (value == null) {
+                return;
+            }
+        }
+
+        digest.reset();
+        digest.update(salt);
+        if (value instanceof byte[]) {
+            digest.update((byte[]) value);
+        }
+        else {
+            digest.update(value.toString().getBytes(UTF_8));
+        }
+        final byte[] hashed = digest.digest();
+
+        for (int i = 0; i < hashed.length; i++) {
+            buffer[i * 2]     = HEX[(hashed[i] >> 4) & 0x0f];
+            buffer[i * 2 + 1] = HEX[hashed[i] & 0x0f];
+        }
+        final int outLength = length > -1 && length < buffer.length ? length : buffer.length;
+        row.set(index, new String(buffer, 0, outLength));
+    }
+}
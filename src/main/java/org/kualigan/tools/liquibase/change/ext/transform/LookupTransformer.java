@@ -0,0 +1,117 @@
+/*
+ * Copyright 2008 The Kuali Foundation
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.opensource.org/licenses/ecl2.php
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kualigan.tools.liquibase.change.ext.transform;
+
+import org.kualigan.tools.liquibase.change.ext.RowBuffer;
+
+import liquibase.exception.UnexpectedLiquibaseException;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Remaps code values through a lookup table. Configured as <code>lookup:file[:default]</code> where <code>file</code>
+ * is a properties file of <code>old=new</code> pairs. The file is loaded once and shared by every column using it.
+ * Values not in the table are replaced with <code>default</code> when one is given, and left alone otherwise.
+ *
+ * @author Leo Przybylski
+ */
+public class LookupTransformer implements RowTransformer {
+    private static final Map<String, Map<String, String>> tables = new HashMap<String, Map<String, String>>();
+
+    private Map<String, String> lookup;
+    private String              defaultValue;
+    private boolean             hasDefault;
+
+    public String getName() {
+        return "lookup";
+    }
+
+    public void configure(final String[] arguments) {
+        if (arguments.length < 1) {
+            throw new UnexpectedLiquibaseException("lookup requires a file");
+        }
+        lookup = getLookupTable(arguments[0]);
+        if (arguments.length > 1) {
+            hasDefault   = true;
+            defaultValue = "null".equalsIgnoreCase(arguments[1]) ? null : arguments[1];
+        }
+    }
+
+    public void transform(final RowBuffer row, final int index) {
+        final String key;
+        switch (row.getKind(index)) {
+        case RowBuffer.LONG:
+            key = Long.toString(row.getLong(index));
+            break;
+        case RowBuffer.DOUBLE:
+            key = Double.toString(row.getDouble(index));
+            break;
+        default:
+            final Object value = row.get(index);
+            if (value == null) {
+                return;
+            }
+            key = value instanceof String ? (String) value : value.toString();
+        }
+
+        final String mapped = lookup.get(key);
+        if (mapped != null) {
+            row.set(index, mapped);
+        }
+        else if (hasDefault) {
+            row.set(index, defaultValue);
+        }
+    }
+
+    protected static Map<String, String> getLookupTable(final String file) {
+        synchronized (tables) {
+            Map<String, String> retval = tables.get(file);
+            if (retval != null) {
+                return retval;
+            }
+
+            final Properties properties = new Properties();
+            InputStream in = null;
+            try {
+                in = new FileInputStream(file);
+                properties.load(in);
+            }
+            catch (Exception e) {
+                throw new UnexpectedLiquibaseException("Unable to load lookup table " + file, e);
+            }
+            finally {
+                if (in != null) {
+                    try {
+                        in.close();
+                    }
+                    catch (Exception e) {
+                    }
+                }
+            }
+
+            retval = new HashMap<String, String>(properties.size() * 2);
+            for (final String key : properties.stringPropertyNames()) {
+                retval.put(key, properties.getProperty(key));
+            }
+            tables.put(file, retval);
+            return retval;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2008 The Kuali Foundation
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.opensource.org/licenses/ecl2.php
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kualigan.tools.liquibase.change.ext.transform;
+
+import org.kualigan.tools.liquibase.change.ext.RowBuffer;
+
+/**
+ * Masks character data. Configured as <code>mask[:maskChar[:keep]]</code> where <code>keep</code> is the number of
+ * trailing characters left readable (ie., <code>mask:*:4</code> turns <code>123-45-6789</code> into <code>*******6789</code>).
+ * Values that are not {@link String}s are left alone.
+ *
+ * @author Leo Przybylski
+ */
+public class MaskTransformer implements RowTransformer {
+    private char   maskChar = '*';
+    private int    keep;
+    private char[] buffer   = new char[64];
+
+    public String getName() {
+        return "mask";
+    }
+
+    public void configure(final String[] arguments) {
+        if (arguments.length > 0 && arguments[0].length() > 0) {
+            maskChar = arguments[0].charAt(0);
+        }
+        if (arguments.length > 1) {
+            keep = Integer.parseInt(arguments[1].trim());
+        }
+    }
+
+    public void transform(final RowBuffer row, final int index) {
+        if (row.getKind(index) != RowBuffer.OBJECT) {
+            return;
+        }
+
+        final Object value = row.get(index);
+        if (!(value instanceof String)) {
+            return;
+        }
+
+        final String str = (String) value;
+        final int length = str.length();
+        final int masked = length - keep;
+        if (masked <= 0) {
+            return;
+        }
+
+        if (buffer.length < length) {
+            buffer = new char[length];
+        }
+        for (int i = 0; i < masked; i++) {
+            buffer[i] = maskChar;
+        }
+        str.getChars(masked, length, buffer, masked);
+        row.set(index, new String(buffer, 0, length));
+    }
+}
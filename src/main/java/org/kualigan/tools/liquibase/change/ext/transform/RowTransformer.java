@@ -0,0 +1,53 @@
+/*
+ * Copyright 2008 The Kuali Foundation
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.opensource.org/licenses/ecl2.php
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kualigan.tools.liquibase.change.ext.transform;
+
+import org.kualigan.tools.liquibase.change.ext.RowBuffer;
+
+/**
+ * Transforms a single cell of a {@link RowBuffer} in-flight while {@link org.kualigan.tools.liquibase.change.ext.MigrateData}
+ * copies it from the source to the target. Implementations are discovered through the liquibase
+ * {@link liquibase.servicelocator.ServiceLocator} just like other extensions and are referred to by
+ * {@link #getName()} in the transform configuration.<br/>
+ * <br/>
+ * A new instance is created for every column of every table it is configured for, and that instance is
+ * only ever used by the thread copying the table. Instances are free to keep reusable buffers, and since
+ * they run once per cell they should avoid allocating when the value is left unchanged.
+ *
+ * @author Leo Przybylski
+ */
+public interface RowTransformer {
+
+    /**
+     * @return the name this transformer is referred to by in the transform configuration
+     */
+    String getName();
+
+    /**
+     * Called once after the transformer is created with the arguments given in the transform configuration
+     *
+     * @param arguments arguments following the transformer name. Never null, but may be empty.
+     */
+    void configure(final String[] arguments);
+
+    /**
+     * Transform the value at <code>index</code> in <code>row</code> in place
+     *
+     * @param row the row being copied
+     * @param index 0-based index of the column to transform
+     */
+    void transform(final RowBuffer row, final int index);
+}
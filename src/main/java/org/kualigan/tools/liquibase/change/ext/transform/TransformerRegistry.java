@@ -0,0 +1,221 @@
+/*
+ * Copyright 2008 The Kuali Foundation
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.opensource.org/licenses/ecl2.php
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kualigan.tools.liquibase.change.ext.transform;
+
+import org.kualigan.tools.liquibase.change.ext.RowBuffer;
+
+import liquibase.exception.LiquibaseException;
+import liquibase.exception.ServiceNotFoundException;
+import liquibase.exception.UnexpectedLiquibaseException;
+import liquibase.logging.LogFactory;
+import liquibase.servicelocator.ServiceLocator;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Reads the transform configuration and compiles it into one {@link RowTransformer} per column for each table
+ * copied. The configuration is a properties file where each key is <code>TABLE.COLUMN</code> (either side may be
+ * <code>*</code>) and each value is a comma separated chain of transformers with their colon separated arguments.
+ * For example:
+ * <pre>
+ * PERSON.SSN=mask:*:4
+ * PERSON.EMAIL=hash:SHA-256:pepper:40
+ * ACCOUNT.STATUS_CD=trim,lookup:/etc/migrate/status.properties
+ * *.*=trim
+ * </pre>
+ * When more than one key matches a column, the most specific one wins (<code>TABLE.COLUMN</code>, then
+ * <code>TABLE.*</code>, then <code>*.COLUMN</code>, then <code>*.*</code>).
+ *
+ * @author Leo Przybylski
+ */
+public class TransformerRegistry {
+    private static final String PACKAGE_TO_SCAN = "org.kualigan.tools.liquibase";
+    private static final String WILDCARD        = "*";
+
+    private final Map<String, Class<? extends RowTransformer>> transformers;
+    private final Map<String, String> rules;
+
+    protected TransformerRegistry(final Map<String, Class<? extends RowTransformer>> transformers,
+                                  final Map<String, String> rules) {
+        this.transformers = transformers;
+        this.rules        = rules;
+    }
+
+    /**
+     * Load the transform configuration from a properties file
+     *
+     * @param file path to the configuration
+     * @return a registry with the configured rules
+     */
+    public static TransformerRegistry load(final String file) throws LiquibaseException {
+        final Properties properties = new Properties();
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            properties.load(in);
+        }
+        catch (Exception e) {
+            throw new LiquibaseException("Unable to load transform configuration " + file, e);
+        }
+        finally {
+            if (in != null) {
+                try {
+                    in.close();
+                }
+                catch (Exception e) {
+                }
+            }
+        }
+
+        final Map<String, String> rules = new HashMap<String, String>();
+        for (final String key : properties.stringPropertyNames()) {
+            rules.put(key.trim().toUpperCase(), properties.getProperty(key).trim());
+        }
+        return new TransformerRegistry(findTransformers(), rules);
+    }
+
+    /**
+     * Creates the transformers for each column of <code>row</code>.
+     *
+     * @param row buffer for the table being copied
+     * @return an array indexed like <code>row</code> with <code>null</code> for columns that are copied as-is,
+     * or <code>null</code> when nothing in the table is transformed
+     */
+    public RowTransformer[] compile(final RowBuffer row) {
+        final RowTransformer[] retval = new RowTransformer[row.size()];
+        boolean found = false;
+
+        final String tableName = row.getTableName().toUpperCase();
+        for (int i = 0; i < row.size(); i++) {
+            final String rule = findRule(tableName, row.getColumnName(i).toUpperCase());
+            if (rule != null) {
+                retval[i] = createChain(rule);
+                found = true;
+            }
+        }
+        return found ? retval : null;
+    }
+
+    protected String findRule(final String tableName, final String columnName) {
+        String retval = rules.get(tableName + "." + columnName);
+        if (retval == null) {
+            retval = rules.get(tableName + "." + WILDCARD);
+        }
+        if (retval == null) {
+            retval = rules.get(WILDCARD + "." + columnName);
+        }
+        if (retval == null) {
+            retval = rules.get(WILDCARD + "." + WILDCARD);
+        }
+        return retval;
+    }
+
+    protected RowTransformer createChain(final String rule) {
+        final String[] links = rule.split(",");
+        if (links.length == 1) {
+            return createTransformer(links[0].trim());
+        }
+
+        final RowTransformer[] chain = new RowTransformer[links.length];
+        for (int i = 0; i < links.length; i++) {
+            chain[i] = createTransformer(links[i].trim());
+        }
+        return new ChainedTransformer(chain);
+    }
+
+    protected RowTransformer createTransformer(final String definition) {
+        final String[] parts = definition.split(":", 2);
+        final Class<? extends RowTransformer> clazz = transformers.get(parts[0].trim().toLowerCase());
+        if (clazz == null) {
+            throw new UnexpectedLiquibaseException("No transformer named " + parts[0]);
+        }
+
+        // -1 keeps empty arguments, so hash::pepper still means the default algorithm
+        final String[] arguments = parts.length > 1 ? parts[1].split(":", -1) : new String[0];
+        final RowTransformer retval = newInstance(clazz);
+        retval.configure(arguments);
+        return retval;
+    }
+
+    /**
+     * Finds all {@link RowTransformer} implementations. The built-in ones are always available. Others are located
+     * with the {@link ServiceLocator} the same way as any other liquibase extension.
+     */
+    @SuppressWarnings("unchecked")
+    protected static Map<String, Class<? extends RowTransformer>> findTransformers() {
+        final Map<String, Class<? extends RowTransformer>> retval = new HashMap<String, Class<? extends RowTransformer>>();
+        final List<Class<? extends RowTransformer>> classes = new ArrayList<Class<? extends RowTransformer>>();
+        classes.add(MaskTransformer.class);
+        classes.add(HashTransformer.class);
+        classes.add(ConstantTransformer.class);
+        classes.add(LookupTransformer.class);
+        classes.add(TrimTransformer.class);
+
+        try {
+            ServiceLocator.getInstance().addPackageToScan(PACKAGE_TO_SCAN);
+            for (final Class<?> clazz : ServiceLocator.getInstance().findClasses(RowTransformer.class)) {
+                classes.add((Class<? extends RowTransformer>) clazz);
+            }
+        }
+        catch (ServiceNotFoundException e) {
+            LogFactory.getLogger().debug("No additional row transformers found");
+        }
+
+        for (final Class<? extends RowTransformer> clazz : classes) {
+            retval.put(newInstance(clazz).getName().toLowerCase(), clazz);
+        }
+        return retval;
+    }
+
+    protected static RowTransformer newInstance(final Class<? extends RowTransformer> clazz) {
+        try {
+            return clazz.getDeclaredConstructor().newInstance();
+        }
+        catch (Exception e) {
+            throw new UnexpectedLiquibaseException("Could not create transformer " + clazz.getName(), e);
+        }
+    }
+
+    /**
+     * Runs several transformers on the same column in order
+     */
+    private static class ChainedTransformer implements RowTransformer {
+        private final RowTransformer[] chain;
+
+        public ChainedTransformer(final RowTransformer[] chain) {
+            this.chain = chain;
+        }
+
+        public String getName() {
+            return "chain";
+        }
+
+        public void configure(final String[] arguments) {
+        }
+
+        public void transform(final RowBuffer row, final int index) {
+            for (int i = 0; i < chain.length; i++) {
+                chain[i].transform(row, index);
+            }
+        }
+    }
+}
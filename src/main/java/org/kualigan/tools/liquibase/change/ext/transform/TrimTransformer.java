@@ -0,0 +1,54 @@
+/*
+ * Copyright 2008 The Kuali Foundation
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.opensource.org/licenses/ecl2.php
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kualigan.tools.liquibase.change.ext.transform;
+
+import org.kualigan.tools.liquibase.change.ext.RowBuffer;
+
+/**
+ * Strips the trailing blanks databases pad <code>CHAR</code> columns with. Configured as <code>trim</code>. Values
+ * without trailing blanks are passed through without copying.
+ *
+ * @author Leo Przybylski
+ */
+public class TrimTransformer implements RowTransformer {
+
+    public String getName() {
+        return "trim";
+    }
+
+    public void configure(final String[] arguments) {
+    }
+
+    public void transform(final RowBuffer row, final int index) {
+        if (row.getKind(index) != RowBuffer.OBJECT) {
+            return;
+        }
+
+        final Object value = row.get(index);
+        if (!(value instanceof String)) {
+            return;
+        }
+
+        final String str = (String) value;
+        int end = str.length();
+        while (end > 0 && str.charAt(end - 1) == ' ') {
+            end--;
+        }
+        if (end < str.length()) {
+            row.set(index, str.substring(0, end));
+        }
+    }
+}
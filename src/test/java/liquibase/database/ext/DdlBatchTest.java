@@ -0,0 +1,144 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.database.ext;
+
+import liquibase.executor.ExecutorService;
+import liquibase.executor.LoggingExecutor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks how {@link DdlBatch} merges and joins statements, writing the sql out instead of running it
+ *
+ * @author Leo Przybylski
+ */
+public class DdlBatchTest {
+    private OracleDatabase oracle;
+    private StringWriter   out;
+
+    @Before
+    public void setUp() {
+        oracle = new OracleDatabase();
+        out    = new StringWriter();
+        ExecutorService.getInstance().setExecutor(oracle, new LoggingExecutor(null, out, oracle));
+    }
+
+    @After
+    public void tearDown() {
+        ExecutorService.getInstance().clearExecutor(oracle);
+    }
+
+    @Test
+    public void consecutiveAddsOnTheSameTableAreMerged() throws Exception {
+        final DdlBatch batch = new DdlBatch(oracle, " ADD ", ", ADD ", "");
+        batch.add("ALTER TABLE A ADD X INT");
+        batch.add("alter table A add Y INT");
+        batch.add("ALTER TABLE B ADD Z INT");
+        batch.add("CREATE INDEX I1 ON A (X)");
+        batch.add("ALTER TABLE A ADD W INT");
+        assertEquals("", out.toString());
+
+        batch.flush();
+        assertEquals(lines("ALTER TABLE A ADD X INT, ADD Y INT", "ALTER TABLE B ADD Z INT", "CREATE INDEX I1 ON A (X)",
+                           "ALTER TABLE A ADD W INT"), out.toString());
+    }
+
+    @Test
+    public void batchSizeFlushesEarly() throws Exception {
+        System.setProperty("lb.ddl.batch.size", "2");
+        final DdlBatch batch;
+        try {
+            batch = new DdlBatch(oracle, " ADD ", ", ADD ", "");
+        }
+        finally {
+            System.clearProperty("lb.ddl.batch.size");
+        }
+        batch.add("CREATE INDEX I1 ON A (X)");
+        batch.add("CREATE INDEX I2 ON A (Y)");
+        assertEquals(lines("CREATE INDEX I1 ON A (X)", "CREATE INDEX I2 ON A (Y)"), out.toString());
+
+        batch.add("CREATE INDEX I3 ON A (Z)");
+        batch.clear();
+        batch.flush();
+        assertEquals(lines("CREATE INDEX I1 ON A (X)", "CREATE INDEX I2 ON A (Y)"), out.toString());
+    }
+
+    /**
+     * A statement that fits in a PL/SQL literal by length, but not once its quotes are doubled, is run on its own
+     */
+    @Test
+    public void quotesCountTowardsTheBlockLimit() throws Exception {
+        final String quoted = "COMMENT ON TABLE A IS '" + repeat('\'', 2000) + repeat('x', 29000) + "'";
+        assertTrue(quoted.length() <= 32000);
+
+        final DdlBatch batch = oracle.getDdlBatch();
+        batch.add("CREATE INDEX I1 ON A (X)");
+        batch.add(quoted);
+        batch.flush();
+
+        final String sql = out.toString();
+        assertFalse(sql, sql.contains("EXECUTE IMMEDIATE"));
+        assertTrue(sql.contains(quoted));
+    }
+
+    @Test
+    public void shortStatementsShareABlock() throws Exception {
+        final DdlBatch batch = oracle.getDdlBatch();
+        batch.add("CREATE INDEX I1 ON A (X)");
+        batch.add("COMMENT ON TABLE A IS 'it''s'");
+        batch.flush();
+
+        final String sql = out.toString();
+        assertTrue(sql, sql.contains("EXECUTE IMMEDIATE 'CREATE INDEX I1 ON A (X)';"));
+        assertTrue(sql, sql.contains("EXECUTE IMMEDIATE 'COMMENT ON TABLE A IS ''it''''s''';"));
+    }
+
+    /**
+     * @return statements the way {@link LoggingExecutor} writes them for Oracle
+     */
+    private String lines(final String... statements) {
+        final StringBuilder retval = new StringBuilder();
+        for (final String statement : statements) {
+            retval.append(statement).append(";").append(System.getProperty("line.separator"))
+                .append(System.getProperty("line.separator"));
+        }
+        return retval.toString();
+    }
+
+    private static String repeat(final char c, final int count) {
+        final StringBuilder retval = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            retval.append(c);
+        }
+        return retval.toString();
+    }
+}
@@ -0,0 +1,225 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.database.ext;
+
+import liquibase.change.Change;
+import liquibase.change.ColumnConfig;
+import liquibase.change.core.AddForeignKeyConstraintChange;
+import liquibase.change.core.AddPrimaryKeyChange;
+import liquibase.change.core.CreateTableChange;
+import liquibase.changelog.ChangeLogIterator;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.changelog.filter.ChangeSetFilter;
+import liquibase.changelog.filter.CountChangeSetFilter;
+import liquibase.changelog.filter.ShouldRunChangeSetFilter;
+import liquibase.changelog.visitor.UpdateVisitor;
+import liquibase.database.core.H2Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.LiquibaseException;
+import liquibase.sql.visitor.SqlVisitor;
+import liquibase.statement.SqlStatement;
+import liquibase.statement.core.CreateTableStatement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs a change log that creates two tables and adds their keys in change sets of their own against an embedded H2
+ * database, with every change going through {@link FreshSchemaOptimizer}
+ *
+ * @author Leo Przybylski
+ */
+public class FreshSchemaOptimizerTest {
+    private Connection connection;
+    private DatabaseChangeLog changeLog;
+
+    @Before
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:fresh");
+        changeLog  = new DatabaseChangeLog("fresh.xml");
+        add("1", createTable("PARENT"));
+        add("2", primaryKey("PARENT"));
+        add("3", createTable("CHILD", "PARENT_ID"));
+        add("4", primaryKey("CHILD"));
+
+        final AddForeignKeyConstraintChange foreignKey = new AddForeignKeyConstraintChange();
+        foreignKey.setConstraintName("FK_CHILD_PARENT");
+        foreignKey.setBaseTableName("CHILD");
+        foreignKey.setBaseColumnNames("PARENT_ID");
+        foreignKey.setReferencedTableName("PARENT");
+        foreignKey.setReferencedColumnNames("ID");
+        add("5", foreignKey);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connection.createStatement().execute("DROP ALL OBJECTS");
+        connection.close();
+    }
+
+    @Test
+    public void foldsKeysIntoCreateTable() throws Exception {
+        final OptimizedH2Database database = connect();
+        final FreshSchemaOptimizer optimizer = new FreshSchemaOptimizer(database, changeLog);
+
+        assertEquals(0, optimizer.generateStatements(getChange("2")).length);
+        assertEquals(0, optimizer.generateStatements(getChange("4")).length);
+        assertEquals(0, optimizer.generateStatements(getChange("5")).length);
+        assertEquals(1, getInlineClauses(optimizer, database, "1").size());
+        assertEquals(2, getInlineClauses(optimizer, database, "3").size());
+    }
+
+    @Test
+    public void updateAfterCountDoesNotAddFoldedKeysAgain() throws Exception {
+        update(new CountChangeSetFilter(1));
+        assertTrue(hasPrimaryKey("PARENT"));
+
+        update(new CountChangeSetFilter(3));
+        assertTrue(hasPrimaryKey("CHILD"));
+
+        update();
+        assertEquals(5, count("SELECT COUNT(*) FROM DATABASECHANGELOG"));
+        final ResultSet keys = connection.getMetaData().getImportedKeys(null, null, "CHILD");
+        assertTrue(keys.next());
+        assertEquals("FK_CHILD_PARENT", keys.getString("FK_NAME"));
+        keys.close();
+    }
+
+    /**
+     * Run the change sets that pass the filters the way <code>Liquibase.update</code> does
+     */
+    protected OptimizedH2Database update(final ChangeSetFilter... filters) throws LiquibaseException {
+        final OptimizedH2Database retval = connect();
+        final ChangeSetFilter[] all = new ChangeSetFilter[filters.length + 1];
+        all[0] = new ShouldRunChangeSetFilter(retval);
+        System.arraycopy(filters, 0, all, 1, filters.length);
+        new ChangeLogIterator(changeLog, all).run(new UpdateVisitor(retval), retval);
+        retval.commit();
+        return retval;
+    }
+
+    protected OptimizedH2Database connect() throws LiquibaseException {
+        final OptimizedH2Database retval = new OptimizedH2Database();
+        retval.setConnection(new JdbcConnection(connection));
+        retval.checkDatabaseChangeLogTable(false, changeLog, null);
+        return retval;
+    }
+
+    protected List<String> getInlineClauses(final FreshSchemaOptimizer optimizer, final OptimizedH2Database database, 
+                                            final String id) {
+        final SqlStatement[] create = optimizer.generateStatements(getChange(id));
+        assertEquals(1, create.length);
+        return FreshSchemaOptimizer.getInlineClauses((CreateTableStatement) create[0], database);
+    }
+
+    protected boolean hasPrimaryKey(final String table) throws SQLException {
+        final ResultSet keys = connection.getMetaData().getPrimaryKeys(null, null, table);
+        try {
+            return keys.next();
+        }
+        finally {
+            keys.close();
+        }
+    }
+
+    protected int count(final String sql) throws SQLException {
+        final ResultSet results = connection.createStatement().executeQuery(sql);
+        try {
+            assertTrue(results.next());
+            return results.getInt(1);
+        }
+        finally {
+            results.close();
+        }
+    }
+
+    protected void add(final String id, final Change... changes) {
+        final ChangeSet changeSet = new ChangeSet(id, "test", false, false, "fresh.xml", null, null);
+        for (final Change change : changes) {
+            changeSet.addChange(change);
+        }
+        changeLog.addChangeSet(changeSet);
+    }
+
+    protected Change getChange(final String id) {
+        for (final ChangeSet changeSet : changeLog.getChangeSets()) {
+            if (changeSet.getId().equals(id)) {
+                return changeSet.getChanges().get(0);
+            }
+        }
+        return null;
+    }
+
+    protected CreateTableChange createTable(final String name, final String... columns) {
+        final CreateTableChange retval = new CreateTableChange();
+        retval.setTableName(name);
+        retval.addColumn(newColumn("ID"));
+        for (final String column : columns) {
+            retval.addColumn(newColumn(column));
+        }
+        return retval;
+    }
+
+    protected AddPrimaryKeyChange primaryKey(final String table) {
+        final AddPrimaryKeyChange retval = new AddPrimaryKeyChange();
+        retval.setTableName(table);
+        retval.setColumnNames("ID");
+        retval.setConstraintName("PK_" + table);
+        return retval;
+    }
+
+    private ColumnConfig newColumn(final String name) {
+        final ColumnConfig retval = new ColumnConfig();
+        retval.setName(name);
+        retval.setType("INT");
+        return retval;
+    }
+
+    /**
+     * Runs every change through a {@link FreshSchemaOptimizer}, like {@link MySqlDatabase} does
+     */
+    protected static class OptimizedH2Database extends H2Database {
+        private FreshSchemaOptimizer optimizer;
+
+        @Override
+        public void executeStatements(final Change change, final DatabaseChangeLog changeLog, final List<SqlVisitor> sqlVisitors) throws LiquibaseException {
+            if (optimizer == null || optimizer.getChangeLog() != changeLog) {
+                optimizer = new FreshSchemaOptimizer(this, changeLog);
+            }
+            execute(optimizer.generateStatements(change), sqlVisitors);
+        }
+    }
+}
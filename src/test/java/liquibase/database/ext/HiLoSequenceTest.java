@@ -0,0 +1,165 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.database.ext;
+
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks how {@link HiLoSequence} reserves blocks, against a stand-in for a MySQL sequence table
+ *
+ * @author Leo Przybylski
+ */
+public class HiLoSequenceTest {
+
+    @Test
+    public void valuesAreGivenOutOfBlocks() throws SQLException {
+        final SequenceTable table = new SequenceTable(true);
+        final HiLoSequence sequence = new HiLoSequence("SEQ", 3);
+        for (long expected = 1; expected <= 7; expected++) {
+            assertEquals(expected, sequence.next(table.connect()));
+        }
+        assertEquals(3, table.updates.size());
+        assertEquals("UPDATE SEQ SET id = LAST_INSERT_ID(id + 3)", table.updates.get(0));
+        assertEquals(9, table.id);
+    }
+
+    @Test
+    public void sequencesSharingATableNeverHandOutTheSameValue() throws SQLException {
+        final SequenceTable table = new SequenceTable(true);
+        final HiLoSequence first  = new HiLoSequence("SEQ", 4);
+        final HiLoSequence second = new HiLoSequence("SEQ", 5);
+        final Set<Long> values = new HashSet<Long>();
+        for (int i = 0; i < 20; i++) {
+            assertTrue(values.add(first.next(table.connect())));
+            assertTrue(values.add(second.next(table.connect())));
+        }
+    }
+
+    @Test
+    public void lastInsertIdIsReadWhenNoKeyIsReturned() throws SQLException {
+        final SequenceTable table = new SequenceTable(false);
+        table.id = 100;
+        final HiLoSequence sequence = new HiLoSequence("SEQ", 10);
+        assertEquals(101, sequence.next(table.connect()));
+        assertEquals(102, sequence.next(table.connect()));
+        assertEquals(1, table.updates.size());
+    }
+
+    @Test(expected = SQLException.class)
+    public void tableMustHaveOneRow() throws SQLException {
+        final SequenceTable table = new SequenceTable(true);
+        table.rows = 2;
+        new HiLoSequence("SEQ", 10).next(table.connect());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void blockSizeMustBePositive() {
+        new HiLoSequence("SEQ", 0);
+    }
+
+    /**
+     * Holds the row of a sequence table and answers the statements {@link HiLoSequence} runs
+     */
+    private static class SequenceTable {
+        private final boolean      returnsKeys;
+        private final List<String> updates = new ArrayList<String>();
+        private long id;
+        private int  rows = 1;
+        private Long lastInsertId;
+
+        public SequenceTable(final boolean returnsKeys) {
+            this.returnsKeys = returnsKeys;
+        }
+
+        public Connection connect() {
+            return proxy(Connection.class, new InvocationHandler() {
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        return "createStatement".equals(method.getName()) ? statement() : null;
+                    }
+                });
+        }
+
+        private Statement statement() {
+            return proxy(Statement.class, new InvocationHandler() {
+                    private Long key;
+
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        final String name = method.getName();
+                        if ("executeUpdate".equals(name)) {
+                            final String sql = (String) args[0];
+                            updates.add(sql);
+                            id += Long.parseLong(sql.substring(sql.lastIndexOf('+') + 1, sql.lastIndexOf(')')).trim());
+                            lastInsertId = id;
+                            key = returnsKeys ? id : null;
+                            return rows;
+                        }
+                        if ("getGeneratedKeys".equals(name)) {
+                            return results(key);
+                        }
+                        if ("executeQuery".equals(name)) {
+                            assertEquals("SELECT LAST_INSERT_ID()", args[0]);
+                            return results(lastInsertId);
+                        }
+                        return null;
+                    }
+                });
+        }
+
+        private ResultSet results(final Long value) {
+            return proxy(ResultSet.class, new InvocationHandler() {
+                    private boolean read;
+
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        if ("next".equals(method.getName())) {
+                            final boolean retval = value != null && !read;
+                            read = true;
+                            return retval;
+                        }
+                        return "getLong".equals(method.getName()) ? value : null;
+                    }
+                });
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(final Class<T> type, final InvocationHandler handler) {
+            return (T) Proxy.newProxyInstance(HiLoSequenceTest.class.getClassLoader(), new Class<?>[] { type }, handler);
+        }
+    }
+}
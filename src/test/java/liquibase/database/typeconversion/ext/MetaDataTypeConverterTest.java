@@ -0,0 +1,132 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.database.typeconversion.ext;
+
+import liquibase.database.Database;
+import liquibase.database.core.DerbyDatabase;
+import liquibase.database.core.H2Database;
+import liquibase.database.core.HsqlDatabase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.UnexpectedLiquibaseException;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link MetaDataTypeConverter} keeps the types of each database apart
+ *
+ * @author Leo Przybylski
+ */
+public class MetaDataTypeConverterTest {
+    private static Connection h2;
+    private static Connection hsql;
+    private static Database   h2Database;
+    private static Database   hsqlDatabase;
+
+    @BeforeClass
+    public static void connect() throws SQLException {
+        h2   = DriverManager.getConnection("jdbc:h2:mem:metadata");
+        hsql = DriverManager.getConnection("jdbc:hsqldb:mem:metadata", "SA", "");
+        h2Database = new H2Database();
+        h2Database.setConnection(new JdbcConnection(h2));
+        hsqlDatabase = new HsqlDatabase();
+        hsqlDatabase.setConnection(new JdbcConnection(hsql));
+    }
+
+    @AfterClass
+    public static void disconnect() throws SQLException {
+        h2.close();
+        hsql.close();
+    }
+
+    @Test
+    public void supportsLeavesTheSharedInstanceUnbound() {
+        final MetaDataTypeConverter shared = new MetaDataTypeConverter();
+        shared.supports(h2Database);
+
+        assertNull(shared.getCapabilities());
+        assertNotNull(shared.forDatabase(h2Database).getCapabilities());
+        assertSame(shared.forDatabase(h2Database), shared.forDatabase(h2Database));
+        assertNotSame(shared.forDatabase(h2Database), shared.forDatabase(hsqlDatabase));
+    }
+
+    @Test
+    public void databasesWithTheirOwnConverterAreOutranked() {
+        final MetaDataTypeConverter shared = new MetaDataTypeConverter();
+        assertFalse(shared.supports(h2Database));
+        assertFalse(shared.supports(hsqlDatabase));
+        assertFalse(shared.getHigherConverters().isEmpty());
+        assertSame(shared.getHigherConverters(), new MetaDataTypeConverter().getHigherConverters());
+    }
+
+    @Test
+    public void boundInstancesUseTheirOwnDatabase() throws SQLException {
+        final MetaDataTypeConverter shared = new MetaDataTypeConverter();
+        final TypeCapabilities h2Types   = TypeCapabilities.forMetaData(h2.getMetaData());
+        final TypeCapabilities hsqlTypes = TypeCapabilities.forMetaData(hsql.getMetaData());
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(h2Types.getNativeType(Types.CLOB).getTypeName(),
+                         shared.forDatabase(h2Database).getClobType().toString());
+            assertEquals(hsqlTypes.getNativeType(Types.CLOB).getTypeName(),
+                         shared.forDatabase(hsqlDatabase).getClobType().toString());
+        }
+    }
+
+    @Test
+    public void oversizePrecisionIsRejected() throws SQLException {
+        final Connection derby = DriverManager.getConnection("jdbc:derby:memory:metadata;create=true");
+        try {
+            final Database database = new DerbyDatabase();
+            database.setConnection(new JdbcConnection(derby));
+            final MetaDataTypeConverter converter = new MetaDataTypeConverter(database);
+            assertEquals("VARCHAR(32672)", converter.getDataType("java.sql.Types.VARCHAR(32672)", false).toString());
+            try {
+                converter.getDataType("java.sql.Types.VARCHAR(40000)", false);
+                fail("VARCHAR(40000) should not fit in Derby");
+            }
+            catch (UnexpectedLiquibaseException e) {
+            }
+        }
+        finally {
+            derby.close();
+            try {
+                DriverManager.getConnection("jdbc:derby:memory:metadata;drop=true");
+            }
+            catch (SQLException e) {
+                // Derby always reports a dropped database as an exception
+            }
+        }
+    }
+}
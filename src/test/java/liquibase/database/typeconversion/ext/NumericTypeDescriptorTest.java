@@ -0,0 +1,82 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.database.typeconversion.ext;
+
+import liquibase.database.structure.type.DecimalType;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the bounds {@link NumericTypeDescriptor} computes and how it limits default values
+ *
+ * @author Leo Przybylski
+ */
+public class NumericTypeDescriptorTest {
+    private final NumericTypeDescriptor decimal = NumericTypeDescriptor.valueOf(5, 2);
+
+    @Test
+    public void descriptorsAreSharedPerShape() {
+        assertSame(decimal, NumericTypeDescriptor.valueOf(5, 2));
+        assertSame(decimal, NumericTypeDescriptor.forType("DECIMAL(5,2)"));
+        assertSame(decimal, NumericTypeDescriptor.forType("NUMERIC(5, 2)"));
+        final DecimalType type = new DecimalType();
+        type.setFirstParameter("5");
+        type.setSecondParameter("2");
+        assertSame(decimal, NumericTypeDescriptor.forType(type));
+
+        assertEquals(0, NumericTypeDescriptor.forType("NUMBER(10)").getScale());
+        assertNull(NumericTypeDescriptor.forType("DECIMAL"));
+        assertNull(NumericTypeDescriptor.forType("VARCHAR(x)"));
+    }
+
+    @Test
+    public void maxValueFollowsPrecisionAndScale() {
+        assertEquals(new BigDecimal("999.99"), decimal.getMaxValue());
+        assertEquals(new BigDecimal("9999999999"), NumericTypeDescriptor.forType("NUMBER(10)").getMaxValue());
+        assertEquals(new BigDecimal("0.99"), NumericTypeDescriptor.valueOf(2, 2).getMaxValue());
+    }
+
+    @Test
+    public void valuesThatFitAreReturnedAsTheyAre() {
+        final Integer small = 42;
+        assertSame(small, decimal.limit(small));
+        assertSame("123.45", decimal.limit("123.45"));
+        assertSame("999.99", decimal.limit("999.99"));
+        assertSame("-99999", decimal.limit("-99999"));
+    }
+
+    @Test
+    public void largerValuesAreCutToTheMaxValue() {
+        assertEquals(decimal.getMaxValue(), decimal.limit("99999"));
+        assertEquals(decimal.getMaxValue(), decimal.limit("999.999"));
+        assertEquals(decimal.getMaxValue(), decimal.limit(" +1000 "));
+        assertEquals(decimal.getMaxValue(), decimal.limit(new BigDecimal("1E+10")));
+    }
+}
@@ -0,0 +1,390 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.database.typeconversion.ext;
+
+import liquibase.database.Database;
+import liquibase.database.core.DerbyDatabase;
+import liquibase.database.core.H2Database;
+import liquibase.database.core.HsqlDatabase;
+import liquibase.database.core.MySQLDatabase;
+import liquibase.database.core.OracleDatabase;
+import liquibase.database.structure.Column;
+import liquibase.database.structure.type.*;
+import liquibase.database.typeconversion.core.AbstractTypeConverter;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Writes a column of every mapped type with each dialect's converter and reads the type string back with every other
+ * dialect's converter. H2, HSQLDB and Derby also create the column in an embedded database, read it back from the
+ * metadata and go around a second time. Oracle and MySQL have no embedded database, so only the converters are checked.
+ *
+ * @author Leo Przybylski
+ */
+public class TypeConversionConformanceTest {
+    private static final String CHARACTER = "character";
+    private static final String EXACT     = "exact numeric";
+    private static final String APPROX    = "approximate numeric";
+    private static final String TEMPORAL  = "date and time";
+    private static final String BINARY    = "binary";
+    private static final String BOOLEAN   = "boolean";
+
+    /** Type code, size, scale and source type name of every column shape that should convert */
+    private static final Object[][] CORPUS = {
+        { Types.CHAR,      1,   0, "CHAR" },
+        { Types.VARCHAR,   255, 0, "VARCHAR" },
+        { Types.CLOB,      0,   0, "CLOB" },
+        { Types.DECIMAL,   19,  2, "DECIMAL" },
+        { Types.NUMERIC,   10,  0, "NUMERIC" },
+        { Types.INTEGER,   10,  0, "INTEGER" },
+        { Types.BIGINT,    19,  0, "BIGINT" },
+        { Types.SMALLINT,  5,   0, "SMALLINT" },
+        { Types.DOUBLE,    22,  0, "DOUBLE" },
+        { Types.FLOAT,     22,  0, "FLOAT" },
+        { Types.DATE,      7,   0, "DATE" },
+        { Types.TIME,      8,   0, "TIME" },
+        { Types.TIMESTAMP, 11,  6, "TIMESTAMP" },
+        { Types.BLOB,      0,   0, "BLOB" },
+        { Types.VARBINARY, 16,  0, "VARBINARY" },
+        { Types.BOOLEAN,   1,   0, "BOOLEAN" }
+    };
+
+    private static final Database[] databases = { 
+        new OracleDatabase(), new MySQLDatabase(), new H2Database(), new HsqlDatabase(), new DerbyDatabase() 
+    };
+
+    private static final AbstractTypeConverter[] converters = { 
+        new OracleTypeConverter(), new MySQLTypeConverter(), new H2TypeConverter(), new HsqlTypeConverter(), new DerbyTypeConverter() 
+    };
+
+    private static Connection h2;
+    private static Connection hsql;
+    private static Connection derby;
+    private static int tables;
+
+    @BeforeClass
+    public static void connect() throws SQLException {
+        h2    = DriverManager.getConnection("jdbc:h2:mem:conformance");
+        hsql  = DriverManager.getConnection("jdbc:hsqldb:mem:conformance", "SA", "");
+        derby = DriverManager.getConnection("jdbc:derby:memory:conformance;create=true");
+    }
+
+    @AfterClass
+    public static void disconnect() throws SQLException {
+        h2.close();
+        hsql.close();
+        derby.close();
+        try {
+            DriverManager.getConnection("jdbc:derby:memory:conformance;drop=true");
+        }
+        catch (SQLException e) {
+            // Derby always reports a dropped database as an exception
+        }
+    }
+
+    @Test
+    public void everyDialectReadsEveryOtherDialect() {
+        final List<String> failures = new ArrayList<String>();
+        for (int source = 0; source < converters.length; source++) {
+            for (final Object[] shape : CORPUS) {
+                final String typeString = converters[source].convertToDatabaseTypeString(toColumn(shape), databases[source]);
+                for (int target = 0; target < converters.length; target++) {
+                    final String name = describe(source, target, shape, typeString);
+                    try {
+                        final DataType type = converters[target].getDataType(typeString, false);
+                        if (!getFamily((Integer) shape[0]).equals(getFamily(type))) {
+                            failures.add(name + " became " + type + " (" + getFamily(type) + ")");
+                        }
+                    }
+                    catch (Exception e) {
+                        failures.add(name + " failed with " + e.getMessage());
+                    }
+                }
+            }
+        }
+        assertTrue(failures.toString(), failures.isEmpty());
+    }
+
+    /**
+     * {@link BulkTypeConverter} has to give every column the same type as converting it on its own. Enough distinct
+     * VARCHAR sizes are added that the parallel path is taken too.
+     */
+    @Test
+    public void bulkConversionMatchesPerColumn() {
+        final List<Column> columns = new ArrayList<Column>();
+        for (final Object[] shape : CORPUS) {
+            columns.add(toColumn(shape));
+        }
+        for (int size = 1; size <= 600; size++) {
+            columns.add(toColumn(new Object[] { Types.VARCHAR, size, 0, "VARCHAR" }));
+        }
+        final Column identity = toColumn(new Object[] { Types.BIGINT, 19, 0, "BIGINT" });
+        identity.setAutoIncrement(true);
+        columns.add(identity);
+        for (int i = 0; i < columns.size(); i++) {
+            columns.get(i).setName("C" + i);
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int source = 0; source < converters.length; source++) {
+                final Map<Column, BulkTypeConverter.ConvertedType> converted =
+                    new BulkTypeConverter(converters[source], databases[source]).convert(columns, executor);
+                assertEquals(columns.size(), converted.size());
+                for (final Column column : columns) {
+                    final String typeString = converters[source].convertToDatabaseTypeString(column, databases[source]);
+                    final DataType expected = converters[source].getDataType(typeString, column.isAutoIncrement());
+                    final BulkTypeConverter.ConvertedType actual = converted.get(column);
+                    final String name = databases[source].getTypeName() + " " + column.getName();
+                    assertEquals(name, typeString, actual.getTypeString());
+                    assertEquals(name, expected.getClass(), actual.getDataType().getClass());
+                    assertEquals(name, expected.toString(), actual.getDataType().toString());
+                }
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void h2RoundTrip() throws SQLException {
+        assertRoundTrip(2, h2);
+    }
+
+    @Test
+    public void hsqlRoundTrip() throws SQLException {
+        assertRoundTrip(3, hsql);
+    }
+
+    @Test
+    public void derbyRoundTrip() throws SQLException {
+        assertRoundTrip(4, derby);
+    }
+
+    @Test
+    public void mysqlKeepsTheTimeOfDay() {
+        final Column date = toColumn(CORPUS[10]);
+        assertEquals("DATETIME", converters[1].getDataType(converters[1].convertToDatabaseTypeString(date, databases[1]), false).toString());
+        assertEquals("DATE", converters[0].getDataType(converters[0].convertToDatabaseTypeString(date, databases[0]), false).toString());
+    }
+
+    @Test
+    public void doubleDropsItsSize() {
+        for (int target = 0; target < converters.length; target++) {
+            assertFalse(databases[target].getTypeName(), 
+                        converters[target].getDataType("java.sql.Types.DOUBLE(22)", false).toString().contains("22"));
+        }
+    }
+
+    @Test
+    public void varbinaryKeepsItsSize() {
+        final String[] expected = { "RAW(16)", "VARBINARY(16)", "VARBINARY(16)", "VARBINARY(16)", "VARCHAR(16) FOR BIT DATA" };
+        for (int target = 0; target < converters.length; target++) {
+            assertEquals(databases[target].getTypeName(), expected[target], 
+                         converters[target].getDataType("java.sql.Types.VARBINARY(16)", false).toString());
+            assertEquals(databases[target].getTypeName(), expected[target], 
+                         converters[target].getDataType("RAW(16)", false).toString());
+        }
+    }
+
+    @Test
+    public void floatKeepsItsScale() {
+        assertEquals("FLOAT(10,2)", converters[1].getDataType("FLOAT(10,2)", false).toString());
+        assertEquals("FLOAT(10)", converters[2].getDataType("FLOAT(10)", false).toString());
+        for (int target = 0; target < converters.length; target++) {
+            assertEquals(databases[target].getTypeName(), "REAL", 
+                         converters[target].getDataType("java.sql.Types.REAL(7,0)", false).toString());
+        }
+    }
+
+    /**
+     * Creates a column from every dialect's type string in <code>connection</code>, reads it back from the metadata
+     * and does it once more with the type the database reported. The second column should have the same type as the
+     * first.
+     */
+    protected void assertRoundTrip(final int target, final Connection connection) throws SQLException {
+        final List<String> failures = new ArrayList<String>();
+        for (int source = 0; source < converters.length; source++) {
+            for (final Object[] shape : CORPUS) {
+                final String typeString = converters[source].convertToDatabaseTypeString(toColumn(shape), databases[source]);
+                final String name = describe(source, target, shape, typeString);
+                try {
+                    final Column first = create(connection, converters[target].getDataType(typeString, false));
+                    final String family = getFamily(first.getDataType());
+                    if (!getFamily((Integer) shape[0]).equals(family) && !isNumericBoolean(shape, family)) {
+                        failures.add(name + " was created as " + first.getTypeName() + " (" + family + ")");
+                        continue;
+                    }
+                    if (TEMPORAL.equals(family) && first.getDataType() != (Integer) shape[0]) {
+                        failures.add(name + " was created as " + first.getTypeName());
+                        continue;
+                    }
+
+                    final String again = converters[target].convertToDatabaseTypeString(first, databases[target]);
+                    final Column second = create(connection, converters[target].getDataType(again, false));
+                    if (second.getDataType() != first.getDataType() || second.getDecimalDigits() != first.getDecimalDigits()) {
+                        failures.add(name + " was created as " + first.getTypeName() + "(" + first.getColumnSize() + "," 
+                                     + first.getDecimalDigits() + ") then as " + second.getTypeName() + "(" 
+                                     + second.getColumnSize() + "," + second.getDecimalDigits() + ") from " + again);
+                    }
+                }
+                catch (Exception e) {
+                    failures.add(name + " failed with " + e.getMessage());
+                }
+            }
+        }
+        assertTrue(failures.toString(), failures.isEmpty());
+    }
+
+    /**
+     * Create a one column table and read the column back from the metadata
+     */
+    protected Column create(final Connection connection, final DataType type) throws SQLException {
+        final String table = "CONFORMANCE" + (++tables);
+        final Statement statement = connection.createStatement();
+        try {
+            statement.execute("CREATE TABLE " + table + " (C " + type + ")");
+        }
+        finally {
+            statement.close();
+        }
+
+        final ResultSet columns = connection.getMetaData().getColumns(null, null, table, null);
+        try {
+            assertTrue("No columns for " + table, columns.next());
+            final Column retval = new Column();
+            retval.setName(columns.getString("COLUMN_NAME"));
+            retval.setDataType(columns.getInt("DATA_TYPE"));
+            retval.setTypeName(columns.getString("TYPE_NAME"));
+            retval.setColumnSize(columns.getInt("COLUMN_SIZE"));
+            retval.setDecimalDigits(columns.getInt("DECIMAL_DIGITS"));
+            return retval;
+        }
+        finally {
+            columns.close();
+        }
+    }
+
+    /**
+     * Databases without a boolean type (ie., Derby before 10.7) keep booleans in a number
+     */
+    protected boolean isNumericBoolean(final Object[] shape, final String family) {
+        return BOOLEAN.equals(getFamily((Integer) shape[0])) && EXACT.equals(family);
+    }
+
+    protected Column toColumn(final Object[] shape) {
+        final Column retval = new Column();
+        retval.setName("C");
+        retval.setDataType((Integer) shape[0]);
+        retval.setColumnSize((Integer) shape[1]);
+        retval.setDecimalDigits((Integer) shape[2]);
+        retval.setTypeName((String) shape[3]);
+        return retval;
+    }
+
+    protected String describe(final int source, final int target, final Object[] shape, final String typeString) {
+        return String.format("%s from %s to %s as %s", shape[3], databases[source].getTypeName(), 
+                             databases[target].getTypeName(), typeString);
+    }
+
+    protected String getFamily(final int dataType) {
+        switch (dataType) {
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.CLOB:
+            case -15: // Types.NCHAR in java 1.6
+            case -9:  // Types.NVARCHAR in java 1.6
+                return CHARACTER;
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return EXACT;
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return APPROX;
+            case Types.DATE:
+            case Types.TIME:
+            case Types.TIMESTAMP:
+                return TEMPORAL;
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                return BINARY;
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return BOOLEAN;
+            default:
+                return "type " + dataType;
+        }
+    }
+
+    protected String getFamily(final DataType type) {
+        if (type instanceof CharType || type instanceof VarcharType || type instanceof NVarcharType 
+            || type instanceof ClobType) {
+            return CHARACTER;
+        }
+        else if (type instanceof NumberType || type instanceof IntType || type instanceof BigIntType 
+                 || type instanceof SmallIntType || type instanceof TinyIntType || type instanceof DecimalType) {
+            return EXACT;
+        }
+        else if (type instanceof DoubleType || type instanceof FloatType) {
+            return APPROX;
+        }
+        else if (type instanceof DateType || type instanceof DateTimeType || type instanceof TimeType) {
+            return TEMPORAL;
+        }
+        else if (type instanceof BlobType || type instanceof VarbinaryType) {
+            return BINARY;
+        }
+        else if (type instanceof BooleanType) {
+            return BOOLEAN;
+        }
+        return type.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,246 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.database.typeconversion.ext;
+
+import liquibase.database.Database;
+import liquibase.database.core.DerbyDatabase;
+import liquibase.database.core.H2Database;
+import liquibase.database.core.HsqlDatabase;
+import liquibase.database.core.MySQLDatabase;
+import liquibase.database.core.OracleDatabase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.database.structure.Column;
+import liquibase.database.typeconversion.core.AbstractTypeConverter;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Types;
+import java.text.ParseException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures every converter in this package over a generated corpus of column definitions. Each dialect gets
+ * {@link #CORPUS_SIZE} columns of random types, sizes and scales with a default value to match. The corpus is seeded
+ * by dialect, so runs can be compared. {@link MetaDataTypeConverter} reads its types from an embedded H2 database.
+ *
+ * Run with <code>mvn -Pbenchmark verify -Djmh.args=TypeConverterBenchmark</code>
+ *
+ * @author Leo Przybylski
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TypeConverterBenchmark {
+    static final int CORPUS_SIZE = 4096;
+
+    /** Type codes and the names databases give them, including one no converter knows */
+    private static final Object[][] TYPES = {
+        { Types.CHAR,        "CHAR" },
+        { Types.VARCHAR,     "VARCHAR" },
+        { Types.VARCHAR,     "VARCHAR2" },
+        { Types.LONGVARCHAR, "TEXT" },
+        { Types.CLOB,        "CLOB" },
+        { Types.DECIMAL,     "NUMBER" },
+        { Types.NUMERIC,     "NUMERIC" },
+        { Types.INTEGER,     "INT" },
+        { Types.BIGINT,      "BIGINT" },
+        { Types.SMALLINT,    "SMALLINT" },
+        { Types.DOUBLE,      "DOUBLE" },
+        { Types.FLOAT,       "FLOAT" },
+        { Types.REAL,        "REAL" },
+        { Types.DATE,        "DATE" },
+        { Types.TIME,        "TIME" },
+        { Types.TIMESTAMP,   "TIMESTAMP" },
+        { Types.BLOB,        "BLOB" },
+        { Types.VARBINARY,   "VARBINARY" },
+        { Types.BOOLEAN,     "BOOLEAN" },
+        { Types.OTHER,       "GEOMETRY" }
+    };
+
+    private static final String[] DATE_DEFAULTS = {
+        "SYSDATE", "NOW()", "CURRENT_TIMESTAMP", "'2011-05-01'", "'2011-05-01 10:30:00'", null
+    };
+
+    @Param({ "oracle", "mysql", "h2", "hsqldb", "derby", "generic", "metadata" })
+    public String dialect;
+
+    private AbstractTypeConverter converter;
+    private Database              database;
+    private Connection            connection;
+    private Column[]              columns;
+    private String[]              typeStrings;
+    private String[]              defaults;
+
+    @Setup
+    public void setUp() throws Exception {
+        if ("oracle".equals(dialect)) {
+            converter = new OracleTypeConverter();
+            database  = new OracleDatabase();
+        }
+        else if ("mysql".equals(dialect)) {
+            converter = new MySQLTypeConverter();
+            database  = new MySQLDatabase();
+        }
+        else if ("h2".equals(dialect)) {
+            converter = new H2TypeConverter();
+            database  = new H2Database();
+        }
+        else if ("hsqldb".equals(dialect)) {
+            converter = new HsqlTypeConverter();
+            database  = new HsqlDatabase();
+        }
+        else if ("derby".equals(dialect)) {
+            converter = new DerbyTypeConverter();
+            database  = new DerbyDatabase();
+        }
+        else if ("generic".equals(dialect)) {
+            converter = new GenericTypeConverter();
+            database  = new H2Database();
+        }
+        else {
+            connection = DriverManager.getConnection("jdbc:h2:mem:benchmark");
+            database   = new H2Database();
+            database.setConnection(new JdbcConnection(connection));
+            converter  = new MetaDataTypeConverter(database);
+        }
+
+        final Random random = new Random(dialect.hashCode());
+        columns     = new Column[CORPUS_SIZE];
+        typeStrings = new String[CORPUS_SIZE];
+        defaults    = new String[CORPUS_SIZE];
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            columns[i]     = newColumn(random, i);
+            defaults[i]    = newDefault(random, columns[i]);
+            typeStrings[i] = converter.convertToDatabaseTypeString(columns[i], database);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void convertToDatabaseTypeString(final Blackhole blackhole) {
+        for (final Column column : columns) {
+            blackhole.consume(converter.convertToDatabaseTypeString(column, database));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void getDataType(final Blackhole blackhole) {
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            blackhole.consume(converter.getDataType(typeStrings[i], columns[i].isAutoIncrement()));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void convertDatabaseValueToObject(final Blackhole blackhole) throws ParseException {
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            final Column column = columns[i];
+            blackhole.consume(converter.convertDatabaseValueToObject(defaults[i], column.getDataType(), column.getColumnSize(),
+                                                                     column.getDecimalDigits(), database));
+        }
+    }
+
+    protected Column newColumn(final Random random, final int index) {
+        final Object[] type = TYPES[random.nextInt(TYPES.length)];
+        final int dataType = (Integer) type[0];
+
+        final Column retval = new Column();
+        retval.setName("COLUMN_" + index);
+        retval.setDataType(dataType);
+        retval.setTypeName((String) type[1]);
+        switch (dataType) {
+            case Types.CHAR:
+                retval.setColumnSize(1 + random.nextInt(32));
+                break;
+            case Types.VARCHAR:
+            case Types.VARBINARY:
+                retval.setColumnSize(1 + random.nextInt(4000));
+                break;
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                retval.setColumnSize(1 + random.nextInt(38));
+                retval.setDecimalDigits(random.nextInt(Math.min(retval.getColumnSize(), 10) + 1));
+                break;
+            case Types.INTEGER:
+            case Types.BIGINT:
+                retval.setColumnSize(dataType == Types.INTEGER ? 10 : 19);
+                retval.setAutoIncrement(random.nextInt(8) == 0);
+                break;
+            case Types.DOUBLE:
+            case Types.FLOAT:
+            case Types.REAL:
+                retval.setColumnSize(random.nextBoolean() ? 22 : 53);
+                break;
+            default:
+                break;
+        }
+        return retval;
+    }
+
+    protected String newDefault(final Random random, final Column column) {
+        if (random.nextInt(4) == 0) {
+            return null;
+        }
+        switch (column.getDataType()) {
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.CLOB:
+                return "'value " + random.nextInt(1000) + "'";
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return column.getDecimalDigits() > 0 ? random.nextInt(1000) + ".5" : String.valueOf(random.nextInt(1000));
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.SMALLINT:
+                return String.valueOf(random.nextInt(1000));
+            case Types.DOUBLE:
+            case Types.FLOAT:
+            case Types.REAL:
+                return random.nextInt(1000) + ".25";
+            case Types.DATE:
+            case Types.TIMESTAMP:
+                return DATE_DEFAULTS[random.nextInt(DATE_DEFAULTS.length)];
+            default:
+                return null;
+        }
+    }
+}
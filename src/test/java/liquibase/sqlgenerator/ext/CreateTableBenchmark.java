@@ -0,0 +1,138 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.sqlgenerator.ext;
+
+import liquibase.database.Database;
+import liquibase.database.core.DerbyDatabase;
+import liquibase.database.core.H2Database;
+import liquibase.database.core.MySQLDatabase;
+import liquibase.database.core.OracleDatabase;
+import liquibase.database.typeconversion.core.AbstractTypeConverter;
+import liquibase.database.typeconversion.ext.DerbyTypeConverter;
+import liquibase.database.typeconversion.ext.H2TypeConverter;
+import liquibase.database.typeconversion.ext.MySQLTypeConverter;
+import liquibase.database.typeconversion.ext.OracleTypeConverter;
+import liquibase.statement.AutoIncrementConstraint;
+import liquibase.statement.NotNullConstraint;
+import liquibase.statement.UniqueConstraint;
+import liquibase.statement.core.CreateTableStatement;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures generating <code>CREATE TABLE</code> for wide tables with {@link CreateTableGenerator} and, for
+ * comparison, liquibase's own generator. The tables have a primary key, an auto increment column, a unique constraint
+ * and a mix of types, some with defaults and not null constraints. {@link GeneratedSqlCache} is bypassed so every
+ * call builds the statement.
+ *
+ * Run with <code>mvn -Pbenchmark verify -Djmh.args=CreateTableBenchmark</code>
+ *
+ * @author Leo Przybylski
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CreateTableBenchmark {
+    private static final String[] TYPES = {
+        "java.sql.Types.VARCHAR(40)", "java.sql.Types.VARCHAR(255)", "java.sql.Types.CHAR(1)", "java.sql.Types.DECIMAL(19,2)", 
+        "java.sql.Types.DECIMAL(8,0)", "java.sql.Types.INTEGER", "java.sql.Types.BIGINT", "java.sql.Types.DATE", 
+        "java.sql.Types.TIMESTAMP", "java.sql.Types.CLOB"
+    };
+
+    @Param({ "oracle", "mysql", "h2", "derby" })
+    public String dialect;
+
+    @Param({ "100", "1000" })
+    public int columns;
+
+    private Database                                         database;
+    private CreateTableStatement                             statement;
+    private CreateTableGenerator                             generator;
+    private liquibase.sqlgenerator.core.CreateTableGenerator core;
+
+    @Setup
+    public void setUp() {
+        final AbstractTypeConverter converter;
+        if ("oracle".equals(dialect)) {
+            converter = new OracleTypeConverter();
+            database  = new OracleDatabase();
+        }
+        else if ("mysql".equals(dialect)) {
+            converter = new MySQLTypeConverter();
+            database  = new MySQLDatabase();
+        }
+        else if ("h2".equals(dialect)) {
+            converter = new H2TypeConverter();
+            database  = new H2Database();
+        }
+        else {
+            converter = new DerbyTypeConverter();
+            database  = new DerbyDatabase();
+        }
+
+        final Random random = new Random(columns);
+        statement = new CreateTableStatement(null, "WIDE_TABLE");
+        statement.addPrimaryKeyColumn("ID", converter.getDataType("java.sql.Types.BIGINT", true), null, "WIDE_TABLE_PK", null,
+                                      new AutoIncrementConstraint("ID"));
+        final UniqueConstraint unique = new UniqueConstraint("WIDE_TABLE_UK");
+        for (int i = 1; i < columns; i++) {
+            final String column = "COLUMN_" + i;
+            final String type   = TYPES[random.nextInt(TYPES.length)];
+            final Object defaultValue = type.contains("DECIMAL") && random.nextBoolean() 
+                ? new BigDecimal(random.nextInt(100000) + ".125") : null;
+            if (random.nextInt(4) == 0) {
+                statement.addColumn(column, converter.getDataType(type, false), defaultValue, new NotNullConstraint(column));
+            }
+            else {
+                statement.addColumn(column, converter.getDataType(type, false), defaultValue);
+            }
+            if (i <= 3) {
+                unique.addColumns(column);
+            }
+        }
+        statement.addColumnConstraint(unique);
+
+        generator = new CreateTableGenerator();
+        core      = new liquibase.sqlgenerator.core.CreateTableGenerator();
+    }
+
+    @Benchmark
+    public Object generate() {
+        return generator.generate(statement, database, null);
+    }
+
+    @Benchmark
+    public Object generateWithLiquibase() {
+        return core.generateSql(statement, database, null);
+    }
+}
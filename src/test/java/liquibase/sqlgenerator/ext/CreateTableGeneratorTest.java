@@ -0,0 +1,53 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.sqlgenerator.ext;
+
+import liquibase.database.core.MySQLDatabase;
+import liquibase.database.structure.type.DateTimeType;
+import liquibase.sql.Sql;
+import liquibase.statement.DatabaseFunction;
+import liquibase.statement.core.CreateTableStatement;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the <code>CREATE TABLE</code> statements {@link CreateTableGenerator} writes without a connection
+ *
+ * @author Leo Przybylski
+ */
+public class CreateTableGeneratorTest {
+    @Test
+    public void mysqlSysdateDefaultBecomesNow() {
+        final CreateTableStatement statement = new CreateTableStatement(null, "AUDIT_LOG");
+        statement.addColumn("CREATED", new DateTimeType("TIMESTAMP"), new DatabaseFunction("sysdate"));
+
+        final Sql[] sql = new CreateTableGenerator().generateSql(statement, new MySQLDatabase(), null);
+        assertEquals(1, sql.length);
+        assertTrue(sql[0].toSql(), sql[0].toSql().contains("`CREATED` TIMESTAMP DEFAULT NOW()"));
+    }
+}
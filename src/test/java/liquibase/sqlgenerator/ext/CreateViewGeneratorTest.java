@@ -0,0 +1,58 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.sqlgenerator.ext;
+
+import liquibase.database.core.MySQLDatabase;
+import liquibase.exception.ValidationErrors;
+import liquibase.sql.Sql;
+import liquibase.statement.core.CreateViewStatement;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the views {@link CreateViewGenerator} validates and writes without a connection
+ *
+ * @author Leo Przybylski
+ */
+public class CreateViewGeneratorTest {
+    @Test
+    public void mysqlTruncatesAColumnOfUnknownTypeAsADate() {
+        final CreateViewStatement statement = new CreateViewStatement(null, "HIRES", 
+            "SELECT e.id, TRUNC(e.hire_date) hired, TRUNC(ROUND(e.salary)) salary FROM employee e", false);
+        final MySQLDatabase database = new MySQLDatabase();
+        final CreateViewGenerator generator = new CreateViewGenerator();
+
+        final ValidationErrors errors = generator.validate(statement, database, null);
+        assertFalse(errors.getErrorMessages().toString(), errors.hasErrors());
+
+        final Sql[] sql = generator.generateSql(statement, database, null);
+        assertEquals(1, sql.length);
+        assertTrue(sql[0].toSql(), sql[0].toSql().contains("DATE(e.hire_date) hired"));
+        assertTrue(sql[0].toSql(), sql[0].toSql().contains("TRUNCATE(ROUND(e.salary), 0) salary"));
+    }
+}
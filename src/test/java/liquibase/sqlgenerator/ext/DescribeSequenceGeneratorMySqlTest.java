@@ -0,0 +1,104 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.sqlgenerator.ext;
+
+import liquibase.database.ext.HiLoSequence;
+import liquibase.database.ext.MySqlDatabase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.DatabaseException;
+import liquibase.executor.ExecutorService;
+import liquibase.executor.jvm.JdbcExecutor;
+import liquibase.statement.SqlStatement;
+import liquibase.statement.core.RawSqlStatement;
+import liquibase.statement.ext.DescribeSequenceStatement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link DescribeSequenceGeneratorMySql} looks up single row sequence tables by their comment and
+ * describes each one it finds
+ *
+ * @author Leo Przybylski
+ */
+public class DescribeSequenceGeneratorMySqlTest {
+    private Connection    connection;
+    private MySqlDatabase database;
+    private final List<String> queries = new ArrayList<String>();
+
+    @Before
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:describe");
+        database   = new MySqlDatabase();
+        database.setConnection(new JdbcConnection(connection));
+
+        // Answers the lookup of hilo tables as if two were found
+        final JdbcExecutor executor = new JdbcExecutor() {
+                @Override
+                public List queryForList(final SqlStatement sql, final Class elementType) throws DatabaseException {
+                    queries.add(((RawSqlStatement) sql).getSql());
+                    return Arrays.asList("ORDER_SEQ", "PERSON_SEQ");
+                }
+            };
+        executor.setDatabase(database);
+        ExecutorService.getInstance().setExecutor(database, executor);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        ExecutorService.getInstance().clearExecutor(database);
+        connection.close();
+    }
+
+    @Test
+    public void hiloTablesAreFoundByTheirComment() {
+        final String sql = new DescribeSequenceGeneratorMySql().getDescribeSql(new DescribeSequenceStatement(null), database);
+
+        assertEquals(1, queries.size());
+        assertTrue(queries.get(0), queries.get(0).contains("t.TABLE_COMMENT = '" + HiLoSequence.TABLE_COMMENT + "'"));
+        assertTrue(sql, sql.contains("SELECT 'ORDER_SEQ' AS SEQUENCE_NAME, MAX(id)"));
+        assertTrue(sql, sql.contains("SELECT 'PERSON_SEQ' AS SEQUENCE_NAME, MAX(id)"));
+        assertTrue(sql, sql.contains("auto_increment"));
+    }
+
+    @Test
+    public void oneSequenceIsLookedUpByName() {
+        new DescribeSequenceGeneratorMySql().getDescribeSql(new DescribeSequenceStatement("app", "ORDER_SEQ"), database);
+
+        assertTrue(queries.get(0), queries.get(0).contains("t.TABLE_SCHEMA = 'app'"));
+        assertTrue(queries.get(0), queries.get(0).contains("t.TABLE_NAME = 'ORDER_SEQ'"));
+    }
+}
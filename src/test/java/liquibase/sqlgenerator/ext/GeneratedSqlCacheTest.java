@@ -0,0 +1,175 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.sqlgenerator.ext;
+
+import liquibase.database.Database;
+import liquibase.database.core.H2Database;
+import liquibase.database.structure.type.IntType;
+import liquibase.database.structure.type.VarcharType;
+import liquibase.sql.Sql;
+import liquibase.sql.UnparsedSql;
+import liquibase.statement.ForeignKeyConstraint;
+import liquibase.statement.NotNullConstraint;
+import liquibase.statement.core.CreateTableStatement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link GeneratedSqlCache} keys only depend on what a statement holds and that damaged log lines are
+ * never read back
+ *
+ * @author Leo Przybylski
+ */
+public class GeneratedSqlCacheTest {
+    private File     directory;
+    private Database database;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("sqlcache", "");
+        directory.delete();
+        directory.mkdirs();
+        database = new H2Database();
+    }
+
+    @After
+    public void tearDown() {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void keysOnlyDependOnContent() {
+        final GeneratedSqlCache cache = new GeneratedSqlCache(true, directory, 16);
+        final String key = cache.getKey(createTable("PERSON", "ID", "NAME", "EMAIL"), database);
+
+        assertNotNull(key);
+        // Foreign keys are kept in a HashSet of objects without their own hashCode, so they come out in a
+        // different order for each statement
+        for (int i = 0; i < 20; i++) {
+            assertEquals(key, cache.getKey(createTable("PERSON", "ID", "NAME", "EMAIL"), database));
+        }
+        assertEquals(key, new GeneratedSqlCache(true, directory, 16).getKey(createTable("PERSON", "ID", "NAME", "EMAIL"), database));
+
+        assertFalse(key.equals(cache.getKey(createTable("PEOPLE", "ID", "NAME", "EMAIL"), database)));
+        assertFalse(key.equals(cache.getKey(createTable("PERSON", "ID", "NAME"), database)));
+        assertFalse(key.equals(cache.getKey(createTable("PERSON", "ID", "EMAIL", "NAME"), database)));
+        assertNull(new GeneratedSqlCache(false, directory, 16).getKey(createTable("PERSON", "ID", "NAME", "EMAIL"), database));
+    }
+
+    @Test
+    public void entriesAreReadBackByTheNextRun() {
+        final GeneratedSqlCache first = new GeneratedSqlCache(true, directory, 16);
+        final String key = first.getKey(createTable("PERSON", "ID", "NAME"), database);
+        first.put(key, database, new Sql[] { new UnparsedSql("CREATE TABLE PERSON (\n\tID INT)", ";") });
+
+        final Sql[] sql = new GeneratedSqlCache(true, directory, 16).get(key, database);
+        assertEquals(1, sql.length);
+        assertEquals("CREATE TABLE PERSON (\n\tID INT)", sql[0].toSql());
+        assertEquals(";", sql[0].getEndDelimiter());
+    }
+
+    @Test
+    public void linesFailingTheirChecksumAreSkipped() throws IOException {
+        final GeneratedSqlCache first = new GeneratedSqlCache(true, directory, 16);
+        final String damaged = first.getKey(createTable("DAMAGED", "ID"), database);
+        final String intact  = first.getKey(createTable("INTACT", "ID"), database);
+        first.put(damaged, database, new Sql[] { new UnparsedSql("CREATE TABLE DAMAGED (ID INT)") });
+        first.put(intact, database, new Sql[] { new UnparsedSql("CREATE TABLE INTACT (ID INT)") });
+
+        final File[] logs = directory.listFiles();
+        assertEquals(1, logs.length);
+        final List<String> lines = read(logs[0]);
+        lines.set(1, lines.get(1).replace("DAMAGED (ID INT)", "DAMAGED (ID BIGINT)"));
+        lines.add(intact.substring(0, 10));
+        write(logs[0], lines);
+
+        final GeneratedSqlCache second = new GeneratedSqlCache(true, directory, 16);
+        assertNull(second.get(damaged, database));
+        assertEquals("CREATE TABLE INTACT (ID INT)", second.get(intact, database)[0].toSql());
+    }
+
+    /**
+     * @return a table whose columns other than <code>ID</code> are not null and reference a table of the same name
+     */
+    private CreateTableStatement createTable(final String tableName, final String... columns) {
+        final CreateTableStatement retval = new CreateTableStatement(null, tableName);
+        retval.addPrimaryKeyColumn("ID", new IntType(), null, null, null);
+        for (final String column : columns) {
+            if (!"ID".equals(column)) {
+                retval.addColumn(column, new VarcharType(), null, new NotNullConstraint(column),
+                                 new ForeignKeyConstraint("FK_" + column, column + "(ID)").setColumn(column));
+            }
+        }
+        return retval;
+    }
+
+    private List<String> read(final File file) throws IOException {
+        final List<String> retval = new ArrayList<String>();
+        final BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                retval.add(line);
+            }
+        }
+        finally {
+            in.close();
+        }
+        return retval;
+    }
+
+    private void write(final File file, final List<String> lines) throws IOException {
+        final Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            for (final String line : lines) {
+                out.write(line + "\n");
+            }
+        }
+        finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.sqlgenerator.ext;
+
+import liquibase.database.ext.MySqlDatabase;
+import liquibase.executor.ExecutorService;
+import liquibase.executor.LoggingExecutor;
+import liquibase.sql.Sql;
+import liquibase.statement.DatabaseFunction;
+import liquibase.statement.core.InsertStatement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link InsertGenerator} takes no sequence values when its sql is only written out
+ *
+ * @author Leo Przybylski
+ */
+public class InsertGeneratorTest {
+    private MySqlDatabase database;
+
+    @Before
+    public void setUp() {
+        database = new MySqlDatabase();
+        ExecutorService.getInstance().setExecutor(database, new LoggingExecutor(null, new StringWriter(), database));
+    }
+
+    @After
+    public void tearDown() {
+        ExecutorService.getInstance().clearExecutor(database);
+    }
+
+    @Test
+    public void writtenSqlTakesTheValueWhenItRuns() {
+        final InsertStatement statement = new InsertStatement(null, "PERSON");
+        statement.addColumnValue("ID", new DatabaseFunction("person_seq.NEXTVAL"));
+        statement.addColumnValue("NAME", "Ann");
+
+        final Sql[] sql = new InsertGenerator().generateSql(statement, database, null);
+        assertEquals(2, sql.length);
+        assertEquals("UPDATE `person_seq` SET id = LAST_INSERT_ID(id + 1)", sql[0].toSql());
+        assertEquals("INSERT INTO `PERSON` (`ID`, `NAME`) VALUES (LAST_INSERT_ID(), 'Ann')", sql[1].toSql());
+    }
+
+    @Test
+    public void writtenSqlKeepsEarlierSequencesInVariables() {
+        final InsertStatement statement = new InsertStatement(null, "LINK");
+        statement.addColumnValue("A_ID", new DatabaseFunction("a_seq.NEXTVAL"));
+        statement.addColumnValue("B_ID", new DatabaseFunction("b_seq.nextval"));
+
+        final Sql[] sql = new InsertGenerator().generateSql(statement, database, null);
+        assertEquals(4, sql.length);
+        assertEquals("UPDATE `a_seq` SET id = LAST_INSERT_ID(id + 1)", sql[0].toSql());
+        assertEquals("SET @a_seq_nextval = LAST_INSERT_ID()", sql[1].toSql());
+        assertEquals("UPDATE `b_seq` SET id = LAST_INSERT_ID(id + 1)", sql[2].toSql());
+        assertEquals("INSERT INTO `LINK` (`A_ID`, `B_ID`) VALUES (@a_seq_nextval, LAST_INSERT_ID())", sql[3].toSql());
+    }
+}
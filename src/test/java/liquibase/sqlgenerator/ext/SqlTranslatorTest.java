@@ -0,0 +1,205 @@
+// Copyright 2011 Leo Przybylski. All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without modification, are
+// permitted provided that the following conditions are met:
+//
+//    1. Redistributions of source code must retain the above copyright notice, this list of
+//       conditions and the following disclaimer.
+//
+//    2. Redistributions in binary form must reproduce the above copyright notice, this list
+//       of conditions and the following disclaimer in the documentation and/or other materials
+//       provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY <COPYRIGHT HOLDER> ''AS IS'' AND ANY EXPRESS OR IMPLIED
+// WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+// FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> OR
+// CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+// SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+// ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+// NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+// ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+// The views and conclusions contained in the software and documentation are those of the
+// authors and should not be interpreted as representing official policies, either expressed
+// or implied, of Leo Przybylski.
+package liquibase.sqlgenerator.ext;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Translates Oracle queries with the H2, HSQLDB and Derby rules and runs them against embedded databases holding the
+ * same rows, so each rule set is checked by the database it is written for.
+ *
+ * @author Leo Przybylski
+ */
+public class SqlTranslatorTest {
+    private static final String[] SETUP = {
+        "CREATE TABLE ACCOUNT (ID INTEGER, NAME VARCHAR(100), BALANCE DECIMAL(10,2), OPENED DATE)",
+        "CREATE TABLE ACCOUNT_CODE (ACCOUNT_ID INTEGER, CODE VARCHAR(10))",
+        "INSERT INTO ACCOUNT VALUES (1, 'cash', 10.25, CAST('2011-05-17' AS DATE))",
+        "INSERT INTO ACCOUNT VALUES (2, NULL, 3.50, CAST('2011-11-02' AS DATE))",
+        "INSERT INTO ACCOUNT VALUES (3, 'petty', NULL, NULL)",
+        "INSERT INTO ACCOUNT_CODE VALUES (1, 'C')"
+    };
+
+    private static Connection h2;
+    private static Connection hsql;
+    private static Connection derby;
+
+    @BeforeClass
+    public static void connect() throws SQLException {
+        h2    = setUp(DriverManager.getConnection("jdbc:h2:mem:translator"));
+        hsql  = setUp(DriverManager.getConnection("jdbc:hsqldb:mem:translator", "SA", ""));
+        derby = setUp(DriverManager.getConnection("jdbc:derby:memory:translator;create=true"));
+    }
+
+    @AfterClass
+    public static void disconnect() throws SQLException {
+        h2.close();
+        hsql.close();
+        derby.close();
+        try {
+            DriverManager.getConnection("jdbc:derby:memory:translator;drop=true");
+        }
+        catch (SQLException e) {
+            // Derby always reports a dropped database as an exception
+        }
+    }
+
+    private static Connection setUp(final Connection connection) throws SQLException {
+        final Statement statement = connection.createStatement();
+        try {
+            for (final String sql : SETUP) {
+                statement.execute(sql);
+            }
+        }
+        finally {
+            statement.close();
+        }
+        return connection;
+    }
+
+    @Test
+    public void h2() throws SQLException {
+        assertCommonRules(SqlTranslator.forH2(), h2);
+        assertDateTrunc(SqlTranslator.forH2(), h2);
+        assertEquals(Arrays.asList("10.2", "3.5", null), 
+                     query(SqlTranslator.forH2(), h2, "SELECT TRUNC(BALANCE, 1) FROM ACCOUNT ORDER BY ID"));
+    }
+
+    @Test
+    public void hsql() throws SQLException {
+        assertCommonRules(SqlTranslator.forHsql(), hsql);
+        assertDateTrunc(SqlTranslator.forHsql(), hsql);
+        assertEquals(Arrays.asList("10.2", "3.5", null), 
+                     query(SqlTranslator.forHsql(), hsql, "SELECT TRUNC(BALANCE, 1) FROM ACCOUNT ORDER BY ID"));
+        assertEquals(Arrays.asList("1cash", "2", "3petty"), 
+                     query(SqlTranslator.forHsql(), hsql, "SELECT ID || NAME FROM ACCOUNT ORDER BY ID"));
+    }
+
+    @Test
+    public void derby() throws SQLException {
+        assertCommonRules(SqlTranslator.forDerby(), derby);
+        assertEquals(Arrays.asList("2"), 
+                     query(SqlTranslator.forDerby(), derby, "SELECT COUNT(*) FROM ACCOUNT WHERE OPENED < TRUNC(SYSDATE)"));
+    }
+
+    @Test
+    public void derbyReportsTruncItCannotTranslate() {
+        final SqlTranslator translator = SqlTranslator.forDerby();
+        final String translated = translator.translate("SELECT TRUNC(BALANCE, 1), TRUNC(OPENED, 'MM') FROM ACCOUNT");
+        assertEquals(Arrays.asList("TRUNC(BALANCE, 1)", "TRUNC(OPENED, 'MM')"), translator.findUnsupported(translated));
+        assertTrue(translator.findUnsupported(translator.translate("SELECT TRUNC(SYSDATE) FROM ACCOUNT")).isEmpty());
+        assertTrue(SqlTranslator.forHsql().findUnsupported(translated).isEmpty());
+    }
+
+    @Test
+    public void outerJoinWithRownum() {
+        final String translated = SqlTranslator.forMySql()
+            .translate("SELECT a.x || b.y name FROM a, b WHERE a.id = b.id(+) AND ROWNUM <= 5");
+        assertFalse(translated, translated.contains("(+)"));
+        assertTrue(translated, translated.endsWith(" LIMIT 5"));
+    }
+
+    @Test
+    public void concatenationKeepsStringLiterals() {
+        assertEquals("SELECT COALESCE('a', '') || COALESCE(RTRIM(CHAR(1)), '') || COALESCE(CAST(NAME AS VARCHAR(32672)), '') FROM ACCOUNT",
+                     SqlTranslator.forDerby().translate("SELECT 'a' || 1 || NAME FROM ACCOUNT"));
+    }
+
+    /**
+     * Rules every target has
+     */
+    protected void assertCommonRules(final SqlTranslator translator, final Connection connection) throws SQLException {
+        assertEquals(Arrays.asList("cash", "none", "petty"), 
+                     query(translator, connection, "SELECT NVL(NAME, 'none') FROM ACCOUNT ORDER BY ID"));
+        assertEquals(Arrays.asList("one", "two", "few"), 
+                     query(translator, connection, "SELECT DECODE(ID, 1, 'one', 2, 'two', 'few') FROM ACCOUNT ORDER BY ID"));
+        assertEquals(Arrays.asList("cash-1-2", "-2-3", "petty-3-4"), 
+                     query(translator, connection, "SELECT NAME || '-' || 1 * ID || '-' || (ID + 1) FROM ACCOUNT ORDER BY ID"));
+        assertEquals(1, query(translator, connection, "SELECT NAME FROM ACCOUNT WHERE ROWNUM <= 1").size());
+        assertEquals(Arrays.asList("C", null, null), 
+                     query(translator, connection, 
+                           "SELECT c.CODE FROM ACCOUNT a, ACCOUNT_CODE c WHERE a.ID = c.ACCOUNT_ID(+) ORDER BY a.ID"));
+        assertEquals(2, query(translator, connection, 
+                              "SELECT a.NAME || c.CODE FROM ACCOUNT a, ACCOUNT_CODE c WHERE a.ID = c.ACCOUNT_ID(+) AND ROWNUM <= 2").size());
+        assertEquals(Arrays.asList("3"), query(translator, connection, "SELECT COUNT(*) FROM ACCOUNT WHERE SYSDATE IS NOT NULL"));
+    }
+
+    protected void assertDateTrunc(final SqlTranslator translator, final Connection connection) throws SQLException {
+        assertEquals(Arrays.asList("2011-05-01", "2011-11-01", null), 
+                     dates(query(translator, connection, "SELECT TRUNC(OPENED, 'MM') FROM ACCOUNT ORDER BY ID")));
+        assertEquals(Arrays.asList("2011-01-01", "2011-01-01", null), 
+                     dates(query(translator, connection, "SELECT TRUNC(OPENED, 'YYYY') FROM ACCOUNT ORDER BY ID")));
+    }
+
+    /**
+     * Translate <code>sql</code> and run it
+     *
+     * @return the first column of every row
+     */
+    protected List<String> query(final SqlTranslator translator, final Connection connection, final String sql) throws SQLException {
+        final String translated = translator.translate(sql);
+        final List<String> retval = new ArrayList<String>();
+        final Statement statement = connection.createStatement();
+        try {
+            final ResultSet results = statement.executeQuery(translated);
+            while (results.next()) {
+                retval.add(results.getString(1));
+            }
+            results.close();
+        }
+        catch (SQLException e) {
+            throw new AssertionError(translated + " failed on " + translator.getTarget() + ": " + e.getMessage());
+        }
+        finally {
+            statement.close();
+        }
+        return retval;
+    }
+
+    /**
+     * @return the date part of timestamps
+     */
+    protected List<String> dates(final List<String> values) {
+        final List<String> retval = new ArrayList<String>();
+        for (final String value : values) {
+            retval.add(value == null ? null : value.substring(0, 10));
+        }
+        return retval;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2008 The Kuali Foundation
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.opensource.org/licenses/ecl2.php
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kualigan.tools.liquibase.change.ext;
+
+import liquibase.database.Database;
+import liquibase.database.core.H2Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.LiquibaseException;
+import liquibase.executor.ExecutorService;
+import liquibase.executor.LoggingExecutor;
+import liquibase.statement.SqlStatement;
+import liquibase.statement.core.CreateIndexStatement;
+import liquibase.statement.core.RawSqlStatement;
+import liquibase.statement.core.UnlockDatabaseChangeLogStatement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Defers indexes on an embedded H2 database and checks when and how they get built
+ *
+ * @author Leo Przybylski
+ */
+public class IndexBuildSchedulerTest {
+    private static final String URL = "jdbc:h2:mem:indexes;DB_CLOSE_DELAY=-1";
+
+    private Connection connection;
+    private Database   database;
+    private IndexBuildScheduler scheduler;
+
+    @Before
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(URL, "sa", "");
+        execute("CREATE TABLE A (X INT, Y INT, Z INT)");
+        execute("CREATE TABLE B (X INT)");
+        execute("CREATE TABLE DATABASECHANGELOGLOCK (ID INT, LOCKED BOOLEAN, LOCKGRANTED TIMESTAMP, LOCKEDBY VARCHAR(255))");
+
+        database = new H2Database();
+        database.setConnection(new JdbcConnection(connection));
+        scheduler = new IndexBuildScheduler(database);
+        scheduler.setUrl(URL);
+        scheduler.setUser("sa");
+        scheduler.setPassword("");
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        ExecutorService.getInstance().clearExecutor(database);
+        execute("DROP ALL OBJECTS");
+        connection.close();
+    }
+
+    @Test
+    public void onlyNonUniqueIndexesAreDeferred() throws Exception {
+        final SqlStatement unique = index("A_Y", "A", true, "Y");
+        final SqlStatement other  = new RawSqlStatement("SELECT 1");
+        final SqlStatement[] remaining = scheduler.defer(new SqlStatement[] { index("A_X", "A", false, "X"), unique, other }, null);
+
+        assertArrayEquals(new SqlStatement[] { unique, other }, remaining);
+        assertEquals(1, scheduler.size());
+        assertFalse(getIndexes("A").contains("A_X"));
+        assertTrue(ExecutorService.getInstance().getExecutor(database) instanceof IndexBuildScheduler.UnlockExecutor);
+    }
+
+    @Test
+    public void nothingIsDeferredWhenSqlIsOnlyWritten() {
+        ExecutorService.getInstance().setExecutor(database, new LoggingExecutor(null, new StringWriter(), database));
+        final SqlStatement[] statements = new SqlStatement[] { index("A_X", "A", false, "X") };
+
+        assertSame(statements, scheduler.defer(statements, null));
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    public void buildCreatesEveryDeferredIndex() throws Exception {
+        scheduler.defer(new SqlStatement[] { index("A_X", "A", false, "X"), index("A_Z", "A", false, "Z"),
+                                             index("B_X", "B", false, "X") }, null);
+        assertEquals(3, scheduler.size());
+
+        scheduler.build();
+        assertEquals(0, scheduler.size());
+        assertTrue(getIndexes("A").containsAll(Arrays.asList("A_X", "A_Z")));
+        assertTrue(getIndexes("B").contains("B_X"));
+    }
+
+    @Test
+    public void indexesAreBuiltBeforeTheLockIsReleased() throws Exception {
+        scheduler.defer(new SqlStatement[] { index("A_X", "A", false, "X") }, null);
+        ExecutorService.getInstance().getExecutor(database).update(new UnlockDatabaseChangeLogStatement());
+
+        assertEquals(0, scheduler.size());
+        assertTrue(getIndexes("A").contains("A_X"));
+    }
+
+    @Test
+    public void failureAtUnlockIsThrownByTheNextBuild() throws Exception {
+        scheduler.defer(new SqlStatement[] { index("A_MISSING", "A", false, "MISSING") }, null);
+        ExecutorService.getInstance().getExecutor(database).update(new UnlockDatabaseChangeLogStatement());
+
+        try {
+            scheduler.build();
+            fail("The failed index should be reported");
+        }
+        catch (LiquibaseException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("A_MISSING"));
+        }
+        scheduler.build();
+    }
+
+    private CreateIndexStatement index(final String name, final String table, final boolean unique, final String column) {
+        return new CreateIndexStatement(name, null, table, unique, null, column);
+    }
+
+    private Set<String> getIndexes(final String table) throws SQLException {
+        final Set<String> retval = new HashSet<String>();
+        final ResultSet results = connection.getMetaData().getIndexInfo(null, null, table, false, false);
+        try {
+            while (results.next()) {
+                retval.add(results.getString("INDEX_NAME"));
+            }
+        }
+        finally {
+            results.close();
+        }
+        return retval;
+    }
+
+    private void execute(final String sql) throws SQLException {
+        final Statement statement = connection.createStatement();
+        try {
+            statement.execute(sql);
+        }
+        finally {
+            statement.close();
+        }
+    }
+}
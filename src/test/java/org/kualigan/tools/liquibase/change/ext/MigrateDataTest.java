@@ -0,0 +1,92 @@
+/*
+ * Copyright 2008 The Kuali Foundation
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.opensource.org/licenses/ecl2.php
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kualigan.tools.liquibase.change.ext;
+
+import liquibase.database.Database;
+import liquibase.database.core.H2Database;
+import liquibase.database.ext.HiLoSequence;
+import liquibase.database.jvm.JdbcConnection;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks which source tables {@link MigrateData} treats as sequences, against an embedded H2 database
+ *
+ * @author Leo Przybylski
+ */
+public class MigrateDataTest {
+    private Connection  connection;
+    private MigrateData migrate;
+
+    @Before
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:sequences;DB_CLOSE_DELAY=-1");
+        execute("CREATE TABLE HILO_SEQ (ID BIGINT NOT NULL)");
+        execute("COMMENT ON TABLE HILO_SEQ IS '" + HiLoSequence.TABLE_COMMENT + "'");
+        execute("CREATE TABLE OTHER_COMMENT (ID BIGINT NOT NULL)");
+        execute("COMMENT ON TABLE OTHER_COMMENT IS 'codes'");
+        execute("CREATE TABLE PLAIN (ID BIGINT NOT NULL)");
+        execute("CREATE TABLE AUTO_SEQ (ID BIGINT AUTO_INCREMENT)");
+        execute("CREATE TABLE PERSON (ID BIGINT AUTO_INCREMENT, NAME VARCHAR(40))");
+
+        final Database source = new H2Database();
+        source.setConnection(new JdbcConnection(connection));
+        migrate = new MigrateData();
+        migrate.setSource(source);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        execute("DROP ALL OBJECTS");
+        connection.close();
+    }
+
+    @Test
+    public void hiloTablesAreFoundByTheirComment() throws SQLException {
+        assertTrue(migrate.isHiLoSequence(connection.getMetaData(), "HILO_SEQ"));
+        assertFalse(migrate.isHiLoSequence(connection.getMetaData(), "OTHER_COMMENT"));
+        assertFalse(migrate.isHiLoSequence(connection.getMetaData(), "PLAIN"));
+        assertFalse(migrate.isHiLoSequence(connection.getMetaData(), "MISSING"));
+    }
+
+    @Test
+    public void sequenceTablesAreNotCopied() throws SQLException {
+        assertFalse(migrate.isValidTable(connection.getMetaData(), "HILO_SEQ"));
+        assertFalse(migrate.isValidTable(connection.getMetaData(), "AUTO_SEQ"));
+        assertTrue(migrate.isValidTable(connection.getMetaData(), "OTHER_COMMENT"));
+        assertTrue(migrate.isValidTable(connection.getMetaData(), "PLAIN"));
+        assertTrue(migrate.isValidTable(connection.getMetaData(), "PERSON"));
+    }
+
+    private void execute(final String sql) throws SQLException {
+        final Statement statement = connection.createStatement();
+        try {
+            statement.execute(sql);
+        }
+        finally {
+            statement.close();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2008 The Kuali Foundation
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.opensource.org/licenses/ecl2.php
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kualigan.tools.liquibase.change.ext;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the thread and fetch size recommendations of {@link MigrationPlan}
+ *
+ * @author Leo Przybylski
+ */
+public class MigrationPlanTest {
+
+    @Test
+    public void fetchSizeFollowsTheWidestRows() {
+        final MigrationPlan plan = new MigrationPlan();
+        assertEquals(0, plan.getRecommendedFetchSize());
+
+        plan.addTable("CODES", 100000, 3, 0, 1);
+        plan.addSample(MigrationPlan.NARROW_CLASS, 1000, 1000000000L, 200 * 1000, 1);
+        assertEquals(MigrationPlan.FETCH_BYTES / 200, plan.getRecommendedFetchSize());
+
+        plan.addTable("DOCUMENTS", 1000, 5, 1, 1);
+        plan.addSample(MigrationPlan.LOB_CLASS, 100, 1000000000L, 100L * 1024 * 1024, 1);
+        assertEquals(10, plan.getRecommendedFetchSize());
+    }
+
+    @Test
+    public void reportGivesTheReasoning() {
+        final MigrationPlan plan = new MigrationPlan();
+        plan.addTable("CODES", 100000, 3, 0, 1);
+        plan.addTable("NAMES", 50000, 3, 0, 1);
+        plan.addSample(MigrationPlan.NARROW_CLASS, 1000, 1000000000L, 1024 * 1000, 1);
+
+        final List<String> report = plan.getReport();
+        boolean found = false;
+        for (final String line : report) {
+            if (line.contains("lb.copy.fetch")) {
+                assertTrue(line, line.contains("1024 rows"));
+                assertTrue(line, line.contains("1024 KB per round trip"));
+                found = true;
+            }
+        }
+        assertTrue(report.toString(), found);
+    }
+}
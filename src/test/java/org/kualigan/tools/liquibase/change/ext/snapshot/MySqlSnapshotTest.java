@@ -0,0 +1,106 @@
+/*
+ * Copyright 2008 The Kuali Foundation
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.opensource.org/licenses/ecl2.php
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kualigan.tools.liquibase.change.ext.snapshot;
+
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link MySqlSnapshot} lets go of every reader it touched, even when pinning one of them fails
+ *
+ * @author Leo Przybylski
+ */
+public class MySqlSnapshotTest {
+
+    @Test
+    public void readersPinnedBeforeAFailureAreReleased() throws SQLException {
+        final FakeConnection coordinator = new FakeConnection(false);
+        final FakeConnection first       = new FakeConnection(false);
+        final FakeConnection second      = new FakeConnection(true);
+        final FakeConnection third       = new FakeConnection(false);
+
+        final MySqlSnapshot snapshot = new MySqlSnapshot();
+        try {
+            snapshot.begin(coordinator.proxy(), Arrays.asList(first.proxy(), second.proxy(), third.proxy()));
+            fail("The second reader should not take a snapshot");
+        }
+        catch (SQLException e) {
+        }
+        assertEquals("UNLOCK TABLES", coordinator.executed.get(coordinator.executed.size() - 1));
+        assertTrue(snapshot.isActive());
+
+        snapshot.end();
+        assertFalse(snapshot.isActive());
+        assertTrue(first.autoCommit && first.rolledBack);
+        assertTrue(second.autoCommit && second.rolledBack);
+        assertTrue(third.autoCommit && !third.rolledBack);
+    }
+
+    /**
+     * Just enough of a {@link Connection} for a snapshot
+     */
+    private static class FakeConnection implements InvocationHandler {
+        private final boolean      failing;
+        private final List<String> executed = new ArrayList<String>();
+        private boolean autoCommit = true;
+        private boolean rolledBack;
+
+        public FakeConnection(final boolean failing) {
+            this.failing = failing;
+        }
+
+        public Connection proxy() {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class }, this);
+        }
+
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            final String name = method.getName();
+            if ("createStatement".equals(name)) {
+                return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Statement.class }, 
+                                              new InvocationHandler() {
+                        public Object invoke(final Object statement, final Method method, final Object[] args) throws Throwable {
+                            if ("execute".equals(method.getName())) {
+                                if (failing) {
+                                    throw new SQLException("Snapshot failed");
+                                }
+                                executed.add((String) args[0]);
+                                return false;
+                            }
+                            return null;
+                        }
+                    });
+            }
+            else if ("setAutoCommit".equals(name)) {
+                autoCommit = (Boolean) args[0];
+            }
+            else if ("rollback".equals(name)) {
+                rolledBack = true;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2008 The Kuali Foundation
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.opensource.org/licenses/ecl2.php
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kualigan.tools.liquibase.change.ext.transform;
+
+import org.kualigan.tools.liquibase.change.ext.RowBuffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the built-in {@link RowTransformer}s leave primitive cells unboxed unless they change them
+ *
+ * @author Leo Przybylski
+ */
+public class TransformerRegistryTest {
+    private RowBuffer row;
+
+    @Before
+    public void setUp() {
+        row = new RowBuffer("PERSON", new String[] { "ID", "NAME" }, new int[] { Types.BIGINT, Types.VARCHAR });
+        row.setLong(0, 42);
+        row.set(1, "Leo  ");
+    }
+
+    @Test
+    public void stringTransformersSkipPrimitiveCells() {
+        final TransformerRegistry registry = registry("*.*", "trim,mask:*:2");
+        final RowTransformer[] transformers = registry.compile(row);
+        for (int i = 0; i < transformers.length; i++) {
+            transformers[i].transform(row, i);
+        }
+
+        assertEquals(RowBuffer.LONG, row.getKind(0));
+        assertEquals(42, row.getLong(0));
+        assertEquals("*eo", row.get(1));
+    }
+
+    @Test
+    public void hashUsesTheStringFormOfNumbers() {
+        final RowTransformer hash = registry("PERSON.ID", "hash").createTransformer("hash");
+        hash.transform(row, 0);
+
+        final RowBuffer boxed = new RowBuffer("PERSON", new String[] { "ID" }, new int[] { Types.VARCHAR });
+        boxed.set(0, "42");
+        hash.transform(boxed, 0);
+
+        assertEquals(boxed.get(0), row.get(0));
+    }
+
+    @Test
+    public void constantKeepsColons() {
+        final RowTransformer constant = registry("PERSON.ID", "x").createTransformer("constant:12:00:00");
+        constant.transform(row, 0);
+        constant.transform(row, 1);
+
+        assertEquals("12:00:00", row.get(0));
+        assertEquals("12:00:00", row.get(1));
+    }
+
+    @Test
+    public void emptyArgumentsKeepTheirPosition() {
+        final RowTransformer hash = registry("PERSON.ID", "x").createTransformer("hash::pepper:8");
+        hash.transform(row, 1);
+
+        assertEquals(8, ((String) row.get(1)).length());
+    }
+
+    private TransformerRegistry registry(final String key, final String rule) {
+        final Map<String, String> rules = new HashMap<String, String>();
+        rules.put(key, rule);
+        return new TransformerRegistry(TransformerRegistry.findTransformers(), rules);
+    }
+}